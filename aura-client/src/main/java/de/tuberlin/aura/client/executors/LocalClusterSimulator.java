@@ -156,6 +156,9 @@ public final class LocalClusterSimulator {
         for (final ProcessExecutor pe : peList) {
             pe.destroy();
         }
+        for (final TaskManager tm : tmList) {
+            tm.shutdown();
+        }
         this.zookeeperCNXNFactory.closeAll();
         //System.exit(0);
     }
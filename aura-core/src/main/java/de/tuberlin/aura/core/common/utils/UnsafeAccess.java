@@ -4,6 +4,11 @@ import java.lang.reflect.Field;
 
 import sun.misc.Unsafe;
 
+/**
+ * The only class that names sun.misc.Unsafe. Other classes use the instance through a static
+ * import of {@link #UNSAFE} and never the type, so javac's proprietary API warning, which cannot
+ * be suppressed by an annotation, is reported for this file only.
+ */
 public class UnsafeAccess {
 
     public static final Unsafe UNSAFE;
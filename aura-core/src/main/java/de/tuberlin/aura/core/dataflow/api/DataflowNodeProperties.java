@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import de.tuberlin.aura.core.record.KeySelector;
 import de.tuberlin.aura.core.record.Partitioner;
 import de.tuberlin.aura.core.record.TypeInformation;
 
@@ -54,6 +55,9 @@ public final class DataflowNodeProperties implements Serializable {
 
         HASH_FOLD_OPERATOR(InputArity.UNARY),
 
+        // folds the partial aggregates of a hash fold, inserted by the plan after a salted edge.
+        HASH_COMBINE_OPERATOR(InputArity.UNARY),
+
         UDF_SOURCE(InputArity.NULLARY),
 
         HDFS_SOURCE(InputArity.NULLARY),
@@ -150,6 +154,18 @@ public final class DataflowNodeProperties implements Serializable {
 
     public final Map<String, Object> config;
 
+    // compiled key selectors, created on first use.
+
+    private transient KeySelector keySelector1;
+
+    private transient KeySelector keySelector2;
+
+    private transient KeySelector groupBySelector;
+
+    private transient KeySelector sortKeySelector;
+
+    private transient KeySelector datasetKeySelector;
+
     // ---------------------------------------------------
     // Constructors.
     // ---------------------------------------------------
@@ -219,4 +235,38 @@ public final class DataflowNodeProperties implements Serializable {
 
         this.config = config;
     }
-}
\ No newline at end of file
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public KeySelector getKeySelector1() {
+        if (keySelector1 == null && keyIndices1 != null)
+            keySelector1 = new KeySelector(input1Type, keyIndices1);
+        return keySelector1;
+    }
+
+    public KeySelector getKeySelector2() {
+        if (keySelector2 == null && keyIndices2 != null)
+            keySelector2 = new KeySelector(input2Type, keyIndices2);
+        return keySelector2;
+    }
+
+    public KeySelector getGroupBySelector() {
+        if (groupBySelector == null && groupByKeyIndices != null)
+            groupBySelector = new KeySelector(input1Type, groupByKeyIndices);
+        return groupBySelector;
+    }
+
+    public KeySelector getSortKeySelector() {
+        if (sortKeySelector == null && sortKeyIndices != null)
+            sortKeySelector = new KeySelector(input1Type, sortKeyIndices);
+        return sortKeySelector;
+    }
+
+    public KeySelector getDatasetKeySelector() {
+        if (datasetKeySelector == null && datasetKeyIndices != null)
+            datasetKeySelector = new KeySelector(input1Type, datasetKeyIndices);
+        return datasetKeySelector;
+    }
+}
@@ -0,0 +1,497 @@
+package de.tuberlin.aura.core.dataflow.datasets;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.AbstractTuple;
+
+/**
+ * Stores tuples column by column: numeric and boolean fields in primitive arrays, strings dictionary
+ * encoded, other fields in object arrays. Boxed numbers, atomic records, are stored as a single
+ * column. Tuples are materialized on the fly while scanning, so every scan returns new instances.
+ */
+final class ColumnarStore {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static abstract class Column {
+
+        private BitSet nulls;
+
+        /**
+         * @return false if the column can not store the value.
+         */
+        boolean add(final int row, final Object value) {
+            if (value == null) {
+                if (nulls == null)
+                    nulls = new BitSet();
+                nulls.set(row);
+                ensureCapacity(row + 1);
+                return true;
+            }
+            if (nulls != null)
+                nulls.clear(row);
+            return addValue(row, value);
+        }
+
+        Object get(final int row) {
+            return (nulls != null && nulls.get(row)) ? null : getValue(row);
+        }
+
+        void clear() {
+            nulls = null;
+            clearValues();
+        }
+
+        abstract boolean addValue(final int row, final Object value);
+
+        abstract Object getValue(final int row);
+
+        abstract void ensureCapacity(final int rows);
+
+        abstract void clearValues();
+    }
+
+    private static final class LongColumn extends Column {
+
+        private long[] values = new long[0];
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            if (value.getClass() != Long.class)
+                return false;
+            ensureCapacity(row + 1);
+            values[row] = (Long) value;
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            return values[row];
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+            if (values.length < rows)
+                values = Arrays.copyOf(values, grow(values.length, rows));
+        }
+
+        @Override
+        void clearValues() {
+            values = new long[0];
+        }
+    }
+
+    /**
+     * Integers, shorts, bytes and characters, boxed back to their type.
+     */
+    private static final class IntColumn extends Column {
+
+        private final Class<?> boxType;
+
+        private int[] values = new int[0];
+
+        IntColumn(final Class<?> boxType) {
+            this.boxType = boxType;
+        }
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            if (value.getClass() != boxType)
+                return false;
+            ensureCapacity(row + 1);
+            values[row] = (boxType == Character.class) ? (Character) value : ((Number) value).intValue();
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            final int value = values[row];
+            if (boxType == Integer.class)
+                return value;
+            if (boxType == Short.class)
+                return (short) value;
+            if (boxType == Byte.class)
+                return (byte) value;
+            return (char) value;
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+            if (values.length < rows)
+                values = Arrays.copyOf(values, grow(values.length, rows));
+        }
+
+        @Override
+        void clearValues() {
+            values = new int[0];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private double[] values = new double[0];
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            if (value.getClass() != Double.class)
+                return false;
+            ensureCapacity(row + 1);
+            values[row] = (Double) value;
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            return values[row];
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+            if (values.length < rows)
+                values = Arrays.copyOf(values, grow(values.length, rows));
+        }
+
+        @Override
+        void clearValues() {
+            values = new double[0];
+        }
+    }
+
+    private static final class FloatColumn extends Column {
+
+        private float[] values = new float[0];
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            if (value.getClass() != Float.class)
+                return false;
+            ensureCapacity(row + 1);
+            values[row] = (Float) value;
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            return values[row];
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+            if (values.length < rows)
+                values = Arrays.copyOf(values, grow(values.length, rows));
+        }
+
+        @Override
+        void clearValues() {
+            values = new float[0];
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        private final BitSet values = new BitSet();
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            if (value.getClass() != Boolean.class)
+                return false;
+            values.set(row, (Boolean) value);
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            return values.get(row);
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+        }
+
+        @Override
+        void clearValues() {
+            values.clear();
+        }
+    }
+
+    /**
+     * Strings are replaced by codes into a dictionary of the distinct strings.
+     */
+    private static final class StringColumn extends Column {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private final List<String> dictionary = new ArrayList<>();
+
+        private int[] values = new int[0];
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            if (value.getClass() != String.class)
+                return false;
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codes.put((String) value, code);
+                dictionary.add((String) value);
+            }
+            ensureCapacity(row + 1);
+            values[row] = code;
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            return dictionary.get(values[row]);
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+            if (values.length < rows)
+                values = Arrays.copyOf(values, grow(values.length, rows));
+        }
+
+        @Override
+        void clearValues() {
+            codes.clear();
+            dictionary.clear();
+            values = new int[0];
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+
+        private Object[] values = new Object[0];
+
+        @Override
+        boolean addValue(final int row, final Object value) {
+            ensureCapacity(row + 1);
+            values[row] = value;
+            return true;
+        }
+
+        @Override
+        Object getValue(final int row) {
+            return values[row];
+        }
+
+        @Override
+        void ensureCapacity(final int rows) {
+            if (values.length < rows)
+                values = Arrays.copyOf(values, grow(values.length, rows));
+        }
+
+        @Override
+        void clearValues() {
+            values = new Object[0];
+        }
+    }
+
+    /**
+     * Collection view of the store. It is serialized as a list of the materialized records.
+     */
+    private final class RecordCollection extends AbstractCollection<Object> implements Serializable {
+
+        private static final long serialVersionUID = -1L;
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new Iterator<Object>() {
+
+                private int row = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return row < size;
+                }
+
+                @Override
+                public Object next() {
+                    if (row >= size)
+                        throw new NoSuchElementException();
+                    return get(row++);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        private Object writeReplace() {
+            return new ArrayList<>(this);
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int MIN_CAPACITY = 16;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    // null if the records are atomic and stored in a single column.
+    private final Class<?> tupleType;
+
+    private final Column[] columns;
+
+    private final RecordCollection records;
+
+    private int size;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    private ColumnarStore(final Class<?> tupleType, final Column[] columns) {
+        this.tupleType = tupleType;
+        this.columns = columns;
+        this.records = new RecordCollection();
+        this.size = 0;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return false if the record does not match the column types, it is not added then.
+     */
+    public boolean add(final Object record) {
+        if (tupleType == null) {
+            if (!columns[0].add(size, record))
+                return false;
+        } else {
+            if (record.getClass() != tupleType)
+                return false;
+            final AbstractTuple tuple = (AbstractTuple) record;
+            for (int i = 0; i < columns.length; ++i) {
+                // a rejected field leaves the values of the previous columns behind, they are
+                // overwritten by the next record.
+                if (!columns[i].add(size, tuple.getField(i)))
+                    return false;
+            }
+        }
+        ++size;
+        return true;
+    }
+
+    public Object get(final int row) {
+        if (tupleType == null)
+            return columns[0].get(row);
+
+        final AbstractTuple tuple = AbstractTuple.createTuple(columns.length);
+        for (int i = 0; i < columns.length; ++i)
+            tuple.setField(columns[i].get(row), i);
+        return tuple;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a read-only view of the records, materialized on iteration.
+     */
+    public AbstractCollection<Object> getRecords() {
+        return records;
+    }
+
+    public void clear() {
+        for (final Column column : columns)
+            column.clear();
+        size = 0;
+    }
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return a store for records of the given type, or null if the records can not be stored
+     * column wise (records that are neither tuples nor boxed primitives or strings).
+     */
+    public static ColumnarStore create(final TypeInformation typeInfo) {
+        if (typeInfo == null)
+            return null;
+
+        if (isLeaf(typeInfo)) {
+            final Column column = createColumn(typeInfo.type);
+            return (column instanceof ObjectColumn) ? null : new ColumnarStore(null, new Column[] { column });
+        }
+
+        if (!AbstractTuple.class.isAssignableFrom(typeInfo.type) || typeInfo.fieldTypes.size() == 0)
+            return null;
+
+        // the tuples are materialized by their arity.
+        try {
+            if (AbstractTuple.createTuple(typeInfo.fieldTypes.size()).getClass() != typeInfo.type)
+                return null;
+        } catch (IllegalStateException e) {
+            return null;
+        }
+
+        final Column[] columns = new Column[typeInfo.fieldTypes.size()];
+        for (int i = 0; i < columns.length; ++i) {
+            final TypeInformation fieldType = typeInfo.fieldTypes.get(i);
+            columns[i] = (fieldType != null && isLeaf(fieldType)) ? createColumn(fieldType.type) : new ObjectColumn();
+        }
+        return new ColumnarStore(typeInfo.type, columns);
+    }
+
+    // ---------------------------------------------------
+    // Private Static Methods.
+    // ---------------------------------------------------
+
+    private static boolean isLeaf(final TypeInformation typeInfo) {
+        // the type information of atomic types has no or a single null field type.
+        return typeInfo.fieldTypes == null || (typeInfo.fieldTypes.size() == 1 && typeInfo.fieldTypes.get(0) == null);
+    }
+
+    private static Column createColumn(final Class<?> type) {
+        if (type == Long.class || type == long.class)
+            return new LongColumn();
+        if (type == Integer.class || type == int.class)
+            return new IntColumn(Integer.class);
+        if (type == Short.class || type == short.class)
+            return new IntColumn(Short.class);
+        if (type == Byte.class || type == byte.class)
+            return new IntColumn(Byte.class);
+        if (type == Character.class || type == char.class)
+            return new IntColumn(Character.class);
+        if (type == Double.class || type == double.class)
+            return new DoubleColumn();
+        if (type == Float.class || type == float.class)
+            return new FloatColumn();
+        if (type == Boolean.class || type == boolean.class)
+            return new BooleanColumn();
+        if (type == String.class)
+            return new StringColumn();
+        return new ObjectColumn();
+    }
+
+    private static int grow(final int capacity, final int rows) {
+        return Math.max(Math.max(MIN_CAPACITY, rows), capacity + (capacity >> 1));
+    }
+}
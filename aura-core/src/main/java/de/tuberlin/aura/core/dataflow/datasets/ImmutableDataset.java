@@ -1,12 +1,17 @@
 package de.tuberlin.aura.core.dataflow.datasets;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 
 
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 
+/**
+ * Dataset that is written once and read one or more times. Tuples and boxed primitives are stored
+ * column wise (see ColumnarStore) unless COLUMNAR_STORAGE is set to false, other elements in a list.
+ */
 public class ImmutableDataset<E> extends AbstractDataset<E> {
 
     // ---------------------------------------------------
@@ -15,10 +20,15 @@ public class ImmutableDataset<E> extends AbstractDataset<E> {
 
     public static String NUMBER_OF_CONSUMPTIONS = "NUMBER_OF_CONSUMPTIONS";
 
+    public static String COLUMNAR_STORAGE = "COLUMNAR_STORAGE";
+
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
 
+    // null if the elements are stored in the list.
+    private ColumnarStore columns;
+
     private List<E> data;
 
     private final boolean hasFixedNumberOfReads;
@@ -34,11 +44,16 @@ public class ImmutableDataset<E> extends AbstractDataset<E> {
     public ImmutableDataset(final IExecutionContext context) {
         super(context);
 
-        this.data = new LinkedList<>();
+        final DataflowNodeProperties properties = context.getProperties(0);
+
+        if (properties.config == null || !Boolean.FALSE.equals(properties.config.get(COLUMNAR_STORAGE)))
+            this.columns = ColumnarStore.create(properties.input1Type != null ? properties.input1Type : properties.outputType);
 
-        if (context.getProperties(0).config != null && context.getProperties(0).config.containsKey(NUMBER_OF_CONSUMPTIONS)) {
+        this.data = new ArrayList<>();
+
+        if (properties.config != null && properties.config.containsKey(NUMBER_OF_CONSUMPTIONS)) {
             this.hasFixedNumberOfReads = true;
-            fixedNumberOfReads = (int) context.getProperties(0).config.get(NUMBER_OF_CONSUMPTIONS);
+            fixedNumberOfReads = (int) properties.config.get(NUMBER_OF_CONSUMPTIONS);
         } else {
             this.hasFixedNumberOfReads = false;
             fixedNumberOfReads = -1;
@@ -57,19 +72,26 @@ public class ImmutableDataset<E> extends AbstractDataset<E> {
         if (element == null)
             throw new IllegalArgumentException("element == null");
 
-        data.add(element);
+        if (columns != null && !columns.add(element))
+            switchToRows();
+
+        if (columns == null)
+            data.add(element);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Collection<E> getData() {
 
         readCount++;
 
-        return data;
+        return (columns != null) ? (Collection<E>) columns.getRecords() : data;
     }
 
     @Override
     public void clear() {
+        if (columns != null)
+            columns.clear();
         data.clear();
     }
 
@@ -77,8 +99,12 @@ public class ImmutableDataset<E> extends AbstractDataset<E> {
         // sanity check.
         if (data == null)
             throw new IllegalArgumentException("data == null");
+        if (data == this.data || (columns != null && data == columns.getRecords()))
+            return;
 
-        this.data = new LinkedList<>(data);
+        clear();
+        for (final E element : data)
+            add(element);
     }
 
     public boolean hasFixedNumberOfReads() {
@@ -88,4 +114,19 @@ public class ImmutableDataset<E> extends AbstractDataset<E> {
     public boolean isLastRead() {
         return readCount + 1 == fixedNumberOfReads;
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Falls back to the list for elements that do not match the declared field types.
+     */
+    @SuppressWarnings("unchecked")
+    private void switchToRows() {
+        data = new ArrayList<>(columns.size() + 1);
+        for (final Object element : columns.getRecords())
+            data.add((E) element);
+        columns = null;
+    }
 }
@@ -1,23 +1,29 @@
 package de.tuberlin.aura.core.dataflow.datasets;
 
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
-import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.KeyedRecordStore;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
 
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
+import java.util.Iterator;
+
+/**
+ * Dataset of elements with unique keys, stored serialized in memory pages (see KeyedRecordStore).
+ * The pages are charged to the dataset memory budget (<code>tm.datasets.memory.budget</code>), the
+ * dataset fails if its elements outgrow it. Elements are returned as copies, so changes to them
+ * must be written back with update.
+ */
 public class MutableDataset<E> extends AbstractDataset<E> {
 
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
 
-    private final Map<Object[],E> data;
-
-    private final TypeInformation typeInfo;
+    private final KeyedRecordStore store;
 
-    private final int[][] datasetKeyIndices;
+    private final Collection<E> dataView;
 
     // ---------------------------------------------------
     // Constructor.
@@ -26,11 +32,27 @@ public class MutableDataset<E> extends AbstractDataset<E> {
     public MutableDataset(final IExecutionContext context) {
         super(context);
 
-        this.data = new HashMap<>();
+        final DataflowNodeProperties properties = context.getProperties();
+
+        this.store = new KeyedRecordStore(
+                properties.input1Type != null ? properties.input1Type : properties.outputType,
+                properties.getDatasetKeySelector(),
+                OperatorMemory.createDatasetPageAllocator(context)
+        );
 
-        this.typeInfo = context.getProperties().input1Type;
+        this.dataView = new AbstractCollection<E>() {
 
-        this.datasetKeyIndices = context.getProperties().datasetKeyIndices;
+            @Override
+            @SuppressWarnings("unchecked")
+            public Iterator<E> iterator() {
+                return (Iterator<E>) store.iterator();
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
     }
 
     // ---------------------------------------------------
@@ -39,12 +61,12 @@ public class MutableDataset<E> extends AbstractDataset<E> {
 
     @Override
     public void add(final E element) {
-        data.put(getKeyFields(element), element);
+        store.put(element);
     }
 
     @Override
     public void clear() {
-        data.clear();
+        store.clear();
     }
 
     @Override
@@ -54,39 +76,30 @@ public class MutableDataset<E> extends AbstractDataset<E> {
 
     @Override
     public Collection<E> getData() {
-        return data.values();
+        return dataView;
     }
 
+    /**
+     * @return a copy of the element with the given key fields, or null.
+     */
+    @SuppressWarnings("unchecked")
     public E get(final Object[] keys) {
-        return data.get(keys);
+        return (E) store.get(keys);
     }
 
     public void update(final E element) {
-        update(getKeyFields(element), element);
+        store.put(element);
     }
 
     public void update(final Object[] keys, final E element) {
-        data.put(keys, element);
+        store.put(keys, element);
     }
 
     public boolean containsElement(final Object[] keys) {
-        return data.containsKey(keys);
+        return store.containsKey(keys);
     }
 
     public boolean containsElement(final E element) {
-        return data.containsKey(getKeyFields(element));
-    }
-
-    // ---------------------------------------------------
-    // Private Methods.
-    // ---------------------------------------------------
-
-    private Object[] getKeyFields(E element) {
-        final Object[] keyFields = new Object[datasetKeyIndices.length];
-        int fieldIndex = 0;
-        for(final int[] selectorChain : datasetKeyIndices) {
-            keyFields[fieldIndex++] = typeInfo.selectField(selectorChain, element);
-        }
-        return keyFields;
+        return store.containsKeyOf(element);
     }
 }
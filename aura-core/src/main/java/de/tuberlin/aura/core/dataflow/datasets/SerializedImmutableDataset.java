@@ -2,20 +2,40 @@ package de.tuberlin.aura.core.dataflow.datasets;
 
 
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
 import de.tuberlin.aura.core.iosystem.IOEvents;
 import de.tuberlin.aura.core.memory.BufferStream;
 import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
 import de.tuberlin.aura.core.record.RecordReader;
 import de.tuberlin.aura.core.taskmanager.spi.IRecordReader;
 import de.tuberlin.aura.core.taskmanager.spi.IRecordWriter;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
-
+import io.netty.buffer.Unpooled;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Dataset of serialized records. The received buffers are copied into pages of the operator memory
+ * budget and returned to the network right away. Beyond the budget the buffers are appended to a
+ * spill file, which is memory mapped when the dataset is consumed.
+ */
 public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
 
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final long MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
@@ -28,6 +48,26 @@ public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
 
     private int bufferIdx;
 
+    private final File spillDirectory;
+
+    // the page size, equal to the size of the received buffers. 0 until the first buffer arrives.
+    private int bufferSize;
+
+    // created with the first buffer, released with the dataset.
+    private IAllocator pageAllocator;
+
+    private File spillFile;
+
+    private FileChannel spillChannel;
+
+    private int spilledBufferCount;
+
+    private byte[] spillBuffer;
+
+    private MappedByteBuffer mappedWindow;
+
+    private int mappedWindowStart;
+
     // ---------------------------------------------------
     // Constructor.
     // ---------------------------------------------------
@@ -41,6 +81,8 @@ public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
 
         this.bufferIdx = 0;
 
+        this.spillDirectory = OperatorMemory.getSpillDirectory(context);
+
         this.internalReader = new RecordReader(runtime, 0);
 
         this.internalReader.setBufferInputHandler(new BufferStream.IBufferInputHandler() {
@@ -49,6 +91,8 @@ public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
             public MemoryView get() {
                 if (bufferIdx < dataBuffers.size())
                     return dataBuffers.get(bufferIdx++);
+                else if (bufferIdx < dataBuffers.size() + spilledBufferCount)
+                    return mapSpilledBuffer(bufferIdx++ - dataBuffers.size());
                 else
                     return null;
             }
@@ -76,12 +120,17 @@ public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
             IOEvents.TransferBufferEvent event = runtime.getConsumer().absorb(gateIndex);
 
             while (event != null) {
-                dataBuffers.add(event.buffer);
+                storeBuffer(event.buffer);
+                // the network buffer is available to the producers again.
+                event.buffer.free();
                 event = runtime.getConsumer().absorb(gateIndex);
             }
 
-        } catch(InterruptedException ie) {
-            throw new IllegalStateException(ie);
+            if (spillChannel != null)
+                spillChannel.force(false);
+
+        } catch(InterruptedException | IOException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -105,15 +154,22 @@ public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
         writer.end();
 
         internalReader.end();
+
+        mappedWindow = null;
     }
 
     public void releaseDataset() {
 
-        for (final MemoryView buffer : dataBuffers) {
-            buffer.free();
-        }
-
+        for (final MemoryView page : dataBuffers)
+            page.free();
         dataBuffers.clear();
+
+        // the pages are heap memory of the dataset, they are reclaimed with the allocator.
+        pageAllocator = null;
+
+        bufferSize = 0;
+
+        deleteSpillFile();
     }
 
     // ---------------------------------------------------
@@ -130,11 +186,96 @@ public class SerializedImmutableDataset<E> extends AbstractDataset<E> {
 
     @Override
     public void clear() {
-        dataBuffers.clear();
+        releaseDataset();
     }
 
     @Override
     public void setData(Collection<E> data) {
         throw new UnsupportedOperationException();
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private void storeBuffer(final MemoryView buffer) throws IOException {
+        if (pageAllocator == null) {
+            pageAllocator = OperatorMemory.createPageAllocator(context);
+            bufferSize = pageAllocator.getBufferSize();
+        }
+        if (buffer.size != bufferSize)
+            throw new IllegalStateException("buffer size " + buffer.size + " != page size " + bufferSize);
+
+        final MemoryView page = (spillChannel == null) ? pageAllocator.alloc() : null;
+
+        if (page != null) {
+            buffer.copyTo(page);
+            dataBuffers.add(page);
+        } else {
+            spillBuffer(buffer);
+        }
+    }
+
+    private void spillBuffer(final MemoryView buffer) throws IOException {
+        if (spillChannel == null) {
+            spillFile = File.createTempFile("aura-dataset-", ".bin", spillDirectory);
+            spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+            spillBuffer = new byte[bufferSize];
+        }
+
+        buffer.copy(spillBuffer);
+        final ByteBuffer source = ByteBuffer.wrap(spillBuffer);
+        while (source.hasRemaining())
+            spillChannel.write(source);
+        ++spilledBufferCount;
+    }
+
+    /**
+     * Maps the file in windows of several buffers and returns a view of the buffer in its window.
+     */
+    private MemoryView mapSpilledBuffer(final int index) {
+        final int buffersPerWindow = (int) (MAPPED_WINDOW_SIZE / bufferSize);
+
+        if (mappedWindow == null || index < mappedWindowStart || index >= mappedWindowStart + buffersPerWindow) {
+            mappedWindowStart = (index / buffersPerWindow) * buffersPerWindow;
+            final int windowBuffers = Math.min(buffersPerWindow, spilledBufferCount - mappedWindowStart);
+            try {
+                // a private mapping, netty wraps read-only buffers without exposing their address.
+                mappedWindow = spillChannel.map(FileChannel.MapMode.PRIVATE,
+                        (long) mappedWindowStart * bufferSize, (long) windowBuffers * bufferSize);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        final ByteBuffer window = mappedWindow.duplicate();
+        window.position((index - mappedWindowStart) * bufferSize);
+        window.limit(window.position() + bufferSize);
+
+        // the views are never freed, the page allocator only tags them.
+        return new MemoryView(pageAllocator, Unpooled.wrappedBuffer(window.slice()));
+    }
+
+    private void deleteSpillFile() {
+        mappedWindow = null;
+        spilledBufferCount = 0;
+        spillBuffer = null;
+
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                spillChannel = null;
+            }
+        }
+
+        if (spillFile != null) {
+            // a mapped file can still be deleted, the mapping keeps the data until it is collected.
+            if (!spillFile.delete() && spillFile.exists())
+                throw new IllegalStateException("could not delete spill file " + spillFile);
+            spillFile = null;
+        }
+    }
 }
@@ -0,0 +1,351 @@
+package de.tuberlin.aura.core.dataflow.operators;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.AbstractPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.FusedChainPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.udfs.FunctionFactory;
+import de.tuberlin.aura.core.dataflow.udfs.contracts.IFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FilterFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FlatMapFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FoldFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.MapFunction;
+
+/**
+ * Compiles chains of map, filter and flat-map operators, optionally ended by a fold, into a single
+ * generated {@link FusedChainPhysicalOperator}. The generated process method calls the functions
+ * of the chain one after another, without operators, result holders or virtual calls in between.
+ *
+ * A class is generated per sequence of function types, so the call sites of a chain only see its
+ * own functions and the JIT can inline them.
+ */
+public final class OperatorChainCompiler {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final String OBJECT_DESC = Type.getDescriptor(Object.class);
+
+    private static final String BASE_NAME = Type.getInternalName(FusedChainPhysicalOperator.class);
+
+    private static final String LIST_NAME = Type.getInternalName(ArrayList.class);
+
+    private static final String CONSTRUCTOR_DESC = "(" + Type.getDescriptor(IExecutionContext.class)
+            + Type.getDescriptor(IPhysicalOperator.class) + Type.getDescriptor(IFunction[].class) + ")V";
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private static final Map<String, Class<?>> chainRegistry = new HashMap<>();
+
+    private static int chainCounter = 0;
+
+    // Disallow instantiation.
+    private OperatorChainCompiler() {}
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return the number of operators from <code>start</code> on that can be fused into one chain.
+     */
+    public static int chainLength(final List<DataflowNodeProperties> propertiesList, final int start) {
+        // sanity check.
+        if (propertiesList == null)
+            throw new IllegalArgumentException("propertiesList == null");
+
+        int end = start;
+        while (end < propertiesList.size() && isChainable(propertiesList.get(end).type))
+            ++end;
+
+        // a fold ends the chain, it emits one value per group.
+        if (end < propertiesList.size() && propertiesList.get(end).type == DataflowNodeProperties.DataflowNodeType.FOLD_OPERATOR)
+            ++end;
+
+        return end - start;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static AbstractPhysicalOperator<Object> createFusedChain(final IExecutionContext context,
+                                                                     final IPhysicalOperator<?> inputOp,
+                                                                     final List<DataflowNodeProperties> chain) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+        if (chain == null || chain.isEmpty())
+            throw new IllegalArgumentException("chain == null || chain.isEmpty()");
+
+        final IFunction[] functions = new IFunction[chain.size()];
+        final StringBuilder signature = new StringBuilder();
+
+        for (int i = 0; i < chain.size(); ++i) {
+            final DataflowNodeProperties p = chain.get(i);
+            final Class<?> udfType = context.getUDFType(p.functionTypeName);
+
+            switch (p.type) {
+                case MAP_TUPLE_OPERATOR:
+                    functions[i] = FunctionFactory.createMapFunction((Class<MapFunction<Object, Object>>) udfType);
+                    break;
+                case FILTER_OPERATOR:
+                    functions[i] = FunctionFactory.createFilterFunction((Class<FilterFunction<Object>>) udfType);
+                    break;
+                case FLAT_MAP_TUPLE_OPERATOR:
+                    functions[i] = FunctionFactory.createFlatMapFunction((Class<FlatMapFunction<Object, Object>>) udfType);
+                    break;
+                case FOLD_OPERATOR:
+                    functions[i] = FunctionFactory.createFoldFunction((Class<FoldFunction<Object, Object>>) udfType);
+                    break;
+                default:
+                    throw new IllegalArgumentException("'" + p.type + "' can not be fused");
+            }
+
+            signature.append(p.type).append(':').append(udfType.getName()).append(';');
+        }
+
+        try {
+            return (AbstractPhysicalOperator<Object>) getChainType(signature.toString(), functions)
+                    .getConstructor(IExecutionContext.class, IPhysicalOperator.class, IFunction[].class)
+                    .newInstance(context, inputOp, functions);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static boolean isChainable(final DataflowNodeProperties.DataflowNodeType type) {
+        return type == DataflowNodeProperties.DataflowNodeType.MAP_TUPLE_OPERATOR
+                || type == DataflowNodeProperties.DataflowNodeType.FILTER_OPERATOR
+                || type == DataflowNodeProperties.DataflowNodeType.FLAT_MAP_TUPLE_OPERATOR;
+    }
+
+    private static synchronized Class<?> getChainType(final String signature, final IFunction[] functions) {
+        Class<?> chainType = chainRegistry.get(signature);
+        if (chainType == null) {
+            chainType = buildChainType(functions);
+            chainRegistry.put(signature, chainType);
+        }
+        return chainType;
+    }
+
+    // ---------------------------------------------------
+    // Code Generation.
+    // ---------------------------------------------------
+
+    private static Class<?> buildChainType(final IFunction[] functions) {
+
+        final String className = "de/tuberlin/aura/core/dataflow/operators/generated/FusedChain" + chainCounter++;
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, BASE_NAME, null);
+
+        final boolean hasFold = functions[functions.length - 1] instanceof FoldFunction;
+
+        // one typed field per function and one buffer per flat-map.
+        for (int i = 0; i < functions.length; ++i) {
+            cw.visitField(ACC_PRIVATE + ACC_FINAL, "f" + i, Type.getDescriptor(functionType(functions[i])), null, null).visitEnd();
+            if (functions[i] instanceof FlatMapFunction)
+                cw.visitField(ACC_PRIVATE + ACC_FINAL, "b" + i, "L" + LIST_NAME + ";", null, null).visitEnd();
+        }
+
+        // constructor(context, inputOp, functions).
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitInsn(hasFold ? ICONST_1 : ICONST_0);
+        mv.visitMethodInsn(INVOKESPECIAL, BASE_NAME, "<init>", CONSTRUCTOR_DESC.replace(")V", "Z)V"));
+        for (int i = 0; i < functions.length; ++i) {
+            final String typeName = Type.getInternalName(functionType(functions[i]));
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 3);
+            pushInt(mv, i);
+            mv.visitInsn(AALOAD);
+            mv.visitTypeInsn(CHECKCAST, typeName);
+            mv.visitFieldInsn(PUTFIELD, className, "f" + i, "L" + typeName + ";");
+            if (functions[i] instanceof FlatMapFunction) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitTypeInsn(NEW, LIST_NAME);
+                mv.visitInsn(DUP);
+                mv.visitMethodInsn(INVOKESPECIAL, LIST_NAME, "<init>", "()V");
+                mv.visitFieldInsn(PUTFIELD, className, "b" + i, "L" + LIST_NAME + ";");
+            }
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // process(element): the functions of the chain, nested in loops over the flat-map results.
+        mv = cw.visitMethod(ACC_PROTECTED, "process", "(" + OBJECT_DESC + ")V", null, null);
+        mv.visitCode();
+        final Label end = new Label();
+        emitStage(mv, className, functions, 0, 1, 2, end);
+        mv.visitLabel(end);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        final byte[] byteCode = cw.toByteArray();
+
+        return new ClassLoader(OperatorChainCompiler.class.getClassLoader()) {
+            public Class<?> defineClass() {
+                return defineClass(className.replace('/', '.'), byteCode, 0, byteCode.length);
+            }
+        }.defineClass();
+    }
+
+    /**
+     * Emits the functions from <code>stage</code> on for the value in local <code>valueLocal</code>.
+     * Filtered values jump to <code>skip</code>, which continues the enclosing loop.
+     */
+    private static void emitStage(final MethodVisitor mv,
+                                  final String className,
+                                  final IFunction[] functions,
+                                  final int stage,
+                                  final int valueLocal,
+                                  final int nextLocal,
+                                  final Label skip) {
+
+        if (stage == functions.length) {
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, valueLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, BASE_NAME, "emit", "(" + OBJECT_DESC + ")V");
+            return;
+        }
+
+        final IFunction function = functions[stage];
+        final String typeName = Type.getInternalName(functionType(function));
+        final String fieldDesc = "L" + typeName + ";";
+
+        if (function instanceof MapFunction) {
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "f" + stage, fieldDesc);
+            mv.visitVarInsn(ALOAD, valueLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "map", "(" + OBJECT_DESC + ")" + OBJECT_DESC);
+            mv.visitVarInsn(ASTORE, nextLocal);
+            emitStage(mv, className, functions, stage + 1, nextLocal, nextLocal + 1, skip);
+
+        } else if (function instanceof FilterFunction) {
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "f" + stage, fieldDesc);
+            mv.visitVarInsn(ALOAD, valueLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "filter", "(" + OBJECT_DESC + ")Z");
+            mv.visitJumpInsn(IFEQ, skip);
+            emitStage(mv, className, functions, stage + 1, valueLocal, nextLocal, skip);
+
+        } else if (function instanceof FlatMapFunction) {
+
+            final String bufferDesc = "L" + LIST_NAME + ";";
+            final int indexLocal = nextLocal;
+            final int sizeLocal = nextLocal + 1;
+            final int elementLocal = nextLocal + 2;
+
+            // buffer.clear(); f.flatMap(value, buffer);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "b" + stage, bufferDesc);
+            mv.visitMethodInsn(INVOKEVIRTUAL, LIST_NAME, "clear", "()V");
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "f" + stage, fieldDesc);
+            mv.visitVarInsn(ALOAD, valueLocal);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "b" + stage, bufferDesc);
+            mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "flatMap", "(" + OBJECT_DESC + Type.getDescriptor(Collection.class) + ")V");
+
+            // for (int i = 0, n = buffer.size(); i < n; ++i)
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, indexLocal);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "b" + stage, bufferDesc);
+            mv.visitMethodInsn(INVOKEVIRTUAL, LIST_NAME, "size", "()I");
+            mv.visitVarInsn(ISTORE, sizeLocal);
+
+            final Label loop = new Label();
+            final Label next = new Label();
+            final Label done = new Label();
+            mv.visitLabel(loop);
+            mv.visitVarInsn(ILOAD, indexLocal);
+            mv.visitVarInsn(ILOAD, sizeLocal);
+            mv.visitJumpInsn(IF_ICMPGE, done);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "b" + stage, bufferDesc);
+            mv.visitVarInsn(ILOAD, indexLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, LIST_NAME, "get", "(I)" + OBJECT_DESC);
+            mv.visitVarInsn(ASTORE, elementLocal);
+            emitStage(mv, className, functions, stage + 1, elementLocal, elementLocal + 1, next);
+            mv.visitLabel(next);
+            mv.visitIincInsn(indexLocal, 1);
+            mv.visitJumpInsn(GOTO, loop);
+            mv.visitLabel(done);
+
+        } else if (function instanceof FoldFunction) {
+
+            // accumulator = f.union(accumulator, f.singleton(value)); isAccumulatorEmpty = false;
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "f" + stage, fieldDesc);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, BASE_NAME, "accumulator", OBJECT_DESC);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, className, "f" + stage, fieldDesc);
+            mv.visitVarInsn(ALOAD, valueLocal);
+            mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "singleton", "(" + OBJECT_DESC + ")" + OBJECT_DESC);
+            mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "union", "(" + OBJECT_DESC + OBJECT_DESC + ")" + OBJECT_DESC);
+            mv.visitFieldInsn(PUTFIELD, BASE_NAME, "accumulator", OBJECT_DESC);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitInsn(ICONST_0);
+            mv.visitFieldInsn(PUTFIELD, BASE_NAME, "isAccumulatorEmpty", "Z");
+
+        } else {
+            throw new IllegalArgumentException("function can not be fused: " + function.getClass().getName());
+        }
+    }
+
+    /**
+     * The functions are accessed through their abstract base classes, which are visible to the
+     * generated class also if the function class itself is not public.
+     */
+    private static Class<?> functionType(final IFunction function) {
+        if (function instanceof MapFunction)
+            return MapFunction.class;
+        if (function instanceof FilterFunction)
+            return FilterFunction.class;
+        if (function instanceof FlatMapFunction)
+            return FlatMapFunction.class;
+        if (function instanceof FoldFunction)
+            return FoldFunction.class;
+        throw new IllegalArgumentException("function can not be fused: " + function.getClass().getName());
+    }
+
+    private static void pushInt(final MethodVisitor mv, final int value) {
+        if (value <= 5)
+            mv.visitInsn(ICONST_0 + value);
+        else if (value <= Byte.MAX_VALUE)
+            mv.visitIntInsn(BIPUSH, value);
+        else
+            mv.visitIntInsn(SIPUSH, value);
+    }
+}
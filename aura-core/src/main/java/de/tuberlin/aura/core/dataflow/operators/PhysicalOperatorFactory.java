@@ -1,5 +1,6 @@
 package de.tuberlin.aura.core.dataflow.operators;
 
+import de.tuberlin.aura.core.config.IConfig;
 import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
@@ -50,7 +51,7 @@ public final class PhysicalOperatorFactory {
             case HASH_JOIN_OPERATOR:
                 return new HashJoinPhysicalOperator<>(context, inputOp1, inputOp2);
             case MERGE_JOIN_OPERATOR:
-                break;
+                return new MergeJoinPhysicalOperator<>(context, inputOp1, inputOp2);
             case GROUP_BY_OPERATOR:
                 return new GroupByPhysicalOperator<>(context, inputOp1);
             case SORT_OPERATOR:
@@ -58,6 +59,7 @@ public final class PhysicalOperatorFactory {
             case FOLD_OPERATOR:
                 return new FoldPhysicalOperator(context, inputOp1, FunctionFactory.createFoldFunction((Class<FoldFunction<Object,Object>>) udfType));
             case HASH_FOLD_OPERATOR:
+            case HASH_COMBINE_OPERATOR:
                 return new HashBasedFoldPhysicalOperator<>(context, inputOp1, FunctionFactory.createFoldFunction((Class<FoldFunction<Object,Object>>) udfType));
             case DATASET_UPDATE_OPERATOR:
                return new DatasetUpdatePhysicalOperator<>(context, inputOp1, FunctionFactory.createUpdateFunction((Class<UpdateFunction<Object,Object>>) udfType));
@@ -96,9 +98,20 @@ public final class PhysicalOperatorFactory {
         AbstractPhysicalOperator<?> inputOp1 = inputs.size() >= 1 ? inputs.get(0) : null;
         AbstractPhysicalOperator<?> inputOp2 = inputs.size() >= 2 ? inputs.get(1) : null;
 
-        int operatorNum = 0;
+        final boolean isChainFusion = isChainFusionEnabled(context);
+
+        for (int operatorNum = 0; operatorNum < propertiesList.size(); ++operatorNum) {
+
+            final DataflowNodeProperties p = propertiesList.get(operatorNum);
 
-        for (final DataflowNodeProperties p : propertiesList) {
+            // runs of map, filter and flat-map operators are replaced by one generated operator.
+            final int chainLength = isChainFusion ? OperatorChainCompiler.chainLength(propertiesList, operatorNum) : 0;
+            if (chainLength >= 2) {
+                inputOp1 = OperatorChainCompiler.createFusedChain(context, inputOp1, propertiesList.subList(operatorNum, operatorNum + chainLength));
+                operatorNum += chainLength - 1;
+                inputOp1.setOperatorNum(operatorNum);
+                continue;
+            }
 
             final Class<?> udfType = context.getUDFType(p.functionTypeName);
 
@@ -143,8 +156,11 @@ public final class PhysicalOperatorFactory {
                     inputOp1.setOperatorNum(operatorNum);
                     break;
                 }
-                case MERGE_JOIN_OPERATOR:
+                case MERGE_JOIN_OPERATOR: {
+                    inputOp1 = new MergeJoinPhysicalOperator(context, inputOp1, inputOp2);
+                    inputOp1.setOperatorNum(operatorNum);
                     break;
+                }
                 case GROUP_BY_OPERATOR: {
                     inputOp1 = new GroupByPhysicalOperator(context, inputOp1);
                     inputOp1.setOperatorNum(operatorNum);
@@ -160,7 +176,8 @@ public final class PhysicalOperatorFactory {
                     inputOp1.setOperatorNum(operatorNum);
                     break;
                 }
-                case HASH_FOLD_OPERATOR: {
+                case HASH_FOLD_OPERATOR:
+                case HASH_COMBINE_OPERATOR: {
                     inputOp1 = new HashBasedFoldPhysicalOperator(context, inputOp1, FunctionFactory.createFoldFunction((Class<FoldFunction<Object, Object>>) udfType));
                     inputOp1.setOperatorNum(operatorNum);
                     break;
@@ -204,10 +221,19 @@ public final class PhysicalOperatorFactory {
                 default:
                     throw new IllegalStateException("'" + p.type + "' is not defined.");
             }
-
-            ++operatorNum;
         }
 
         return inputOp1;
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static boolean isChainFusionEnabled(final IExecutionContext context) {
+        if (context.getRuntime() == null || context.getRuntime().getTaskManager() == null)
+            return false;
+        final IConfig config = context.getRuntime().getTaskManager().getConfig();
+        return config.getBoolean("tm.operators.chain.fusion");
+    }
 }
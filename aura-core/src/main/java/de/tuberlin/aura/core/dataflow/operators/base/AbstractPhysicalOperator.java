@@ -1,6 +1,6 @@
 package de.tuberlin.aura.core.dataflow.operators.base;
 
-
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
 import java.util.ArrayList;
@@ -26,6 +26,10 @@ public abstract class AbstractPhysicalOperator<O> implements IPhysicalOperator<O
 
     private int operatorNum = 0;
 
+    private transient OperatorBatch<O> batch;
+
+    private transient OperatorResult<O> result;
+
     // ---------------------------------------------------
     // Constructor.
     // ---------------------------------------------------
@@ -57,6 +61,26 @@ public abstract class AbstractPhysicalOperator<O> implements IPhysicalOperator<O
         return null;
     }
 
+    /**
+     * Fills the batch from next(). Operators that can produce whole batches override this.
+     */
+    @Override
+    public OperatorBatch<O> nextBatch() throws Throwable {
+        final OperatorBatch<O> batch = getBatch();
+        batch.clear();
+
+        while (!batch.isFull()) {
+            final OperatorResult<O> result = next();
+            if (result.marker != null) {
+                batch.marker = result.marker;
+                break;
+            }
+            batch.add(result.element);
+        }
+
+        return batch;
+    }
+
     @Override
     public void close() throws Throwable {
         this.isOperatorOpen = false;
@@ -91,4 +115,38 @@ public abstract class AbstractPhysicalOperator<O> implements IPhysicalOperator<O
     public int getOperatorNum() {
         return operatorNum;
     }
+
+    // ---------------------------------------------------
+    // Protected Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Returns the element in the result holder of this operator. The holder is reused, a consumer
+     * must not keep it across calls of next().
+     */
+    protected OperatorResult<O> result(final O element) {
+        if (result == null)
+            result = new OperatorResult<>();
+        result.set(element, null);
+        return result;
+    }
+
+    /**
+     * Returns the marker in the result holder of this operator.
+     */
+    protected OperatorResult<O> marker(final OperatorResult.StreamMarker marker) {
+        if (result == null)
+            result = new OperatorResult<>();
+        result.set(null, marker);
+        return result;
+    }
+
+    /**
+     * @return the batch that is returned by every call of nextBatch().
+     */
+    protected OperatorBatch<O> getBatch() {
+        if (batch == null)
+            batch = new OperatorBatch<>();
+        return batch;
+    }
 }
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.List;
 
 import de.tuberlin.aura.core.common.utils.IVisitable;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
 
@@ -11,8 +12,19 @@ public interface IPhysicalOperator<O> extends Serializable, IVisitable<IPhysical
 
     public abstract void open() throws Throwable;
 
+    /**
+     * Returns the next element or stream marker. The result holder is reused by the operator, so a
+     * result is only valid until the next call of next(). A consumer that needs an input across calls
+     * keeps its element, not the result.
+     */
     public abstract OperatorResult<O> next() throws Throwable;
 
+    /**
+     * Returns the next results as a batch that is reused by the operator. A consumer uses either
+     * next() or nextBatch() on an operator, never both.
+     */
+    public abstract OperatorBatch<O> nextBatch() throws Throwable;
+
     public abstract void close() throws Throwable;
 
     public abstract IExecutionContext getContext();
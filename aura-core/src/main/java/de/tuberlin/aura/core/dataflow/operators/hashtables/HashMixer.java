@@ -0,0 +1,39 @@
+package de.tuberlin.aura.core.dataflow.operators.hashtables;
+
+/**
+ * Spreads the bits of keys, so that the low bits can be used as the slot index of a table.
+ */
+final class HashMixer {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    private static final int INT_PHI = 0x9E3779B9;
+
+    // Disallow instantiation.
+    private HashMixer() {}
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    static int mix(final long key) {
+        final long h = key * LONG_PHI;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int mix(final int key) {
+        final int h = key * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(final long[] keys, final int offset, final int length) {
+        long h = 0;
+        for (int i = offset; i < offset + length; ++i)
+            h = (h + keys[i]) * LONG_PHI;
+        return (int) (h ^ (h >>> 32));
+    }
+}
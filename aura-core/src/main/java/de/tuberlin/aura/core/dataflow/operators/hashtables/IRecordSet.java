@@ -0,0 +1,25 @@
+package de.tuberlin.aura.core.dataflow.operators.hashtables;
+
+/**
+ * Set of records, compared by <code>equals</code>. Implementations may only keep a packed key of
+ * the records (see RecordSets).
+ */
+public interface IRecordSet {
+
+    /**
+     * @return true if the record was not contained.
+     */
+    public abstract boolean add(final Object record);
+
+    public abstract boolean contains(final Object record);
+
+    public abstract int size();
+
+    /**
+     * @param recordSize the estimated heap size of a record, for the records retained by the set.
+     * @return the estimated memory of the set in bytes.
+     */
+    public abstract long getMemorySize(final int recordSize);
+
+    public abstract void clear();
+}
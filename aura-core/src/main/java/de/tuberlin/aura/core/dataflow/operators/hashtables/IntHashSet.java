@@ -0,0 +1,116 @@
+package de.tuberlin.aura.core.dataflow.operators.hashtables;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of int keys with linear probing. The key 0 marks an empty slot and is
+ * tracked separately.
+ */
+public final class IntHashSet {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private int[] keys;
+
+    private int mask;
+
+    private boolean hasZeroKey;
+
+    private int size;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public IntHashSet() {
+        this.keys = new int[INITIAL_CAPACITY];
+        this.mask = INITIAL_CAPACITY - 1;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return true if the key was not contained.
+     */
+    public boolean add(final int key) {
+        if (key == 0) {
+            if (hasZeroKey)
+                return false;
+            hasZeroKey = true;
+            ++size;
+            return true;
+        }
+
+        int slot = HashMixer.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key)
+                return false;
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        if (++size > (keys.length >> 1))
+            grow();
+        return true;
+    }
+
+    public boolean contains(final int key) {
+        if (key == 0)
+            return hasZeroKey;
+
+        int slot = HashMixer.mix(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key)
+                return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the size of the table in bytes.
+     */
+    public long getMemorySize() {
+        return 4L * keys.length;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private void grow() {
+        final int[] oldKeys = keys;
+
+        keys = new int[oldKeys.length << 1];
+        mask = keys.length - 1;
+
+        for (final int key : oldKeys) {
+            if (key == 0)
+                continue;
+            int slot = HashMixer.mix(key) & mask;
+            while (keys[slot] != 0)
+                slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package de.tuberlin.aura.core.dataflow.operators.hashtables;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import de.tuberlin.aura.core.dataflow.operators.spill.RecordPageStore;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.record.KeyPacker;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+
+/**
+ * Hash table of serialized records with unique keys, given by key fields of the records. The records
+ * are stored in the pages of a page allocator (see RecordPageStore), so they are charged to the
+ * memory budget of the operator that owns the store. The index holds the hash code, the page
+ * reference and, for numeric keys, the packed key of every record, so lookups compare keys without
+ * deserializing records.
+ *
+ * Updates overwrite a record in place if its serialized size does not grow, otherwise the new record
+ * is appended and the pages are compacted once the replaced records take half of the memory.
+ * The records can not be spilled, a store that outgrows the memory budget fails.
+ */
+public final class KeyedRecordStore {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private final class RecordIterator implements Iterator<Object> {
+
+        private int slot;
+
+        private final Iterator<Integer> unpackedIterator;
+
+        RecordIterator() {
+            this.slot = nextSlot(0);
+            this.unpackedIterator = (unpackedRefs != null) ? unpackedRefs.values().iterator() : Collections.<Integer>emptyIterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < slotHashes.length || unpackedIterator.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (slot < slotHashes.length) {
+                final int ref = slotRefs[slot];
+                slot = nextSlot(slot + 1);
+                return store.read(ref);
+            }
+            if (unpackedIterator.hasNext())
+                return store.read(unpackedIterator.next());
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MIN_COMPACTION_PAGES = 16;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final TypeInformation typeInfo;
+
+    private final KeySelector keySelector;
+
+    // null if the keys are not numeric, they are kept on the heap then.
+    private final KeyPacker keyPacker;
+
+    private final int keyWidth;
+
+    private final IAllocator allocator;
+
+    private RecordPageStore store;
+
+    private long garbageBytes;
+
+    // the page count of the last compaction that did not fit into the budget.
+    private int failedCompactionPages;
+
+    // the index, a hash code of 0 marks an empty slot.
+
+    private int[] slotHashes;
+
+    private int[] slotRefs;
+
+    private long[] slotKeyWords;
+
+    private Object[][] slotKeys;
+
+    private int size;
+
+    // records whose numeric keys have null fields and can not be packed.
+    private Map<List<Object>, Integer> unpackedRefs;
+
+    // the key of the current lookup.
+
+    private final long[] probeWords;
+
+    private final Object[] probeKeys;
+
+    private boolean isProbePacked;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    /**
+     * @param allocator the allocator of the pages, e.g. the page allocator of the owning operator.
+     */
+    public KeyedRecordStore(final TypeInformation typeInfo, final KeySelector keySelector, final IAllocator allocator) {
+        // sanity check.
+        if (typeInfo == null)
+            throw new IllegalArgumentException("typeInfo == null");
+        if (keySelector == null)
+            throw new IllegalArgumentException("keySelector == null");
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+
+        this.typeInfo = typeInfo;
+
+        this.allocator = allocator;
+
+        this.keySelector = keySelector;
+
+        this.keyPacker = KeyPacker.forKeys(keySelector);
+
+        this.keyWidth = keySelector.keyCount();
+
+        this.probeWords = new long[keyWidth];
+
+        this.probeKeys = new Object[keyWidth];
+
+        initIndex(INITIAL_CAPACITY);
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Inserts the record or replaces the record with the same key.
+     */
+    public void put(final Object record) {
+        put(probeRecord(record), record);
+    }
+
+    /**
+     * Inserts the record or replaces the record with the given key.
+     *
+     * @param keys the key fields of the record.
+     */
+    public void put(final Object[] keys, final Object record) {
+        put(probeKeys(keys), record);
+    }
+
+    /**
+     * @return a copy of the record with the given key fields, or null.
+     */
+    public Object get(final Object[] keys) {
+        final int ref = lookup(probeKeys(keys));
+        return (ref >= 0) ? store.read(ref) : null;
+    }
+
+    public boolean containsKey(final Object[] keys) {
+        return lookup(probeKeys(keys)) >= 0;
+    }
+
+    public boolean containsKeyOf(final Object record) {
+        return lookup(probeRecord(record)) >= 0;
+    }
+
+    public int size() {
+        return size + (unpackedRefs != null ? unpackedRefs.size() : 0);
+    }
+
+    /**
+     * Iterates over copies of the records. The store must not be modified during the iteration.
+     */
+    public Iterator<Object> iterator() {
+        return new RecordIterator();
+    }
+
+    /**
+     * Removes all records and returns the pages to the allocator.
+     */
+    public void clear() {
+        if (store != null) {
+            store.clear();
+            store = null;
+        }
+        garbageBytes = 0;
+        failedCompactionPages = 0;
+        unpackedRefs = null;
+        initIndex(INITIAL_CAPACITY);
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Keys.
+    // ---------------------------------------------------
+
+    /**
+     * Sets the probe key to the key of the record.
+     *
+     * @return the hash code of the key, 0 if the key is not packed.
+     */
+    private int probeRecord(final Object record) {
+        if (keyPacker != null) {
+            isProbePacked = keyPacker.pack(record, probeWords);
+            if (isProbePacked)
+                return packedHash();
+        }
+        keySelector.copyKeys(record, probeKeys);
+        return (keyPacker != null) ? 0 : keysHash();
+    }
+
+    private int probeKeys(final Object[] keys) {
+        // sanity check.
+        if (keys == null || keys.length != keyWidth)
+            throw new IllegalArgumentException("keys == null || keys.length != keyWidth");
+
+        if (keyPacker != null) {
+            isProbePacked = keyPacker.packKeys(keys, probeWords);
+            if (isProbePacked)
+                return packedHash();
+        }
+        System.arraycopy(keys, 0, probeKeys, 0, keyWidth);
+        return (keyPacker != null) ? 0 : keysHash();
+    }
+
+    private int packedHash() {
+        final int hash = HashMixer.mix(probeWords, 0, keyWidth);
+        return (hash == 0) ? 1 : hash;
+    }
+
+    private int keysHash() {
+        // the hash of KeySelector.hash(), spread for the index.
+        int hash = 17;
+        for (final Object key : probeKeys)
+            hash = 31 * hash + ((key == null) ? 0 : key.hashCode());
+        hash = HashMixer.mix(hash);
+        return (hash == 0) ? 1 : hash;
+    }
+
+    private boolean isProbeUnpacked() {
+        return keyPacker != null && !isProbePacked;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Index.
+    // ---------------------------------------------------
+
+    /**
+     * @return the reference of the record with the probe key, or -1.
+     */
+    private int lookup(final int hash) {
+        if (isProbeUnpacked()) {
+            final Integer ref = (unpackedRefs != null) ? unpackedRefs.get(Arrays.asList(probeKeys)) : null;
+            return (ref != null) ? ref : -1;
+        }
+
+        final int slot = findSlot(hash);
+        return (slotHashes[slot] != 0) ? slotRefs[slot] : -1;
+    }
+
+    private void put(final int hash, final Object record) {
+        if (isProbeUnpacked()) {
+            if (unpackedRefs == null)
+                unpackedRefs = new HashMap<>();
+            final List<Object> key = Arrays.asList(probeKeys.clone());
+            final Integer ref = unpackedRefs.get(key);
+            unpackedRefs.put(key, (ref != null) ? replace(ref, record) : add(record));
+            compactIfWasteful();
+            return;
+        }
+
+        final int slot = findSlot(hash);
+        if (slotHashes[slot] != 0) {
+            slotRefs[slot] = replace(slotRefs[slot], record);
+            compactIfWasteful();
+            return;
+        }
+
+        slotHashes[slot] = hash;
+        slotRefs[slot] = add(record);
+        if (keyPacker != null)
+            System.arraycopy(probeWords, 0, slotKeyWords, slot * keyWidth, keyWidth);
+        else
+            slotKeys[slot] = probeKeys.clone();
+
+        if (++size * 4L > slotHashes.length * 3L)
+            growIndex();
+    }
+
+    private int findSlot(final int hash) {
+        final int mask = slotHashes.length - 1;
+        int slot = hash & mask;
+        while (slotHashes[slot] != 0) {
+            if (slotHashes[slot] == hash && isProbeKeyAt(slot))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean isProbeKeyAt(final int slot) {
+        if (keyPacker != null) {
+            final int offset = slot * keyWidth;
+            for (int i = 0; i < keyWidth; ++i) {
+                if (slotKeyWords[offset + i] != probeWords[i])
+                    return false;
+            }
+            return true;
+        }
+        return Arrays.equals(slotKeys[slot], probeKeys);
+    }
+
+    private int nextSlot(int slot) {
+        while (slot < slotHashes.length && slotHashes[slot] == 0)
+            ++slot;
+        return slot;
+    }
+
+    private void initIndex(final int capacity) {
+        slotHashes = new int[capacity];
+        slotRefs = new int[capacity];
+        slotKeyWords = (keyPacker != null) ? new long[capacity * keyWidth] : null;
+        slotKeys = (keyPacker != null) ? null : new Object[capacity][];
+        size = 0;
+    }
+
+    private void growIndex() {
+        final int[] oldHashes = slotHashes;
+        final int[] oldRefs = slotRefs;
+        final long[] oldKeyWords = slotKeyWords;
+        final Object[][] oldKeys = slotKeys;
+        final int oldSize = size;
+
+        initIndex(oldHashes.length * 2);
+        size = oldSize;
+
+        final int mask = slotHashes.length - 1;
+        for (int i = 0; i < oldHashes.length; ++i) {
+            if (oldHashes[i] == 0)
+                continue;
+            int slot = oldHashes[i] & mask;
+            while (slotHashes[slot] != 0)
+                slot = (slot + 1) & mask;
+            slotHashes[slot] = oldHashes[i];
+            slotRefs[slot] = oldRefs[i];
+            if (keyPacker != null)
+                System.arraycopy(oldKeyWords, i * keyWidth, slotKeyWords, slot * keyWidth, keyWidth);
+            else
+                slotKeys[slot] = oldKeys[i];
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Pages.
+    // ---------------------------------------------------
+
+    private int add(final Object record) {
+        if (store == null)
+            store = new RecordPageStore(allocator, SpillFile.createKryo(typeInfo), 0);
+        final int ref = store.add(record);
+        if (ref < 0)
+            throw new IllegalStateException("memory budget of the record store exhausted after " + size() + " records");
+        return ref;
+    }
+
+    private int replace(final int ref, final Object record) {
+        if (store.replace(ref, record))
+            return ref;
+        garbageBytes += store.getRecordSize(ref);
+        return add(record);
+    }
+
+    /**
+     * Copies the live records to new pages, the old pages are reused afterwards. The compaction is
+     * skipped if the budget has no room for the copies.
+     */
+    private void compactIfWasteful() {
+        final int pageCount = store.getPageCount();
+        if (pageCount < MIN_COMPACTION_PAGES || pageCount <= failedCompactionPages
+                || garbageBytes * 2 <= (long) pageCount * allocator.getBufferSize())
+            return;
+
+        final RecordPageStore compacted = new RecordPageStore(allocator, SpillFile.createKryo(typeInfo), 0);
+
+        final int[] compactedRefs = new int[slotRefs.length];
+        for (int slot = nextSlot(0); slot < slotHashes.length; slot = nextSlot(slot + 1)) {
+            compactedRefs[slot] = compacted.add(store.read(slotRefs[slot]));
+            if (compactedRefs[slot] < 0) {
+                compacted.clear();
+                failedCompactionPages = pageCount;
+                return;
+            }
+        }
+
+        final Map<List<Object>, Integer> compactedUnpackedRefs = (unpackedRefs != null) ? new HashMap<List<Object>, Integer>() : null;
+        if (unpackedRefs != null) {
+            for (final Map.Entry<List<Object>, Integer> entry : unpackedRefs.entrySet()) {
+                final int ref = compacted.add(store.read(entry.getValue()));
+                if (ref < 0) {
+                    compacted.clear();
+                    failedCompactionPages = pageCount;
+                    return;
+                }
+                compactedUnpackedRefs.put(entry.getKey(), ref);
+            }
+        }
+
+        System.arraycopy(compactedRefs, 0, slotRefs, 0, slotRefs.length);
+        unpackedRefs = compactedUnpackedRefs;
+        store.clear();
+        store = compacted;
+        garbageBytes = 0;
+        failedCompactionPages = 0;
+    }
+}
@@ -0,0 +1,138 @@
+package de.tuberlin.aura.core.dataflow.operators.hashtables;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of composite keys of a fixed number of long words. The keys are stored
+ * inline in one long array, next to an array of their hash codes; a hash code of 0 marks an empty slot.
+ */
+public final class PackedKeyHashSet {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final int width;
+
+    private long[] keys;
+
+    private int[] hashes;
+
+    private int mask;
+
+    private int size;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public PackedKeyHashSet(final int width) {
+        // sanity check.
+        if (width <= 0)
+            throw new IllegalArgumentException("width <= 0");
+
+        this.width = width;
+        this.keys = new long[INITIAL_CAPACITY * width];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.mask = INITIAL_CAPACITY - 1;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return true if the key was not contained.
+     */
+    public boolean add(final long[] key) {
+        final int hash = hash(key);
+
+        int slot = hash & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == hash && equalsAt(slot, key))
+                return false;
+            slot = (slot + 1) & mask;
+        }
+
+        hashes[slot] = hash;
+        System.arraycopy(key, 0, keys, slot * width, width);
+        if (++size > (hashes.length >> 1))
+            grow();
+        return true;
+    }
+
+    public boolean contains(final long[] key) {
+        final int hash = hash(key);
+
+        int slot = hash & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == hash && equalsAt(slot, key))
+                return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the size of the table in bytes.
+     */
+    public long getMemorySize() {
+        return 8L * keys.length + 4L * hashes.length;
+    }
+
+    public void clear() {
+        Arrays.fill(hashes, 0);
+        size = 0;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private int hash(final long[] key) {
+        final int hash = HashMixer.mix(key, 0, width);
+        return (hash == 0) ? 1 : hash;
+    }
+
+    private boolean equalsAt(final int slot, final long[] key) {
+        final int offset = slot * width;
+        for (int i = 0; i < width; ++i) {
+            if (keys[offset + i] != key[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldHashes = hashes;
+
+        hashes = new int[oldHashes.length << 1];
+        keys = new long[hashes.length * width];
+        mask = hashes.length - 1;
+
+        for (int i = 0; i < oldHashes.length; ++i) {
+            if (oldHashes[i] == 0)
+                continue;
+            int slot = oldHashes[i] & mask;
+            while (hashes[slot] != 0)
+                slot = (slot + 1) & mask;
+            hashes[slot] = oldHashes[i];
+            System.arraycopy(oldKeys, i * width, keys, slot * width, width);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package de.tuberlin.aura.core.dataflow.operators.hashtables;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import de.tuberlin.aura.core.record.KeyPacker;
+import de.tuberlin.aura.core.record.TypeInformation;
+
+/**
+ * Creates record sets specialized to the record type. Boxed numbers and tuples of numeric fields
+ * are stored as packed keys in primitive hash sets (see KeyPacker), other records in a HashSet.
+ */
+public final class RecordSets {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static final class GenericRecordSet implements IRecordSet {
+
+        private final Set<Object> records = new HashSet<>();
+
+        @Override
+        public boolean add(final Object record) {
+            return records.add(record);
+        }
+
+        @Override
+        public boolean contains(final Object record) {
+            return records.contains(record);
+        }
+
+        @Override
+        public int size() {
+            return records.size();
+        }
+
+        @Override
+        public long getMemorySize(final int recordSize) {
+            return (GENERIC_ENTRY_SIZE + recordSize) * records.size();
+        }
+
+        @Override
+        public void clear() {
+            records.clear();
+        }
+    }
+
+    /**
+     * Records with null fields can not be packed, they are kept in a generic set.
+     */
+    private static abstract class PackedRecordSet implements IRecordSet {
+
+        protected final KeyPacker keyPacker;
+
+        protected final long[] key;
+
+        private GenericRecordSet unpackedRecords;
+
+        PackedRecordSet(final KeyPacker keyPacker) {
+            this.keyPacker = keyPacker;
+            this.key = new long[keyPacker.width()];
+        }
+
+        @Override
+        public boolean add(final Object record) {
+            if (keyPacker.pack(record, key))
+                return addKey();
+            if (unpackedRecords == null)
+                unpackedRecords = new GenericRecordSet();
+            return unpackedRecords.add(record);
+        }
+
+        @Override
+        public boolean contains(final Object record) {
+            if (keyPacker.pack(record, key))
+                return containsKey();
+            return unpackedRecords != null && unpackedRecords.contains(record);
+        }
+
+        @Override
+        public int size() {
+            return keyCount() + (unpackedRecords != null ? unpackedRecords.size() : 0);
+        }
+
+        @Override
+        public long getMemorySize(final int recordSize) {
+            return tableSize() + (unpackedRecords != null ? unpackedRecords.getMemorySize(recordSize) : 0);
+        }
+
+        @Override
+        public void clear() {
+            clearKeys();
+            unpackedRecords = null;
+        }
+
+        protected abstract boolean addKey();
+
+        protected abstract boolean containsKey();
+
+        protected abstract int keyCount();
+
+        protected abstract long tableSize();
+
+        protected abstract void clearKeys();
+    }
+
+    private static final class IntRecordSet extends PackedRecordSet {
+
+        private final IntHashSet keys = new IntHashSet();
+
+        IntRecordSet(final KeyPacker keyPacker) {
+            super(keyPacker);
+        }
+
+        @Override
+        protected boolean addKey() {
+            return keys.add((int) key[0]);
+        }
+
+        @Override
+        protected boolean containsKey() {
+            return keys.contains((int) key[0]);
+        }
+
+        @Override
+        protected int keyCount() {
+            return keys.size();
+        }
+
+        @Override
+        protected long tableSize() {
+            return keys.getMemorySize();
+        }
+
+        @Override
+        protected void clearKeys() {
+            keys.clear();
+        }
+    }
+
+    private static final class LongRecordSet extends PackedRecordSet {
+
+        private final LongHashSet keys = new LongHashSet();
+
+        LongRecordSet(final KeyPacker keyPacker) {
+            super(keyPacker);
+        }
+
+        @Override
+        protected boolean addKey() {
+            return keys.add(key[0]);
+        }
+
+        @Override
+        protected boolean containsKey() {
+            return keys.contains(key[0]);
+        }
+
+        @Override
+        protected int keyCount() {
+            return keys.size();
+        }
+
+        @Override
+        protected long tableSize() {
+            return keys.getMemorySize();
+        }
+
+        @Override
+        protected void clearKeys() {
+            keys.clear();
+        }
+    }
+
+    private static final class CompositeRecordSet extends PackedRecordSet {
+
+        private final PackedKeyHashSet keys;
+
+        CompositeRecordSet(final KeyPacker keyPacker) {
+            super(keyPacker);
+            this.keys = new PackedKeyHashSet(keyPacker.width());
+        }
+
+        @Override
+        protected boolean addKey() {
+            return keys.add(key);
+        }
+
+        @Override
+        protected boolean containsKey() {
+            return keys.contains(key);
+        }
+
+        @Override
+        protected int keyCount() {
+            return keys.size();
+        }
+
+        @Override
+        protected long tableSize() {
+            return keys.getMemorySize();
+        }
+
+        @Override
+        protected void clearKeys() {
+            keys.clear();
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    // entry and table slot of a HashSet, without the record.
+    private static final long GENERIC_ENTRY_SIZE = 48;
+
+    // Disallow instantiation.
+    private RecordSets() {}
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @param typeInfo the type of the records, the set is generic if it is null.
+     */
+    public static IRecordSet create(final TypeInformation typeInfo) {
+        final KeyPacker keyPacker = (typeInfo != null) ? KeyPacker.forRecords(typeInfo) : null;
+
+        if (keyPacker == null)
+            return new GenericRecordSet();
+        if (keyPacker.isIntKey())
+            return new IntRecordSet(keyPacker);
+        if (keyPacker.width() == 1)
+            return new LongRecordSet(keyPacker);
+        return new CompositeRecordSet(keyPacker);
+    }
+}
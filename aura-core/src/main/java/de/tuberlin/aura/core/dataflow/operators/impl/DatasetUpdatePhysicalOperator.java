@@ -6,8 +6,8 @@ import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryUDFPhysicalOpe
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.udfs.functions.UpdateFunction;
+import de.tuberlin.aura.core.record.KeySelector;
 import de.tuberlin.aura.core.record.OperatorResult;
-import de.tuberlin.aura.core.record.TypeInformation;
 
 import java.util.UUID;
 
@@ -20,9 +20,7 @@ public class DatasetUpdatePhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
     // Fields.
     // ---------------------------------------------------
 
-    private TypeInformation inputTypeInfo;
-
-    private int[][] datasetKeyIndices;
+    private KeySelector datasetKeySelector;
 
     private MutableDataset<O> dataset;
 
@@ -47,8 +45,7 @@ public class DatasetUpdatePhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
 
         super.open();
 
-        datasetKeyIndices = getContext().getProperties().datasetKeyIndices;
-        inputTypeInfo = getContext().getProperties(this.getOperatorNum()).input1Type;
+        datasetKeySelector = new KeySelector(getContext().getProperties(this.getOperatorNum()).input1Type, getContext().getProperties().datasetKeyIndices);
 
         final UUID datasetID = (UUID)getContext().getProperties().config.get(CO_LOCATION_TASK_NAME);
 
@@ -63,18 +60,17 @@ public class DatasetUpdatePhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
         final OperatorResult<I> input = inputOp.next();
 
         if (input.marker == StreamMarker.END_OF_STREAM_MARKER) {
-            return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
         }
 
-        Object[] keys = new Object[datasetKeyIndices.length];
+        Object[] keys = new Object[datasetKeySelector.keyCount()];
 
-        for (int i = 0; i < datasetKeyIndices.length; i++) {
-            keys[i] = inputTypeInfo.selectField(datasetKeyIndices[i], input.element);
-        }
+        datasetKeySelector.copyKeys(input.element, keys);
 
-        if (dataset.containsElement(keys)) {
+        // a single lookup, get returns null for absent keys.
+        final O currentState = dataset.get(keys);
 
-            O currentState = dataset.get(keys);
+        if (currentState != null) {
 
             O newState = ((UpdateFunction<I,O>) function).update(currentState, input.element);
 
@@ -1,24 +1,80 @@
 package de.tuberlin.aura.core.dataflow.operators.impl;
 
-import java.util.Map;
-import java.util.HashMap;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractBinaryPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.IRecordSet;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.RecordSets;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
+import de.tuberlin.aura.core.dataflow.operators.spill.RecordSizeEstimator;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillPartitions;
 import de.tuberlin.aura.core.record.OperatorResult;
+import de.tuberlin.aura.core.record.TypeInformation;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
 
-
+/**
+ * Emits the elements of the first input that are not contained in the second input. The set of
+ * the second input is bounded by the operator memory budget. When it is full, it is frozen and the
+ * rest of the second input is spilled hash partitioned to disk; elements of the first input that
+ * the frozen set does not hold are spilled into the same partitions. The partition pairs are
+ * processed one by one after the first input, recursively if a partition does not fit either.
+ */
 public class DifferencePhysicalOperator<I> extends AbstractBinaryPhysicalOperator<I,I,I> {
 
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static final class SpilledPartition {
+
+        final SpillFile minusSideFile;
+
+        final SpillFile file;
+
+        final int level;
+
+        SpilledPartition(final SpillFile minusSideFile, final SpillFile file, final int level) {
+            this.minusSideFile = minusSideFile;
+            this.file = file;
+            this.level = level;
+        }
+    }
+
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
 
-    private final Map<I,Boolean> minusSideElements;
+    private TypeInformation inputTypeInfo;
+
+    private long memoryBudget;
+
+    private File spillDirectory;
+
+    private RecordSizeEstimator sizeEstimator;
+
+    private IRecordSet minusSideElements;
+
+    private int level;
+
+    // null as long as the minus side of the current pass fits into memory.
+    private SpillPartitions minusSidePartitions;
+
+    private SpillPartitions partitions;
+
+    private Deque<SpilledPartition> pendingPartitions;
+
+    private boolean isInputExhausted;
+
+    private SpilledPartition currentPartition;
+
+    private SpillFile.Reader partitionReader;
 
     // ---------------------------------------------------
     // Constructor.
@@ -29,8 +85,6 @@ public class DifferencePhysicalOperator<I> extends AbstractBinaryPhysicalOperato
                                  final IPhysicalOperator<I> inputOp2) {
 
         super(context, inputOp1, inputOp2);
-
-        minusSideElements = new HashMap<>();
     }
 
     // ---------------------------------------------------
@@ -41,12 +95,33 @@ public class DifferencePhysicalOperator<I> extends AbstractBinaryPhysicalOperato
     public void open() throws Throwable {
         super.open();
 
+        inputTypeInfo = getContext().getProperties(this.getOperatorNum()).input1Type;
+
+        memoryBudget = OperatorMemory.getMemoryBudget(getContext());
+
+        spillDirectory = OperatorMemory.getSpillDirectory(getContext());
+
+        sizeEstimator = new RecordSizeEstimator(inputTypeInfo);
+
+        minusSideElements = RecordSets.create(inputTypeInfo);
+
+        level = 0;
+
+        minusSidePartitions = null;
+
+        partitions = null;
+
+        pendingPartitions = new ArrayDeque<>();
+
+        isInputExhausted = false;
+
         inputOp2.open();
 
         OperatorResult<I> in2 = inputOp2.next();
 
         while (in2.marker != StreamMarker.END_OF_STREAM_MARKER) {
-            minusSideElements.put(in2.element, true);
+            if (in2.marker == null)
+                addMinusSideElement(in2.element);
             in2 = inputOp2.next();
         }
 
@@ -55,23 +130,73 @@ public class DifferencePhysicalOperator<I> extends AbstractBinaryPhysicalOperato
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public OperatorResult<I> next() throws Throwable {
         super.next();
 
-        OperatorResult<I> in1 = inputOp1.next();
+        while (true) {
 
-        while (in1.marker != StreamMarker.END_OF_STREAM_MARKER &&
-                minusSideElements.containsKey(in1.element)) {
+            if (!isInputExhausted) {
+                final OperatorResult<I> in1 = inputOp1.next();
 
-            in1 = inputOp1.next();
-        }
+                if (in1.marker == StreamMarker.END_OF_STREAM_MARKER) {
+                    isInputExhausted = true;
+                    finishPass();
+                    continue;
+                }
+
+                if (in1.marker != null || isNotContained(in1.element))
+                    return in1;
+
+                continue;
+            }
+
+            if (partitionReader != null) {
+                final Object element = partitionReader.next();
 
-        return in1;
+                if (element == null) {
+                    closePartition();
+                    finishPass();
+                    continue;
+                }
+
+                if (isNotContained(element))
+                    return result((I) element);
+
+                continue;
+            }
+
+            if (!pendingPartitions.isEmpty()) {
+                openPartition(pendingPartitions.pop());
+                continue;
+            }
+
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
+        }
     }
 
     @Override
     public void close() throws Throwable {
         super.close();
+        minusSideElements = null;
+        if (partitionReader != null)
+            closePartition();
+        if (minusSidePartitions != null) {
+            minusSidePartitions.delete();
+            minusSidePartitions = null;
+        }
+        if (partitions != null) {
+            partitions.delete();
+            partitions = null;
+        }
+        if (pendingPartitions != null) {
+            for (final SpilledPartition partition : pendingPartitions) {
+                if (partition.minusSideFile != null)
+                    partition.minusSideFile.delete();
+                partition.file.delete();
+            }
+            pendingPartitions.clear();
+        }
         inputOp1.close();
     }
 
@@ -79,4 +204,96 @@ public class DifferencePhysicalOperator<I> extends AbstractBinaryPhysicalOperato
     public void accept(final IVisitor<IPhysicalOperator> visitor) {
         visitor.visit(this);
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private void addMinusSideElement(final Object element) {
+
+        if (minusSidePartitions != null) {
+            // the set is frozen, elements that it does not hold are looked up in their partition.
+            if (!minusSideElements.contains(element))
+                minusSidePartitions.write(element, element.hashCode());
+            return;
+        }
+
+        if (!minusSideElements.add(element))
+            return;
+
+        sizeEstimator.add(element);
+
+        // on the last level the partitions can not be split any further.
+        if (level < SpillPartitions.MAX_LEVEL && minusSideElements.getMemorySize(sizeEstimator.getEstimate()) > memoryBudget) {
+            minusSidePartitions = new SpillPartitions(spillDirectory, inputTypeInfo, level);
+            partitions = new SpillPartitions(spillDirectory, inputTypeInfo, level);
+        }
+    }
+
+    private boolean isNotContained(final Object element) {
+        if (minusSideElements.contains(element))
+            return false;
+
+        if (partitions != null) {
+            // the element may still be contained in its minus side partition.
+            partitions.write(element, element.hashCode());
+            return false;
+        }
+
+        return true;
+    }
+
+    private void finishPass() {
+        if (partitions != null) {
+            final SpillFile[] minusSideFiles = minusSidePartitions.closeWrite();
+            final SpillFile[] files = partitions.closeWrite();
+
+            for (int i = 0; i < files.length; ++i) {
+                if (files[i] == null) {
+                    if (minusSideFiles[i] != null)
+                        minusSideFiles[i].delete();
+                } else if (minusSideFiles[i] == null) {
+                    // nothing to subtract, the partition is emitted with an empty set.
+                    pendingPartitions.push(new SpilledPartition(null, files[i], level + 1));
+                } else {
+                    pendingPartitions.push(new SpilledPartition(minusSideFiles[i], files[i], level + 1));
+                }
+            }
+
+            minusSidePartitions = null;
+            partitions = null;
+        }
+
+        // a new set releases the grown tables of the last pass.
+        minusSideElements = RecordSets.create(inputTypeInfo);
+        sizeEstimator.reset();
+    }
+
+    private void openPartition(final SpilledPartition partition) {
+        currentPartition = partition;
+        level = partition.level;
+
+        if (partition.minusSideFile != null) {
+            final SpillFile.Reader reader = partition.minusSideFile.openReader();
+            try {
+                Object element = reader.next();
+                while (element != null) {
+                    addMinusSideElement(element);
+                    element = reader.next();
+                }
+            } finally {
+                reader.close();
+            }
+            partition.minusSideFile.delete();
+        }
+
+        partitionReader = partition.file.openReader();
+    }
+
+    private void closePartition() {
+        partitionReader.close();
+        partitionReader = null;
+        currentPartition.file.delete();
+        currentPartition = null;
+    }
 }
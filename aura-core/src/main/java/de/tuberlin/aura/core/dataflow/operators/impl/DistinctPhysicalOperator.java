@@ -1,20 +1,74 @@
 package de.tuberlin.aura.core.dataflow.operators.impl;
 
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.IRecordSet;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.RecordSets;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
+import de.tuberlin.aura.core.dataflow.operators.spill.RecordSizeEstimator;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillPartitions;
 import de.tuberlin.aura.core.record.OperatorResult;
-
-import java.util.Map;
-import java.util.HashMap;
+import de.tuberlin.aura.core.record.TypeInformation;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
 
-
+/**
+ * Emits every distinct element once, on its first occurrence. The set of seen elements is bounded by
+ * the operator memory budget. When it is full, it is frozen: it still filters the elements it holds,
+ * all other elements are spilled hash partitioned to disk. The partitions are deduplicated one by
+ * one after the input, recursively if a partition does not fit either.
+ */
 public class DistinctPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,I> {
 
-    Map<I,Boolean> hashes;
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static final class SpilledPartition {
+
+        final SpillFile file;
+
+        final int level;
+
+        SpilledPartition(final SpillFile file, final int level) {
+            this.file = file;
+            this.level = level;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private TypeInformation inputTypeInfo;
+
+    private long memoryBudget;
+
+    private File spillDirectory;
+
+    private RecordSizeEstimator sizeEstimator;
+
+    private IRecordSet distinctElements;
+
+    private int level;
+
+    // null as long as the set of the current pass fits into memory.
+    private SpillPartitions spillPartitions;
+
+    private Deque<SpilledPartition> pendingPartitions;
+
+    private boolean isInputExhausted;
+
+    private SpilledPartition currentPartition;
+
+    private SpillFile.Reader partitionReader;
 
     // ---------------------------------------------------
     // Constructor.
@@ -24,8 +78,6 @@ public class DistinctPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I
                                     final IPhysicalOperator<I> inputOp) {
 
         super(context, inputOp);
-
-        hashes = new HashMap<>();
     }
 
     // ---------------------------------------------------
@@ -35,32 +87,141 @@ public class DistinctPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I
     @Override
     public void open() throws Throwable {
         super.open();
+
+        inputTypeInfo = getContext().getProperties(this.getOperatorNum()).input1Type;
+
+        memoryBudget = OperatorMemory.getMemoryBudget(getContext());
+
+        spillDirectory = OperatorMemory.getSpillDirectory(getContext());
+
+        sizeEstimator = new RecordSizeEstimator(inputTypeInfo);
+
+        distinctElements = RecordSets.create(inputTypeInfo);
+
+        level = 0;
+
+        spillPartitions = null;
+
+        pendingPartitions = new ArrayDeque<>();
+
+        isInputExhausted = false;
+
         inputOp.open();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public OperatorResult<I> next() throws Throwable {
 
-        OperatorResult<I> input = inputOp.next();
+        while (true) {
 
-        while (input.marker != StreamMarker.END_OF_STREAM_MARKER &&
-                hashes.containsKey(input.element)) {
+            if (!isInputExhausted) {
+                final OperatorResult<I> input = inputOp.next();
 
-            input = inputOp.next();
-        }
+                if (input.marker == StreamMarker.END_OF_STREAM_MARKER) {
+                    isInputExhausted = true;
+                    finishPass();
+                    continue;
+                }
+
+                if (input.marker != null || isFirstOccurrence(input.element))
+                    return input;
+
+                continue;
+            }
+
+            if (partitionReader != null) {
+                final Object element = partitionReader.next();
 
-        hashes.put(input.element, true);
+                if (element == null) {
+                    closePartition();
+                    finishPass();
+                    continue;
+                }
 
-        return input;
+                if (isFirstOccurrence(element))
+                    return result((I) element);
+
+                continue;
+            }
+
+            if (!pendingPartitions.isEmpty()) {
+                currentPartition = pendingPartitions.pop();
+                level = currentPartition.level;
+                partitionReader = currentPartition.file.openReader();
+                continue;
+            }
+
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
+        }
     }
 
     @Override
     public void close() throws Throwable {
         super.close();
+        distinctElements = null;
+        if (partitionReader != null)
+            closePartition();
+        if (spillPartitions != null) {
+            spillPartitions.delete();
+            spillPartitions = null;
+        }
+        if (pendingPartitions != null) {
+            for (final SpilledPartition partition : pendingPartitions)
+                partition.file.delete();
+            pendingPartitions.clear();
+        }
         inputOp.close();
     }
+
     @Override
     public void accept(final IVisitor<IPhysicalOperator> visitor) {
         visitor.visit(this);
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private boolean isFirstOccurrence(final Object element) {
+
+        if (spillPartitions != null) {
+            // the set is frozen, elements that it does not hold are decided in their partition.
+            if (!distinctElements.contains(element))
+                spillPartitions.write(element, element.hashCode());
+            return false;
+        }
+
+        if (!distinctElements.add(element))
+            return false;
+
+        sizeEstimator.add(element);
+
+        // on the last level the partitions can not be split any further.
+        if (level < SpillPartitions.MAX_LEVEL && distinctElements.getMemorySize(sizeEstimator.getEstimate()) > memoryBudget)
+            spillPartitions = new SpillPartitions(spillDirectory, inputTypeInfo, level);
+
+        return true;
+    }
+
+    private void finishPass() {
+        if (spillPartitions != null) {
+            for (final SpillFile file : spillPartitions.closeWrite()) {
+                if (file != null)
+                    pendingPartitions.push(new SpilledPartition(file, level + 1));
+            }
+            spillPartitions = null;
+        }
+
+        // a new set releases the grown tables of the last pass.
+        distinctElements = RecordSets.create(inputTypeInfo);
+        sizeEstimator.reset();
+    }
+
+    private void closePartition() {
+        partitionReader.close();
+        partitionReader = null;
+        currentPartition.file.delete();
+        currentPartition = null;
+    }
 }
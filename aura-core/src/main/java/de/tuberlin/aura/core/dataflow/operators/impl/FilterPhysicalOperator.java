@@ -6,11 +6,9 @@ import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.udfs.contracts.IFilterFunction;
 import de.tuberlin.aura.core.dataflow.udfs.functions.FilterFunction;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
-import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
-
-
 public class FilterPhysicalOperator<I> extends AbstractUnaryUDFPhysicalOperator<I,I> {
 
     // ---------------------------------------------------
@@ -39,7 +37,7 @@ public class FilterPhysicalOperator<I> extends AbstractUnaryUDFPhysicalOperator<
 
         OperatorResult<I> input = inputOp.next();
 
-        while (input.marker != StreamMarker.END_OF_STREAM_MARKER &&
+        while (input.marker == null &&
                 !((IFilterFunction<I>)function).filter(input.element)) {
 
             input = inputOp.next();
@@ -48,6 +46,33 @@ public class FilterPhysicalOperator<I> extends AbstractUnaryUDFPhysicalOperator<
         return input;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorBatch<I> nextBatch() throws Throwable {
+
+        final IFilterFunction<I> filterFunction = (IFilterFunction<I>) function;
+
+        final OperatorBatch<I> output = getBatch();
+
+        output.clear();
+
+        // skip batches without any qualifying element.
+        while (output.size() == 0 && output.marker == null) {
+
+            final OperatorBatch<I> input = inputOp.nextBatch();
+
+            for (int i = 0; i < input.size(); ++i) {
+                final I element = input.get(i);
+                if (filterFunction.filter(element))
+                    output.add(element);
+            }
+
+            output.marker = input.marker;
+        }
+
+        return output;
+    }
+
     @Override
     public void close() throws Throwable {
         super.close();
@@ -6,13 +6,11 @@ import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.udfs.contracts.IFlatMapFunction;
 import de.tuberlin.aura.core.dataflow.udfs.functions.FlatMapFunction;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
-import java.util.Queue;
-import java.util.LinkedList;
-
-import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
-
+import java.util.ArrayList;
+import java.util.List;
 
 public final class FlatMapPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<I,O> {
 
@@ -20,7 +18,13 @@ public final class FlatMapPhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
     // Fields.
     // ---------------------------------------------------
 
-    private Queue<O> elements;
+    private List<O> elements;
+
+    private int elementIndex;
+
+    private OperatorBatch<I> inputBatch;
+
+    private int inputIndex;
 
     // ---------------------------------------------------
     // Constructor.
@@ -42,24 +46,61 @@ public final class FlatMapPhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
         super.open();
         inputOp.open();
 
-        elements = new LinkedList<>();
+        elements = new ArrayList<>();
+
+        elementIndex = 0;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public OperatorResult<O> next() throws Throwable {
 
-        while (elements.isEmpty()) {
+        while (elementIndex == elements.size()) {
+            elements.clear();
+            elementIndex = 0;
+
             OperatorResult<I> input = inputOp.next();
 
-            if (input.marker != StreamMarker.END_OF_STREAM_MARKER) {
+            if (input.marker == null) {
                 ((IFlatMapFunction<I,O>)function).flatMap(input.element, elements);
             } else {
-                return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+                return marker(input.marker);
+            }
+        }
+
+        return result(elements.get(elementIndex++));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorBatch<O> nextBatch() throws Throwable {
+
+        final IFlatMapFunction<I,O> flatMapFunction = (IFlatMapFunction<I,O>) function;
+
+        final OperatorBatch<O> output = getBatch();
+
+        output.clear();
+
+        while (!output.isFull()) {
+
+            if (elementIndex < elements.size()) {
+                output.add(elements.get(elementIndex++));
+            } else if (!elements.isEmpty()) {
+                elements.clear();
+                elementIndex = 0;
+            } else if (inputBatch != null && inputIndex < inputBatch.size()) {
+                flatMapFunction.flatMap(inputBatch.get(inputIndex++), elements);
+            } else if (inputBatch != null && inputBatch.marker != null) {
+                output.marker = inputBatch.marker;
+                inputBatch = null;
+                break;
+            } else {
+                inputBatch = inputOp.nextBatch();
+                inputIndex = 0;
             }
         }
 
-        return new OperatorResult<>(elements.poll());
+        return output;
     }
 
     @Override
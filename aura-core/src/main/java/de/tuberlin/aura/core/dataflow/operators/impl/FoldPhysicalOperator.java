@@ -5,6 +5,7 @@ import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryUDFPhysicalOpe
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.udfs.functions.FoldFunction;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
@@ -17,6 +18,11 @@ public class FoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<
 
     private Boolean isDrained;
 
+    private OperatorBatch<I> inputBatch;
+
+    // index of the next element, inputBatch.size() is the position of the marker.
+    private int inputIndex;
+
     // ---------------------------------------------------
     // Constructor.
     // ---------------------------------------------------
@@ -45,7 +51,7 @@ public class FoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<
     public OperatorResult<O> next() throws Throwable {
 
         if (this.isDrained) {
-            return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
         }
 
         FoldFunction<I,O> function = (FoldFunction<I,O>) this.function;
@@ -55,7 +61,7 @@ public class FoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<
         OperatorResult<I> input = inputOp.next();
 
         if (input.marker == StreamMarker.END_OF_STREAM_MARKER) {
-            return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
         }
 
         while (input.marker != StreamMarker.END_OF_GROUP_MARKER &&
@@ -70,7 +76,64 @@ public class FoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<
             this.isDrained = true;
         }
 
-        return new OperatorResult<>(value);
+        return result(value);
+    }
+
+    /**
+     * Folds the groups of the input into a batch with one value per group.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorBatch<O> nextBatch() throws Throwable {
+
+        final FoldFunction<I,O> function = (FoldFunction<I,O>) this.function;
+
+        final OperatorBatch<O> output = getBatch();
+
+        output.clear();
+
+        while (!this.isDrained && !output.isFull()) {
+
+            O value = function.empty();
+
+            boolean isEmptyInput = true;
+
+            while (true) {
+
+                if (inputBatch == null || inputIndex > inputBatch.size()) {
+                    inputBatch = inputOp.nextBatch();
+                    inputIndex = 0;
+                }
+
+                if (inputIndex < inputBatch.size()) {
+                    value = function.union(value, function.singleton(inputBatch.get(inputIndex++)));
+                    isEmptyInput = false;
+                    continue;
+                }
+
+                final StreamMarker marker = inputBatch.marker;
+                ++inputIndex;
+
+                if (marker == StreamMarker.END_OF_STREAM_MARKER) {
+                    this.isDrained = true;
+                    if (!isEmptyInput) {
+                        output.add(value);
+                    }
+                    break;
+                }
+
+                if (marker == StreamMarker.END_OF_GROUP_MARKER) {
+                    output.add(value);
+                    break;
+                }
+            }
+        }
+
+        if (this.isDrained) {
+            output.marker = StreamMarker.END_OF_STREAM_MARKER;
+        }
+
+        return output;
     }
 
     @Override
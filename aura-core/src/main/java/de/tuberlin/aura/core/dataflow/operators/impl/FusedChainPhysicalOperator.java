@@ -0,0 +1,197 @@
+package de.tuberlin.aura.core.dataflow.operators.impl;
+
+import java.util.ArrayList;
+
+import de.tuberlin.aura.core.common.utils.IVisitor;
+import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.udfs.contracts.IFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FoldFunction;
+import de.tuberlin.aura.core.record.OperatorBatch;
+import de.tuberlin.aura.core.record.OperatorResult;
+
+import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
+
+/**
+ * Base class of the generated operators that execute a chain of map, filter and flat-map functions,
+ * optionally followed by a fold, in a single method (see OperatorChainCompiler).
+ *
+ * The generated {@link #process(Object)} pushes one input element through all functions of the
+ * chain and either passes the results to {@link #emit(Object)} or folds them into the accumulator.
+ * This class pulls the input in batches and handles the stream markers.
+ */
+public abstract class FusedChainPhysicalOperator<I,O> extends AbstractUnaryPhysicalOperator<I,O> {
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    protected final IFunction[] functions;
+
+    private final FoldFunction<Object,Object> foldFunction;
+
+    // state of the terminal fold, updated by the generated code.
+
+    protected Object accumulator;
+
+    protected boolean isAccumulatorEmpty;
+
+    private final ArrayList<Object> output;
+
+    private int outputIndex;
+
+    private StreamMarker pendingMarker;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    public FusedChainPhysicalOperator(final IExecutionContext context,
+                                      final IPhysicalOperator<I> inputOp,
+                                      final IFunction[] functions,
+                                      final boolean hasFold) {
+
+        super(context, inputOp);
+
+        // sanity check.
+        if (functions == null || functions.length == 0)
+            throw new IllegalArgumentException("functions == null || functions.length == 0");
+
+        this.functions = functions;
+
+        this.foldFunction = hasFold ? (FoldFunction<Object,Object>) functions[functions.length - 1] : null;
+
+        this.output = new ArrayList<>();
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    @Override
+    public void open() throws Throwable {
+        super.open();
+
+        for (final IFunction function : functions) {
+            function.setEnvironment(getContext());
+            function.create();
+        }
+
+        output.clear();
+        outputIndex = 0;
+        pendingMarker = null;
+        resetAccumulator();
+
+        inputOp.open();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorResult<O> next() throws Throwable {
+
+        while (outputIndex == output.size()) {
+
+            if (pendingMarker != null) {
+                final StreamMarker marker = pendingMarker;
+                if (marker != StreamMarker.END_OF_STREAM_MARKER)
+                    pendingMarker = null;
+                return marker(marker);
+            }
+
+            processBatch();
+        }
+
+        return result((O) output.get(outputIndex++));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorBatch<O> nextBatch() throws Throwable {
+
+        final OperatorBatch<O> batch = getBatch();
+
+        batch.clear();
+
+        while (!batch.isFull()) {
+
+            if (outputIndex < output.size()) {
+                batch.add((O) output.get(outputIndex++));
+            } else if (pendingMarker != null) {
+                batch.marker = pendingMarker;
+                if (pendingMarker != StreamMarker.END_OF_STREAM_MARKER)
+                    pendingMarker = null;
+                break;
+            } else {
+                processBatch();
+            }
+        }
+
+        return batch;
+    }
+
+    @Override
+    public void close() throws Throwable {
+        super.close();
+        for (final IFunction function : functions)
+            function.release();
+        inputOp.close();
+    }
+
+    @Override
+    public void accept(final IVisitor<IPhysicalOperator> visitor) {
+        visitor.visit(this);
+    }
+
+    // ---------------------------------------------------
+    // Protected Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Pushes an input element through the chain. Implemented by the generated code.
+     */
+    protected abstract void process(final Object element);
+
+    protected final void emit(final Object element) {
+        output.add(element);
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private void processBatch() throws Throwable {
+        output.clear();
+        outputIndex = 0;
+
+        final OperatorBatch<I> input = inputOp.nextBatch();
+
+        for (int i = 0; i < input.size(); ++i)
+            process(input.get(i));
+
+        if (input.marker == null)
+            return;
+
+        if (foldFunction == null) {
+            pendingMarker = input.marker;
+            return;
+        }
+
+        // the fold consumes the group markers, like the FoldPhysicalOperator.
+        if (input.marker == StreamMarker.END_OF_GROUP_MARKER) {
+            output.add(accumulator);
+            resetAccumulator();
+        } else if (input.marker == StreamMarker.END_OF_STREAM_MARKER) {
+            if (!isAccumulatorEmpty)
+                output.add(accumulator);
+            resetAccumulator();
+            pendingMarker = StreamMarker.END_OF_STREAM_MARKER;
+        }
+    }
+
+    private void resetAccumulator() {
+        accumulator = (foldFunction != null) ? foldFunction.empty() : null;
+        isAccumulatorEmpty = true;
+    }
+}
@@ -4,12 +4,12 @@ import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.record.KeyPacker;
+import de.tuberlin.aura.core.record.KeySelector;
 import de.tuberlin.aura.core.record.OperatorResult;
 import de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
-import de.tuberlin.aura.core.record.TypeInformation;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class GroupByPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,I> {
 
@@ -17,13 +17,24 @@ public class GroupByPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,
     // Fields.
     // ---------------------------------------------------
 
-    private TypeInformation inputTypeInfo;
+    private KeySelector groupKeySelector;
 
-    private int[][] groupKeyIndices;
+    // null if the keys can not be packed.
+    private KeyPacker groupKeyPacker;
 
-    private OperatorResult<I> firstElementOfNewGroup;
+    private I firstElementOfNewGroup;
 
-    private List<Object> currentGroupKeys;
+    private boolean hasFirstElementOfNewGroup;
+
+    private boolean isGroupOpen;
+
+    private boolean isCurrentKeyPacked;
+
+    private long[] currentPackedKey;
+
+    private long[] packedKey;
+
+    private Object[] currentGroupKeys;
 
 
     // ---------------------------------------------------
@@ -47,9 +58,17 @@ public class GroupByPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,
 
         inputOp.open();
 
-        inputTypeInfo = getContext().getProperties(this.getOperatorNum()).input1Type;
+        groupKeySelector = getContext().getProperties(this.getOperatorNum()).getGroupBySelector();
+
+        groupKeyPacker = KeyPacker.forKeys(groupKeySelector);
+
+        currentPackedKey = (groupKeyPacker != null) ? new long[groupKeyPacker.width()] : null;
+
+        packedKey = (groupKeyPacker != null) ? new long[groupKeyPacker.width()] : null;
+
+        currentGroupKeys = new Object[groupKeySelector.keyCount()];
 
-        groupKeyIndices = getContext().getProperties(this.getOperatorNum()).groupByKeyIndices;
+        isGroupOpen = false;
     }
 
     @Override
@@ -57,19 +76,27 @@ public class GroupByPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,
 
         OperatorResult<I> input;
 
-        if (currentGroupKeys == null) { // start of a new group
+        if (!isGroupOpen) { // start of a new group
 
-            input = (firstElementOfNewGroup == null) ? inputOp.next() : firstElementOfNewGroup;
+            if (hasFirstElementOfNewGroup) {
+                // the input result holder may be reused, so the element was kept instead of the result.
+                hasFirstElementOfNewGroup = false;
+                input = result(firstElementOfNewGroup);
+                firstElementOfNewGroup = null;
+            } else {
+                input = inputOp.next();
+            }
 
             if (input.marker == StreamMarker.END_OF_STREAM_MARKER) {
-                return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+                return marker(StreamMarker.END_OF_STREAM_MARKER);
             }
 
-            currentGroupKeys = new ArrayList<>(groupKeyIndices.length);
+            isCurrentKeyPacked = groupKeyPacker != null && groupKeyPacker.pack(input.element, currentPackedKey);
 
-            for (int i = 0; i < groupKeyIndices.length; i++) {
-                currentGroupKeys.add(i, inputTypeInfo.selectField(groupKeyIndices[i], input.element));
-            }
+            if (!isCurrentKeyPacked)
+                groupKeySelector.copyKeys(input.element, currentGroupKeys);
+
+            isGroupOpen = true;
 
             return input;
 
@@ -80,14 +107,13 @@ public class GroupByPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,
                 return input;
             }
 
-            for (int i = 0; i < groupKeyIndices.length; i++) {
-                if (!currentGroupKeys.get(i).equals(inputTypeInfo.selectField(groupKeyIndices[i], input.element))) {
-                    // the group was finished with the previous element
-                    firstElementOfNewGroup = input;
-                    currentGroupKeys = null;
+            if (!isInCurrentGroup(input.element)) {
+                // the group was finished with the previous element
+                firstElementOfNewGroup = input.element;
+                hasFirstElementOfNewGroup = true;
+                isGroupOpen = false;
 
-                    return new OperatorResult<>(StreamMarker.END_OF_GROUP_MARKER);
-                }
+                return marker(StreamMarker.END_OF_GROUP_MARKER);
             }
 
             return input;
@@ -105,4 +131,20 @@ public class GroupByPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,
         visitor.visit(this);
     }
 
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private boolean isInCurrentGroup(final I element) {
+        // numeric keys are compared packed, without boxing.
+        if (isCurrentKeyPacked)
+            return groupKeyPacker.pack(element, packedKey) && Arrays.equals(packedKey, currentPackedKey);
+
+        for (int i = 0; i < currentGroupKeys.length; i++) {
+            final Object key = groupKeySelector.get(i, element);
+            if (currentGroupKeys[i] == null ? key != null : !currentGroupKeys[i].equals(key))
+                return false;
+        }
+        return true;
+    }
 }
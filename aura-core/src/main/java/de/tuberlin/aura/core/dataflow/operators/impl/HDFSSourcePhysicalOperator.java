@@ -78,13 +78,13 @@ public class HDFSSourcePhysicalOperator<O> extends AbstractUnaryPhysicalOperator
             split = (FileInputSplit)getContext().getRuntime().getNextInputSplit();
 
             if (split == null)
-                return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+                return marker(StreamMarker.END_OF_STREAM_MARKER);
 
             inputFormat.open(split);
             inputFormat.nextRecord(record);
         }
 
-        return new OperatorResult<>((O) record);
+        return result((O) record);
     }
 
     @Override
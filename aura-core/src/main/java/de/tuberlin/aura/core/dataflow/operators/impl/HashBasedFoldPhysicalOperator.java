@@ -2,25 +2,123 @@ package de.tuberlin.aura.core.dataflow.operators.impl;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
 
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+
 import de.tuberlin.aura.core.common.utils.IVisitor;
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryUDFPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
 import de.tuberlin.aura.core.dataflow.udfs.functions.FoldFunction;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 import de.tuberlin.aura.core.record.TypeInformation;
 
-import java.util.*;
-
+/**
+ * Folds groups in an open addressing hash table with a single probe per input record. The number of
+ * groups is bounded by the operator memory budget. When the table is full, it either emits its
+ * partial aggregates (combiner mode, see <code>operators.fold.combiner</code>) or spills them
+ * hash partitioned to disk; the spilled partitions are folded one by one after the input.
+ *
+ * As a HASH_COMBINE_OPERATOR the input records are partial aggregates of a hash fold, which are
+ * folded with <code>union</code> only. Their group keys are read from the same fields as the keys
+ * of the records of the fold.
+ */
 public class HashBasedFoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<I,O> {
 
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static final class SpilledPartition {
+
+        final SpillFile file;
+
+        final int level;
+
+        SpilledPartition(final SpillFile file, final int level) {
+            this.file = file;
+            this.level = level;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int PARTITION_BITS = 5;
+
+    private static final int MAX_LEVEL = 5;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // rough heap overhead of a group besides its serialized size: slots, key array, object headers.
+    private static final int GROUP_OVERHEAD = 64;
+
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
 
-    private Map<List<Object>,O> keysToValue;
+    private FoldFunction<I,O> foldFunction;
+
+    private TypeInformation outputTypeInfo;
+
+    private KeySelector groupKeySelector;
+
+    private boolean isCombiner;
+
+    private boolean isPartialInput;
+
+    private long memoryBudget;
+
+    private File spillDirectory;
+
+    private Kryo sizeKryo;
+
+    private Output sizeOutput;
+
+    // table.
+
+    private int[] slotHashes;
+
+    private Object[][] slotKeys;
+
+    private Object[] slotValues;
+
+    private int groupCount;
+
+    private int maxGroups;
+
+    private long groupSizeEstimate;
+
+    private Object[] keyBuffer;
 
-    private Queue<O> foldResults;
+    // state.
+
+    private boolean isInputExhausted;
+
+    private OperatorBatch<I> inputBatch;
+
+    private int inputIndex;
+
+    private boolean isEmitting;
+
+    private int emitSlot;
+
+    private int level;
+
+    private SpillFile[] spillFiles;
+
+    private Deque<SpilledPartition> pendingPartitions;
 
     // ---------------------------------------------------
     // Constructor.
@@ -31,10 +129,6 @@ public class HashBasedFoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
                                          final FoldFunction<I, O> function) {
 
         super(context, inputOp, function);
-
-        keysToValue = new HashMap<>();
-
-        foldResults = new LinkedList<>();
     }
 
 
@@ -43,63 +137,363 @@ public class HashBasedFoldPhysicalOperator<I,O> extends AbstractUnaryUDFPhysical
     // ---------------------------------------------------
 
     @Override
+    @SuppressWarnings("unchecked")
     public void open() throws Throwable {
 
         super.open();
 
-        FoldFunction<I,O> function = ((FoldFunction<I,O>) this.function);
+        foldFunction = (FoldFunction<I,O>) this.function;
 
-        TypeInformation inputTypeInfo = getContext().getProperties(this.getOperatorNum()).input1Type;
-        int[][] groupKeyIndices = getContext().getProperties(this.getOperatorNum()).groupByKeyIndices;
+        final DataflowNodeProperties properties = getContext().getProperties(this.getOperatorNum());
 
-        inputOp.open();
+        outputTypeInfo = properties.outputType;
 
-        OperatorResult<I> input = inputOp.next();
+        groupKeySelector = properties.getGroupBySelector();
 
-        while (input.marker != StreamMarker.END_OF_STREAM_MARKER) {
+        isCombiner = OperatorMemory.isFoldCombiner(getContext());
 
-            List<Object> keys = new ArrayList<>();
+        isPartialInput = properties.type == DataflowNodeProperties.DataflowNodeType.HASH_COMBINE_OPERATOR;
 
-            if (groupKeyIndices != null) {
+        memoryBudget = OperatorMemory.getMemoryBudget(getContext());
 
-                for (int i = 0; i < groupKeyIndices.length; i++) {
-                    keys.add(i, inputTypeInfo.selectField(groupKeyIndices[i], input.element));
-                }
+        spillDirectory = OperatorMemory.getSpillDirectory(getContext());
 
-            }
+        sizeKryo = SpillFile.createKryo(outputTypeInfo);
 
-            if (!keysToValue.containsKey(keys)) {
-                keysToValue.put(keys, function.empty());
-            }
+        sizeOutput = new Output(4096, -1);
 
-            O value = function.union(keysToValue.get(keys), function.singleton(input.element));
-            keysToValue.put(keys, value);
+        keyBuffer = new Object[(groupKeySelector != null) ? groupKeySelector.keyCount() : 0];
 
-            input = inputOp.next();
-        }
+        slotHashes = new int[INITIAL_CAPACITY];
+
+        slotKeys = new Object[INITIAL_CAPACITY][];
+
+        slotValues = new Object[INITIAL_CAPACITY];
+
+        groupCount = 0;
 
-        foldResults = new LinkedList<>(keysToValue.values());
+        maxGroups = Integer.MAX_VALUE;
+
+        groupSizeEstimate = 0;
+
+        isInputExhausted = false;
+
+        inputBatch = null;
+
+        isEmitting = false;
+
+        level = 0;
+
+        spillFiles = null;
+
+        pendingPartitions = new ArrayDeque<>();
+
+        inputOp.open();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public OperatorResult<O> next() throws Throwable {
+        final Object value = nextValue();
+        return (value != null) ? result((O) value) : marker(StreamMarker.END_OF_STREAM_MARKER);
+    }
 
-        if (!foldResults.isEmpty()) {
-            return new OperatorResult<>(foldResults.poll());
-        } else {
-            return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorBatch<O> nextBatch() throws Throwable {
+        final OperatorBatch<O> output = getBatch();
+        output.clear();
+
+        while (!output.isFull()) {
+            final Object value = nextValue();
+            if (value == null) {
+                output.marker = StreamMarker.END_OF_STREAM_MARKER;
+                break;
+            }
+            output.add((O) value);
         }
 
+        return output;
     }
 
     @Override
     public void close() throws Throwable {
         super.close();
         inputOp.close();
+        if (spillFiles != null) {
+            for (final SpillFile file : spillFiles) {
+                if (file != null)
+                    file.delete();
+            }
+            spillFiles = null;
+        }
+        if (pendingPartitions != null) {
+            for (final SpilledPartition partition : pendingPartitions)
+                partition.file.delete();
+            pendingPartitions.clear();
+        }
     }
 
     @Override
     public void accept(final IVisitor<IPhysicalOperator> visitor) {
         visitor.visit(this);
     }
+
+    // ---------------------------------------------------
+    // Private Methods: Passes.
+    // ---------------------------------------------------
+
+    /**
+     * @return the next folded value or null if all groups are emitted.
+     */
+    private Object nextValue() throws Throwable {
+
+        while (true) {
+
+            if (isEmitting) {
+                while (emitSlot < slotValues.length) {
+                    final Object value = slotValues[emitSlot++];
+                    if (value != null)
+                        return value;
+                }
+                clearTable();
+                isEmitting = false;
+            }
+
+            if (!isInputExhausted) {
+                if (consumeInput()) {
+                    if (isCombiner)
+                        startEmitting();
+                    else
+                        spillTable();
+                    continue;
+                }
+                isInputExhausted = true;
+                finishPass();
+                continue;
+            }
+
+            if (!pendingPartitions.isEmpty()) {
+                foldPartition(pendingPartitions.pop());
+                continue;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the table is full, false if the input is exhausted.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean consumeInput() throws Throwable {
+
+        while (true) {
+
+            if (inputBatch == null || inputIndex == inputBatch.size()) {
+                if (inputBatch != null && inputBatch.isEndOfStream())
+                    return false;
+                inputBatch = inputOp.nextBatch();
+                inputIndex = 0;
+                continue;
+            }
+
+            final I element = inputBatch.get(inputIndex++);
+
+            if (groupKeySelector != null)
+                groupKeySelector.copyKeys(element, keyBuffer);
+
+            final int slot = findSlot(hash(keyBuffer));
+            if (isPartialInput) {
+                if (slotValues[slot] != null)
+                    slotValues[slot] = foldFunction.union(value(slot), (O) element);
+                else
+                    insert(slot, keyBuffer.clone(), element);
+            } else if (slotValues[slot] != null) {
+                slotValues[slot] = foldFunction.union(value(slot), foldFunction.singleton(element));
+            } else {
+                insert(slot, keyBuffer.clone(), foldFunction.union(foldFunction.empty(), foldFunction.singleton(element)));
+            }
+
+            if (isFull())
+                return true;
+        }
+    }
+
+    /**
+     * Folds the partial aggregates of a spilled partition, spilling again with other hash bits if
+     * the partition does not fit into the table.
+     */
+    private void foldPartition(final SpilledPartition partition) {
+        level = partition.level;
+
+        final SpillFile.Reader reader = partition.file.openReader();
+        try {
+            Object keys = reader.next();
+            while (keys != null) {
+                @SuppressWarnings("unchecked")
+                final O partial = (O) reader.next();
+
+                System.arraycopy((Object[]) keys, 0, keyBuffer, 0, keyBuffer.length);
+                final int slot = findSlot(hash(keyBuffer));
+                if (slotValues[slot] != null)
+                    slotValues[slot] = foldFunction.union(value(slot), partial);
+                else
+                    insert(slot, (Object[]) keys, partial);
+
+                if (isFull())
+                    spillTable();
+
+                keys = reader.next();
+            }
+        } finally {
+            reader.close();
+        }
+        partition.file.delete();
+
+        finishPass();
+    }
+
+    private void finishPass() {
+        if (spillFiles == null) {
+            startEmitting();
+            return;
+        }
+
+        // parts of the groups are on disk, so the table is completed from the partitions.
+        spillTable();
+        for (final SpillFile file : spillFiles) {
+            if (file != null) {
+                file.closeWrite();
+                pendingPartitions.push(new SpilledPartition(file, level + 1));
+            }
+        }
+        spillFiles = null;
+        clearTable();
+    }
+
+    private void startEmitting() {
+        isEmitting = true;
+        emitSlot = 0;
+    }
+
+    private void spillTable() {
+        if (spillFiles == null)
+            spillFiles = new SpillFile[1 << PARTITION_BITS];
+
+        for (int slot = 0; slot < slotValues.length; ++slot) {
+            if (slotValues[slot] == null)
+                continue;
+            final int partition = (slotHashes[slot] >>> (32 - PARTITION_BITS * (level + 1))) & ((1 << PARTITION_BITS) - 1);
+            if (spillFiles[partition] == null)
+                spillFiles[partition] = new SpillFile(spillDirectory, outputTypeInfo);
+            spillFiles[partition].write(slotKeys[slot]);
+            spillFiles[partition].write(slotValues[slot]);
+        }
+
+        clearTable();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Table.
+    // ---------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private O value(final int slot) {
+        return (O) slotValues[slot];
+    }
+
+    private int findSlot(final int hash) {
+        final int mask = slotValues.length - 1;
+        int slot = hash & mask;
+        while (slotValues[slot] != null) {
+            if (slotHashes[slot] == hash && equalKeys(slotKeys[slot], keyBuffer))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(final int slot, final Object[] keys, final Object value) {
+        slotHashes[slot] = hash(keys);
+        slotKeys[slot] = keys;
+        slotValues[slot] = value;
+        ++groupCount;
+
+        // re-estimate the size of a group whenever the number of groups doubles.
+        if ((groupCount & (groupCount - 1)) == 0)
+            estimateGroupSize(keys, value);
+
+        if (groupCount * 2 > slotValues.length)
+            growTable();
+    }
+
+    private boolean isFull() {
+        // on the last level the partitions can not be split any further.
+        return groupCount >= maxGroups && level < MAX_LEVEL;
+    }
+
+    private void estimateGroupSize(final Object[] keys, final Object value) {
+        sizeOutput.clear();
+        sizeKryo.writeClassAndObject(sizeOutput, keys);
+        sizeKryo.writeClassAndObject(sizeOutput, value);
+        groupSizeEstimate = Math.max(groupSizeEstimate, sizeOutput.position() + GROUP_OVERHEAD);
+        maxGroups = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, memoryBudget / groupSizeEstimate));
+    }
+
+    private void growTable() {
+        final int[] oldHashes = slotHashes;
+        final Object[][] oldKeys = slotKeys;
+        final Object[] oldValues = slotValues;
+
+        final int capacity = oldValues.length * 2;
+        final int mask = capacity - 1;
+        slotHashes = new int[capacity];
+        slotKeys = new Object[capacity][];
+        slotValues = new Object[capacity];
+
+        for (int i = 0; i < oldValues.length; ++i) {
+            if (oldValues[i] == null)
+                continue;
+            int slot = oldHashes[i] & mask;
+            while (slotValues[slot] != null)
+                slot = (slot + 1) & mask;
+            slotHashes[slot] = oldHashes[i];
+            slotKeys[slot] = oldKeys[i];
+            slotValues[slot] = oldValues[i];
+        }
+    }
+
+    private void clearTable() {
+        if (slotValues.length > INITIAL_CAPACITY) {
+            slotHashes = new int[INITIAL_CAPACITY];
+            slotKeys = new Object[INITIAL_CAPACITY][];
+            slotValues = new Object[INITIAL_CAPACITY];
+        } else {
+            Arrays.fill(slotKeys, null);
+            Arrays.fill(slotValues, null);
+        }
+        groupCount = 0;
+    }
+
+    private static boolean equalKeys(final Object[] keys1, final Object[] keys2) {
+        for (int i = 0; i < keys1.length; ++i) {
+            if (keys1[i] == null ? keys2[i] != null : !keys1[i].equals(keys2[i]))
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(final Object[] keys) {
+        int h = 1;
+        for (final Object key : keys)
+            h = 31 * h + (key == null ? 0 : key.hashCode());
+        // murmur3 finalizer, the partitions use the high bits and the slots the low bits.
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
 }
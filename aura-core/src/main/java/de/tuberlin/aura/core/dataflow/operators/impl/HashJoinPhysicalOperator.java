@@ -1,23 +1,20 @@
 package de.tuberlin.aura.core.dataflow.operators.impl;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
 import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractBinaryPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
 import de.tuberlin.aura.core.record.OperatorResult;
-import de.tuberlin.aura.core.record.TypeInformation;
 import de.tuberlin.aura.core.record.tuples.Tuple2;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
 
 /**
- *
+ * Joins the build side (input 1) with the probe side (input 2) by a {@link HybridHashJoin}. The
+ * build side is held in memory pages up to the configured operator memory budget and spilled
+ * partition-wise beyond it.
  */
 public final class HashJoinPhysicalOperator<I1,I2> extends AbstractBinaryPhysicalOperator<I1,I2,Tuple2<I1,I2>> {
 
@@ -25,11 +22,9 @@ public final class HashJoinPhysicalOperator<I1,I2> extends AbstractBinaryPhysica
     // Fields.
     // ---------------------------------------------------
 
-    private TypeInformation input2TypeInfo;
-
-    private int[][] key2Indices;
+    private HybridHashJoin hashJoin;
 
-    private final Map<List<Object>,I1> buildSide;
+    private final HybridHashJoin.IRecordSource probeSource;
 
     // ---------------------------------------------------
     // Constructor.
@@ -41,8 +36,14 @@ public final class HashJoinPhysicalOperator<I1,I2> extends AbstractBinaryPhysica
 
         super(context, inputOp1, inputOp2);
 
-        this.buildSide = new HashMap<>();
+        this.probeSource = new HybridHashJoin.IRecordSource() {
 
+            @Override
+            public Object next() throws Throwable {
+                final OperatorResult<I2> in2 = inputOp2.next();
+                return (in2.marker == StreamMarker.END_OF_STREAM_MARKER) ? null : in2.element;
+            }
+        };
     }
 
     // ---------------------------------------------------
@@ -55,37 +56,31 @@ public final class HashJoinPhysicalOperator<I1,I2> extends AbstractBinaryPhysica
 
         DataflowNodeProperties properties = getContext().getProperties(getOperatorNum());
 
-        int[][] key1Indices = properties.keyIndices1;
-
-        TypeInformation input1TypeInfo = properties.input1Type;
-
-        key2Indices = properties.keyIndices2;
-
-        input2TypeInfo = properties.input2Type;
-
         // sanity check.
-        if (key1Indices.length != key2Indices.length)
+        if (properties.keyIndices1.length != properties.keyIndices2.length)
             throw new IllegalStateException("joinKeyIndices1.length != joinKeyIndices2.length");
         // TODO: check types!
 
-        OperatorResult<I1> in1 = null;
+        hashJoin = new HybridHashJoin(
+                OperatorMemory.createPageAllocator(getContext()),
+                OperatorMemory.getSpillDirectory(getContext()),
+                properties.input1Type,
+                properties.input2Type,
+                new HybridHashJoin.KeyAccessor(properties.getKeySelector1()),
+                new HybridHashJoin.KeyAccessor(properties.getKeySelector2())
+        );
 
         // Construct build-side
         inputOp1.open();
 
-        in1 = inputOp1.next();
-
-        while (in1.marker != StreamMarker.END_OF_STREAM_MARKER) {
-            final List<Object> key1 = new ArrayList<>(key1Indices.length);
+        hashJoin.build(new HybridHashJoin.IRecordSource() {
 
-            for (final int[] selectorChain : key1Indices) {
-                key1.add(input1TypeInfo.selectField(selectorChain, in1.element));
+            @Override
+            public Object next() throws Throwable {
+                final OperatorResult<I1> in1 = inputOp1.next();
+                return (in1.marker == StreamMarker.END_OF_STREAM_MARKER) ? null : in1.element;
             }
-
-            buildSide.put(key1, in1.element);
-
-            in1 = inputOp1.next();
-        }
+        });
 
         inputOp1.close();
 
@@ -93,35 +88,27 @@ public final class HashJoinPhysicalOperator<I1,I2> extends AbstractBinaryPhysica
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public OperatorResult<Tuple2<I1,I2>> next() throws Throwable {
 
-        I1 in1 = null;
-        OperatorResult<I2> in2 = null;
-
-        while (in1 == null) {
-
-            in2 = inputOp2.next();
-
-            if (in2.marker == StreamMarker.END_OF_STREAM_MARKER) {
-                return new OperatorResult<>(null, StreamMarker.END_OF_STREAM_MARKER);
-            }
+        final Tuple2<Object,Object> match = hashJoin.next(probeSource);
 
-            final List<Object> key2 = new ArrayList<>(key2Indices.length);
-
-            for (final int[] selectorChain : key2Indices) {
-                key2.add(input2TypeInfo.selectField(selectorChain, in2.element));
-            }
-
-            in1 = buildSide.get(key2);
+        if (match == null) {
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
         }
 
-        return new OperatorResult<>(new Tuple2<>(in1, in2.element));
+        return result((Tuple2<I1,I2>) (Tuple2) match);
     }
 
     @Override
     public void close() throws Throwable {
         super.close();
         inputOp2.close();
+        // frees the pages, the allocator is dropped with the join.
+        if (hashJoin != null) {
+            hashJoin.close();
+            hashJoin = null;
+        }
     }
 
     @Override
@@ -0,0 +1,578 @@
+package de.tuberlin.aura.core.dataflow.operators.impl;
+
+import java.io.File;
+
+import com.esotericsoftware.kryo.Kryo;
+
+import de.tuberlin.aura.core.dataflow.operators.spill.RecordPageStore;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+
+/**
+ * Hybrid hash join over serialized build records in memory pages.
+ *
+ * The build side is hash partitioned. Partitions are kept in pages of the page allocator until it is
+ * exhausted, then the largest in-memory partition is spilled to disk. Every in-memory partition gets
+ * an open addressing table over the hash codes, and records with equal hash codes are linked to a
+ * chain through their headers, so all matching build records of a key are found. Probe records of
+ * spilled partitions are spilled as well and both files are joined recursively with a different
+ * hash function. On the last recursion level the spilled build side is joined chunk-wise with
+ * repeated scans over the probe file.
+ */
+public final class HybridHashJoin {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    public static interface IRecordSource {
+
+        /**
+         * @return the next record or <code>null</code> if the source is exhausted.
+         */
+        public abstract Object next() throws Throwable;
+    }
+
+    /**
+     * Extracts the join key of records. A single integral key is compared as a long value, stored
+     * in the record header, so that build records are only deserialized on a match. A null key is
+     * stored as 0 and, like in the merge join, matches null keys only.
+     */
+    public static final class KeyAccessor {
+
+        private final KeySelector keySelector;
+
+        private final boolean isLongKey;
+
+        private final boolean isNullable;
+
+        public KeyAccessor(final KeySelector keySelector) {
+            // sanity check.
+            if (keySelector == null)
+                throw new IllegalArgumentException("keySelector == null");
+
+            this.keySelector = keySelector;
+
+            final Class<?> keyType = (keySelector.keyCount() == 1) ? keySelector.getField(0).getFieldType() : null;
+
+            this.isLongKey = keyType == Integer.class || keyType == Long.class || keyType == int.class || keyType == long.class;
+
+            this.isNullable = isLongKey && !keyType.isPrimitive();
+        }
+
+        public boolean isLongKey() {
+            return isLongKey;
+        }
+
+        public int hash(final Object record, final boolean asLong) {
+            if (asLong) {
+                final long key = longKey(record);
+                return (int) (key ^ (key >>> 32));
+            }
+            return keySelector.hash(record);
+        }
+
+        public boolean isNullable() {
+            return isNullable;
+        }
+
+        public boolean isNullKey(final Object record) {
+            return isNullable && keySelector.get(0, record) == null;
+        }
+
+        public long longKey(final Object record) {
+            if (isNullable) {
+                final Object key = keySelector.get(0, record);
+                return (key == null) ? 0L : ((Number) key).longValue();
+            }
+            return keySelector.getLong(0, record);
+        }
+
+        public boolean equalKeys(final Object record, final KeyAccessor other, final Object otherRecord) {
+            return keySelector.equalKeys(record, other.keySelector, otherRecord);
+        }
+    }
+
+    private static final class Partition {
+
+        final RecordPageStore store;
+
+        SpillFile buildFile;
+
+        SpillFile probeFile;
+
+        int[] slotHashes;
+
+        int[] slotHeads;
+
+        Partition(final RecordPageStore store) {
+            this.store = store;
+        }
+
+        boolean isSpilled() {
+            return buildFile != null;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int PARTITION_BITS = 5;
+
+    private static final int MAX_LEVEL = 3;
+
+    // header: next record in chain, hash code, long key.
+    private static final int HEADER_NEXT = 0;
+
+    private static final int HEADER_HASH = 4;
+
+    private static final int HEADER_KEY = 8;
+
+    private static final int HEADER_SIZE = 16;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final IAllocator allocator;
+
+    private final File spillDirectory;
+
+    private final TypeInformation buildType;
+
+    private final TypeInformation probeType;
+
+    private final KeyAccessor buildKey;
+
+    private final KeyAccessor probeKey;
+
+    private final int level;
+
+    // single int/long keys on both sides are compared on the header, without deserialization.
+    private final boolean longKeys;
+
+    // a long key of 0 may also be a null key, such matches are checked on the records.
+    private final boolean nullableLongKeys;
+
+    private final Kryo kryo;
+
+    private final Partition[] partitions;
+
+    // probe state.
+
+    private Object probeRecord;
+
+    private int probeHash;
+
+    private long probeLongKey;
+
+    private boolean probeNullKey;
+
+    private int chainRef = -1;
+
+    private boolean probeExhausted = false;
+
+    // recursion state.
+
+    private int spilledPartitionIndex = 0;
+
+    private HybridHashJoin childJoin;
+
+    private SpillFile.Reader childProbeReader;
+
+    // chunk state, only on the last level.
+
+    private SpillFile.Reader chunkBuildReader;
+
+    private Object pendingBuildRecord;
+
+    private SpillFile chunkProbeFile;
+
+    private SpillFile.Reader chunkProbeReader;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public HybridHashJoin(final IAllocator allocator,
+                          final File spillDirectory,
+                          final TypeInformation buildType,
+                          final TypeInformation probeType,
+                          final KeyAccessor buildKey,
+                          final KeyAccessor probeKey) {
+
+        this(allocator, spillDirectory, buildType, probeType, buildKey, probeKey, 0);
+    }
+
+    private HybridHashJoin(final IAllocator allocator,
+                           final File spillDirectory,
+                           final TypeInformation buildType,
+                           final TypeInformation probeType,
+                           final KeyAccessor buildKey,
+                           final KeyAccessor probeKey,
+                           final int level) {
+        // sanity check.
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+        if (spillDirectory == null)
+            throw new IllegalArgumentException("spillDirectory == null");
+        if (buildKey == null)
+            throw new IllegalArgumentException("buildKey == null");
+        if (probeKey == null)
+            throw new IllegalArgumentException("probeKey == null");
+
+        this.allocator = allocator;
+
+        this.spillDirectory = spillDirectory;
+
+        this.buildType = buildType;
+
+        this.probeType = probeType;
+
+        this.buildKey = buildKey;
+
+        this.probeKey = probeKey;
+
+        this.level = level;
+
+        this.longKeys = buildKey.isLongKey() && probeKey.isLongKey();
+
+        this.nullableLongKeys = longKeys && (buildKey.isNullable() || probeKey.isNullable());
+
+        this.kryo = SpillFile.createKryo(buildType);
+
+        this.partitions = new Partition[level < MAX_LEVEL ? 1 << PARTITION_BITS : 1];
+
+        for (int i = 0; i < partitions.length; ++i)
+            partitions[i] = new Partition(new RecordPageStore(allocator, kryo, HEADER_SIZE));
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public void build(final IRecordSource buildSource) throws Throwable {
+        // sanity check.
+        if (buildSource == null)
+            throw new IllegalArgumentException("buildSource == null");
+
+        Object record = buildSource.next();
+        while (record != null) {
+            insert(record);
+            record = buildSource.next();
+        }
+
+        buildTables();
+    }
+
+    /**
+     * @return the next pair of build and probe record with equal keys, or <code>null</code> if
+     *         the probe side and all spilled partitions are exhausted.
+     */
+    public Tuple2<Object,Object> next(final IRecordSource probeSource) throws Throwable {
+        while (true) {
+            // emit the remaining matches of the current probe record.
+            if (probeRecord != null) {
+                final Partition partition = partitions[partitionOf(probeHash)];
+                while (chainRef != -1) {
+                    final int ref = chainRef;
+                    chainRef = partition.store.getHeaderInt(ref, HEADER_NEXT);
+                    if (partition.store.getHeaderInt(ref, HEADER_HASH) != probeHash)
+                        continue;
+                    if (longKeys) {
+                        if (partition.store.getHeaderLong(ref, HEADER_KEY) != probeLongKey)
+                            continue;
+                        final Object buildRecord = partition.store.read(ref);
+                        if (probeLongKey != 0L || !nullableLongKeys || buildKey.isNullKey(buildRecord) == probeNullKey)
+                            return new Tuple2<>(buildRecord, probeRecord);
+                    } else {
+                        final Object buildRecord = partition.store.read(ref);
+                        if (buildKey.equalKeys(buildRecord, probeKey, probeRecord))
+                            return new Tuple2<>(buildRecord, probeRecord);
+                    }
+                }
+                probeRecord = null;
+            }
+
+            if (!probeExhausted) {
+                final Object record = (chunkProbeReader != null) ? chunkProbeReader.next() : probeSource.next();
+                if (record == null) {
+                    probeExhausted = true;
+                    continue;
+                }
+                probe(record);
+                continue;
+            }
+
+            // the probe side is exhausted, continue with the next chunk or the spilled partitions.
+            if (chunkBuildReader != null) {
+                if (pendingBuildRecord == null)
+                    return null;
+                loadChunk();
+                probeExhausted = false;
+                continue;
+            }
+
+            return nextFromSpilledPartitions();
+        }
+    }
+
+    public void close() {
+        for (final Partition partition : partitions) {
+            partition.store.clear();
+            partition.slotHashes = null;
+            partition.slotHeads = null;
+            if (partition.buildFile != null)
+                partition.buildFile.delete();
+            if (partition.probeFile != null)
+                partition.probeFile.delete();
+        }
+        if (childJoin != null) {
+            childJoin.close();
+            childJoin = null;
+        }
+        if (childProbeReader != null) {
+            childProbeReader.close();
+            childProbeReader = null;
+        }
+        if (chunkBuildReader != null) {
+            chunkBuildReader.close();
+            chunkBuildReader = null;
+        }
+        if (chunkProbeReader != null) {
+            chunkProbeReader.close();
+            chunkProbeReader = null;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Build.
+    // ---------------------------------------------------
+
+    private void insert(final Object record) {
+        final int hash = hash(buildKey.hash(record, longKeys));
+        final Partition partition = partitions[partitionOf(hash)];
+
+        if (partition.isSpilled()) {
+            partition.buildFile.write(record);
+            return;
+        }
+
+        int ref = partition.store.add(record);
+        while (ref == -1) {
+            spillLargestPartition();
+            if (partition.isSpilled()) {
+                partition.buildFile.write(record);
+                return;
+            }
+            ref = partition.store.add(record);
+        }
+
+        partition.store.putHeaderInt(ref, HEADER_HASH, hash);
+        partition.store.putHeaderLong(ref, HEADER_KEY, longKeys ? buildKey.longKey(record) : 0L);
+    }
+
+    private void spillLargestPartition() {
+        Partition victim = null;
+        for (final Partition partition : partitions) {
+            if (!partition.isSpilled() && partition.store.getRecordCount() > 0
+                    && (victim == null || partition.store.getPageCount() > victim.store.getPageCount()))
+                victim = partition;
+        }
+        if (victim == null)
+            throw new IllegalStateException("memory budget is too small to hold a single page per partition");
+
+        victim.buildFile = new SpillFile(spillDirectory, buildType);
+        victim.probeFile = new SpillFile(spillDirectory, probeType);
+        for (int ref = victim.store.first(); ref != -1; ref = victim.store.next(ref))
+            victim.buildFile.write(victim.store.read(ref));
+        victim.store.clear();
+    }
+
+    private void buildTables() {
+        for (final Partition partition : partitions) {
+            if (partition.isSpilled() || partition.store.getRecordCount() == 0)
+                continue;
+
+            final int capacity = Integer.highestOneBit(Math.max(partition.store.getRecordCount(), 2) * 2 - 1) << 1;
+            final int mask = capacity - 1;
+            partition.slotHashes = new int[capacity];
+            partition.slotHeads = new int[capacity];
+
+            for (int ref = partition.store.first(); ref != -1; ref = partition.store.next(ref)) {
+                final int hash = partition.store.getHeaderInt(ref, HEADER_HASH);
+                int slot = hash & mask;
+                // slot heads are stored as ref + 1, 0 marks a free slot.
+                while (partition.slotHeads[slot] != 0 && partition.slotHashes[slot] != hash)
+                    slot = (slot + 1) & mask;
+                partition.store.putHeaderInt(ref, HEADER_NEXT, partition.slotHeads[slot] - 1);
+                partition.slotHashes[slot] = hash;
+                partition.slotHeads[slot] = ref + 1;
+            }
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Probe.
+    // ---------------------------------------------------
+
+    private void probe(final Object record) {
+        final int hash = hash(probeKey.hash(record, longKeys));
+        final Partition partition = partitions[partitionOf(hash)];
+
+        if (partition.isSpilled()) {
+            partition.probeFile.write(record);
+            return;
+        }
+        if (partition.slotHeads == null)
+            return;
+
+        final int mask = partition.slotHeads.length - 1;
+        int slot = hash & mask;
+        while (partition.slotHeads[slot] != 0) {
+            if (partition.slotHashes[slot] == hash) {
+                probeRecord = record;
+                probeHash = hash;
+                probeLongKey = longKeys ? probeKey.longKey(record) : 0L;
+                probeNullKey = probeKey.isNullKey(record);
+                chainRef = partition.slotHeads[slot] - 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Recursion.
+    // ---------------------------------------------------
+
+    private Tuple2<Object,Object> nextFromSpilledPartitions() throws Throwable {
+        while (true) {
+            if (childJoin != null) {
+                final Tuple2<Object,Object> result = childJoin.next(new IRecordSource() {
+
+                    @Override
+                    public Object next() {
+                        return (childProbeReader != null) ? childProbeReader.next() : null;
+                    }
+                });
+                if (result != null)
+                    return result;
+
+                childJoin.close();
+                childJoin = null;
+                if (childProbeReader != null) {
+                    childProbeReader.close();
+                    childProbeReader = null;
+                }
+            }
+
+            // find the next spilled partition with records on both sides.
+            Partition partition = null;
+            while (spilledPartitionIndex < partitions.length && partition == null) {
+                final Partition candidate = partitions[spilledPartitionIndex++];
+                if (candidate.isSpilled())
+                    partition = candidate;
+            }
+            if (partition == null)
+                return null;
+
+            // all pages of the in-memory partitions are released before the recursion.
+            releaseInMemoryPartitions();
+
+            if (partition.probeFile.getRecordCount() == 0 || partition.buildFile.getRecordCount() == 0)
+                continue;
+
+            childJoin = new HybridHashJoin(allocator, spillDirectory, buildType, probeType, buildKey, probeKey, level + 1);
+            if (level + 1 < MAX_LEVEL) {
+                final SpillFile.Reader buildReader = partition.buildFile.openReader();
+                try {
+                    childJoin.build(new IRecordSource() {
+
+                        @Override
+                        public Object next() {
+                            return buildReader.next();
+                        }
+                    });
+                } finally {
+                    buildReader.close();
+                }
+                childProbeReader = partition.probeFile.openReader();
+            } else {
+                // the last level scans the probe file on its own, once per chunk.
+                childJoin.buildChunked(partition.buildFile, partition.probeFile);
+            }
+        }
+    }
+
+    private void releaseInMemoryPartitions() {
+        for (final Partition partition : partitions) {
+            if (!partition.isSpilled()) {
+                partition.store.clear();
+                partition.slotHashes = null;
+                partition.slotHeads = null;
+            }
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Chunks.
+    // ---------------------------------------------------
+
+    private void buildChunked(final SpillFile buildFile, final SpillFile probeFile) {
+        this.chunkBuildReader = buildFile.openReader();
+        this.chunkProbeFile = probeFile;
+        this.pendingBuildRecord = chunkBuildReader.next();
+        loadChunk();
+    }
+
+    /**
+     * Loads as many build records as fit into memory and restarts the scan of the probe file.
+     */
+    private void loadChunk() {
+        final Partition partition = partitions[0];
+        partition.store.clear();
+
+        while (pendingBuildRecord != null) {
+            final int ref = partition.store.add(pendingBuildRecord);
+            if (ref == -1) {
+                if (partition.store.getRecordCount() == 0)
+                    throw new IllegalStateException("memory budget is too small to hold a single page");
+                break;
+            }
+            final int hash = hash(buildKey.hash(pendingBuildRecord, longKeys));
+            partition.store.putHeaderInt(ref, HEADER_HASH, hash);
+            partition.store.putHeaderLong(ref, HEADER_KEY, longKeys ? buildKey.longKey(pendingBuildRecord) : 0L);
+            pendingBuildRecord = chunkBuildReader.next();
+        }
+
+        buildTables();
+
+        if (chunkProbeReader != null)
+            chunkProbeReader.close();
+        chunkProbeReader = chunkProbeFile.openReader();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Hashing.
+    // ---------------------------------------------------
+
+    private int hash(final int keyHash) {
+        // murmur3 finalizer, seeded with the recursion level.
+        int h = keyHash ^ (level * 0x9E3779B9);
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private int partitionOf(final int hash) {
+        return (partitions.length == 1) ? 0 : hash >>> (32 - PARTITION_BITS);
+    }
+}
@@ -19,7 +19,11 @@ public class MapGroupPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOpera
     // Fields.
     // ---------------------------------------------------
 
-    private Queue<O> elements;
+    private List<O> elements;
+
+    private int elementIndex;
+
+    private boolean isGroupEndPending;
 
     // ---------------------------------------------------
     // Constructor.
@@ -31,7 +35,7 @@ public class MapGroupPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOpera
 
         super(context, inputOp, function);
 
-        elements = new LinkedList<>();
+        elements = new ArrayList<>();
     }
 
     // ---------------------------------------------------
@@ -48,28 +52,29 @@ public class MapGroupPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOpera
     @SuppressWarnings("unchecked")
     public OperatorResult<O> next() throws Throwable {
 
-        while (elements.isEmpty()) {
+        while (elementIndex == elements.size()) {
 
-            OperatorInputIterator<I> it = new OperatorInputIterator<>(inputOp);
+            elements.clear();
+            elementIndex = 0;
 
-            if (it.endOfStream()) {
-                return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+            // the group end follows the elements of its group.
+            if (isGroupEndPending) {
+                isGroupEndPending = false;
+                return marker(StreamMarker.END_OF_GROUP_MARKER);
             }
 
-            ((IGroupMapFunction<I, O>) function).map(it, elements);
+            OperatorInputIterator<I> it = new OperatorInputIterator<>(inputOp);
 
-            if (it.endOfGroup()) {
-                elements.add(null);
+            if (it.endOfStream()) {
+                return marker(StreamMarker.END_OF_STREAM_MARKER);
             }
-        }
 
-        OperatorResult<O> result = new OperatorResult<>(elements.poll());
+            ((IGroupMapFunction<I, O>) function).map(it, elements);
 
-        if (result.element == null) {
-            return new OperatorResult<>(StreamMarker.END_OF_GROUP_MARKER);
+            isGroupEndPending = it.endOfGroup();
         }
 
-        return result;
+        return result(elements.get(elementIndex++));
     }
 
     @Override
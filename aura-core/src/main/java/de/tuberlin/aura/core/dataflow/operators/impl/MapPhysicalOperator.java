@@ -6,11 +6,9 @@ import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.udfs.contracts.IMapFunction;
 import de.tuberlin.aura.core.dataflow.udfs.functions.MapFunction;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
-import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
-
-
 public final class MapPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOperator<I,O> {
 
     // ---------------------------------------------------
@@ -39,13 +37,35 @@ public final class MapPhysicalOperator<I,O> extends AbstractUnaryUDFPhysicalOper
 
         final OperatorResult<I> input = inputOp.next();
 
-        if (input.marker != StreamMarker.END_OF_STREAM_MARKER) {
-            return new OperatorResult<>(((IMapFunction<I,O>)function).map(input.element));
+        // markers are forwarded, like in nextBatch().
+        if (input.marker == null) {
+            return result(((IMapFunction<I,O>)function).map(input.element));
         } else {
-            return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+            return marker(input.marker);
         }
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public OperatorBatch<O> nextBatch() throws Throwable {
+
+        final IMapFunction<I,O> mapFunction = (IMapFunction<I,O>) function;
+
+        final OperatorBatch<I> input = inputOp.nextBatch();
+
+        final OperatorBatch<O> output = getBatch();
+
+        output.clear();
+
+        for (int i = 0; i < input.size(); ++i) {
+            output.add(mapFunction.map(input.get(i)));
+        }
+
+        output.marker = input.marker;
+
+        return output;
+    }
+
     @Override
     public void close() throws Throwable {
         super.close();
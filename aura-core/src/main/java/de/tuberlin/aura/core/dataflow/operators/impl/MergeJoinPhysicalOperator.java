@@ -0,0 +1,241 @@
+package de.tuberlin.aura.core.dataflow.operators.impl;
+
+import de.tuberlin.aura.core.common.utils.IVisitor;
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.AbstractBinaryPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
+import de.tuberlin.aura.core.dataflow.operators.spill.RecordPageStore;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.OperatorResult;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+
+import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
+
+/**
+ * Joins two inputs that are sorted on their join keys (in the sort order of the node properties) in
+ * a single pass over both inputs.
+ *
+ * Only the current key group of input 1 is buffered. The first record of a group is kept as object,
+ * further records are serialized into memory pages and spilled to disk when the operator memory
+ * budget is exhausted. Input 2 is streamed, each of its records is joined with the whole group.
+ */
+public final class MergeJoinPhysicalOperator<I1,I2> extends AbstractBinaryPhysicalOperator<I1,I2,Tuple2<I1,I2>> {
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private TypeInformation input1TypeInfo;
+
+    private KeySelector key1Selector;
+
+    private KeySelector key2Selector;
+
+    private boolean isDescending;
+
+    private RecordPageStore groupStore;
+
+    private SpillFile groupSpillFile;
+
+    // current records of both inputs, null if the input is exhausted.
+
+    private I1 in1;
+
+    private I2 in2;
+
+    // state of the current key group.
+
+    private I1 groupHead;
+
+    private I2 groupProbe;
+
+    private boolean isHeadEmitted;
+
+    private int groupRef;
+
+    private SpillFile.Reader groupSpillReader;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public MergeJoinPhysicalOperator(final IExecutionContext context,
+                                     final IPhysicalOperator<I1> inputOp1,
+                                     final IPhysicalOperator<I2> inputOp2) {
+
+        super(context, inputOp1, inputOp2);
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    @Override
+    public void open() throws Throwable {
+        super.open();
+
+        final DataflowNodeProperties properties = getContext().getProperties(getOperatorNum());
+
+        key1Selector = properties.getKeySelector1();
+
+        key2Selector = properties.getKeySelector2();
+
+        input1TypeInfo = properties.input1Type;
+
+        isDescending = properties.sortOrder == DataflowNodeProperties.SortOrder.DESCENDING;
+
+        // sanity check.
+        if (key1Selector.keyCount() != key2Selector.keyCount())
+            throw new IllegalStateException("joinKeyIndices1.length != joinKeyIndices2.length");
+
+        groupStore = new RecordPageStore(OperatorMemory.createPageAllocator(getContext()), SpillFile.createKryo(input1TypeInfo), 0);
+
+        inputOp1.open();
+
+        inputOp2.open();
+
+        in1 = nextInput1();
+
+        in2 = nextInput2();
+    }
+
+    @Override
+    public OperatorResult<Tuple2<I1,I2>> next() throws Throwable {
+
+        while (true) {
+
+            if (groupProbe != null) {
+                final I1 match = nextGroupRecord();
+                if (match != null)
+                    return result(new Tuple2<>(match, groupProbe));
+
+                // the next record of input 2 may belong to the same group.
+                groupProbe = null;
+                if (in2 != null && compare(key1Selector, groupHead, key2Selector, in2) == 0) {
+                    groupProbe = in2;
+                    in2 = nextInput2();
+                    rewindGroup();
+                    continue;
+                }
+
+                clearGroup();
+            }
+
+            if (in1 == null || in2 == null) {
+                return marker(StreamMarker.END_OF_STREAM_MARKER);
+            }
+
+            final int res = compare(key1Selector, in1, key2Selector, in2);
+
+            if (res < 0) {
+                in1 = nextInput1();
+            } else if (res > 0) {
+                in2 = nextInput2();
+            } else {
+                readGroup();
+                groupProbe = in2;
+                in2 = nextInput2();
+                rewindGroup();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Throwable {
+        super.close();
+        inputOp1.close();
+        inputOp2.close();
+        clearGroup();
+        // the pages are freed, the allocator is dropped with the store.
+        groupStore = null;
+    }
+
+    @Override
+    public void accept(final IVisitor<IPhysicalOperator> visitor) {
+        visitor.visit(this);
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private I1 nextInput1() throws Throwable {
+        final OperatorResult<I1> result = inputOp1.next();
+        return (result.marker == StreamMarker.END_OF_STREAM_MARKER) ? null : result.element;
+    }
+
+    private I2 nextInput2() throws Throwable {
+        final OperatorResult<I2> result = inputOp2.next();
+        return (result.marker == StreamMarker.END_OF_STREAM_MARKER) ? null : result.element;
+    }
+
+    /**
+     * Buffers all records of input 1 with the key of the current record.
+     */
+    private void readGroup() throws Throwable {
+        groupHead = in1;
+        in1 = nextInput1();
+
+        while (in1 != null && compare(key1Selector, groupHead, key1Selector, in1) == 0) {
+            if (groupSpillFile != null) {
+                groupSpillFile.write(in1);
+            } else if (groupStore.add(in1) == -1) {
+                groupSpillFile = new SpillFile(OperatorMemory.getSpillDirectory(getContext()), input1TypeInfo);
+                groupSpillFile.write(in1);
+            }
+            in1 = nextInput1();
+        }
+    }
+
+    private void rewindGroup() {
+        isHeadEmitted = false;
+        groupRef = groupStore.first();
+        if (groupSpillReader != null) {
+            groupSpillReader.close();
+            groupSpillReader = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private I1 nextGroupRecord() {
+        if (!isHeadEmitted) {
+            isHeadEmitted = true;
+            return groupHead;
+        }
+        if (groupRef != -1) {
+            final I1 record = (I1) groupStore.read(groupRef);
+            groupRef = groupStore.next(groupRef);
+            return record;
+        }
+        if (groupSpillFile != null) {
+            if (groupSpillReader == null)
+                groupSpillReader = groupSpillFile.openReader();
+            return (I1) groupSpillReader.next();
+        }
+        return null;
+    }
+
+    private void clearGroup() {
+        groupHead = null;
+        if (groupStore != null)
+            groupStore.clear();
+        if (groupSpillReader != null) {
+            groupSpillReader.close();
+            groupSpillReader = null;
+        }
+        if (groupSpillFile != null) {
+            groupSpillFile.delete();
+            groupSpillFile = null;
+        }
+    }
+
+    private int compare(final KeySelector selector1, final Object o1, final KeySelector selector2, final Object o2) {
+        // null keys are sorted first.
+        final int res = selector1.compare(o1, selector2, o2);
+        return isDescending ? -res : res;
+    }
+}
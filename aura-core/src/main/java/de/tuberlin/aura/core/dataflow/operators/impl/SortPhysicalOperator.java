@@ -1,56 +1,30 @@
 package de.tuberlin.aura.core.dataflow.operators.impl;
 
-import java.util.*;
-
 import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractUnaryPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.ExternalSorter;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
 import de.tuberlin.aura.core.record.OperatorResult;
-import de.tuberlin.aura.core.record.TypeInformation;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
 
-
+/**
+ * Sorts its input with an {@link ExternalSorter}, i.e. in memory pages up to the configured
+ * operator memory budget and by merging spilled runs beyond it.
+ */
 public final class SortPhysicalOperator<I> extends AbstractUnaryPhysicalOperator<I,I> {
 
-    // ---------------------------------------------------
-    // Inner Classes.
-    // ---------------------------------------------------
-
-    public class SortComparator<T> implements Comparator<T> {
-
-        private DataflowNodeProperties properties = getContext().getProperties(getOperatorNum());
-
-        @Override
-        @SuppressWarnings("unchecked")
-        public int compare(final T o1, final T o2) {
-
-            for(final int[] selectorChain : properties.sortKeyIndices) {
-
-                final Comparable f1 = (Comparable)properties.input1Type.selectField(selectorChain, o1);
-                final Comparable f2 = (Comparable)properties.input1Type.selectField(selectorChain, o2);
-                final int res = properties.sortOrder == DataflowNodeProperties.SortOrder.ASCENDING ? f1.compareTo(f2) : f2.compareTo(f1);
-
-                if (res != 0)
-                    return res;
-            }
-
-            return 0;
-        }
-    }
-
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
 
-    private List<I> elements;
+    private ExternalSorter sorter;
 
     private boolean init = false;
 
-    private int index = 0;
-
     // ---------------------------------------------------
     // Constructor.
     // ---------------------------------------------------
@@ -59,8 +33,6 @@ public final class SortPhysicalOperator<I> extends AbstractUnaryPhysicalOperator
                                 final IPhysicalOperator<I> inputOp) {
 
         super(context, inputOp);
-
-        this.elements = new ArrayList<>();
     }
 
     // ---------------------------------------------------
@@ -75,34 +47,53 @@ public final class SortPhysicalOperator<I> extends AbstractUnaryPhysicalOperator
 
         if (!init) {
 
+            final DataflowNodeProperties properties = getContext().getProperties(getOperatorNum());
+
+            sorter = new ExternalSorter(
+                    OperatorMemory.createPageAllocator(getContext()),
+                    OperatorMemory.getSpillDirectory(getContext()),
+                    properties.input1Type,
+                    properties.sortKeyIndices,
+                    properties.sortOrder == DataflowNodeProperties.SortOrder.DESCENDING
+            );
+
             OperatorResult<I> in = inputOp.next();
 
             while (in.marker != StreamMarker.END_OF_STREAM_MARKER) {
-                elements.add(in.element);
+                sorter.add(in.element);
                 in = inputOp.next();
             }
 
             inputOp.close();
 
-            Collections.sort(elements, new SortComparator<>());
+            sorter.sort();
 
             init = true;
         }
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public OperatorResult<I> next() throws Throwable {
 
-        if (index < elements.size()) {
-            return new OperatorResult<>(elements.get(index++));
+        final I element = (I) sorter.next();
+
+        if (element != null) {
+            return result(element);
         } else {
-            return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
         }
     }
 
     @Override
     public void close() throws Throwable {
         super.close();
+        // releases the pages and deletes the spilled runs, the sorter returns no further records.
+        if (sorter != null) {
+            sorter.close();
+            sorter = null;
+        }
+        init = false;
     }
 
     @Override
@@ -35,13 +35,13 @@ public class UDFSourcePhysicalOperator<O> extends AbstractUnaryUDFPhysicalOperat
     @Override
     public OperatorResult<O> next() throws Throwable {
 
-        OperatorResult<O> result = new OperatorResult<>(((ISourceFunction<O>)function).produce());
+        final O element = ((ISourceFunction<O>)function).produce();
 
-        if (result.element == null) {
-            result.marker = StreamMarker.END_OF_STREAM_MARKER;
+        if (element == null) {
+            return marker(StreamMarker.END_OF_STREAM_MARKER);
         }
 
-        return result;
+        return result(element);
     }
 
     @Override
@@ -4,6 +4,7 @@ import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.operators.base.AbstractBinaryPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.record.OperatorBatch;
 import de.tuberlin.aura.core.record.OperatorResult;
 
 import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
@@ -53,7 +54,7 @@ public final class UnionPhysicalOperator<I> extends AbstractBinaryPhysicalOperat
             }
 
             if (!inputOp1.isOpen() && !inputOp2.isOpen()) {
-                return new OperatorResult<>(StreamMarker.END_OF_STREAM_MARKER);
+                return marker(StreamMarker.END_OF_STREAM_MARKER);
             }
 
             input1Selected = !input1Selected;
@@ -68,6 +69,45 @@ public final class UnionPhysicalOperator<I> extends AbstractBinaryPhysicalOperat
         return in;
     }
 
+    /**
+     * Alternates between the batches of both inputs, the batches are passed through.
+     */
+    @Override
+    public OperatorBatch<I> nextBatch() throws Throwable {
+
+        while (true) {
+
+            final IPhysicalOperator<I> inputOp = input1Selected ? inputOp1 : inputOp2;
+
+            final OperatorBatch<I> in = inputOp.nextBatch();
+
+            if (in.marker == StreamMarker.END_OF_STREAM_MARKER) {
+
+                inputOp.close();
+
+                if (!inputOp1.isOpen() && !inputOp2.isOpen()) {
+                    return in;
+                }
+
+                // only the other input is left, its end is the end of the union.
+                in.marker = null;
+                input1Selected = !input1Selected;
+
+                if (in.size() == 0) {
+                    continue;
+                }
+
+                return in;
+            }
+
+            if (inputOp1.isOpen() && inputOp2.isOpen()) {
+                input1Selected = !input1Selected;
+            }
+
+            return in;
+        }
+    }
+
     @Override
     public void close() throws Throwable {
         super.close();
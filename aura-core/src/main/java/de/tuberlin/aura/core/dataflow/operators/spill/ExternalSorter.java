@@ -0,0 +1,434 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+
+/**
+ * External merge sort over serialized records in memory pages.
+ *
+ * Records are appended to a {@link RecordPageStore} while an index of (normalized key prefix,
+ * record reference) entries is kept in primitive arrays. The index is sorted on the prefixes, the
+ * records are only deserialized when two prefixes are equal and the prefix does not determine the
+ * order. When the pages are exhausted the sorted run is spilled to disk. The runs are merged by a
+ * loser tree, in several passes if there are more than {@link #MAX_FAN_IN} runs.
+ */
+public final class ExternalSorter {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static interface IRun {
+
+        public abstract Object next();
+
+        public abstract void close();
+    }
+
+    /**
+     * Tournament tree over the heads of k runs; the internal nodes hold the losers, node 0 the winner.
+     */
+    private final class LoserTree {
+
+        private final List<IRun> runs;
+
+        private final Object[] heads;
+
+        private final int[] losers;
+
+        private final int k;
+
+        LoserTree(final List<IRun> runs) {
+            this.runs = runs;
+            this.k = runs.size();
+            this.heads = new Object[k];
+            this.losers = new int[k];
+
+            for (int i = 0; i < k; ++i)
+                heads[i] = runs.get(i).next();
+
+            // index k is a virtual run that wins every match, it is pushed out by the real runs.
+            Arrays.fill(losers, k);
+            for (int i = k - 1; i >= 0; --i)
+                adjust(i);
+        }
+
+        Object next() {
+            final int winner = losers[0];
+            final Object record = heads[winner];
+            if (record == null)
+                return null;
+            heads[winner] = runs.get(winner).next();
+            adjust(winner);
+            return record;
+        }
+
+        void close() {
+            for (final IRun run : runs)
+                run.close();
+        }
+
+        private void adjust(int s) {
+            for (int t = (s + k) >> 1; t > 0; t >>= 1) {
+                if (loses(s, losers[t])) {
+                    final int tmp = losers[t];
+                    losers[t] = s;
+                    s = tmp;
+                }
+            }
+            losers[0] = s;
+        }
+
+        private boolean loses(final int s, final int other) {
+            if (other == k)
+                return true;
+            if (s == k)
+                return false;
+            // exhausted runs lose every match.
+            if (heads[s] == null)
+                return true;
+            if (heads[other] == null)
+                return false;
+            final int res = compareRecords(heads[s], heads[other]);
+            return res > 0 || (res == 0 && s > other);
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int MAX_FAN_IN = 64;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final File spillDirectory;
+
+    private final TypeInformation typeInfo;
+
+    private final KeySelector keySelector;
+
+    private final boolean isDescending;
+
+    private final RecordPageStore store;
+
+    private final List<SpillFile> spilledRuns;
+
+    private long[] prefixes;
+
+    private int[] refs;
+
+    private int count;
+
+    // true as long as the prefixes of all records determine their order.
+    private boolean isExactPrefix;
+
+    private LoserTree mergeTree;
+
+    private int outputIndex;
+
+    private boolean isSorted;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public ExternalSorter(final IAllocator allocator,
+                          final File spillDirectory,
+                          final TypeInformation typeInfo,
+                          final int[][] keyIndices,
+                          final boolean isDescending) {
+        // sanity check.
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+        if (spillDirectory == null)
+            throw new IllegalArgumentException("spillDirectory == null");
+        if (typeInfo == null)
+            throw new IllegalArgumentException("typeInfo == null");
+        if (keyIndices == null || keyIndices.length == 0)
+            throw new IllegalArgumentException("keyIndices == null || keyIndices.length == 0");
+
+        this.spillDirectory = spillDirectory;
+
+        this.typeInfo = typeInfo;
+
+        this.keySelector = new KeySelector(typeInfo, keyIndices);
+
+        this.isDescending = isDescending;
+
+        this.store = new RecordPageStore(allocator, SpillFile.createKryo(typeInfo), 0);
+
+        this.spilledRuns = new ArrayList<>();
+
+        this.prefixes = new long[1024];
+
+        this.refs = new int[1024];
+
+        this.count = 0;
+
+        this.isExactPrefix = keyIndices.length == 1;
+
+        this.isSorted = false;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public void add(final Object record) {
+        // sanity check.
+        if (isSorted)
+            throw new IllegalStateException("sorter is already sorted");
+
+        int ref = store.add(record);
+        if (ref == -1) {
+            spillRun();
+            ref = store.add(record);
+            if (ref == -1)
+                throw new IllegalStateException("memory budget is too small to hold a single page");
+        }
+
+        if (count == refs.length) {
+            prefixes = Arrays.copyOf(prefixes, count * 2);
+            refs = Arrays.copyOf(refs, count * 2);
+        }
+        prefixes[count] = prefix(record);
+        refs[count] = ref;
+        ++count;
+    }
+
+    /**
+     * Finishes the input. The sorted records are then returned by {@link #next()}.
+     */
+    public void sort() {
+        sortIndex(0, count);
+        isSorted = true;
+        outputIndex = 0;
+
+        if (!spilledRuns.isEmpty()) {
+            // merge down to one pass over at most MAX_FAN_IN runs, the in-memory run included.
+            while (spilledRuns.size() + 1 > MAX_FAN_IN) {
+                final List<SpillFile> mergedRuns = new ArrayList<>(spilledRuns.subList(0, MAX_FAN_IN));
+                spilledRuns.subList(0, MAX_FAN_IN).clear();
+                spilledRuns.add(mergeRuns(mergedRuns));
+            }
+
+            final List<IRun> runs = new ArrayList<>();
+            for (final SpillFile run : spilledRuns)
+                runs.add(fileRun(run));
+            runs.add(memoryRun());
+            mergeTree = new LoserTree(runs);
+        }
+    }
+
+    /**
+     * @return the next record in sort order or <code>null</code> if all records are returned.
+     */
+    public Object next() {
+        // sanity check.
+        if (!isSorted)
+            throw new IllegalStateException("sorter is not sorted");
+
+        if (mergeTree != null)
+            return mergeTree.next();
+
+        return (outputIndex < count) ? store.read(refs[outputIndex++]) : null;
+    }
+
+    public void close() {
+        if (mergeTree != null) {
+            mergeTree.close();
+            mergeTree = null;
+        }
+        for (final SpillFile run : spilledRuns)
+            run.delete();
+        spilledRuns.clear();
+        store.clear();
+        count = 0;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Runs.
+    // ---------------------------------------------------
+
+    private void spillRun() {
+        if (count == 0)
+            return;
+
+        sortIndex(0, count);
+        final SpillFile run = new SpillFile(spillDirectory, typeInfo);
+        for (int i = 0; i < count; ++i)
+            run.write(store.read(refs[i]));
+        run.closeWrite();
+        spilledRuns.add(run);
+
+        store.clear();
+        count = 0;
+    }
+
+    private SpillFile mergeRuns(final List<SpillFile> runs) {
+        final List<IRun> sources = new ArrayList<>();
+        for (final SpillFile run : runs)
+            sources.add(fileRun(run));
+
+        final SpillFile mergedRun = new SpillFile(spillDirectory, typeInfo);
+        final LoserTree tree = new LoserTree(sources);
+        for (Object record = tree.next(); record != null; record = tree.next())
+            mergedRun.write(record);
+        tree.close();
+        mergedRun.closeWrite();
+
+        for (final SpillFile run : runs)
+            run.delete();
+        return mergedRun;
+    }
+
+    private IRun fileRun(final SpillFile run) {
+        final SpillFile.Reader reader = run.openReader();
+        return new IRun() {
+
+            @Override
+            public Object next() {
+                return reader.next();
+            }
+
+            @Override
+            public void close() {
+                reader.close();
+            }
+        };
+    }
+
+    private IRun memoryRun() {
+        return new IRun() {
+
+            private int index = 0;
+
+            @Override
+            public Object next() {
+                return (index < count) ? store.read(refs[index++]) : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Index Sort.
+    // ---------------------------------------------------
+
+    /**
+     * Quicksort with a three-way partition, so that runs of equal keys are not split again.
+     */
+    private void sortIndex(int lo, int hi) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            // median of three, the pivot is moved to lo.
+            final int mid = (lo + hi) >>> 1;
+            if (compareEntries(mid, lo) < 0)
+                swap(mid, lo);
+            if (compareEntries(hi - 1, lo) < 0)
+                swap(hi - 1, lo);
+            if (compareEntries(hi - 1, mid) < 0)
+                swap(hi - 1, mid);
+            swap(mid, lo);
+
+            // [lo, lt) < pivot, [lt, i) == pivot, (gt, hi) > pivot; the entry at lt is always equal to the pivot.
+            int lt = lo;
+            int gt = hi - 1;
+            int i = lo + 1;
+            while (i <= gt) {
+                final int res = compareEntries(i, lt);
+                if (res < 0)
+                    swap(lt++, i++);
+                else if (res > 0)
+                    swap(i, gt--);
+                else
+                    ++i;
+            }
+
+            // recurse into the smaller part to bound the stack depth.
+            if (lt - lo < hi - gt - 1) {
+                sortIndex(lo, lt);
+                lo = gt + 1;
+            } else {
+                sortIndex(gt + 1, hi);
+                hi = lt;
+            }
+        }
+
+        for (int i = lo + 1; i < hi; ++i) {
+            for (int j = i; j > lo && compareEntries(j, j - 1) < 0; --j)
+                swap(j, j - 1);
+        }
+    }
+
+    private int compareEntries(final int i, final int j) {
+        final int res = Long.compare(prefixes[i], prefixes[j]);
+        if (res != 0 || isExactPrefix)
+            return res;
+        return compareRecords(store.read(refs[i]), store.read(refs[j]));
+    }
+
+    private void swap(final int i, final int j) {
+        final long prefix = prefixes[i];
+        prefixes[i] = prefixes[j];
+        prefixes[j] = prefix;
+        final int ref = refs[i];
+        refs[i] = refs[j];
+        refs[j] = ref;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods: Keys.
+    // ---------------------------------------------------
+
+    /**
+     * Maps the first key field to a long whose signed order is the order of the key.
+     */
+    private long prefix(final Object record) {
+        final Object field = keySelector.get(0, record);
+        long prefix;
+
+        if (field instanceof Integer || field instanceof Long || field instanceof Short || field instanceof Byte) {
+            prefix = ((Number) field).longValue();
+        } else if (field instanceof Double || field instanceof Float) {
+            final long bits = Double.doubleToLongBits(((Number) field).doubleValue());
+            prefix = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        } else if (field instanceof Character) {
+            prefix = (Character) field;
+        } else if (field instanceof Boolean) {
+            prefix = ((Boolean) field) ? 1 : 0;
+        } else if (field instanceof String) {
+            // the first four chars, unsigned.
+            final String str = (String) field;
+            prefix = 0;
+            for (int i = 0; i < 4; ++i)
+                prefix = (prefix << 16) | (i < str.length() ? str.charAt(i) : 0);
+            prefix ^= Long.MIN_VALUE;
+            isExactPrefix = false;
+        } else {
+            // nulls and other comparables are ordered by the full comparison, nulls first.
+            prefix = Long.MIN_VALUE;
+            isExactPrefix = false;
+        }
+
+        return isDescending ? ~prefix : prefix;
+    }
+
+    private int compareRecords(final Object o1, final Object o2) {
+        final int res = keySelector.compare(o1, keySelector, o2);
+        return isDescending ? -res : res;
+    }
+}
@@ -0,0 +1,118 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import java.io.File;
+
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+
+/**
+ * Memory and spill configuration of memory intensive operators and datasets.
+ */
+public final class OperatorMemory {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+
+    private static final long DEFAULT_MEMORY_BUDGET = 32 * 1024 * 1024;
+
+    // the share of the maximum heap of a dataset without a configured budget.
+    private static final int DEFAULT_DATASET_HEAP_DIVISOR = 4;
+
+    // Disallow instantiation.
+    private OperatorMemory() {}
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Creates the page allocator of one operator. The pages are allocated on demand up to the
+     * configured memory budget, an exhausted allocator (<code>alloc() == null</code>) tells the
+     * operator to spill.
+     */
+    public static IAllocator createPageAllocator(final IExecutionContext context) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+
+        final IConfig config = getConfig(context);
+        final int pageSize = (config != null) ? config.getInt("tm.memory.buffer.size") : DEFAULT_PAGE_SIZE;
+        return new OperatorPageAllocator(pageSize, getMemoryBudget(context));
+    }
+
+    /**
+     * @return the memory budget of one operator in bytes.
+     */
+    public static long getMemoryBudget(final IExecutionContext context) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+
+        final IConfig config = getConfig(context);
+        return (config != null) ? config.getLong("tm.operators.memory.budget") : DEFAULT_MEMORY_BUDGET;
+    }
+
+    /**
+     * Creates the page allocator of a dataset that keeps its elements in memory pages. Such a
+     * dataset outlives the operators that fill it and can not spill, so it is limited by the
+     * dataset memory budget instead of the operator memory budget.
+     */
+    public static IAllocator createDatasetPageAllocator(final IExecutionContext context) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+
+        final IConfig config = getConfig(context);
+        final int pageSize = (config != null) ? config.getInt("tm.memory.buffer.size") : DEFAULT_PAGE_SIZE;
+        return new OperatorPageAllocator(pageSize, getDatasetMemoryBudget(context));
+    }
+
+    /**
+     * @return the memory budget of one dataset in bytes, by default a quarter of the maximum heap.
+     */
+    public static long getDatasetMemoryBudget(final IExecutionContext context) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+
+        final IConfig config = getConfig(context);
+        final long budget = (config != null) ? config.getLong("tm.datasets.memory.budget") : 0;
+        return (budget > 0) ? budget : Runtime.getRuntime().maxMemory() / DEFAULT_DATASET_HEAP_DIVISOR;
+    }
+
+    /**
+     * @return true if hash folds emit partial aggregates instead of spilling.
+     */
+    public static boolean isFoldCombiner(final IExecutionContext context) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+
+        final IConfig config = getConfig(context);
+        return config != null && config.getBoolean("tm.operators.fold.combiner");
+    }
+
+    public static File getSpillDirectory(final IExecutionContext context) {
+        // sanity check.
+        if (context == null)
+            throw new IllegalArgumentException("context == null");
+
+        final IConfig config = getConfig(context);
+        final String spillDir = (config != null) ? config.getString("tm.operators.spill.dir") : "";
+        return new File(spillDir.isEmpty() ? System.getProperty("java.io.tmpdir") : spillDir);
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static IConfig getConfig(final IExecutionContext context) {
+        if (context.getRuntime() == null || context.getRuntime().getTaskManager() == null)
+            return null;
+        return context.getRuntime().getTaskManager().getConfig();
+    }
+}
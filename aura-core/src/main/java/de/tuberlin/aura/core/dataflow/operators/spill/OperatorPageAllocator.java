@@ -0,0 +1,154 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import java.util.Collections;
+
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.memory.BufferAllocatorGroup;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.memory.spi.IBufferCallback;
+
+/**
+ * Page allocator of one operator or dataset. The arenas are allocated on demand, the memory
+ * doubles up to the memory budget. An exhausted allocator (<code>alloc() == null</code>) tells the
+ * operator to spill.
+ */
+final class OperatorPageAllocator implements IAllocator {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int ARENA_SIZE = 64 * 1024;
+
+    private static final int INITIAL_ARENA_COUNT = 4;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final int pageSize;
+
+    private final long memoryBudget;
+
+    private long allocatedMemory;
+
+    private volatile BufferAllocatorGroup arenas;
+
+    // ---------------------------------------------------
+    // Constructors.
+    // ---------------------------------------------------
+
+    public OperatorPageAllocator(final int pageSize, final long memoryBudget) {
+        // sanity check.
+        if (pageSize <= 0 || ARENA_SIZE % pageSize != 0)
+            throw new IllegalArgumentException("pageSize must divide " + ARENA_SIZE);
+        if (memoryBudget < 0)
+            throw new IllegalArgumentException("memoryBudget < 0");
+
+        this.pageSize = pageSize;
+
+        this.memoryBudget = memoryBudget;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    @Override
+    public MemoryView alloc() {
+        final BufferAllocatorGroup group = arenas;
+        final MemoryView page = (group != null) ? group.alloc() : null;
+        return (page != null) ? page : grow();
+    }
+
+    @Override
+    public MemoryView allocBlocking() throws InterruptedException {
+        final MemoryView page = alloc();
+        // the budget is exhausted, wait for a page of the operator.
+        return (page != null) ? page : arenas.allocBlocking();
+    }
+
+    @Override
+    public MemoryView alloc(final IBufferCallback bufferCallback) {
+        // sanity check.
+        if (bufferCallback == null)
+            throw new IllegalArgumentException("bufferCallback == null");
+
+        final MemoryView page = alloc();
+        return (page != null) ? page : arenas.alloc(bufferCallback);
+    }
+
+    @Override
+    public void free(final MemoryView memory) {
+        memory.free();
+    }
+
+    @Override
+    public synchronized boolean hasFree() {
+        return arenas == null || allocatedMemory + ARENA_SIZE <= memoryBudget || arenas.hasFree();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return pageSize;
+    }
+
+    @Override
+    public boolean isNotUsed() {
+        final BufferAllocatorGroup group = arenas;
+        return group == null || group.isNotUsed();
+    }
+
+    @Override
+    public void checkForMemoryLeaks() {
+        final BufferAllocatorGroup group = arenas;
+        if (group != null)
+            group.checkForMemoryLeaks();
+    }
+
+    /**
+     * @return the page count of the memory budget, not of the arenas allocated so far.
+     */
+    @Override
+    public int getBufferCount() {
+        final long arenaCount = Math.max(1, Math.min(memoryBudget, Integer.MAX_VALUE) / ARENA_SIZE);
+        return (int) arenaCount * (ARENA_SIZE / pageSize);
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Adds an arena, the first arena is allocated in any case.
+     *
+     * @return a page of the new arena, or null if the memory budget is exhausted.
+     */
+    private synchronized MemoryView grow() {
+        // another thread grew the arenas in the meantime.
+        if (arenas != null) {
+            final MemoryView page = arenas.alloc();
+            if (page != null)
+                return page;
+        }
+
+        final long remaining = Math.min((memoryBudget - allocatedMemory) / ARENA_SIZE, Integer.MAX_VALUE / ARENA_SIZE);
+        final long arenaCount = (arenas == null)
+                ? Math.max(1, Math.min(INITIAL_ARENA_COUNT, remaining))
+                : Math.min(allocatedMemory / ARENA_SIZE, remaining);
+        if (arenaCount <= 0)
+            return null;
+
+        final int pageCount = (int) (arenaCount * ARENA_SIZE / pageSize);
+        final IAllocator arena = new BufferAllocator(pageSize, pageCount);
+        allocatedMemory += (long) pageCount * pageSize;
+
+        if (arenas == null)
+            arenas = new BufferAllocatorGroup(pageSize, Collections.singletonList(arena));
+        else
+            arenas.addAllocator(arena);
+
+        return arenas.alloc();
+    }
+}
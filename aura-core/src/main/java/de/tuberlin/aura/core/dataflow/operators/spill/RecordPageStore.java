@@ -0,0 +1,225 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.MemoryViewInput;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+
+/**
+ * Append-only store of serialized records in memory pages of an allocator. Every record is prefixed
+ * by a fixed size header that the owner can use for hash codes, keys or links, followed by the
+ * record length. Records never span two pages and can only be replaced by records that are not larger.
+ *
+ * A record is referenced by <code>pageIndex * pageSize + offset</code>.
+ */
+public final class RecordPageStore {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int LENGTH_SIZE = 4;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final IAllocator allocator;
+
+    private final Kryo kryo;
+
+    private final int headerSize;
+
+    private final int pageSize;
+
+    private final List<MemoryView> pages;
+
+    private final List<Integer> pageLimits;
+
+    private final UnsafeOutput output;
+
+    // reads the records of heap and direct pages in place.
+    private final MemoryViewInput input;
+
+    private int currentLimit;
+
+    private int recordCount;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public RecordPageStore(final IAllocator allocator, final Kryo kryo, final int headerSize) {
+        // sanity check.
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+        if (kryo == null)
+            throw new IllegalArgumentException("kryo == null");
+        if (headerSize < 0)
+            throw new IllegalArgumentException("headerSize < 0");
+
+        this.allocator = allocator;
+
+        this.kryo = kryo;
+
+        this.headerSize = headerSize;
+
+        this.pageSize = allocator.getBufferSize();
+
+        this.pages = new ArrayList<>();
+
+        this.pageLimits = new ArrayList<>();
+
+        this.output = new UnsafeOutput(4096, -1);
+
+        this.output.supportVarInts(false);
+
+        this.input = new MemoryViewInput();
+
+        this.currentLimit = pageSize;
+
+        this.recordCount = 0;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return the reference of the stored record, or -1 if the allocator has no free page left.
+     */
+    public int add(final Object record) {
+        output.clear();
+        kryo.writeClassAndObject(output, record);
+
+        final int length = output.position();
+        final int required = headerSize + LENGTH_SIZE + length;
+        if (required > pageSize)
+            throw new IllegalStateException("record of " + length + " bytes does not fit into a page");
+
+        if (currentLimit + required > pageSize) {
+            // the references of all pages must be positive ints.
+            if (pages.size() >= Integer.MAX_VALUE / pageSize)
+                throw new IllegalStateException("record page store is full");
+            final MemoryView page = allocator.alloc();
+            if (page == null)
+                return -1;
+            if (!pages.isEmpty())
+                pageLimits.set(pages.size() - 1, currentLimit);
+            pages.add(page);
+            pageLimits.add(0);
+            currentLimit = 0;
+        }
+
+        final int pageIndex = pages.size() - 1;
+        final MemoryView page = pages.get(pageIndex);
+        final int offset = currentLimit;
+        page.putInt(page.baseOffset + offset + headerSize, length);
+        page.put(page.baseOffset + offset + headerSize + LENGTH_SIZE, output.getBuffer(), 0, length);
+
+        currentLimit += required;
+        pageLimits.set(pageIndex, currentLimit);
+        ++recordCount;
+        return pageIndex * pageSize + offset;
+    }
+
+    public Object read(final int ref) {
+        final MemoryView page = pages.get(ref / pageSize);
+        final int index = page.baseOffset + (ref % pageSize) + headerSize;
+        final int length = page.getInt(index);
+        return kryo.readClassAndObject(input.bind(page, index + LENGTH_SIZE, length));
+    }
+
+    /**
+     * Overwrites a stored record in place if the new record is not larger. The stored length is
+     * kept, so that the records of the page can still be iterated.
+     *
+     * @return false if the record does not fit into the space of the stored record.
+     */
+    public boolean replace(final int ref, final Object record) {
+        output.clear();
+        kryo.writeClassAndObject(output, record);
+
+        final MemoryView page = pages.get(ref / pageSize);
+        final int index = page.baseOffset + (ref % pageSize) + headerSize;
+        final int length = output.position();
+        if (length > page.getInt(index))
+            return false;
+
+        page.put(index + LENGTH_SIZE, output.getBuffer(), 0, length);
+        return true;
+    }
+
+    /**
+     * @return the number of bytes that the record occupies in its page, including the header.
+     */
+    public int getRecordSize(final int ref) {
+        final MemoryView page = pages.get(ref / pageSize);
+        return headerSize + LENGTH_SIZE + page.getInt(page.baseOffset + (ref % pageSize) + headerSize);
+    }
+
+    public int getHeaderInt(final int ref, final int headerOffset) {
+        final MemoryView page = pages.get(ref / pageSize);
+        return page.getInt(page.baseOffset + (ref % pageSize) + headerOffset);
+    }
+
+    public void putHeaderInt(final int ref, final int headerOffset, final int value) {
+        final MemoryView page = pages.get(ref / pageSize);
+        page.putInt(page.baseOffset + (ref % pageSize) + headerOffset, value);
+    }
+
+    public long getHeaderLong(final int ref, final int headerOffset) {
+        final MemoryView page = pages.get(ref / pageSize);
+        return page.getLong(page.baseOffset + (ref % pageSize) + headerOffset);
+    }
+
+    public void putHeaderLong(final int ref, final int headerOffset, final long value) {
+        final MemoryView page = pages.get(ref / pageSize);
+        page.putLong(page.baseOffset + (ref % pageSize) + headerOffset, value);
+    }
+
+    /**
+     * @return the reference of the first record, or -1 if the store is empty.
+     */
+    public int first() {
+        return recordCount > 0 ? 0 : -1;
+    }
+
+    /**
+     * @return the reference of the record stored after the given one, or -1 if there is none.
+     */
+    public int next(final int ref) {
+        final int pageIndex = ref / pageSize;
+        final MemoryView page = pages.get(pageIndex);
+        final int offset = ref % pageSize;
+        final int nextOffset = offset + headerSize + LENGTH_SIZE + page.getInt(page.baseOffset + offset + headerSize);
+        if (nextOffset < pageLimits.get(pageIndex))
+            return pageIndex * pageSize + nextOffset;
+        return (pageIndex + 1 < pages.size()) ? (pageIndex + 1) * pageSize : -1;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * Returns all pages to the allocator.
+     */
+    public void clear() {
+        for (final MemoryView page : pages)
+            page.free();
+        pages.clear();
+        pageLimits.clear();
+        currentLimit = pageSize;
+        recordCount = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
+
+import de.tuberlin.aura.core.record.TypeInformation;
+
+/**
+ * Estimates the heap size of records by their serialized size. Records are sampled whenever the
+ * number of records doubles, the estimate is the largest sample.
+ */
+public final class RecordSizeEstimator {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    // rough heap overhead of a record besides its serialized size: object headers and references.
+    private static final int RECORD_OVERHEAD = 32;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final Kryo kryo;
+
+    private final Output output;
+
+    private long recordCount;
+
+    private int estimate;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public RecordSizeEstimator(final TypeInformation typeInfo) {
+        this.kryo = SpillFile.createKryo(typeInfo);
+        this.output = new Output(4096, -1);
+        this.estimate = RECORD_OVERHEAD;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public void add(final Object record) {
+        ++recordCount;
+        if ((recordCount & (recordCount - 1)) == 0) {
+            output.clear();
+            kryo.writeClassAndObject(output, record);
+            estimate = Math.max(estimate, output.position() + RECORD_OVERHEAD);
+        }
+    }
+
+    public int getEstimate() {
+        return estimate;
+    }
+
+    public void reset() {
+        recordCount = 0;
+    }
+}
@@ -0,0 +1,146 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+
+import de.tuberlin.aura.core.record.TupleSerializerBuilder;
+import de.tuberlin.aura.core.record.TypeInformation;
+
+/**
+ * Temporary file of serialized records. The file is written once and can then be read any number
+ * of times, e.g. by a nested loop over spilled partitions.
+ */
+public final class SpillFile {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    public final class Reader {
+
+        private final UnsafeInput input;
+
+        private int remaining;
+
+        Reader() throws IOException {
+            this.input = new UnsafeInput(new FileInputStream(file), IO_BUFFER_SIZE);
+            this.input.setVarIntsEnabled(false);
+            this.remaining = recordCount;
+        }
+
+        /**
+         * @return the next record or <code>null</code> if the file is exhausted.
+         */
+        public Object next() {
+            if (remaining == 0)
+                return null;
+            --remaining;
+            return kryo.readClassAndObject(input);
+        }
+
+        public void close() {
+            input.close();
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final File file;
+
+    private final Kryo kryo;
+
+    private UnsafeOutput output;
+
+    private int recordCount;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public SpillFile(final File spillDirectory, final TypeInformation typeInfo) {
+        // sanity check.
+        if (spillDirectory == null)
+            throw new IllegalArgumentException("spillDirectory == null");
+
+        this.kryo = createKryo(typeInfo);
+
+        // the owner deletes the file, it is not left to the exit of the vm.
+        try {
+            this.file = File.createTempFile("aura-spill-", ".bin", spillDirectory);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            this.output = new UnsafeOutput(new FileOutputStream(file), IO_BUFFER_SIZE);
+            this.output.supportVarInts(false);
+        } catch (IOException e) {
+            file.delete();
+            throw new IllegalStateException(e);
+        }
+
+        this.recordCount = 0;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Creates a kryo instance that uses the generated serializer for the given type, if available.
+     */
+    public static Kryo createKryo(final TypeInformation typeInfo) {
+        final Kryo kryo = new Kryo(null);
+        if (TupleSerializerBuilder.isSupported(typeInfo))
+            TupleSerializerBuilder.register(kryo, typeInfo);
+        return kryo;
+    }
+
+    public void write(final Object record) {
+        // sanity check.
+        if (output == null)
+            throw new IllegalStateException("spill file is closed for writing");
+
+        kryo.writeClassAndObject(output, record);
+        ++recordCount;
+    }
+
+    public void closeWrite() {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    public Reader openReader() {
+        closeWrite();
+        try {
+            return new Reader();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public void delete() {
+        closeWrite();
+        if (!file.delete() && file.exists())
+            throw new IllegalStateException("could not delete spill file " + file);
+    }
+}
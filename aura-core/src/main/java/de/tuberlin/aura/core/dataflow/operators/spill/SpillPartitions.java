@@ -0,0 +1,98 @@
+package de.tuberlin.aura.core.dataflow.operators.spill;
+
+import java.io.File;
+
+import de.tuberlin.aura.core.record.TypeInformation;
+
+/**
+ * Hash partitioned spill files of one recursion level. Every level takes the partition from other
+ * bits of the (mixed) hash code, so that a partition that still does not fit can be split again.
+ */
+public final class SpillPartitions {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    public static final int PARTITION_BITS = 5;
+
+    public static final int PARTITION_COUNT = 1 << PARTITION_BITS;
+
+    // the deepest level that can still be split, the hash bits are exhausted below.
+    public static final int MAX_LEVEL = 32 / PARTITION_BITS - 1;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final File spillDirectory;
+
+    private final TypeInformation typeInfo;
+
+    private final int level;
+
+    private final SpillFile[] files;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public SpillPartitions(final File spillDirectory, final TypeInformation typeInfo, final int level) {
+        // sanity check.
+        if (spillDirectory == null)
+            throw new IllegalArgumentException("spillDirectory == null");
+        if (level < 0 || level > MAX_LEVEL)
+            throw new IllegalArgumentException("level < 0 || level > MAX_LEVEL");
+
+        this.spillDirectory = spillDirectory;
+        this.typeInfo = typeInfo;
+        this.level = level;
+        this.files = new SpillFile[PARTITION_COUNT];
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public void write(final Object record, final int hash) {
+        final int partition = partitionOf(hash, level);
+        if (files[partition] == null)
+            files[partition] = new SpillFile(spillDirectory, typeInfo);
+        files[partition].write(record);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Closes all partitions for writing.
+     *
+     * @return the partition files, indexed by partition, null for empty partitions.
+     */
+    public SpillFile[] closeWrite() {
+        for (final SpillFile file : files) {
+            if (file != null)
+                file.closeWrite();
+        }
+        return files;
+    }
+
+    public void delete() {
+        for (int i = 0; i < files.length; ++i) {
+            if (files[i] != null) {
+                files[i].delete();
+                files[i] = null;
+            }
+        }
+    }
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    public static int partitionOf(final int hash, final int level) {
+        final int h = hash * 0x9E3779B9;
+        return (h >>> (32 - PARTITION_BITS * (level + 1))) & (PARTITION_COUNT - 1);
+    }
+}
@@ -2,9 +2,12 @@ package de.tuberlin.aura.core.iosystem;
 
 import java.net.SocketAddress;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +15,9 @@ import org.slf4j.LoggerFactory;
 import de.tuberlin.aura.core.common.eventsystem.IEventDispatcher;
 import de.tuberlin.aura.core.config.IConfig;
 import de.tuberlin.aura.core.iosystem.queues.BufferQueue;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.memory.spi.IBufferCallback;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionManager;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
@@ -37,6 +43,16 @@ public class DataReader {
 
     private final Map<Triple<UUID, Integer, Integer>, Channel> gateKeyToChannel = new HashMap<>();
 
+    // producer task of every local channel, the queues of local channels are looked up by (producer, consumer).
+
+    private final Map<Channel, UUID> localChannelToSrcTaskID = new ConcurrentHashMap<>();
+
+    private final Map<Pair<UUID, UUID>, BufferQueue<IOEvents.DataIOEvent>> localQueues = new ConcurrentHashMap<>();
+
+    // network channels by (producer, consumer), the events of co-located consumers are handed over between them.
+
+    private final Map<Pair<UUID, UUID>, Channel> networkChannels = new ConcurrentHashMap<>();
+
     private final ITaskExecutionManager executionManager;
 
     // ---------------------------------------------------
@@ -141,6 +157,23 @@ public class DataReader {
         channelToQueue.put(channel, queue);
 
         gateKeyToChannel.put(Triple.of(srcTaskID, gateIndex, channelIndex), channel);
+
+        // the queue belongs to the gate of the consumer task, srcTaskID is the consumer.
+        final UUID producerTaskID = localChannelToSrcTaskID.get(channel);
+        if (producerTaskID != null)
+            localQueues.put(Pair.of(producerTaskID, srcTaskID), queue);
+    }
+
+    /**
+     * Returns the inbound queue of the local channel between two tasks of this task manager, so that
+     * the producer can hand its buffers directly to the consumer.
+     *
+     * @param srcTaskID the UUID of the producer task
+     * @param dstTaskID the UUID of the consumer task
+     * @return the queue of the channel, or null if no local channel is bound between the tasks
+     */
+    public BufferQueue<IOEvents.DataIOEvent> getLocalInputQueue(final UUID srcTaskID, final UUID dstTaskID) {
+        return localQueues.get(Pair.of(srcTaskID, dstTaskID));
     }
 
     /**
@@ -179,10 +212,129 @@ public class DataReader {
 
         @Override
         protected void channelRead0(final ChannelHandlerContext ctx, final IOEvents.TransferBufferEvent event) {
+            event.setChannel(ctx.channel());
             channelToQueue.get(ctx.channel()).offer(event);
         }
     }
 
+    /**
+     * Fans out the events a producer sends once per task manager. A producer writes the events of
+     * all its consumers on this task manager to the channel of one of them, so they keep their
+     * order. The channel copies a buffer sent to several consumers into input buffers of each of
+     * them before its own consumer gets it, and hands the events of the other consumers to their
+     * own channels. From there the events take the path of events received on the channel itself,
+     * e.g. the exhaustion is acknowledged on the channel of its consumer.
+     */
+    public final class FanOutHandler extends ChannelInboundHandlerAdapter {
+
+        // the input allocators of the consumers the buffers are copied for.
+        private final Map<UUID, IAllocator> allocators = new HashMap<>();
+
+        // events read after a buffer that waits for an input buffer of a consumer to be copied into.
+        private final LinkedList<IOEvents.DataIOEvent> pendingEvents = new LinkedList<>();
+
+        // the number of copies made of the buffer at the head of the pending events.
+        private int copyCount = 0;
+
+        private boolean isWaitingForBuffer = false;
+
+        private UUID dstTaskID;
+
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+            if (!(msg instanceof IOEvents.DataIOEvent)) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+
+            final IOEvents.DataIOEvent event = (IOEvents.DataIOEvent) msg;
+            if (event.type.equals(IOEvents.DataEventType.DATA_EVENT_INPUT_CHANNEL_CONNECTED)) {
+                dstTaskID = event.dstTaskID;
+                networkChannels.put(Pair.of(event.srcTaskID, event.dstTaskID), ctx.channel());
+            }
+
+            pendingEvents.offer(event);
+            if (!isWaitingForBuffer) {
+                readPendingEvents(ctx);
+            }
+        }
+
+        private void readPendingEvents(final ChannelHandlerContext ctx) {
+            while (!pendingEvents.isEmpty()) {
+                final IOEvents.DataIOEvent event = pendingEvents.peek();
+
+                if (event instanceof IOEvents.TransferBufferEvent) {
+                    final IOEvents.TransferBufferEvent transferEvent = (IOEvents.TransferBufferEvent) event;
+                    while (copyCount < transferEvent.fanOutTaskIDs.size()) {
+                        final UUID taskID = transferEvent.fanOutTaskIDs.get(copyCount);
+                        final MemoryView buffer = getAllocator(event.srcTaskID, taskID).alloc(new IBufferCallback() {
+
+                            @Override
+                            public void bufferReader(final MemoryView buffer) {
+                                ctx.channel().eventLoop().execute(new Runnable() {
+
+                                    @Override
+                                    public void run() {
+                                        isWaitingForBuffer = false;
+                                        copy(transferEvent, buffer);
+                                        readPendingEvents(ctx);
+                                    }
+                                });
+                            }
+                        });
+                        if (buffer == null) {
+                            isWaitingForBuffer = true;
+                            return;
+                        }
+                        copy(transferEvent, buffer);
+                    }
+                    copyCount = 0;
+                }
+
+                pendingEvents.poll();
+                if (dstTaskID != null && !dstTaskID.equals(event.dstTaskID)) {
+                    handOver(event);
+                } else {
+                    ctx.fireChannelRead(event);
+                }
+            }
+        }
+
+        private void copy(final IOEvents.TransferBufferEvent event, final MemoryView buffer) {
+            event.buffer.copyTo(buffer);
+            handOver(new IOEvents.TransferBufferEvent(event.messageID, event.srcTaskID, event.fanOutTaskIDs.get(copyCount), buffer));
+            ++copyCount;
+        }
+
+        private IAllocator getAllocator(final UUID srcTaskID, final UUID dstTaskID) {
+            IAllocator allocator = allocators.get(dstTaskID);
+            if (allocator == null) {
+                allocator = SerializationHandler.getInputAllocator(executionManager, srcTaskID, dstTaskID);
+                allocators.put(dstTaskID, allocator);
+            }
+            return allocator;
+        }
+
+        /**
+         * Passes the event to the channel of its consumer, on the event loop of that channel.
+         */
+        private void handOver(final IOEvents.DataIOEvent event) {
+            final Channel channel = networkChannels.get(Pair.of(event.srcTaskID, event.dstTaskID));
+            // sanity check.
+            if (channel == null)
+                throw new IllegalStateException("no channel bound from " + event.srcTaskID + " to " + event.dstTaskID);
+
+            final ChannelHandlerContext ctx = channel.pipeline().context(FanOutHandler.class);
+            channel.eventLoop().execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    ctx.fireChannelRead(event);
+                }
+            });
+        }
+    }
+
     /**
      * Handles all {@link de.tuberlin.aura.core.iosystem.IOEvents.DataIOEvent} apart from
      * {@link de.tuberlin.aura.core.iosystem.IOEvents.TransferBufferEvent}.
@@ -195,6 +347,9 @@ public class DataReader {
                 case IOEvents.DataEventType.DATA_EVENT_INPUT_CHANNEL_CONNECTED:
 
                     // TODO: ensure that queue is bound before first data buffer event arrives
+                    if (ctx.channel() instanceof LocalChannel)
+                        localChannelToSrcTaskID.put(ctx.channel(), event.srcTaskID);
+
                     IOEvents.DataIOEvent inputConnectedEvent =
                             new IOEvents.DataIOEvent(IOEvents.DataEventType.DATA_EVENT_INPUT_CHANNEL_CONNECTED, event.srcTaskID, event.dstTaskID);
                     inputConnectedEvent.setPayload(DataReader.this);
@@ -316,6 +471,7 @@ public class DataReader {
                       .addLast(SerializationHandler.LENGTH_FIELD_DECODER())
                       .addLast(SerializationHandler.KRYO_OUTBOUND_HANDLER(config))
                       .addLast(SerializationHandler.KRYO_INBOUND_HANDLER(dataReader.executionManager, config))
+                      .addLast(dataReader.new FanOutHandler())
                       .addLast(dataReader.new TransferBufferEventHandler())
                       .addLast(dataReader.new DataIOEventHandler());
                 }
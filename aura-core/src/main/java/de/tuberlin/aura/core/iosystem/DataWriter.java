@@ -1,11 +1,14 @@
 package de.tuberlin.aura.core.iosystem;
 
 import java.net.SocketAddress;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +17,9 @@ import de.tuberlin.aura.core.common.eventsystem.IEventDispatcher;
 import de.tuberlin.aura.core.common.utils.ResettableCountDownLatch;
 import de.tuberlin.aura.core.config.IConfig;
 import de.tuberlin.aura.core.iosystem.queues.BufferQueue;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.memory.spi.IBufferCallback;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
@@ -100,6 +106,33 @@ public class DataWriter {
 
         private AtomicBoolean isGateOpen = new AtomicBoolean(false);
 
+        // local channels whose buffers bypass netty
+
+        private final DataReader directReader;
+
+        // bound by the event loop when the gate opens, before any buffer is written.
+        private volatile BufferQueue<IOEvents.DataIOEvent> directQueue;
+
+        // buffers handed to the consumer that it has not freed yet, plus one until the source is exhausted.
+        private final AtomicInteger directBuffers = new AtomicInteger(1);
+
+        private final DirectChannelAllocator directAllocator;
+
+        // the exhaustion is enqueued by the task thread, the close acknowledge by the event loop.
+        private final AtomicBoolean isDirectExhausted = new AtomicBoolean(false);
+
+        // credit based flow control of network channels, only accessed by the event loop of the channel
+
+        private final boolean creditBased;
+
+        private int credits = 0;
+
+        private IOEvents.DataIOEvent blockedEvent;
+
+        // the channel to another consumer on the same task manager that carries the events of this channel
+
+        private volatile ChannelWriter<?> carrier;
+
         public ChannelWriter(final UUID srcTaskID,
                              final UUID dstTaskID,
                              final IOutgoingConnectionType<T> connectionType,
@@ -111,6 +144,10 @@ public class DataWriter {
             this.maxConnectionRetries = config.getInt("connection.retry.max");
             //this.waitForGateOpen = new ResettableCountDownLatch(1);
             this.waitForGateOpen = new CountDownLatch(1);
+            this.directReader = (connectionType instanceof DirectLocalConnection) ? ((DirectLocalConnection) connectionType).dataReader : null;
+            this.directAllocator = (connectionType instanceof DirectLocalConnection)
+                    ? new DirectChannelAllocator(((DirectLocalConnection) connectionType).producerAllocator) : null;
+            this.creditBased = (connectionType instanceof NetworkConnection) && config.getInt("credit.buffers") > 0;
 
             Bootstrap bootstrap = connectionType.bootStrap(eventLoopGroup);
             bootstrap.handler(connectionType.getPipeline(this));
@@ -155,20 +192,98 @@ public class DataWriter {
          * If the gate is not yet open, this method will block until the gate is open. Only the
          * endpoint of the channel can open gate.
          * 
+         * On a direct local channel the buffers are put into the inbound queue of the consumer by
+         * reference, the consumer frees them into the allocator of the producer. The other events
+         * the consumer reads from its queue take the same path, so no event overtakes another. The
+         * exhaustion is acknowledged once the consumer has freed all buffers of the channel.
+         * 
          * @param event The event that is written on the channel.
          */
         public void write(IOEvents.DataIOEvent event) {
             try {
-                if (!isGateOpen.get()) {
-                    waitForGateOpen.await();
-                }
+                awaitGateOpen();
 
-                this.outboundQueue.offer(event);
+                enqueue(event);
             } catch (InterruptedException e) {
                 LOG.error("Write of event " + event + " was interrupted.", e);
             }
         }
 
+        /**
+         * Blocks until the consumer opened the gate of the channel.
+         */
+        public void awaitGateOpen() throws InterruptedException {
+            if (!isGateOpen.get()) {
+                waitForGateOpen.await();
+            }
+        }
+
+        /**
+         * Lets the channel of another consumer on the same task manager carry the events the
+         * consumer of this channel reads from its queue, so that they keep their order relative to
+         * the buffers sent to both consumers on the carrier.
+         *
+         * @param carrier the channel writer of the other consumer
+         */
+        public void setCarrier(final ChannelWriter<?> carrier) {
+            // sanity check.
+            if (carrier == null)
+                throw new IllegalArgumentException("carrier == null");
+            if (carrier == this || carrier.carrier != null)
+                throw new IllegalArgumentException("carrier is carried itself");
+
+            this.carrier = carrier;
+        }
+
+        /**
+         * Puts the event into the outbound queue, or into the inbound queue of the consumer if the
+         * event takes the direct path.
+         */
+        private void enqueue(final IOEvents.DataIOEvent event) {
+            final ChannelWriter<?> carrier = this.carrier;
+            if (carrier != null && isQueuedByConsumer(event)) {
+                carrier.outboundQueue.offer(event);
+                return;
+            }
+
+            if (directReader == null || !isQueuedByConsumer(event)) {
+                outboundQueue.offer(event);
+                return;
+            }
+
+            if (event instanceof IOEvents.TransferBufferEvent) {
+                final IOEvents.TransferBufferEvent transferEvent = (IOEvents.TransferBufferEvent) event;
+                getDirectQueue().offer(new IOEvents.TransferBufferEvent(transferEvent.messageID,
+                                                                        transferEvent.srcTaskID,
+                                                                        transferEvent.dstTaskID,
+                                                                        directAllocator.wrap(transferEvent.buffer)));
+                return;
+            }
+
+            getDirectQueue().offer(event);
+
+            // the producer may release its allocator once the consumer freed all buffers of the channel.
+            if (event.type.equals(IOEvents.DataEventType.DATA_EVENT_SOURCE_EXHAUSTED) && isDirectExhausted.compareAndSet(false, true)) {
+                directBufferFreed();
+            }
+        }
+
+        private void directBufferFreed() {
+            if (directBuffers.decrementAndGet() == 0) {
+                waitForExhaustedAcknowledge.countDown();
+            }
+        }
+
+        /**
+         * The events the consumer reads from the inbound queue of the channel, all others are
+         * dispatched on arrival.
+         */
+        private boolean isQueuedByConsumer(final IOEvents.DataIOEvent event) {
+            return event instanceof IOEvents.TransferBufferEvent
+                    || event.type.equals(IOEvents.DataEventType.DATA_EVENT_SOURCE_EXHAUSTED)
+                    || event.type.equals(IOEvents.DataEventType.DATA_EVENT_OUTPUT_GATE_CLOSE_ACK);
+        }
+
         /**
          * Disconnects and closes the channel.
          * 
@@ -186,7 +301,8 @@ public class DataWriter {
                 if (awaitExhaustion) {
                     while (!waitForExhaustedAcknowledge.await(config.getDuration("connection.exhaustion.timeout", TimeUnit.SECONDS), TimeUnit.SECONDS)) {
                         LOG.warn("Latch reached timelimit " + outboundQueue.size() + " " + channel + "(" + channel.getClass() + ")");
-                        channel.pipeline().fireChannelWritabilityChanged();
+                        final Channel writingChannel = (carrier != null) ? carrier.channel : channel;
+                        writingChannel.pipeline().fireChannelWritabilityChanged();
                         // IOEvents.DataIOEvent event = outboundQueue.poll();
                         // if (event != null) {
                         // channel.writeAndFlush(event);
@@ -207,6 +323,118 @@ public class DataWriter {
             }
         }
 
+        /**
+         * The consumer binds its queue before it opens the gate, so the queue is bound when the gate
+         * opens and the first event is written.
+         */
+        private void bindDirectQueue() {
+            if (directReader == null || directQueue != null)
+                return;
+
+            final BufferQueue<IOEvents.DataIOEvent> queue = directReader.getLocalInputQueue(srcID, dstID);
+            // sanity check.
+            if (queue == null)
+                throw new IllegalStateException("no input queue bound for local channel " + srcID + " -> " + dstID);
+
+            directQueue = queue;
+        }
+
+        private BufferQueue<IOEvents.DataIOEvent> getDirectQueue() {
+            final BufferQueue<IOEvents.DataIOEvent> queue = directQueue;
+            // sanity check.
+            if (queue == null)
+                throw new IllegalStateException("gate of local channel " + srcID + " -> " + dstID + " was never opened");
+            return queue;
+        }
+
+        /**
+         * Hands buffers of the producer to the consumer of a direct local channel. The consumer frees
+         * a wrapping view, which frees the buffer of the producer and counts it as returned, so the
+         * exhaustion of the channel is only acknowledged once the consumer holds none of its buffers.
+         * Allocations are served by the allocator of the producer.
+         */
+        private final class DirectChannelAllocator implements IAllocator {
+
+            private final IAllocator producerAllocator;
+
+            // wrapping view -> buffer of the producer.
+            private final Map<MemoryView, MemoryView> buffers = new ConcurrentHashMap<>();
+
+            public DirectChannelAllocator(final IAllocator producerAllocator) {
+                // sanity check.
+                if (producerAllocator == null)
+                    throw new IllegalArgumentException("producerAllocator == null");
+
+                this.producerAllocator = producerAllocator;
+            }
+
+            public MemoryView wrap(final MemoryView buffer) {
+                final MemoryView view = buffer.isDirect()
+                        ? new MemoryView(this, buffer.directBuffer)
+                        : new MemoryView(this, buffer.memory, buffer.baseOffset, buffer.size);
+                view.retain();
+                directBuffers.incrementAndGet();
+                buffers.put(view, buffer);
+                return view;
+            }
+
+            @Override
+            public void free(final MemoryView memory) {
+                final MemoryView buffer = buffers.remove(memory);
+                // sanity check.
+                if (buffer == null)
+                    throw new IllegalStateException("buffer was not handed over on this channel");
+
+                buffer.free();
+                directBufferFreed();
+            }
+
+            // the allocated buffers belong to the producer and are freed into its allocator.
+
+            @Override
+            public MemoryView alloc() {
+                return producerAllocator.alloc();
+            }
+
+            @Override
+            public MemoryView allocBlocking() throws InterruptedException {
+                return producerAllocator.allocBlocking();
+            }
+
+            @Override
+            public MemoryView alloc(final IBufferCallback bufferCallback) {
+                return producerAllocator.alloc(bufferCallback);
+            }
+
+            @Override
+            public boolean hasFree() {
+                return producerAllocator.hasFree();
+            }
+
+            @Override
+            public int getBufferSize() {
+                return producerAllocator.getBufferSize();
+            }
+
+            // the views the consumer has not freed yet.
+
+            @Override
+            public boolean isNotUsed() {
+                return buffers.isEmpty();
+            }
+
+            @Override
+            public void checkForMemoryLeaks() {
+                if (!buffers.isEmpty())
+                    throw new IllegalStateException(buffers.size() + " buffers are not freed by the consumer.");
+            }
+
+            @Override
+            public int getBufferCount() {
+                return buffers.size();
+            }
+        }
+
         /**
          * Sets the outbound queue for this channel writer.
          * 
@@ -234,6 +462,7 @@ public class DataWriter {
                     case IOEvents.DataEventType.DATA_EVENT_OUTPUT_GATE_OPEN:
                         LOG.debug("RECEIVED GATE OPEN EVENT");
 
+                        bindDirectQueue();
                         isGateOpen.set(true);
                         waitForGateOpen.countDown();
 
@@ -254,9 +483,10 @@ public class DataWriter {
                         dispatcher.dispatchEvent(gateEvent);
 
                         // as the gate is closed, now events could be enqueued at this point
+                        bindDirectQueue();
                         IOEvents.DataIOEvent closedGate =
                                 new IOEvents.DataIOEvent(IOEvents.DataEventType.DATA_EVENT_OUTPUT_GATE_CLOSE_ACK, srcID, dstID);
-                        outboundQueue.offer(closedGate);
+                        enqueue(closedGate);
 
                         break;
 
@@ -264,6 +494,14 @@ public class DataWriter {
                         LOG.debug("RECEIVED EXHAUSTED ACK EVENT");
                         waitForExhaustedAcknowledge.countDown();
                         break;
+
+                    case IOEvents.DataEventType.DATA_EVENT_BUFFER_CREDIT:
+                        credits += ((IOEvents.BufferCreditEvent) gateEvent).credit;
+                        // the consumer may announce credit before the queue is bound.
+                        if (outboundQueue != null) {
+                            ctx.fireChannelWritabilityChanged();
+                        }
+                        break;
                     default:
                         LOG.error("RECEIVED UNKNOWN EVENT TYPE: " + gateEvent.type);
                         break;
@@ -271,6 +509,24 @@ public class DataWriter {
             }
         }
 
+        /**
+         * Returns the next event to write. On a credit based channel a buffer without credit blocks
+         * the queue until the consumer announces credit, so the order of the events is kept.
+         */
+        private IOEvents.DataIOEvent nextEvent() {
+            final IOEvents.DataIOEvent event = (blockedEvent != null) ? blockedEvent : outboundQueue.poll();
+            blockedEvent = null;
+
+            if (creditBased && event instanceof IOEvents.TransferBufferEvent) {
+                if (credits == 0) {
+                    blockedEvent = event;
+                    return null;
+                }
+                --credits;
+            }
+            return event;
+        }
+
         /**
          * Binds the write observer to the outbound queue and triggers the initial write to the
          * channel.
@@ -318,7 +574,7 @@ public class DataWriter {
             public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
 
                 if (ctx.channel().isWritable()) {
-                    final IOEvents.DataIOEvent event = outboundQueue.poll();
+                    final IOEvents.DataIOEvent event = nextEvent();
                     if (event != null) {
                         ctx.channel().writeAndFlush(event).addListener(new ChannelFutureListener() {
 
@@ -398,6 +654,32 @@ public class DataWriter {
         }
     }
 
+    /**
+     * A local connection whose buffers are handed to the consumer without serialization and
+     * without passing the event loops. The netty channel only carries the control events.
+     */
+    public static class DirectLocalConnection extends LocalConnection {
+
+        private final DataReader dataReader;
+
+        // the allocator of the buffers the producer writes to the channel.
+        private final IAllocator producerAllocator;
+
+        public DirectLocalConnection(final IConfig config, final DataReader dataReader, final IAllocator producerAllocator) {
+            super(config);
+
+            // sanity check.
+            if (dataReader == null)
+                throw new IllegalArgumentException("dataReader == null");
+            if (producerAllocator == null)
+                throw new IllegalArgumentException("producerAllocator == null");
+
+            this.dataReader = dataReader;
+
+            this.producerAllocator = producerAllocator;
+        }
+    }
+
     public static class NetworkConnection implements IOutgoingConnectionType<SocketChannel> {
 
         private final IConfig config;
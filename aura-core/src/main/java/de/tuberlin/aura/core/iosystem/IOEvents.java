@@ -1,5 +1,7 @@
 package de.tuberlin.aura.core.iosystem;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 import de.tuberlin.aura.core.common.eventsystem.Event;
@@ -41,6 +43,8 @@ public final class IOEvents {
 
         public static final String DATA_EVENT_BUFFER = "DATA_EVENT_BUFFER";
 
+        public static final String DATA_EVENT_BUFFER_CREDIT = "DATA_EVENT_BUFFER_CREDIT";
+
         public static final String DATA_EVENT_SOURCE_EXHAUSTED = "DATA_EVENT_SOURCE_EXHAUSTED";
 
         public static final String DATA_EVENT_SOURCE_EXHAUSTED_ACK = "DATA_EVENT_SOURCE_EXHAUSTED_ACK";
@@ -80,6 +84,10 @@ public final class IOEvents {
         public static final String CONTROL_EVENT_ITERATION_CYCLE_END = "CONTROL_EVENT_ITERATION_CYCLE_END";
 
         public static final String CONTROL_EVENT_CLIENT_ITERATION_EVALUATION = "CONTROL_EVENT_CLIENT_ITERATION_EVALUATION";
+
+        // -----------------------------
+
+        public static final String CONTROL_EVENT_MERGED_KEY_SAMPLE = "CONTROL_EVENT_MERGED_KEY_SAMPLE";
     }
 
     /**
@@ -168,11 +176,22 @@ public final class IOEvents {
 
         public final MemoryView buffer;
 
+        // the tasks on the task manager of dstTaskID that receive a copy of the buffer there.
+        public final List<UUID> fanOutTaskIDs;
+
         public TransferBufferEvent(final UUID srcTaskID, final UUID dstTaskID, final MemoryView buffer) {
             this(UUID.randomUUID(), srcTaskID, dstTaskID, buffer);
         }
 
         public TransferBufferEvent(final UUID messageID, final UUID srcTaskID, final UUID dstTaskID, final MemoryView buffer) {
+            this(messageID, srcTaskID, dstTaskID, buffer, Collections.<UUID>emptyList());
+        }
+
+        public TransferBufferEvent(final UUID messageID,
+                                   final UUID srcTaskID,
+                                   final UUID dstTaskID,
+                                   final MemoryView buffer,
+                                   final List<UUID> fanOutTaskIDs) {
 
             super(DataEventType.DATA_EVENT_BUFFER, srcTaskID, dstTaskID);
 
@@ -181,10 +200,14 @@ public final class IOEvents {
                 throw new IllegalArgumentException("messageID == null");
             if (buffer == null)
                 throw new IllegalArgumentException("buffer == null");
+            if (fanOutTaskIDs == null)
+                throw new IllegalArgumentException("fanOutTaskIDs == null");
 
             this.messageID = messageID;
 
             this.buffer = buffer;
+
+            this.fanOutTaskIDs = fanOutTaskIDs;
         }
 
         @Override
@@ -193,6 +216,40 @@ public final class IOEvents {
                                         .append(" messageID = " + messageID.toString() + ", ")
                                         .append(" srcTaskID = " + srcTaskID.toString() + ", ")
                                         .append(" dstTaskID = " + dstTaskID.toString() + ", ")
+                                        .append(" fanOutTaskIDs = " + fanOutTaskIDs.toString() + ", ")
+                                        .append(" }")
+                                        .toString();
+        }
+    }
+
+    /**
+     * Grants the producer of a data channel credit for further buffers, initially and for every
+     * received buffer the consumer freed. The producer may send as many buffers on the channel as it
+     * was granted credit.
+     */
+    public static final class BufferCreditEvent extends DataIOEvent {
+
+        private static final long serialVersionUID = -1;
+
+        public final int credit;
+
+        public BufferCreditEvent(final UUID srcTaskID, final UUID dstTaskID, final int credit) {
+
+            super(DataEventType.DATA_EVENT_BUFFER_CREDIT, srcTaskID, dstTaskID);
+
+            // sanity check.
+            if (credit <= 0)
+                throw new IllegalArgumentException("credit <= 0");
+
+            this.credit = credit;
+        }
+
+        @Override
+        public String toString() {
+            return (new StringBuilder()).append("BufferCreditEvent = {")
+                                        .append(" credit = " + credit + ", ")
+                                        .append(" srcTaskID = " + srcTaskID.toString() + ", ")
+                                        .append(" dstTaskID = " + dstTaskID.toString())
                                         .append(" }")
                                         .toString();
         }
@@ -22,6 +22,7 @@ import de.tuberlin.aura.core.config.IConfig;
 import de.tuberlin.aura.core.descriptors.Descriptors.MachineDescriptor;
 import de.tuberlin.aura.core.iosystem.IOEvents.ControlEventType;
 import de.tuberlin.aura.core.iosystem.IOEvents.ControlIOEvent;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionManager;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
@@ -122,7 +123,7 @@ public final class IOManager extends EventDispatcher implements IIOManager {
     // Public Methods.
     // ---------------------------------------------------
 
-    public void connectDataChannel(final UUID srcTaskID, final UUID dstTaskID, final MachineDescriptor dstMachine) {
+    public void connectDataChannel(final UUID srcTaskID, final UUID dstTaskID, final MachineDescriptor dstMachine, final IAllocator allocator) {
         // sanity check.
         if (srcTaskID == null)
             throw new IllegalArgumentException("srcTask == null");
@@ -130,9 +131,11 @@ public final class IOManager extends EventDispatcher implements IIOManager {
             throw new IllegalArgumentException("dstTask == null");
         if (dstMachine == null)
             throw new IllegalArgumentException("dstTask == null");
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
 
         if (machine.equals(dstMachine)) {
-            channelBuilder.buildLocalDataChannel(srcTaskID, dstTaskID);
+            channelBuilder.buildLocalDataChannel(srcTaskID, dstTaskID, allocator);
         } else {
             channelBuilder.buildNetworkDataChannel(srcTaskID, dstTaskID, dstMachine.dataAddress);
         }
@@ -342,14 +345,18 @@ public final class IOManager extends EventDispatcher implements IIOManager {
             dataWriter.bind(srcTaskID, dstTaskID, new DataWriter.NetworkConnection(config), socketAddress, tcpOutboundELG);
         }
 
-        public void buildLocalDataChannel(final UUID srcTaskID, final UUID dstTaskID) {
+        public void buildLocalDataChannel(final UUID srcTaskID, final UUID dstTaskID, final IAllocator allocator) {
             // sanity check.
             if (srcTaskID == null)
                 throw new IllegalArgumentException("srcTaskID == null");
             if (dstTaskID == null)
                 throw new IllegalArgumentException("dstTaskID == null");
 
-            dataWriter.bind(srcTaskID, dstTaskID, new DataWriter.LocalConnection(config), localAddress, localOutboundELG);
+            final DataWriter.LocalConnection connection = config.getBoolean("local.direct")
+                    ? new DataWriter.DirectLocalConnection(config, dataReader, allocator)
+                    : new DataWriter.LocalConnection(config);
+
+            dataWriter.bind(srcTaskID, dstTaskID, connection, localAddress, localOutboundELG);
         }
 
         public void buildNetworkControlChannel(final UUID srcMachineID, final UUID dstMachineID, final InetSocketAddress socketAddress) {
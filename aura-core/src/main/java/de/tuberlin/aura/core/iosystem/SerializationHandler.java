@@ -2,10 +2,16 @@ package de.tuberlin.aura.core.iosystem;
 
 
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +34,7 @@ import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionManager;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionUnit;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.util.ReferenceCountUtil;
@@ -38,6 +45,9 @@ public final class SerializationHandler {
 
     private SerializationHandler() {}
 
+    // length field + class id + 6 * 8 bytes meta data + fan out count, followed by 2 * 8 bytes per fan out task
+    private static final int TRANSFER_HEADER_SIZE_MAX = 4 + 5 + 8 * 6 + 4;
+
     /**
      * Splits the ByteBuf into events depending on the length field (first 4 bytes).
      * 
@@ -100,6 +110,8 @@ public final class SerializationHandler {
 
         private final int transferEventID;
 
+        private final int creditEventID;
+
         private final IConfig config;
 
         private final Kryo kryo;
@@ -118,14 +130,26 @@ public final class SerializationHandler {
 
         private final LinkedList<PendingEvent> pendingObjects = new LinkedList<>();
 
+        private final boolean zeroCopy;
+
+        private ZeroCopyAllocator zeroCopyAllocator;
+
+        private final int creditBuffers;
+
+        private ChannelCredits credits;
+
         public KryoDeserializationHandler(ITaskExecutionManager executionManager, IConfig config) {
             this.config = config;
             this.dataEventID = config.getInt("event.data.id");
             this.transferEventID = config.getInt("event.transfer.id");
+            this.creditEventID = config.getInt("event.credit.id");
+            this.zeroCopy = config.getBoolean("event.zero.copy");
+            this.creditBuffers = config.getInt("credit.buffers");
             this.kryo = new Kryo();
             this.kryo.register(byte[].class);
             this.kryo.register(IOEvents.DataIOEvent.class, new DataIOEventSerializer(), this.dataEventID);
             this.kryo.register(IOEvents.TransferBufferEvent.class, new TransferBufferEventSerializer(this), this.transferEventID);
+            this.kryo.register(IOEvents.BufferCreditEvent.class, new BufferCreditEventSerializer(), this.creditEventID);
             this.executionManager = executionManager;
         }
 
@@ -134,18 +158,26 @@ public final class SerializationHandler {
             final ByteBuf ioBuffer = (ByteBuf) msg;
             // final ByteBuf ioBuffer = ioBufferTMP.copy();
             try {
-                final Input input = new UnsafeMemoryInput(ioBuffer.memoryAddress(), config.getInt("event.size.max"));
+                // a transfer with a fan out exceeds the maximal event size by its task ids.
+                final Input input = new UnsafeMemoryInput(ioBuffer.memoryAddress(), Math.max(config.getInt("event.size.max"), ioBuffer.readableBytes()));
                 // final Input input = new Input(ioBuffer.array());//, IOConfig.MAX_EVENT_SIZE);
 
                 ioBuffer.order(ByteOrder.nativeOrder());
                 final Registration reg = kryo.readClass(input);
 
                 int id = reg.getId();
-                if (id == dataEventID) {
-                    final Object event = kryo.readObject(input, reg.getType());
+                if (id == dataEventID || id == creditEventID) {
+                    final IOEvents.DataIOEvent event = (IOEvents.DataIOEvent) kryo.readObject(input, reg.getType());
                     // bind the allocator on first event, which must be a connected event
                     if (allocator == null && executionManager != null) {
-                        bindAllocator(((IOEvents.DataIOEvent) event).srcTaskID, ((IOEvents.DataIOEvent) event).dstTaskID);
+                        bindAllocator(event.srcTaskID, event.dstTaskID);
+                    }
+                    if (credits == null && creditBuffers > 0 && allocator != null) {
+                        credits = new ChannelCredits(ctx.channel(), event.srcTaskID, event.dstTaskID);
+                        credits.open();
+                    } else if (credits != null && credits.isExhaustedBy(event)) {
+                        // no buffers follow the exhausted event, buffers freed later are not granted anymore.
+                        credits.release();
                     }
                     // synchronized (lock) {
                     if (pendingCallbacks >= 1) {
@@ -154,18 +186,21 @@ public final class SerializationHandler {
                         ctx.fireChannelRead(event);
                     }
                     // }
+                } else if (id == transferEventID && zeroCopy) {
+                    ctx.fireChannelRead(readZeroCopy(ctx, ioBuffer, input));
                 } else if (id == transferEventID) {
                     // get buffer
                     // synchronized (lock) {
                     MemoryView view = allocator.alloc(new Callback(ioBuffer, ctx));
                     if (view == null) {
-                        if (++pendingCallbacks == 1) {
+                        // with credits the producer sends no more frames than were granted, reading goes on.
+                        if (++pendingCallbacks == 1 && credits == null) {
                             ctx.channel().config().setAutoRead(false);
                         }
                         ReferenceCountUtil.retain(ioBuffer);
                     } else {
                         callbackID--;
-                        deseralizationBuffer = view;
+                        deseralizationBuffer = (credits != null) ? credits.wrap(view) : view;
                         Object event = kryo.readObject(input, reg.getType());
                         ctx.fireChannelRead(event);
                     }
@@ -203,8 +238,8 @@ public final class SerializationHandler {
                     public void run() {
                         // synchronized (lock) {
                         try {
-                            deseralizationBuffer = buffer;
-                            final Input input = new UnsafeMemoryInput(pendingBuffer.memoryAddress(), config.getInt("event.size.max"));
+                            deseralizationBuffer = (credits != null) ? credits.wrap(buffer) : buffer;
+                            final Input input = new UnsafeMemoryInput(pendingBuffer.memoryAddress(), Math.max(config.getInt("event.size.max"), pendingBuffer.readableBytes()));
                             // final Input input = new Input(pendingBuffer.array());
                             Object event = kryo.readClassAndObject(input);
                             ctx.fireChannelRead(event);
@@ -224,7 +259,7 @@ public final class SerializationHandler {
                         } finally {
                             pendingBuffer.release();
                         }
-                        if (--pendingCallbacks == 0) {
+                        if (--pendingCallbacks == 0 && credits == null) {
                             ctx.channel().config().setAutoRead(true);
                             ctx.pipeline().read();
                         }
@@ -234,48 +269,263 @@ public final class SerializationHandler {
             }
         }
 
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+            if (credits != null) {
+                credits.release();
+            }
+            ctx.fireChannelInactive();
+        }
+
+        /**
+         * Credits of the producer of the channel. The consumer grants credit.buffers credits when the
+         * channel is connected and one more for every received buffer it frees, so no buffer is
+         * allocated before a frame arrives. Received buffers are wrapped into views of this
+         * allocator, which free the buffer of the consumer and grant the credit. In zero copy mode
+         * every freed frame is granted.
+         */
+        private final class ChannelCredits implements IAllocator {
+
+            private final Channel channel;
+
+            private final UUID srcTaskID;
+
+            private final UUID dstTaskID;
+
+            // wrapping view -> buffer of the consumer.
+            private final Map<MemoryView, MemoryView> buffers = new ConcurrentHashMap<>();
+
+            private volatile boolean released = false;
+
+            ChannelCredits(final Channel channel, final UUID srcTaskID, final UUID dstTaskID) {
+                this.channel = channel;
+                this.srcTaskID = srcTaskID;
+                this.dstTaskID = dstTaskID;
+            }
+
+            public void open() {
+                grant(creditBuffers);
+            }
+
+            /**
+             * The exhaustion of the channel itself, not of a consumer whose events the channel carries.
+             */
+            public boolean isExhaustedBy(final IOEvents.DataIOEvent event) {
+                return IOEvents.DataEventType.DATA_EVENT_SOURCE_EXHAUSTED.equals(event.type) && dstTaskID.equals(event.dstTaskID);
+            }
+
+            public MemoryView wrap(final MemoryView buffer) {
+                final MemoryView view = buffer.isDirect()
+                        ? new MemoryView(this, buffer.directBuffer)
+                        : new MemoryView(this, buffer.memory, buffer.baseOffset, buffer.size);
+                view.retain();
+                buffers.put(view, buffer);
+                return view;
+            }
+
+            /**
+             * Called when the consumer freed a received frame in zero copy mode.
+             */
+            public void frameFreed() {
+                if (!released) {
+                    grant(1);
+                }
+            }
+
+            /**
+             * Stops granting credits, buffers the consumer frees later are returned without.
+             */
+            public void release() {
+                released = true;
+            }
+
+            /**
+             * Called by the consumer, possibly on its own thread.
+             */
+            @Override
+            public void free(final MemoryView memory) {
+                final MemoryView buffer = buffers.remove(memory);
+                // sanity check.
+                if (buffer == null)
+                    throw new IllegalStateException("buffer was not received on channel " + srcTaskID + " -> " + dstTaskID);
+
+                buffer.free();
+                if (!released) {
+                    grant(1);
+                }
+            }
+
+            // buffers allocated through a received view are taken from the consumer allocator and freed there.
+
+            @Override
+            public MemoryView alloc() {
+                return allocator.alloc();
+            }
+
+            @Override
+            public MemoryView allocBlocking() throws InterruptedException {
+                return allocator.allocBlocking();
+            }
+
+            @Override
+            public MemoryView alloc(final IBufferCallback bufferCallback) {
+                return allocator.alloc(bufferCallback);
+            }
+
+            @Override
+            public boolean hasFree() {
+                return allocator.hasFree();
+            }
+
+            @Override
+            public int getBufferSize() {
+                return allocator.getBufferSize();
+            }
+
+            // the views the consumer has not freed yet.
+
+            @Override
+            public boolean isNotUsed() {
+                return buffers.isEmpty();
+            }
+
+            @Override
+            public void checkForMemoryLeaks() {
+                if (!buffers.isEmpty())
+                    throw new IllegalStateException(buffers.size() + " received buffers are not freed.");
+            }
+
+            @Override
+            public int getBufferCount() {
+                return buffers.size();
+            }
+
+            private void grant(final int credit) {
+                // the credit travels back to the producer, src and dst of the channel are swapped.
+                channel.writeAndFlush(new IOEvents.BufferCreditEvent(dstTaskID, srcTaskID, credit));
+            }
+        }
+
         public MemoryView getBuffer() {
             return deseralizationBuffer;
         }
 
-        private void bindAllocator(final UUID src, final UUID dst) {
+        /**
+         * Wraps the payload region of the received frame into a memory view instead of copying it
+         * into a buffer of the consumer. The frame is released when the view is freed.
+         */
+        private IOEvents.TransferBufferEvent readZeroCopy(final ChannelHandlerContext ctx, final ByteBuf ioBuffer, final Input input) {
+            if (zeroCopyAllocator == null) {
+                zeroCopyAllocator = new ZeroCopyAllocator(ctx, allocator);
+            }
 
-            final ITaskExecutionManager tem = executionManager;
+            final UUID src = new UUID(input.readLong(false), input.readLong(false));
+            final UUID dst = new UUID(input.readLong(false), input.readLong(false));
+            final UUID msgID = new UUID(input.readLong(false), input.readLong(false));
+            final List<UUID> fanOutTaskIDs = TransferBufferEventSerializer.readFanOut(input);
 
-            final ITaskExecutionUnit executionUnit = tem.getExecutionUnitByTaskID(dst);
+            final int payloadIndex = ioBuffer.readerIndex() + input.position();
+            final ByteBuf payload = ioBuffer.slice(payloadIndex, ioBuffer.writerIndex() - payloadIndex).retain();
 
-            if (executionUnit != null) {
+            return new IOEvents.TransferBufferEvent(msgID, src, dst, zeroCopyAllocator.wrap(payload), fanOutTaskIDs);
+        }
 
-                final ITaskRuntime runtime = executionUnit.getRuntime();
+        /**
+         * Accounts the wrapped frames against the buffer count of the bound consumer allocator. When all
+         * buffers are in use, reading from the channel is suspended until the consumer frees a view.
+         * Allocations are delegated to the consumer allocator.
+         */
+        private final class ZeroCopyAllocator implements IAllocator {
 
-                final IDataConsumer dataConsumer = runtime.getConsumer();
+            private final ChannelHandlerContext ctx;
 
-                final int gateIndex = dataConsumer.getInputGateIndexFromTaskID(src);
+            private final IAllocator consumerAllocator;
 
-                final IAllocator allocatorGroup = executionUnit.getInputAllocator();
+            private final AtomicInteger usedBuffers = new AtomicInteger(0);
 
-                // -------------------- STUPID HOT FIX --------------------
+            ZeroCopyAllocator(final ChannelHandlerContext ctx, final IAllocator consumerAllocator) {
+                // sanity check.
+                if (consumerAllocator == null)
+                    throw new IllegalStateException("no consumer allocator bound");
 
-                if (runtime.getBindingDescriptor().inputGateBindings.size() == 1) {
-                    allocator = allocatorGroup;
-                } else {
-                    if (runtime.getBindingDescriptor().inputGateBindings.size() == 2) {
-                        if (gateIndex == 0) {
-                            allocator =
-                                    new BufferAllocatorGroup(allocatorGroup.getBufferSize(),
-                                                             Arrays.asList(((BufferAllocatorGroup) allocatorGroup).getAllocator(0)));
-                        } else {
-                            allocator =
-                                    new BufferAllocatorGroup(allocatorGroup.getBufferSize(),
-                                                             Arrays.asList(((BufferAllocatorGroup) allocatorGroup).getAllocator(1)));
+                this.ctx = ctx;
+                this.consumerAllocator = consumerAllocator;
+            }
+
+            public MemoryView wrap(final ByteBuf payload) {
+                final MemoryView view = new MemoryView(this, payload);
+                view.retain();
+                // with credits the producer sends no more frames than were granted.
+                if (usedBuffers.incrementAndGet() >= consumerAllocator.getBufferCount() && credits == null) {
+                    ctx.channel().config().setAutoRead(false);
+                }
+                return view;
+            }
+
+            @Override
+            public void free(final MemoryView memory) {
+                memory.directBuffer.release();
+                if (credits != null) {
+                    credits.frameFreed();
+                }
+                if (usedBuffers.getAndDecrement() == consumerAllocator.getBufferCount() && credits == null) {
+                    ctx.channel().eventLoop().execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            ctx.channel().config().setAutoRead(true);
+                            ctx.pipeline().read();
                         }
-                    } else {
-                        throw new IllegalStateException("Not supported more than two input gates.");
-                    }
+                    });
                 }
+            }
+
+            // buffers allocated through a received view are taken from the consumer allocator and freed there.
+
+            @Override
+            public MemoryView alloc() {
+                return consumerAllocator.alloc();
+            }
 
-                // -------------------- STUPID HOT FIX --------------------
+            @Override
+            public MemoryView allocBlocking() throws InterruptedException {
+                return consumerAllocator.allocBlocking();
+            }
+
+            @Override
+            public MemoryView alloc(final IBufferCallback bufferCallback) {
+                return consumerAllocator.alloc(bufferCallback);
             }
+
+            @Override
+            public boolean hasFree() {
+                return usedBuffers.get() < consumerAllocator.getBufferCount();
+            }
+
+            @Override
+            public int getBufferSize() {
+                return consumerAllocator.getBufferSize();
+            }
+
+            @Override
+            public boolean isNotUsed() {
+                return usedBuffers.get() == 0;
+            }
+
+            @Override
+            public void checkForMemoryLeaks() {
+                if (usedBuffers.get() != 0)
+                    throw new IllegalStateException(usedBuffers.get() + " received frames are not freed.");
+            }
+
+            @Override
+            public int getBufferCount() {
+                return consumerAllocator.getBufferCount();
+            }
+        }
+
+        private void bindAllocator(final UUID src, final UUID dst) {
+            allocator = getInputAllocator(executionManager, src, dst);
         }
     }
 
@@ -288,19 +538,32 @@ public final class SerializationHandler {
 
         private Kryo kryo;
 
+        private final boolean zeroCopy;
+
         public KryoOutboundHandler(IConfig config) {
             this.config = config;
+            this.zeroCopy = config.getBoolean("event.zero.copy");
             this.kryo = new Kryo();
             this.kryo.register(byte[].class);
             this.kryo.register(IOEvents.DataIOEvent.class, new DataIOEventSerializer(), config.getInt("event.data.id"));
             this.kryo.register(IOEvents.TransferBufferEvent.class, new TransferBufferEventSerializer(null), config.getInt("event.transfer.id"));
+            this.kryo.register(IOEvents.BufferCreditEvent.class, new BufferCreditEventSerializer(), config.getInt("event.credit.id"));
         }
 
         @Override
         public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (zeroCopy && msg instanceof IOEvents.TransferBufferEvent && ((IOEvents.TransferBufferEvent) msg).buffer.isDirect()) {
+                writeZeroCopy(ctx, (IOEvents.TransferBufferEvent) msg, promise);
+                return;
+            }
             // LOG.warn("write");
-            final ByteBuf ioBuffer = ctx.alloc().buffer(config.getInt("event.size.max"), config.getInt("event.size.max"));
-            UnsafeMemoryOutput output = new UnsafeMemoryOutput(ioBuffer.memoryAddress(), config.getInt("event.size.max"));
+            int eventSizeMax = config.getInt("event.size.max");
+            if (msg instanceof IOEvents.TransferBufferEvent) {
+                // the task ids of the fan out follow the meta data.
+                eventSizeMax += 8 * 2 * ((IOEvents.TransferBufferEvent) msg).fanOutTaskIDs.size();
+            }
+            final ByteBuf ioBuffer = ctx.alloc().buffer(eventSizeMax, eventSizeMax);
+            UnsafeMemoryOutput output = new UnsafeMemoryOutput(ioBuffer.memoryAddress(), eventSizeMax);
             // Output output = new Output(ioBuffer.array());
             output.order(ByteOrder.nativeOrder());
             // leave space for size info
@@ -311,6 +574,35 @@ public final class SerializationHandler {
             ioBuffer.writeInt(size).writerIndex(size + 4);
             ctx.write(ioBuffer, promise);
         }
+
+        /**
+         * Writes only the header of the event and appends the native memory of the buffer as
+         * second component, so the payload is not copied. The buffer is freed once netty is done.
+         */
+        private void writeZeroCopy(final ChannelHandlerContext ctx, final IOEvents.TransferBufferEvent transferBufferEvent, final ChannelPromise promise) {
+            final MemoryView buffer = transferBufferEvent.buffer;
+            final int headerSizeMax = TRANSFER_HEADER_SIZE_MAX + 8 * 2 * transferBufferEvent.fanOutTaskIDs.size();
+            final ByteBuf header = ctx.alloc().directBuffer(headerSizeMax, headerSizeMax);
+            final UnsafeMemoryOutput output = new UnsafeMemoryOutput(header.memoryAddress(), headerSizeMax);
+            output.order(ByteOrder.nativeOrder());
+            // leave space for size info
+            output.setPosition(4);
+            kryo.writeClass(output, IOEvents.TransferBufferEvent.class);
+            TransferBufferEventSerializer.writeHeader(output, transferBufferEvent);
+            final int headerSize = output.position();
+            // write size of event
+            header.writeInt(headerSize - 4 + buffer.size()).writerIndex(headerSize);
+
+            final ByteBuf payload = buffer.directBuffer.slice(buffer.baseOffset, buffer.size()).retain();
+            promise.addListener(new ChannelFutureListener() {
+
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    buffer.free();
+                }
+            });
+            ctx.write(Unpooled.wrappedBuffer(header, payload), promise);
+        }
     }
 
     /**
@@ -348,7 +640,7 @@ public final class SerializationHandler {
                     } else {
                         callbackID--;
                         IOEvents.TransferBufferEvent event = (IOEvents.TransferBufferEvent) msg;
-                        System.arraycopy(event.buffer.memory, event.buffer.baseOffset, view.memory, view.baseOffset, event.buffer.size());
+                        event.buffer.copyTo(view);
                         event.buffer.free();
                         IOEvents.TransferBufferEvent copy = new IOEvents.TransferBufferEvent(event.srcTaskID, event.dstTaskID, view);
                         ctx.fireChannelRead(copy);
@@ -397,11 +689,7 @@ public final class SerializationHandler {
                     @Override
                     public void run() {
                         // synchronized (lock) {
-                        System.arraycopy(transferBufferEvent.buffer.memory,
-                                         transferBufferEvent.buffer.baseOffset,
-                                         buffer.memory,
-                                         buffer.baseOffset,
-                                         transferBufferEvent.buffer.size());
+                        transferBufferEvent.buffer.copyTo(buffer);
                         transferBufferEvent.buffer.free();
                         IOEvents.TransferBufferEvent copy =
                                 new IOEvents.TransferBufferEvent(transferBufferEvent.srcTaskID, transferBufferEvent.dstTaskID, buffer);
@@ -429,46 +717,51 @@ public final class SerializationHandler {
             }
         }
 
-        private void bindAllocator(UUID src, UUID dst) {
+        private void bindAllocator(final UUID src, final UUID dst) {
+            allocator = getInputAllocator(executionManager, src, dst);
+        }
+
+    }
 
-            final ITaskExecutionManager tem = executionManager;
+    /**
+     * Returns the allocator a consumer task receives the buffers of a producer task into.
+     *
+     * @return the input allocator, or null if the consumer task does not run on this task manager
+     */
+    static IAllocator getInputAllocator(final ITaskExecutionManager executionManager, final UUID src, final UUID dst) {
 
-            final ITaskExecutionUnit executionUnit = tem.getExecutionUnitByTaskID(dst);
+        final ITaskExecutionUnit executionUnit = executionManager.getExecutionUnitByTaskID(dst);
 
-            if (executionUnit != null) {
+        if (executionUnit == null)
+            return null;
 
-                final ITaskRuntime runtime = executionUnit.getRuntime();
+        final ITaskRuntime runtime = executionUnit.getRuntime();
 
-                final IDataConsumer dataConsumer = runtime.getConsumer();
+        final IDataConsumer dataConsumer = runtime.getConsumer();
 
-                final int gateIndex = dataConsumer.getInputGateIndexFromTaskID(src);
+        final int gateIndex = dataConsumer.getInputGateIndexFromTaskID(src);
 
-                IAllocator allocatorGroup = executionUnit.getInputAllocator();
+        final IAllocator allocatorGroup = executionUnit.getInputAllocator();
 
-                // -------------------- STUPID HOT FIX --------------------
+        // -------------------- STUPID HOT FIX --------------------
 
-                if (runtime.getBindingDescriptor().inputGateBindings.size() == 1) {
-                    allocator = allocatorGroup;
+        if (runtime.getBindingDescriptor().inputGateBindings.size() == 1) {
+            return allocatorGroup;
+        } else {
+            if (runtime.getBindingDescriptor().inputGateBindings.size() == 2) {
+                if (gateIndex == 0) {
+                    return new BufferAllocatorGroup(allocatorGroup.getBufferSize(),
+                                                    Arrays.asList(((BufferAllocatorGroup) allocatorGroup).getAllocator(0)));
                 } else {
-                    if (runtime.getBindingDescriptor().inputGateBindings.size() == 2) {
-                        if (gateIndex == 0) {
-                            allocator =
-                                    new BufferAllocatorGroup(allocatorGroup.getBufferSize(),
-                                            Arrays.asList(((BufferAllocatorGroup) allocatorGroup).getAllocator(0)));
-                        } else {
-                            allocator =
-                                    new BufferAllocatorGroup(allocatorGroup.getBufferSize(),
-                                            Arrays.asList(((BufferAllocatorGroup) allocatorGroup).getAllocator(1)));
-                        }
-                    } else {
-                        throw new IllegalStateException("Not supported more than two input gates.");
-                    }
+                    return new BufferAllocatorGroup(allocatorGroup.getBufferSize(),
+                                                    Arrays.asList(((BufferAllocatorGroup) allocatorGroup).getAllocator(1)));
                 }
-
-                // -------------------- STUPID HOT FIX --------------------
+            } else {
+                throw new IllegalStateException("Not supported more than two input gates.");
             }
         }
 
+        // -------------------- STUPID HOT FIX --------------------
     }
 
     // ---------------------------------------------------
@@ -513,6 +806,28 @@ public final class SerializationHandler {
         }
     }
 
+    /**
+     *
+     */
+    private static class BufferCreditEventSerializer extends Serializer<IOEvents.BufferCreditEvent> {
+
+        @Override
+        public void write(Kryo kryo, Output output, IOEvents.BufferCreditEvent creditEvent) {
+            output.writeLong(creditEvent.srcTaskID.getMostSignificantBits());
+            output.writeLong(creditEvent.srcTaskID.getLeastSignificantBits());
+            output.writeLong(creditEvent.dstTaskID.getMostSignificantBits());
+            output.writeLong(creditEvent.dstTaskID.getLeastSignificantBits());
+            output.writeInt(creditEvent.credit);
+        }
+
+        @Override
+        public IOEvents.BufferCreditEvent read(Kryo kryo, Input input, Class<IOEvents.BufferCreditEvent> type) {
+            final UUID src = new UUID(input.readLong(), input.readLong());
+            final UUID dst = new UUID(input.readLong(), input.readLong());
+            return new IOEvents.BufferCreditEvent(src, dst, input.readInt());
+        }
+    }
+
     /**
      *
      */
@@ -527,14 +842,11 @@ public final class SerializationHandler {
         @Override
         public void write(Kryo kryo, Output output, IOEvents.TransferBufferEvent transferBufferEvent) {
 
-            output.writeBytes(transferBufferEvent.buffer.memory, transferBufferEvent.buffer.baseOffset, transferBufferEvent.buffer.size());
+            writeHeader(output, transferBufferEvent);
 
-            output.writeLong(transferBufferEvent.srcTaskID.getMostSignificantBits());
-            output.writeLong(transferBufferEvent.srcTaskID.getLeastSignificantBits());
-            output.writeLong(transferBufferEvent.dstTaskID.getMostSignificantBits());
-            output.writeLong(transferBufferEvent.dstTaskID.getLeastSignificantBits());
-            output.writeLong(transferBufferEvent.messageID.getMostSignificantBits());
-            output.writeLong(transferBufferEvent.messageID.getLeastSignificantBits());
+            final MemoryView buffer = transferBufferEvent.buffer;
+            // copy straight from the heap array or the native memory of the view.
+            ((UnsafeMemoryOutput) output).writeBytes(buffer.getBaseObject(), buffer.getAddress(buffer.baseOffset), buffer.size());
 
             transferBufferEvent.buffer.free();
         }
@@ -542,14 +854,43 @@ public final class SerializationHandler {
         @Override
         public IOEvents.TransferBufferEvent read(Kryo kryo, Input input, Class<IOEvents.TransferBufferEvent> type) {
 
-            final MemoryView buffer = handler.getBuffer();
-            input.readBytes(buffer.memory, buffer.baseOffset, buffer.size());
-
             final UUID src = new UUID(input.readLong(false), input.readLong(false));
             final UUID dst = new UUID(input.readLong(false), input.readLong(false));
             final UUID msgID = new UUID(input.readLong(false), input.readLong(false));
+            final List<UUID> fanOutTaskIDs = readFanOut(input);
+
+            final MemoryView buffer = handler.getBuffer();
+            ((UnsafeMemoryInput) input).readBytes(buffer.getBaseObject(), buffer.getAddress(buffer.baseOffset), buffer.size());
+
+            return new IOEvents.TransferBufferEvent(msgID, src, dst, buffer, fanOutTaskIDs);
+        }
+
+        /**
+         * The header precedes the payload, so the payload can be sent and received without copying.
+         */
+        public static void writeHeader(final Output output, final IOEvents.TransferBufferEvent transferBufferEvent) {
+            output.writeLong(transferBufferEvent.srcTaskID.getMostSignificantBits());
+            output.writeLong(transferBufferEvent.srcTaskID.getLeastSignificantBits());
+            output.writeLong(transferBufferEvent.dstTaskID.getMostSignificantBits());
+            output.writeLong(transferBufferEvent.dstTaskID.getLeastSignificantBits());
+            output.writeLong(transferBufferEvent.messageID.getMostSignificantBits());
+            output.writeLong(transferBufferEvent.messageID.getLeastSignificantBits());
+            output.writeInt(transferBufferEvent.fanOutTaskIDs.size());
+            for (final UUID taskID : transferBufferEvent.fanOutTaskIDs) {
+                output.writeLong(taskID.getMostSignificantBits());
+                output.writeLong(taskID.getLeastSignificantBits());
+            }
+        }
 
-            return new IOEvents.TransferBufferEvent(msgID, src, dst, buffer);
+        public static List<UUID> readFanOut(final Input input) {
+            final int count = input.readInt();
+            if (count == 0)
+                return Collections.emptyList();
+            final List<UUID> taskIDs = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                taskIDs.add(new UUID(input.readLong(false), input.readLong(false)));
+            }
+            return taskIDs;
         }
     }
 }
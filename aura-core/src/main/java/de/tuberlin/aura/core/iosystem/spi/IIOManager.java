@@ -3,6 +3,7 @@ package de.tuberlin.aura.core.iosystem.spi;
 import de.tuberlin.aura.core.common.eventsystem.IEventDispatcher;
 import de.tuberlin.aura.core.descriptors.Descriptors;
 import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
 import io.netty.channel.Channel;
 
 import java.util.UUID;
@@ -14,7 +15,10 @@ public interface IIOManager extends IEventDispatcher {
     // Public Methods.
     // ---------------------------------------------------
 
-    public abstract void connectDataChannel(final UUID srcTaskID, final UUID dstTaskID, final Descriptors.MachineDescriptor dstMachine);
+    /**
+     * @param allocator the allocator of the buffers the source task writes to the channel.
+     */
+    public abstract void connectDataChannel(final UUID srcTaskID, final UUID dstTaskID, final Descriptors.MachineDescriptor dstMachine, final IAllocator allocator);
 
     public abstract void disconnectDataChannel(final UUID srcTaskID, final UUID dstTaskID, final Descriptors.MachineDescriptor dstMachine);
 
@@ -1,13 +1,92 @@
 package de.tuberlin.aura.core.memory;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import de.tuberlin.aura.core.memory.spi.IAllocator;
 import de.tuberlin.aura.core.memory.spi.IBufferCallback;
+import de.tuberlin.aura.core.memory.spi.IBufferMemoryManager;
+
+/**
+ * Spreads allocations round-robin over the assigned allocators. An allocation that finds its
+ * allocator empty falls through to the next ones before it blocks or registers a callback.
+ * Waiters are registered with the group and served by the next buffer freed into any of the
+ * assigned allocators, each allocator holds at most one callback of the group for them.
+ * Allocators can be moved between groups at runtime.
+ */
+public final class BufferAllocatorGroup implements IAllocator {
 
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
 
-public final class BufferAllocatorGroup implements IAllocator {
+    /**
+     * The callback of the group in one allocator. It is registered at most once at a time and
+     * hands the buffer it receives to the longest waiting waiter. While waiters are left it
+     * registers again, so the relays of all allocators together serve every waiter.
+     */
+    private final class Relay implements IBufferCallback {
+
+        private final IAllocator allocator;
+
+        // true while the relay is registered with the allocator, or about to be.
+        private final AtomicBoolean armed = new AtomicBoolean(false);
+
+        Relay(final IAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        @Override
+        public void bufferReader(final MemoryView buffer) {
+            armed.set(false);
+            handOver(buffer);
+            rearm();
+        }
+
+        /**
+         * Registers the relay unless it is registered already.
+         *
+         * @return a free buffer of the allocator, the relay is not registered then.
+         */
+        MemoryView arm() {
+            if (!armed.compareAndSet(false, true))
+                return null;
+            final MemoryView buffer = allocator.alloc(this);
+            if (buffer != null)
+                armed.set(false);
+            return buffer;
+        }
+
+        void rearm() {
+            MemoryView buffer;
+            while (!waiters.isEmpty() && (buffer = arm()) != null)
+                handOver(buffer);
+        }
+    }
+
+    private static final class BlockingCallback implements IBufferCallback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile MemoryView buffer;
+
+        @Override
+        public void bufferReader(final MemoryView buffer) {
+            this.buffer = buffer;
+            latch.countDown();
+        }
+
+        public MemoryView await() throws InterruptedException {
+            latch.await();
+            return buffer;
+        }
+    }
 
     // ---------------------------------------------------
     // Fields.
@@ -15,13 +94,20 @@ public final class BufferAllocatorGroup implements IAllocator {
 
     private final int bufferSize;
 
-    private final List<IAllocator> assignedAllocators;
+    // the deserialization handlers address the first two allocators separately for two input gates.
+    private final int minAllocators;
+
+    private volatile IAllocator[] assignedAllocators;
+
+    private final AtomicInteger idxAlloc = new AtomicInteger(0);
 
-    private AtomicInteger idxAlloc = new AtomicInteger(0);
+    private final ConcurrentLinkedQueue<IBufferCallback> waiters = new ConcurrentLinkedQueue<>();
 
-    private AtomicInteger idxBlockingAlloc = new AtomicInteger(0);
+    // the relays are kept when an allocator leaves the group, a registered relay still serves the waiters.
+    private final ConcurrentMap<IAllocator, Relay> relays = new ConcurrentHashMap<>();
 
-    private AtomicInteger idxAllocWithCallBack = new AtomicInteger(0);
+    // asked for an allocator of an idle group when a waiter is registered.
+    private volatile IBufferMemoryManager memoryManager;
 
     // ---------------------------------------------------
     // Constants.
@@ -29,10 +115,12 @@ public final class BufferAllocatorGroup implements IAllocator {
 
     public BufferAllocatorGroup(final int bufferSize, final List<IAllocator> initialAssignedAllocators) {
         // sanity check.
-        if ((bufferSize & (bufferSize - 1)) != 0 && bufferSize < BufferAllocator.BufferSize._8K.bytes && bufferSize > BufferAllocator.BufferSize._64K.bytes)
+        if ((bufferSize & (bufferSize - 1)) != 0 && bufferSize < AbstractBufferAllocator.BufferSize._8K.bytes && bufferSize > AbstractBufferAllocator.BufferSize._64K.bytes)
             throw new IllegalArgumentException("illegal buffer size");
         if (initialAssignedAllocators == null)
             throw new IllegalArgumentException("initialAssignedAllocators == null");
+        if (initialAssignedAllocators.isEmpty())
+            throw new IllegalArgumentException("initialAssignedAllocators is empty");
 
         // check correct buffer sizes.
         for (final IAllocator allocator : initialAssignedAllocators) {
@@ -42,62 +130,95 @@ public final class BufferAllocatorGroup implements IAllocator {
 
         this.bufferSize = bufferSize;
 
-        this.assignedAllocators = initialAssignedAllocators;
+        this.minAllocators = Math.min(initialAssignedAllocators.size(), 2);
+
+        this.assignedAllocators = initialAssignedAllocators.toArray(new IAllocator[initialAssignedAllocators.size()]);
     }
 
     // ---------------------------------------------------
     // Public Methods.
     // ---------------------------------------------------
 
-    public void addAllocator(final IAllocator allocator) {
+    public synchronized void addAllocator(final IAllocator allocator) {
         // sanity check.
         if (allocator == null)
             throw new IllegalArgumentException("allocator == null");
         if (allocator.getBufferSize() != bufferSize)
             throw new IllegalArgumentException("buffer size does not fit");
 
-        assignedAllocators.add(allocator);
+        final IAllocator[] allocators = Arrays.copyOf(assignedAllocators, assignedAllocators.length + 1);
+        allocators[allocators.length - 1] = allocator;
+        assignedAllocators = allocators;
+
+        // the waiters registered before the allocator was added.
+        relayOf(allocator).rearm();
     }
 
-    public IAllocator removeAllocator() {
-        IAllocator notUsedAllocator = null;
-        for (final IAllocator allocator : assignedAllocators) {
-            if (allocator.isNotUsed()) {
-                notUsedAllocator = allocator;
+    /**
+     * Removes an allocator from the group, preferably one without buffers in use. Buffers still in
+     * use return to their allocator when freed, so the removed allocator can be added to another
+     * group right away.
+     *
+     * @return the removed allocator or <code>null</code> if the group can not spare one.
+     */
+    public synchronized IAllocator removeAllocator() {
+        final IAllocator[] allocators = assignedAllocators;
+        if (allocators.length <= minAllocators)
+            return null;
+
+        int removeIndex = allocators.length - 1;
+        for (int i = allocators.length - 1; i >= minAllocators; --i) {
+            if (allocators[i].isNotUsed()) {
+                removeIndex = i;
                 break;
             }
         }
-        return notUsedAllocator;
+
+        final IAllocator removedAllocator = allocators[removeIndex];
+        final IAllocator[] remaining = new IAllocator[allocators.length - 1];
+        System.arraycopy(allocators, 0, remaining, 0, removeIndex);
+        System.arraycopy(allocators, removeIndex + 1, remaining, removeIndex, remaining.length - removeIndex);
+        assignedAllocators = remaining;
+        return removedAllocator;
     }
 
     public IAllocator getAllocator(final int index) {
+        final IAllocator[] allocators = assignedAllocators;
         // sanity check.
         if (index < 0)
             throw new IndexOutOfBoundsException("index < 0");
-        if (index >= assignedAllocators.size())
-            throw new IndexOutOfBoundsException("index < 0");
+        if (index >= allocators.length)
+            throw new IndexOutOfBoundsException("index >= allocators");
+
+        return allocators[index];
+    }
 
-        return assignedAllocators.get(index);
+    public int getAllocatorCount() {
+        return assignedAllocators.length;
     }
 
     @Override
     public MemoryView alloc() {
-
-        //idxAlloc = ++idxAlloc % assignedAllocators.size();
-
-        idxAlloc.set(idxAlloc.incrementAndGet() % assignedAllocators.size());
-
-        return assignedAllocators.get(0).alloc();
+        final IAllocator[] allocators = assignedAllocators;
+        return allocFrom(allocators, nextIndex(allocators));
     }
 
     @Override
     public MemoryView allocBlocking() throws InterruptedException {
-
-        //idxBlockingAlloc = ++idxBlockingAlloc % assignedAllocators.size();
-
-        idxBlockingAlloc.set(idxBlockingAlloc.incrementAndGet() % assignedAllocators.size());
-
-        return assignedAllocators.get(0).allocBlocking();
+        final BlockingCallback callback = new BlockingCallback();
+        final MemoryView buffer = alloc(callback);
+        if (buffer != null)
+            return buffer;
+
+        try {
+            return callback.await();
+        } catch (InterruptedException e) {
+            if (!waiters.remove(callback)) {
+                // the buffer is on its way, give it back.
+                callback.await().free();
+            }
+            throw e;
+        }
     }
 
     @Override
@@ -106,11 +227,34 @@ public final class BufferAllocatorGroup implements IAllocator {
         if (bufferCallback == null)
             throw new IllegalArgumentException("bufferCallback == null");
 
-        //idxAllocWithCallBack = ++idxAllocWithCallBack % assignedAllocators.size();
-
-        idxAllocWithCallBack.set(idxAllocWithCallBack.incrementAndGet() % assignedAllocators.size());
+        final IAllocator[] allocators = assignedAllocators;
+        final MemoryView buffer = allocFrom(allocators, nextIndex(allocators));
+        if (buffer != null)
+            return buffer;
+
+        waiters.add(bufferCallback);
+
+        // every allocator either returns a buffer freed in the meantime or serves its relay on the
+        // next free. An armed relay was registered while the allocator had no free buffer.
+        for (final IAllocator allocator : allocators) {
+            final Relay relay = relayOf(allocator);
+            final MemoryView lateBuffer = relay.arm();
+            if (lateBuffer != null) {
+                final boolean waiting = waiters.remove(bufferCallback);
+                if (!waiting) {
+                    // the waiter was already served, hand the buffer to the next one.
+                    handOver(lateBuffer);
+                }
+                // waiters that found the relay armed in the meantime are not registered anywhere.
+                relay.rearm();
+                return waiting ? lateBuffer : null;
+            }
+        }
 
-        return assignedAllocators.get(0).alloc(bufferCallback);
+        final IBufferMemoryManager manager = memoryManager;
+        if (manager != null)
+            manager.rebalance(this);
+        return null;
     }
 
     @Override
@@ -125,12 +269,20 @@ public final class BufferAllocatorGroup implements IAllocator {
 
     @Override
     public boolean hasFree() {
-        throw new UnsupportedOperationException();
+        for (final IAllocator allocator : assignedAllocators) {
+            if (allocator.hasFree())
+                return true;
+        }
+        return false;
     }
 
     @Override
     public boolean isNotUsed() {
-        throw new UnsupportedOperationException();
+        for (final IAllocator allocator : assignedAllocators) {
+            if (!allocator.isNotUsed())
+                return false;
+        }
+        return true;
     }
 
     @Override
@@ -147,4 +299,54 @@ public final class BufferAllocatorGroup implements IAllocator {
             bufferCount += allocator.getBufferCount();
         return bufferCount;
     }
-}
\ No newline at end of file
+
+    // ---------------------------------------------------
+    // Package-Private Methods.
+    // ---------------------------------------------------
+
+    void setMemoryManager(final IBufferMemoryManager memoryManager) {
+        this.memoryManager = memoryManager;
+    }
+
+    boolean canSpareAllocator() {
+        return assignedAllocators.length > minAllocators;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Hands a buffer received by a relay to the longest waiting waiter, or gives it back to its
+     * allocator if no waiter is left.
+     */
+    private void handOver(final MemoryView buffer) {
+        final IBufferCallback waiter = waiters.poll();
+        if (waiter != null)
+            waiter.bufferReader(buffer);
+        else
+            buffer.free();
+    }
+
+    private Relay relayOf(final IAllocator allocator) {
+        final Relay relay = relays.get(allocator);
+        if (relay != null)
+            return relay;
+        final Relay newRelay = new Relay(allocator);
+        final Relay existingRelay = relays.putIfAbsent(allocator, newRelay);
+        return (existingRelay != null) ? existingRelay : newRelay;
+    }
+
+    private int nextIndex(final IAllocator[] allocators) {
+        return (idxAlloc.getAndIncrement() & Integer.MAX_VALUE) % allocators.length;
+    }
+
+    private static MemoryView allocFrom(final IAllocator[] allocators, final int start) {
+        for (int i = 0; i < allocators.length; ++i) {
+            final MemoryView buffer = allocators[(start + i) % allocators.length].alloc();
+            if (buffer != null)
+                return buffer;
+        }
+        return null;
+    }
+}
@@ -11,6 +11,7 @@ import de.tuberlin.aura.core.config.IConfig;
 import de.tuberlin.aura.core.descriptors.Descriptors;
 import de.tuberlin.aura.core.memory.spi.IAllocator;
 import de.tuberlin.aura.core.memory.spi.IBufferMemoryManager;
+import io.netty.buffer.PooledByteBufAllocator;
 
 
 public final class BufferMemoryManager implements IBufferMemoryManager {
@@ -31,6 +32,11 @@ public final class BufferMemoryManager implements IBufferMemoryManager {
 
     private final int globalBufferCount;
 
+    // the pool of the direct buffers, or null for heap buffers.
+    private PooledByteBufAllocator directArena;
+
+    private final List<IAllocator> allocators;
+
     private final List<BufferAllocatorGroup> allocatorGroups;
 
     private final AtomicInteger allocatorIndex;
@@ -52,6 +58,9 @@ public final class BufferMemoryManager implements IBufferMemoryManager {
         final double bufferLoadFactor = config.getDouble("memory.load.factor");
         final int numOfAllocatorsPerGroup = config.getInt("memory.group.allocators");
         final int groupsPerExecutionUnit = config.getInt("memory.groups.per.execution.unit");
+        final boolean directMemory = "direct".equals(config.getString("memory.arena"));
+        final boolean magazineAllocator = "magazine".equals(config.getString("memory.allocator"));
+        final int magazineSize = config.getInt("memory.magazine.size");
 
         this.runtime = Runtime.getRuntime();
 
@@ -65,11 +74,16 @@ public final class BufferMemoryManager implements IBufferMemoryManager {
 
         final int buffersPerAllocator = (perExecutionUnitBuffers / groupsPerExecutionUnit) / numOfAllocatorsPerGroup;
 
+        this.directArena = directMemory ? new PooledByteBufAllocator(true) : null;
+
+        this.allocators = new ArrayList<>();
+
         this.allocatorGroups =
                 setupBufferAllocatorGroups(numOfExecutionUnits * groupsPerExecutionUnit,
                                            numOfAllocatorsPerGroup,
                                            buffersPerAllocator,
-                                           bufferSize);
+                                           bufferSize,
+                                           magazineAllocator ? magazineSize : -1);
 
         this.allocatorIndex = new AtomicInteger(0);
 
@@ -79,6 +93,8 @@ public final class BufferMemoryManager implements IBufferMemoryManager {
         LOG.debug("IAllocator Groups: {} with {} allocators each", allocatorGroups.size(), numOfAllocatorsPerGroup);
         LOG.debug("Groups per Execution Unit: {}", groupsPerExecutionUnit);
         LOG.debug("Buffers Per IAllocator: {}", buffersPerAllocator);
+        LOG.debug("Memory Arena: {}", directMemory ? "direct" : "heap");
+        LOG.debug("Allocator: {}", magazineAllocator ? "magazine" : "queue");
     }
 
     // ---------------------------------------------------
@@ -101,23 +117,77 @@ public final class BufferMemoryManager implements IBufferMemoryManager {
         return allocatorGroups.get(allocatorIndex.getAndIncrement() % allocatorGroups.size());
     }
 
+    /**
+     * Returns the direct buffers of all allocators to the pool and drops the pool, so its native
+     * memory is freed. Called when the task manager stops, no buffer may be used afterwards.
+     */
+    public synchronized void release() {
+        for (final IAllocator allocator : allocators) {
+            if (allocator instanceof DirectBufferAllocator)
+                ((DirectBufferAllocator) allocator).release();
+            else if (allocator instanceof MagazineBufferAllocator)
+                ((MagazineBufferAllocator) allocator).release();
+        }
+        allocators.clear();
+        directArena = null;
+    }
+
+    /**
+     * Moves one allocator from the group of an idle execution unit to the given group. Called by
+     * a group when it has to register a waiter.
+     *
+     * @return true if an idle group could spare an allocator.
+     */
+    public boolean rebalance(final BufferAllocatorGroup dst) {
+        // sanity check.
+        if (dst == null)
+            throw new IllegalArgumentException("dst == null");
+
+        for (final BufferAllocatorGroup src : allocatorGroups) {
+            if (src != dst && src.canSpareAllocator() && src.isNotUsed() && rebalance(src, dst))
+                return true;
+        }
+        return false;
+    }
+
     // ---------------------------------------------------
     // Private Methods.
     // ---------------------------------------------------
 
+    private boolean rebalance(final BufferAllocatorGroup src, final BufferAllocatorGroup dst) {
+        final IAllocator allocator = src.removeAllocator();
+        if (allocator == null)
+            return false;
+
+        dst.addAllocator(allocator);
+
+        LOG.debug("Moved allocator with {} buffers between groups", allocator.getBufferCount());
+        return true;
+    }
+
     private List<BufferAllocatorGroup> setupBufferAllocatorGroups(final int numOfAllocatorGroups,
                                                                   final int numOfAllocatorsPerGroup,
                                                                   final int buffersPerAllocator,
-                                                                  final int bufferSize) {
+                                                                  final int bufferSize,
+                                                                  final int magazineSize) {
 
         final List<BufferAllocatorGroup> allocatorGroups = new ArrayList<>();
         for (int i = 0; i < numOfAllocatorGroups; ++i) {
             final List<IAllocator> initialAllocators = new ArrayList<>();
 
-            for (int j = 0; j < numOfAllocatorsPerGroup; ++j)
-                initialAllocators.add(new BufferAllocator(bufferSize, buffersPerAllocator));
-
-            allocatorGroups.add(new BufferAllocatorGroup(bufferSize, initialAllocators));
+            for (int j = 0; j < numOfAllocatorsPerGroup; ++j) {
+                if (magazineSize >= 0)
+                    initialAllocators.add(new MagazineBufferAllocator(bufferSize, buffersPerAllocator, magazineSize, directArena));
+                else if (directArena != null)
+                    initialAllocators.add(new DirectBufferAllocator(bufferSize, buffersPerAllocator, directArena));
+                else
+                    initialAllocators.add(new BufferAllocator(bufferSize, buffersPerAllocator));
+            }
+            allocators.addAll(initialAllocators);
+
+            final BufferAllocatorGroup allocatorGroup = new BufferAllocatorGroup(bufferSize, initialAllocators);
+            allocatorGroup.setMemoryManager(this);
+            allocatorGroups.add(allocatorGroup);
         }
         return allocatorGroups;
     }
@@ -4,11 +4,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.Arrays;
 
 import de.tuberlin.aura.core.record.RecordWriter;
 
 
+/**
+ * Streams over a sequence of buffers. A stream is owned by a single thread (the execution unit of
+ * its record reader or writer) and is not synchronized. Handing a stream to another thread requires
+ * a happens-before edge, e.g. a concurrent queue or a thread start; the buffers themselves are
+ * published through the queues of the io system.
+ */
 public final class BufferStream {
 
     // Disallow instantiation.
@@ -68,13 +73,13 @@ public final class BufferStream {
             this.bufferOutput = bufferOutput;
         }
 
-        public synchronized void write(int b) {
+        public void write(int b) {
 
             if (buf == null) {
                 nextBuf();
             }
 
-            buf.memory[count] = (byte) b;
+            buf.putByte(count, (byte) b);
             count += 1;
 
             if (count >= buf.size) {
@@ -82,7 +87,7 @@ public final class BufferStream {
             }
         }
 
-        public synchronized void write(byte b[], int off, int len) {
+        public void write(byte b[], int off, int len) {
             if ((off < 0) || (off > b.length) || (len < 0) || ((off + len) - b.length > 0)) {
                 throw new IndexOutOfBoundsException();
             }
@@ -94,46 +99,58 @@ public final class BufferStream {
             // if block + block end marker does not fit in buffer -> write marker and flush buffer
             final int avail = (buf.size - RecordWriter.BLOCK_END.length) - (count - buf.baseOffset);
             if (avail < len) {
-                System.arraycopy(RecordWriter.BLOCK_END, 0, buf.memory, count, RecordWriter.BLOCK_END.length);
+                buf.put(count, RecordWriter.BLOCK_END, 0, RecordWriter.BLOCK_END.length);
                 nextBuf();
             }
 
-            System.arraycopy(b, off, buf.memory, count, len);
+            buf.put(count, b, off, len);
             count += len;
         }
 
-        public synchronized void writeTo(OutputStream out) throws IOException {
+        /**
+         * Returns the number of bytes that can be written to the current buffer before a block end
+         * marker is inserted, or -1 if no buffer is allocated yet.
+         */
+        public int remaining() {
+            if (buf == null)
+                return -1;
+            return (buf.size - RecordWriter.BLOCK_END.length) - (count - buf.baseOffset);
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
             throw new UnsupportedOperationException();
         }
 
-        public synchronized void reset() {
+        public void reset() {
             count = 0;
         }
 
-        public synchronized byte[] toByteArray() {
-            return Arrays.copyOf(buf.memory, count);
+        public byte[] toByteArray() {
+            final byte[] bytes = new byte[count - buf.baseOffset];
+            buf.get(buf.baseOffset, bytes, 0, bytes.length);
+            return bytes;
         }
 
-        public synchronized int size() {
+        public int size() {
             return count;
         }
 
-        public synchronized String toString() {
+        public String toString() {
             throw new UnsupportedOperationException();
         }
 
-        public synchronized String toString(String charsetName) throws UnsupportedEncodingException {
+        public String toString(String charsetName) throws UnsupportedEncodingException {
             throw new UnsupportedOperationException();
         }
 
         @Deprecated
-        public synchronized String toString(int hibyte) {
+        public String toString(int hibyte) {
             throw new UnsupportedOperationException();
         }
 
         public void close() throws IOException {
             if (buf != null) {
-                System.arraycopy(RecordWriter.ITERATION_END, 0, buf.memory, count, RecordWriter.ITERATION_END.length);
+                buf.put(count, RecordWriter.ITERATION_END, 0, RecordWriter.ITERATION_END.length);
                 flush();
             } else {
                 // If no buffer has been sent, allocate a
@@ -215,16 +232,16 @@ public final class BufferStream {
             this.bufferOutput = bufferOutput;
         }
 
-        public synchronized int read() {
+        public int read() {
             if ((pos - buf.baseOffset) < count) {
-                return (buf.memory[pos++] & 0xff);
+                return (buf.getByte(pos++) & 0xff);
             } else {
                 nextBuf();
-                return (buf.memory[pos++] & 0xff);
+                return (buf.getByte(pos++) & 0xff);
             }
         }
 
-        public synchronized int read(byte b[], int off, int len) {
+        public int read(byte b[], int off, int len) {
             if (b == null) {
                 throw new NullPointerException();
             } else if (off < 0 || len < 0 || len > b.length - off) {
@@ -258,7 +275,7 @@ public final class BufferStream {
                     else
                         len = originalLen - copiedLen;
 
-                    System.arraycopy(buf.memory, pos, b, off + copiedLen, len);
+                    buf.get(pos, b, off + copiedLen, len);
 
                     copiedLen += len;
 
@@ -279,7 +296,7 @@ public final class BufferStream {
 
             } else {
 
-                System.arraycopy(buf.memory, pos, b, off, len);
+                buf.get(pos, b, off, len);
 
                 pos += len;
 
@@ -287,7 +304,7 @@ public final class BufferStream {
             }
         }
 
-        public synchronized long skip(long n) {
+        public long skip(long n) {
 
             int avail = count - (pos - buf.baseOffset);
 
@@ -326,10 +343,17 @@ public final class BufferStream {
             }
         }
 
-        public synchronized int available() {
+        public int available() {
             return count - (pos - buf.baseOffset);
         }
 
+        /**
+         * @return the buffer that is currently read, or <code>null</code> if none is fetched.
+         */
+        public MemoryView getBuffer() {
+            return buf;
+        }
+
         public boolean markSupported() {
             return true;
         }
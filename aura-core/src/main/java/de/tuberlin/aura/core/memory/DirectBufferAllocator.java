@@ -0,0 +1,83 @@
+package de.tuberlin.aura.core.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * Allocator backed by off-heap memory. The buffers are taken from a pooled netty allocator, so the
+ * memory views wrap the same native memory the netty pipeline operates on and do not add to the
+ * amount of long-lived arrays the garbage collector has to scan. The pooled allocator is owned by
+ * the {@link BufferMemoryManager}, which releases all buffers when the task manager stops.
+ */
+public final class DirectBufferAllocator extends AbstractBufferAllocator {
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final List<ByteBuf> directBuffers;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    /**
+     * Takes the buffers from the shared netty pool. The owner must {@link #release()} them.
+     */
+    public DirectBufferAllocator(final int bufferSize, final int bufferCount) {
+        this(bufferSize, bufferCount, PooledByteBufAllocator.DEFAULT);
+    }
+
+    public DirectBufferAllocator(final int bufferSize, final int bufferCount, final ByteBufAllocator arena) {
+        super(bufferSize, bufferCount);
+
+        // sanity check.
+        if (arena == null)
+            throw new IllegalArgumentException("arena == null");
+
+        this.directBuffers = new ArrayList<>(bufferCount);
+
+        for (int i = 0; i < bufferCount; ++i) {
+            final ByteBuf directBuffer;
+            try {
+                directBuffer = allocateDirect(arena, bufferSize);
+            } catch (IllegalStateException e) {
+                release();
+                throw e;
+            }
+            directBuffers.add(directBuffer);
+            addBuffer(new MemoryView(this, directBuffer));
+        }
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Returns the native memory to the netty pool. The allocator must not be used afterwards.
+     */
+    public void release() {
+        for (final ByteBuf directBuffer : directBuffers)
+            directBuffer.release();
+        directBuffers.clear();
+        freeList.clear();
+    }
+
+    // ---------------------------------------------------
+    // Package-Private Methods.
+    // ---------------------------------------------------
+
+    static ByteBuf allocateDirect(final ByteBufAllocator arena, final int bufferSize) {
+        final ByteBuf directBuffer = arena.directBuffer(bufferSize, bufferSize);
+        if (!directBuffer.hasMemoryAddress()) {
+            directBuffer.release();
+            throw new IllegalStateException("direct buffers without memory address are not supported");
+        }
+        return directBuffer;
+    }
+}
@@ -0,0 +1,489 @@
+package de.tuberlin.aura.core.memory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.memory.spi.IBufferCallback;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * Allocator that caches free buffers per thread. Every thread keeps a small magazine of free
+ * buffers, which is refilled from and spilled to a lock-free global stack in batches. Threads
+ * waiting for a buffer register an {@link IBufferCallback} and are served by the next free, before
+ * the buffer enters any magazine.
+ *
+ * At most <code>magazineSize</code> buffers per thread are cached and therefore invisible to other
+ * threads; for small allocators the magazines are disabled. Only threads that allocate cache their
+ * frees, threads that only free (e.g. the netty threads) return the buffers to the global stack.
+ * The magazines of threads that have exited are returned to the global stack before an allocation
+ * fails.
+ *
+ * Every magazine is guarded by its own lock, which alloc and free of the owning thread take. The
+ * lock is uncontended except while the free buffers are counted, which holds the locks of all
+ * magazines so no buffer is seen twice or missed, and while the magazine of an exited thread is
+ * reclaimed.
+ */
+public final class MagazineBufferAllocator implements IAllocator {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static final class Node {
+
+        final MemoryView buffer;
+
+        final Node next;
+
+        Node(final MemoryView buffer, final Node next) {
+            this.buffer = buffer;
+            this.next = next;
+        }
+    }
+
+    private static final class Magazine {
+
+        final MemoryView[] buffers;
+
+        final ReentrantLock lock = new ReentrantLock();
+
+        // weak, so the magazine does not keep an exited thread alive.
+        final WeakReference<Thread> owner;
+
+        int count;
+
+        // set by the first allocation of the owning thread.
+        boolean allocates;
+
+        Magazine(final int size, final Thread owner) {
+            this.buffers = new MemoryView[size];
+            this.owner = new WeakReference<>(owner);
+            this.count = 0;
+        }
+
+        boolean isOrphaned() {
+            final Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+
+    private static final class BlockingCallback implements IBufferCallback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile MemoryView buffer;
+
+        @Override
+        public void bufferReader(final MemoryView buffer) {
+            this.buffer = buffer;
+            latch.countDown();
+        }
+
+        public MemoryView await() throws InterruptedException {
+            latch.await();
+            return buffer;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final int bufferSize;
+
+    private final int bufferCount;
+
+    private final int magazineSize;
+
+    private final AtomicReference<Node> globalStack;
+
+    private final ConcurrentLinkedQueue<IBufferCallback> callbackQueue;
+
+    private final List<Magazine> magazines;
+
+    private final ThreadLocal<Magazine> localMagazine;
+
+    private final List<ByteBuf> directBuffers;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    /**
+     * @param directArena the pooled allocator the buffers are taken from, or <code>null</code> for heap buffers.
+     */
+    public MagazineBufferAllocator(final int bufferSize, final int bufferCount, final int magazineSize, final ByteBufAllocator directArena) {
+
+        // sanity check.
+        if ((bufferSize & (bufferSize - 1)) != 0 && bufferSize < AbstractBufferAllocator.BufferSize._8K.bytes && bufferSize > AbstractBufferAllocator.BufferSize._64K.bytes)
+            throw new IllegalArgumentException("illegal buffer size");
+        if (bufferCount <= 0)
+            throw new IllegalArgumentException("bufferCount <= 0");
+        if ((bufferCount * bufferSize) % AbstractBufferAllocator.BufferSize._64K.bytes != 0)
+            throw new IllegalArgumentException("allocated memory must be a multiple of 64K");
+        if (magazineSize < 0)
+            throw new IllegalArgumentException("magazineSize < 0");
+
+        this.bufferSize = bufferSize;
+
+        this.bufferCount = bufferCount;
+
+        // keep the buffers hidden in magazines small compared to the whole allocator.
+        this.magazineSize = Math.min(magazineSize, bufferCount / 32);
+
+        this.globalStack = new AtomicReference<>();
+
+        this.callbackQueue = new ConcurrentLinkedQueue<>();
+
+        this.magazines = new CopyOnWriteArrayList<>();
+
+        this.localMagazine = new ThreadLocal<Magazine>() {
+
+            @Override
+            protected Magazine initialValue() {
+                final Magazine magazine = new Magazine(MagazineBufferAllocator.this.magazineSize, Thread.currentThread());
+                magazines.add(magazine);
+                return magazine;
+            }
+        };
+
+        this.directBuffers = new ArrayList<>();
+
+        if (directArena != null) {
+            for (int i = 0; i < bufferCount; ++i) {
+                final ByteBuf directBuffer;
+                try {
+                    directBuffer = DirectBufferAllocator.allocateDirect(directArena, bufferSize);
+                } catch (IllegalStateException e) {
+                    release();
+                    throw e;
+                }
+                directBuffers.add(directBuffer);
+                push(new MemoryView(this, directBuffer));
+            }
+        } else {
+            final byte[] memoryArena = new byte[bufferSize * bufferCount];
+            for (int i = 0; i < bufferCount; ++i)
+                push(new MemoryView(this, memoryArena, i * bufferSize, bufferSize));
+        }
+    }
+
+    // ---------------------------------------------------
+    // Public Methods: IAllocator Interface.
+    // ---------------------------------------------------
+
+    @Override
+    public MemoryView alloc() {
+        MemoryView buffer = null;
+        if (magazineSize > 0) {
+            final Magazine magazine = localMagazine.get();
+            magazine.lock.lock();
+            try {
+                magazine.allocates = true;
+                if (magazine.count == 0)
+                    refill(magazine);
+                if (magazine.count > 0)
+                    buffer = take(magazine);
+            } finally {
+                magazine.lock.unlock();
+            }
+            // not under the own lock, reclaiming locks other magazines.
+            if (buffer == null && reclaimOrphanedMagazines())
+                buffer = pop();
+        } else {
+            buffer = pop();
+        }
+        if (buffer != null) {
+            buffer.retain();
+        }
+        return buffer;
+    }
+
+    @Override
+    public MemoryView alloc(final IBufferCallback callback) {
+        // sanity check.
+        if (callback == null)
+            throw new IllegalArgumentException("callback == null");
+
+        final MemoryView buffer = alloc();
+        if (buffer != null)
+            return buffer;
+
+        callbackQueue.add(callback);
+
+        // a concurrent free may have missed the callback, so look again.
+        final MemoryView lateBuffer = pop();
+        if (lateBuffer != null) {
+            if (callbackQueue.remove(callback)) {
+                lateBuffer.retain();
+                return lateBuffer;
+            }
+            // the callback was already served (or is about to be), hand the buffer to the next one.
+            release(lateBuffer);
+        }
+        return null;
+    }
+
+    @Override
+    public MemoryView allocBlocking() throws InterruptedException {
+        // the callback is only created if the allocator is exhausted.
+        final MemoryView freeBuffer = alloc();
+        if (freeBuffer != null)
+            return freeBuffer;
+
+        final BlockingCallback callback = new BlockingCallback();
+        final MemoryView buffer = alloc(callback);
+        if (buffer != null)
+            return buffer;
+
+        try {
+            return callback.await();
+        } catch (InterruptedException e) {
+            if (!callbackQueue.remove(callback)) {
+                // the buffer is on its way, give it back.
+                callback.await().free();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void free(final MemoryView buffer) {
+        // sanity check.
+        if (buffer == null)
+            throw new IllegalArgumentException("buffer == null");
+
+        if (!callbackQueue.isEmpty() && serve(buffer))
+            return;
+
+        final Magazine magazine = (magazineSize > 0) ? localMagazine.get() : null;
+        if (magazine == null || !magazine.allocates) {
+            release(buffer);
+            return;
+        }
+
+        magazine.lock.lock();
+        try {
+            if (magazine.count == magazineSize)
+                spill(magazine);
+            magazine.buffers[magazine.count++] = buffer;
+        } finally {
+            magazine.lock.unlock();
+        }
+
+        // an allocation may have registered a callback after the check above.
+        if (!callbackQueue.isEmpty()) {
+            final MemoryView cached = takeLocked(magazine);
+            if (cached != null && !serve(cached))
+                release(cached);
+        }
+    }
+
+    @Override
+    public boolean hasFree() {
+        if (globalStack.get() != null)
+            return true;
+        if (magazineSize == 0)
+            return false;
+        final Magazine magazine = localMagazine.get();
+        magazine.lock.lock();
+        try {
+            return magazine.count > 0;
+        } finally {
+            magazine.lock.unlock();
+        }
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public boolean isNotUsed() {
+        return countFree() == bufferCount;
+    }
+
+    @Override
+    public void checkForMemoryLeaks() {
+        final List<Magazine> lockedMagazines = lockMagazines();
+        try {
+            int freeCount = 0;
+            for (Node node = globalStack.get(); node != null; node = node.next) {
+                if (node.buffer.getRefCount() != 0)
+                    throw new IllegalStateException("Reference count of buffer is not zero.");
+                ++freeCount;
+            }
+            for (final Magazine magazine : lockedMagazines) {
+                for (int i = 0; i < magazine.count; ++i) {
+                    if (magazine.buffers[i].getRefCount() != 0)
+                        throw new IllegalStateException("Reference count of buffer is not zero.");
+                }
+                freeCount += magazine.count;
+            }
+            if (freeCount != bufferCount) {
+                throw new IllegalStateException((bufferCount - freeCount) + " buffers are not freed. callbackQueue.size = " + callbackQueue.size());
+            }
+        } finally {
+            unlockMagazines(lockedMagazines);
+        }
+    }
+
+    @Override
+    public int getBufferCount() {
+        return bufferCount;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Returns the native memory to the netty pool. The allocator must not be used afterwards.
+     */
+    public void release() {
+        for (final ByteBuf directBuffer : directBuffers)
+            directBuffer.release();
+        directBuffers.clear();
+        globalStack.set(null);
+        for (final Magazine magazine : lockMagazines()) {
+            Arrays.fill(magazine.buffers, null);
+            magazine.count = 0;
+            magazine.lock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    // buffers can not move between the magazines and the global stack while it counts.
+    private int countFree() {
+        final List<Magazine> lockedMagazines = lockMagazines();
+        try {
+            int freeCount = 0;
+            for (Node node = globalStack.get(); node != null; node = node.next)
+                ++freeCount;
+            for (final Magazine magazine : lockedMagazines)
+                freeCount += magazine.count;
+            return freeCount;
+        } finally {
+            unlockMagazines(lockedMagazines);
+        }
+    }
+
+    private List<Magazine> lockMagazines() {
+        final List<Magazine> lockedMagazines = new ArrayList<>(magazines);
+        for (final Magazine magazine : lockedMagazines)
+            magazine.lock.lock();
+        return lockedMagazines;
+    }
+
+    private static void unlockMagazines(final List<Magazine> lockedMagazines) {
+        for (final Magazine magazine : lockedMagazines)
+            magazine.lock.unlock();
+    }
+
+    /**
+     * Returns the buffers of the magazines of exited threads. The buffers are released before the
+     * magazine is removed, so counting the free buffers never misses them.
+     *
+     * @return true if any buffer was returned.
+     */
+    private boolean reclaimOrphanedMagazines() {
+        boolean reclaimed = false;
+        for (final Magazine magazine : magazines) {
+            if (!magazine.isOrphaned())
+                continue;
+            magazine.lock.lock();
+            try {
+                while (magazine.count > 0) {
+                    release(take(magazine));
+                    reclaimed = true;
+                }
+                magazines.remove(magazine);
+            } finally {
+                magazine.lock.unlock();
+            }
+        }
+        return reclaimed;
+    }
+
+    private static MemoryView take(final Magazine magazine) {
+        final MemoryView buffer = magazine.buffers[--magazine.count];
+        magazine.buffers[magazine.count] = null;
+        return buffer;
+    }
+
+    private static MemoryView takeLocked(final Magazine magazine) {
+        magazine.lock.lock();
+        try {
+            return (magazine.count > 0) ? take(magazine) : null;
+        } finally {
+            magazine.lock.unlock();
+        }
+    }
+
+    private boolean serve(final MemoryView buffer) {
+        final IBufferCallback callback = callbackQueue.poll();
+        if (callback == null)
+            return false;
+        buffer.retain();
+        callback.bufferReader(buffer);
+        return true;
+    }
+
+    private void release(final MemoryView buffer) {
+        if (!callbackQueue.isEmpty() && serve(buffer))
+            return;
+        push(buffer);
+        // an allocation may have registered a callback after the check above.
+        if (!callbackQueue.isEmpty()) {
+            final MemoryView pending = pop();
+            if (pending != null && !serve(pending))
+                push(pending);
+        }
+    }
+
+    private void refill(final Magazine magazine) {
+        final int batch = (magazineSize + 1) / 2;
+        for (int i = 0; i < batch; ++i) {
+            final MemoryView buffer = pop();
+            if (buffer == null)
+                break;
+            magazine.buffers[magazine.count++] = buffer;
+        }
+    }
+
+    private void spill(final Magazine magazine) {
+        final int batch = (magazineSize + 1) / 2;
+        for (int i = 0; i < batch; ++i)
+            push(take(magazine));
+    }
+
+    private void push(final MemoryView buffer) {
+        Node head;
+        do {
+            head = globalStack.get();
+        } while (!globalStack.compareAndSet(head, new Node(buffer, head)));
+    }
+
+    private MemoryView pop() {
+        Node head;
+        do {
+            head = globalStack.get();
+            if (head == null)
+                return null;
+        } while (!globalStack.compareAndSet(head, head.next));
+        return head.buffer;
+    }
+}
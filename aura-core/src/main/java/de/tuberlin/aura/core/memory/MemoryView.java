@@ -1,5 +1,7 @@
 package de.tuberlin.aura.core.memory;
 
+import static de.tuberlin.aura.core.common.utils.UnsafeAccess.UNSAFE;
+
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -7,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.tuberlin.aura.core.memory.spi.IAllocator;
+import io.netty.buffer.ByteBuf;
 
 public final class MemoryView {
 
@@ -16,10 +19,26 @@ public final class MemoryView {
 
     private final static Logger LOG = LoggerFactory.getLogger(MemoryView.class);
 
+    private static final long BYTE_ARRAY_BASE_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+
     public final IAllocator allocator;
 
+    /**
+     * The backing heap array, or <code>null</code> if this view wraps native memory.
+     */
     public final byte[] memory;
 
+    /**
+     * The backing direct netty buffer, or <code>null</code> if this view wraps a heap array.
+     */
+    public final ByteBuf directBuffer;
+
+    /**
+     * Unsafe address of index 0 of the index space of this view. Together with {@link #memory} as
+     * base object this addresses heap and native memory uniformly.
+     */
+    private final long address;
+
     public final int baseOffset;
 
     public final int size;
@@ -49,6 +68,10 @@ public final class MemoryView {
 
         this.memory = memory;
 
+        this.directBuffer = null;
+
+        this.address = BYTE_ARRAY_BASE_OFFSET;
+
         this.baseOffset = baseOffset;
 
         this.size = size;
@@ -56,6 +79,30 @@ public final class MemoryView {
         this.refCount = new AtomicInteger(0);
     }
 
+    public MemoryView(final IAllocator allocator, final ByteBuf directBuffer) {
+        // sanity check.
+        if (allocator == null)
+            throw new IllegalArgumentException("allocator == null");
+        if (directBuffer == null)
+            throw new IllegalArgumentException("directBuffer == null");
+        if (!directBuffer.isDirect() || !directBuffer.hasMemoryAddress())
+            throw new IllegalArgumentException("directBuffer has no memory address");
+
+        this.allocator = allocator;
+
+        this.memory = null;
+
+        this.directBuffer = directBuffer;
+
+        this.address = directBuffer.memoryAddress();
+
+        this.baseOffset = 0;
+
+        this.size = directBuffer.capacity();
+
+        this.refCount = new AtomicInteger(0);
+    }
+
     // ---------------------------------------------------
     // Public Methods.
     // ---------------------------------------------------
@@ -64,15 +111,137 @@ public final class MemoryView {
         return size;
     }
 
+    public boolean isDirect() {
+        return memory == null;
+    }
+
     public byte[] copy() {
-        return Arrays.copyOfRange(memory, baseOffset, baseOffset + size);
+        if (memory != null)
+            return Arrays.copyOfRange(memory, baseOffset, baseOffset + size);
+        final byte[] dst = new byte[size];
+        copy(dst);
+        return dst;
     }
 
     public void copy(byte[] dst) {
         // sanity check.
         if (dst == null)
             throw new IllegalArgumentException("dst == null");
-        System.arraycopy(memory, baseOffset, dst, 0, baseOffset + size);
+        get(baseOffset, dst, 0, size);
+    }
+
+    /**
+     * Copies the content of this view into the given view of same size.
+     */
+    public void copyTo(final MemoryView dst) {
+        // sanity check.
+        if (dst == null)
+            throw new IllegalArgumentException("dst == null");
+        if (dst.size < size)
+            throw new IllegalArgumentException("dst.size < size");
+
+        UNSAFE.copyMemory(memory, address + baseOffset, dst.memory, dst.address + dst.baseOffset, size);
+    }
+
+    // ---------------------------------------------------
+    // Public Methods: Accessors.
+    // ---------------------------------------------------
+
+    // All indices are absolute, i.e. they range over [baseOffset, baseOffset + size).
+    // Multi-byte values are stored in native byte order, like Kryo's unsafe streams do.
+
+    public byte getByte(final int index) {
+        assert inBounds(index, 1) : index;
+        return UNSAFE.getByte(memory, address + index);
+    }
+
+    public void putByte(final int index, final byte value) {
+        assert inBounds(index, 1) : index;
+        UNSAFE.putByte(memory, address + index, value);
+    }
+
+    public short getShort(final int index) {
+        assert inBounds(index, 2) : index;
+        return UNSAFE.getShort(memory, address + index);
+    }
+
+    public void putShort(final int index, final short value) {
+        assert inBounds(index, 2) : index;
+        UNSAFE.putShort(memory, address + index, value);
+    }
+
+    public char getChar(final int index) {
+        assert inBounds(index, 2) : index;
+        return UNSAFE.getChar(memory, address + index);
+    }
+
+    public void putChar(final int index, final char value) {
+        assert inBounds(index, 2) : index;
+        UNSAFE.putChar(memory, address + index, value);
+    }
+
+    public int getInt(final int index) {
+        assert inBounds(index, 4) : index;
+        return UNSAFE.getInt(memory, address + index);
+    }
+
+    public void putInt(final int index, final int value) {
+        assert inBounds(index, 4) : index;
+        UNSAFE.putInt(memory, address + index, value);
+    }
+
+    public long getLong(final int index) {
+        assert inBounds(index, 8) : index;
+        return UNSAFE.getLong(memory, address + index);
+    }
+
+    public void putLong(final int index, final long value) {
+        assert inBounds(index, 8) : index;
+        UNSAFE.putLong(memory, address + index, value);
+    }
+
+    public float getFloat(final int index) {
+        assert inBounds(index, 4) : index;
+        return UNSAFE.getFloat(memory, address + index);
+    }
+
+    public void putFloat(final int index, final float value) {
+        assert inBounds(index, 4) : index;
+        UNSAFE.putFloat(memory, address + index, value);
+    }
+
+    public double getDouble(final int index) {
+        assert inBounds(index, 8) : index;
+        return UNSAFE.getDouble(memory, address + index);
+    }
+
+    public void putDouble(final int index, final double value) {
+        assert inBounds(index, 8) : index;
+        UNSAFE.putDouble(memory, address + index, value);
+    }
+
+    public void get(final int index, final byte[] dst, final int off, final int len) {
+        checkBounds(index, dst, off, len);
+        UNSAFE.copyMemory(memory, address + index, dst, BYTE_ARRAY_BASE_OFFSET + off, len);
+    }
+
+    public void put(final int index, final byte[] src, final int off, final int len) {
+        checkBounds(index, src, off, len);
+        UNSAFE.copyMemory(src, BYTE_ARRAY_BASE_OFFSET + off, memory, address + index, len);
+    }
+
+    /**
+     * @return the base object for unsafe accesses, i.e. the heap array or <code>null</code> for native memory.
+     */
+    public Object getBaseObject() {
+        return memory;
+    }
+
+    /**
+     * @return the unsafe address of the given absolute index relative to {@link #getBaseObject()}.
+     */
+    public long getAddress(final int index) {
+        return address + index;
     }
 
     public void free() {
@@ -111,4 +280,23 @@ public final class MemoryView {
 
         this.refCount.set(refCount);
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    // the scalar accessors are only checked with assertions enabled, they are on the hot path of the record serializers.
+    private boolean inBounds(final int index, final int length) {
+        return index >= baseOffset && index - baseOffset <= size - length;
+    }
+
+    private void checkBounds(final int index, final byte[] array, final int off, final int len) {
+        // sanity check.
+        if (array == null)
+            throw new IllegalArgumentException("array == null");
+        if (len < 0 || !inBounds(index, len))
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + len + ", view: [" + baseOffset + ", " + (baseOffset + size) + ")");
+        if (off < 0 || off > array.length - len)
+            throw new IndexOutOfBoundsException("off: " + off + ", length: " + len + ", array length: " + array.length);
+    }
 }
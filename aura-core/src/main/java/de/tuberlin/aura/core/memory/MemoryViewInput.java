@@ -0,0 +1,76 @@
+package de.tuberlin.aura.core.memory;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeMemoryInput;
+
+/**
+ * Kryo input over a range of a memory view. Heap views are read by an UnsafeInput on the backing
+ * array, direct views by an UnsafeMemoryInput on the native memory, so neither is copied. Both
+ * read fixed size ints and longs, i.e. data written by an UnsafeOutput without var ints.
+ *
+ * An input is owned by a single thread.
+ */
+public final class MemoryViewInput {
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final UnsafeInput heapInput;
+
+    // created with the first direct view.
+    private UnsafeMemoryInput directInput;
+
+    // the last direct view and its nio buffer, a view wraps the same memory for its whole life.
+    private MemoryView directView;
+
+    private ByteBuffer directNioBuffer;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public MemoryViewInput() {
+
+        this.heapInput = new UnsafeInput();
+
+        this.heapInput.setVarIntsEnabled(false);
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Binds an input to the given range of the view. The input is valid until the next call.
+     *
+     * @param index the absolute index of the first byte, i.e. including the base offset of the view.
+     * @return the input positioned at <code>index</code> that reads up to <code>length</code> bytes.
+     */
+    public Input bind(final MemoryView view, final int index, final int length) {
+        if (!view.isDirect()) {
+            heapInput.setBuffer(view.memory, index, length);
+            return heapInput;
+        }
+
+        if (directInput == null) {
+            directInput = new UnsafeMemoryInput();
+            directInput.setVarIntsEnabled(false);
+        }
+        if (view != directView) {
+            directView = view;
+            directNioBuffer = view.directBuffer.nioBuffer(0, view.size);
+        }
+        // through Buffer, newer JDKs return ByteBuffer and classes built there would not link on Java 7.
+        final Buffer range = directNioBuffer;
+        range.clear();
+        range.limit(index + length);
+        range.position(index);
+        directInput.setBuffer(directNioBuffer);
+        return directInput;
+    }
+}
@@ -14,4 +14,8 @@ public interface IBufferMemoryManager {
     public long getTotalMemory();
 
     public BufferAllocatorGroup getBufferAllocatorGroup();
+
+    public boolean rebalance(final BufferAllocatorGroup dst);
+
+    public void release();
 }
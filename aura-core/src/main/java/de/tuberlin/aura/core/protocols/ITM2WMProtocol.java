@@ -1,6 +1,7 @@
 package de.tuberlin.aura.core.protocols;
 
 import de.tuberlin.aura.core.filesystem.InputSplit;
+import de.tuberlin.aura.core.record.KeySample;
 
 import java.util.Collection;
 import java.util.UUID;
@@ -17,4 +18,10 @@ public interface ITM2WMProtocol {
     public abstract InputSplit requestNextInputSplit(final UUID topologyID, final UUID taskID, final int sequenceNumber);
 
     public abstract void doNextIteration(final UUID topologyID, final UUID taskID);
+
+    /**
+     * When all tasks of the node submitted their sample, the merged sample is sent to each of them
+     * as CONTROL_EVENT_MERGED_KEY_SAMPLE.
+     */
+    public abstract void submitKeySample(final UUID topologyID, final UUID taskID, final KeySample sample);
 }
@@ -0,0 +1,366 @@
+package de.tuberlin.aura.core.record;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.esotericsoftware.reflectasm.FieldAccess;
+
+/**
+ * Reads the field at the end of a selector chain (see {@link TypeInformation#selectField}).
+ *
+ * Selectors are compiled once per type and selector chain into a class that reads the fields with
+ * plain field instructions. Primitive fields are also read, hashed and converted without boxing.
+ * Chains over non-public classes or fields fall back to resolved reflectasm accessors.
+ */
+public abstract class FieldSelector {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    private static final class ReflectiveFieldSelector extends FieldSelector {
+
+        private final FieldAccess[] accessors;
+
+        private final int[] selectorChain;
+
+        ReflectiveFieldSelector(final TypeInformation typeInfo, final int[] selectorChain) {
+            this.accessors = new FieldAccess[selectorChain.length];
+            this.selectorChain = selectorChain;
+
+            TypeInformation ti = typeInfo;
+            for (int i = 0; i < selectorChain.length; ++i) {
+                accessors[i] = RowRecordModel.RecordTypeBuilder.getFieldAccessor(ti.type);
+                if (i < selectorChain.length - 1)
+                    ti = ti.fieldTypes.get(selectorChain[i]);
+            }
+        }
+
+        @Override
+        public Object get(final Object record) {
+            Object obj = record;
+            for (int i = 0; i < accessors.length; ++i)
+                obj = accessors[i].get(obj, selectorChain[i]);
+            return obj;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final String OBJECT_DESC = Type.getDescriptor(Object.class);
+
+    private static final String BASE_NAME = Type.getInternalName(FieldSelector.class);
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private static final Map<Class<?>, Map<String, Class<?>>> selectorRegistry = new HashMap<>();
+
+    private static int selectorCounter = 0;
+
+    private Class<?> fieldType;
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public abstract Object get(final Object record);
+
+    public long getLong(final Object record) {
+        return ((Number) get(record)).longValue();
+    }
+
+    public int getInt(final Object record) {
+        return ((Number) get(record)).intValue();
+    }
+
+    public double getDouble(final Object record) {
+        return ((Number) get(record)).doubleValue();
+    }
+
+    /**
+     * @return the hash code of the (boxed) field, 0 for null.
+     */
+    public int hash(final Object record) {
+        final Object field = get(record);
+        return (field == null) ? 0 : field.hashCode();
+    }
+
+    /**
+     * @return the type of the field according to the type information, or null if unknown.
+     */
+    public Class<?> getFieldType() {
+        return fieldType;
+    }
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    public static FieldSelector create(final TypeInformation typeInfo, final int[] selectorChain) {
+        // sanity check.
+        if (typeInfo == null)
+            throw new IllegalArgumentException("typeInfo == null");
+        if (selectorChain == null || selectorChain.length == 0)
+            throw new IllegalArgumentException("selectorChain == null || selectorChain.length == 0");
+
+        final Field[] path = resolvePath(typeInfo, selectorChain);
+
+        FieldSelector selector = null;
+        if (path != null) {
+            try {
+                selector = (FieldSelector) getSelectorType(typeInfo.type, path).getConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (selector == null)
+            selector = new ReflectiveFieldSelector(typeInfo, selectorChain);
+
+        TypeInformation ti = typeInfo;
+        for (final int fieldIndex : selectorChain)
+            ti = (ti != null && ti.fieldTypes != null && fieldIndex < ti.fieldTypes.size()) ? ti.fieldTypes.get(fieldIndex) : null;
+        selector.fieldType = (ti != null) ? ti.type : null;
+
+        return selector;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * The same selector chain reads different fields if the nested types differ, so the selectors
+     * are registered by the resolved fields along the chain.
+     */
+    private static synchronized Class<?> getSelectorType(final Class<?> rootType, final Field[] path) {
+        Map<String, Class<?>> selectorTypes = selectorRegistry.get(rootType);
+        if (selectorTypes == null) {
+            selectorTypes = new HashMap<>();
+            selectorRegistry.put(rootType, selectorTypes);
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (final Field field : path)
+            sb.append(field.getDeclaringClass().getName()).append('.').append(field.getName()).append(';');
+        final String signature = sb.toString();
+        Class<?> selectorType = selectorTypes.get(signature);
+        if (selectorType == null) {
+            selectorType = buildSelectorType(rootType, path);
+            selectorTypes.put(signature, selectorType);
+        }
+        return selectorType;
+    }
+
+    /**
+     * @return the fields along the chain, or null if they can not be read by generated code.
+     */
+    private static Field[] resolvePath(final TypeInformation typeInfo, final int[] selectorChain) {
+        final ClassLoader loader = loaderOf(typeInfo.type);
+        final Field[] path = new Field[selectorChain.length];
+
+        TypeInformation ti = typeInfo;
+        for (int i = 0; i < selectorChain.length; ++i) {
+            if (ti == null || !isAccessible(ti.type, loader))
+                return null;
+
+            // the field index of reflectasm's FieldAccess.
+            final List<Field> fields = accessibleFields(ti.type);
+            final int fieldIndex = selectorChain[i];
+            if (fieldIndex >= fields.size())
+                return null;
+            final Field field = fields.get(fieldIndex);
+            if (!Modifier.isPublic(field.getModifiers())
+                    || !isAccessible(field.getDeclaringClass(), loader)
+                    || RowRecordModel.RecordTypeBuilder.getFieldAccessor(ti.type).getIndex(field.getName()) != fieldIndex)
+                return null;
+            // only the last field may be primitive.
+            if (field.getType().isPrimitive() && i < selectorChain.length - 1)
+                return null;
+
+            path[i] = field;
+            ti = (i < selectorChain.length - 1 && ti.fieldTypes != null && fieldIndex < ti.fieldTypes.size()) ? ti.fieldTypes.get(fieldIndex) : null;
+            if (i < selectorChain.length - 1 && ti == null)
+                return null;
+        }
+
+        return isAccessible(FieldSelector.class, loader) ? path : null;
+    }
+
+    private static List<Field> accessibleFields(final Class<?> type) {
+        final List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (final Field field : c.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isPrivate(modifiers))
+                    fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static boolean isAccessible(final Class<?> type, final ClassLoader loader) {
+        for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers()))
+                return false;
+        }
+        try {
+            return Class.forName(type.getName(), false, loader) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static ClassLoader loaderOf(final Class<?> type) {
+        return (type.getClassLoader() != null) ? type.getClassLoader() : FieldSelector.class.getClassLoader();
+    }
+
+    // ---------------------------------------------------
+    // Code Generation.
+    // ---------------------------------------------------
+
+    private static Class<?> buildSelectorType(final Class<?> rootType, final Field[] path) {
+
+        final String className = "de/tuberlin/aura/core/record/generated/FieldSelector" + selectorCounter++;
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, BASE_NAME, null);
+
+        // default constructor.
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, BASE_NAME, "<init>", "()V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        final Class<?> type = path[path.length - 1].getType();
+
+        // get(record), primitives are boxed.
+        mv = cw.visitMethod(ACC_PUBLIC, "get", "(" + OBJECT_DESC + ")" + OBJECT_DESC, null, null);
+        mv.visitCode();
+        emitPath(mv, path);
+        if (type.isPrimitive()) {
+            final Type boxedType = Type.getType(boxedType(type));
+            mv.visitMethodInsn(INVOKESTATIC, boxedType.getInternalName(), "valueOf", "(" + Type.getDescriptor(type) + ")" + boxedType.getDescriptor());
+        }
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // numeric primitives are converted and hashed directly.
+        if (type.isPrimitive() && type != boolean.class) {
+            final Type primitiveType = Type.getType(type);
+
+            mv = cw.visitMethod(ACC_PUBLIC, "getLong", "(" + OBJECT_DESC + ")J", null, null);
+            mv.visitCode();
+            emitPath(mv, path);
+            emitConversion(mv, primitiveType, Type.LONG_TYPE);
+            mv.visitInsn(LRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            mv = cw.visitMethod(ACC_PUBLIC, "getInt", "(" + OBJECT_DESC + ")I", null, null);
+            mv.visitCode();
+            emitPath(mv, path);
+            emitConversion(mv, primitiveType, Type.INT_TYPE);
+            mv.visitInsn(IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            mv = cw.visitMethod(ACC_PUBLIC, "getDouble", "(" + OBJECT_DESC + ")D", null, null);
+            mv.visitCode();
+            emitPath(mv, path);
+            emitConversion(mv, primitiveType, Type.DOUBLE_TYPE);
+            mv.visitInsn(DRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            // same hash code as the boxed value.
+            mv = cw.visitMethod(ACC_PUBLIC, "hash", "(" + OBJECT_DESC + ")I", null, null);
+            mv.visitCode();
+            emitPath(mv, path);
+            if (type == long.class) {
+                mv.visitInsn(DUP2);
+                mv.visitIntInsn(BIPUSH, 32);
+                mv.visitInsn(LUSHR);
+                mv.visitInsn(LXOR);
+                mv.visitInsn(L2I);
+            } else if (type == double.class) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Double", "doubleToLongBits", "(D)J");
+                mv.visitInsn(DUP2);
+                mv.visitIntInsn(BIPUSH, 32);
+                mv.visitInsn(LUSHR);
+                mv.visitInsn(LXOR);
+                mv.visitInsn(L2I);
+            } else if (type == float.class) {
+                mv.visitMethodInsn(INVOKESTATIC, "java/lang/Float", "floatToIntBits", "(F)I");
+            }
+            mv.visitInsn(IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        cw.visitEnd();
+        final byte[] byteCode = cw.toByteArray();
+
+        return new ClassLoader(loaderOf(rootType)) {
+            public Class<?> defineClass() {
+                return defineClass(className.replace('/', '.'), byteCode, 0, byteCode.length);
+            }
+        }.defineClass();
+    }
+
+    private static void emitPath(final MethodVisitor mv, final Field[] path) {
+        mv.visitVarInsn(ALOAD, 1);
+        for (final Field field : path) {
+            final String owner = Type.getInternalName(field.getDeclaringClass());
+            mv.visitTypeInsn(CHECKCAST, owner);
+            mv.visitFieldInsn(GETFIELD, owner, field.getName(), Type.getDescriptor(field.getType()));
+        }
+    }
+
+    private static void emitConversion(final MethodVisitor mv, final Type from, final Type to) {
+        final int fromSort = (from.getSort() == Type.LONG || from.getSort() == Type.FLOAT || from.getSort() == Type.DOUBLE) ? from.getSort() : Type.INT;
+        if (fromSort == to.getSort())
+            return;
+        switch (fromSort) {
+            case Type.INT:
+                mv.visitInsn(to.getSort() == Type.LONG ? I2L : I2D);
+                break;
+            case Type.LONG:
+                mv.visitInsn(to.getSort() == Type.INT ? L2I : L2D);
+                break;
+            case Type.FLOAT:
+                mv.visitInsn(to.getSort() == Type.INT ? F2I : (to.getSort() == Type.LONG ? F2L : F2D));
+                break;
+            case Type.DOUBLE:
+                mv.visitInsn(to.getSort() == Type.INT ? D2I : D2L);
+                break;
+        }
+    }
+
+    private static Class<?> boxedType(final Class<?> type) {
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        if (type == char.class) return Character.class;
+        return Boolean.class;
+    }
+}
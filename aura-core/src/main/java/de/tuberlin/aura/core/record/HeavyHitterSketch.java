@@ -0,0 +1,91 @@
+package de.tuberlin.aura.core.record;
+
+/**
+ * Space-Saving sketch of the most frequent key hashes of a stream. Every hash with a frequency of
+ * more than <code>1 / capacity</code> is guaranteed to hold a counter, whose count overestimates
+ * its frequency by at most the count of the evicted hash it replaced.
+ */
+public final class HeavyHitterSketch {
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final int[] hashes;
+
+    private final long[] counts;
+
+    private int size;
+
+    private long totalCount;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public HeavyHitterSketch(final int capacity) {
+        // sanity check.
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity <= 0");
+
+        this.hashes = new int[capacity];
+
+        this.counts = new long[capacity];
+
+        this.size = 0;
+
+        this.totalCount = 0;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Counts the hash. The counters are few, so they are scanned linearly.
+     *
+     * @return the estimated count of the hash.
+     */
+    public long add(final int hash) {
+        ++totalCount;
+
+        int minIndex = 0;
+        for (int i = 0; i < size; ++i) {
+            if (hashes[i] == hash)
+                return ++counts[i];
+            if (counts[i] < counts[minIndex])
+                minIndex = i;
+        }
+
+        if (size < hashes.length) {
+            hashes[size] = hash;
+            counts[size] = 1;
+            return counts[size++];
+        }
+
+        // the hash replaces the least frequent one and inherits its count.
+        hashes[minIndex] = hash;
+        return ++counts[minIndex];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getHash(final int index) {
+        return hashes[index];
+    }
+
+    public long getCount(final int index) {
+        return counts[index];
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void clear() {
+        size = 0;
+        totalCount = 0;
+    }
+}
@@ -0,0 +1,196 @@
+package de.tuberlin.aura.core.record;
+
+import de.tuberlin.aura.core.record.tuples.AbstractTuple;
+
+/**
+ * Packs keys of fixed width numeric fields into long words, one word per field, so that keys can
+ * be hashed and compared without boxing. Two keys are equal iff their packed words are equal, with
+ * the semantics of <code>equals</code> of the boxed fields (floating point fields are packed by
+ * their canonical bits).
+ */
+public final class KeyPacker {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int INT_KIND = 0;
+
+    private static final int LONG_KIND = 1;
+
+    private static final int DOUBLE_KIND = 2;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    // null if the record itself is the key.
+    private final FieldSelector[] fields;
+
+    private final int[] kinds;
+
+    private final boolean[] isNullable;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    private KeyPacker(final FieldSelector[] fields, final int[] kinds, final boolean[] isNullable) {
+        this.fields = fields;
+        this.kinds = kinds;
+        this.isNullable = isNullable;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public int width() {
+        return kinds.length;
+    }
+
+    /**
+     * @return true if the key has a single field of at most 32 bits.
+     */
+    public boolean isIntKey() {
+        return kinds.length == 1 && kinds[0] == INT_KIND;
+    }
+
+    /**
+     * @return false if a key field is null, the key is not packed then.
+     */
+    public boolean pack(final Object record, final long[] key) {
+        if (fields == null) {
+            key[0] = toWord(kinds[0], (Number) record);
+            return true;
+        }
+
+        for (int i = 0; i < fields.length; ++i) {
+            final FieldSelector field = fields[i];
+            if (isNullable[i] && field.get(record) == null)
+                return false;
+
+            switch (kinds[i]) {
+                case INT_KIND:
+                    key[i] = field.getInt(record);
+                    break;
+                case LONG_KIND:
+                    key[i] = field.getLong(record);
+                    break;
+                default:
+                    key[i] = Double.doubleToLongBits(field.getDouble(record));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs key fields that were already extracted from a record (see KeySelector.copyKeys).
+     *
+     * @return false if a key field is null, the key is not packed then.
+     */
+    public boolean packKeys(final Object[] keys, final long[] key) {
+        for (int i = 0; i < kinds.length; ++i) {
+            if (keys[i] == null)
+                return false;
+            key[i] = toWord(kinds[i], (Number) keys[i]);
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return a packer of the key fields, or null if a key field has no fixed width numeric type.
+     */
+    public static KeyPacker forKeys(final KeySelector keySelector) {
+        // sanity check.
+        if (keySelector == null)
+            throw new IllegalArgumentException("keySelector == null");
+
+        final FieldSelector[] fields = new FieldSelector[keySelector.keyCount()];
+        for (int i = 0; i < fields.length; ++i)
+            fields[i] = keySelector.getField(i);
+
+        return create(fields);
+    }
+
+    /**
+     * Packs whole records, which is only possible for boxed numbers and tuples of numeric fields,
+     * whose <code>equals</code> compares their fields.
+     *
+     * @return a packer of the records, or null if the records can not be packed.
+     */
+    public static KeyPacker forRecords(final TypeInformation typeInfo) {
+        // sanity check.
+        if (typeInfo == null)
+            throw new IllegalArgumentException("typeInfo == null");
+
+        if (isLeaf(typeInfo)) {
+            final int kind = kindOf(typeInfo.type);
+            return (kind >= 0) ? new KeyPacker(null, new int[] { kind }, new boolean[] { false }) : null;
+        }
+
+        if (!AbstractTuple.class.isAssignableFrom(typeInfo.type))
+            return null;
+
+        final FieldSelector[] fields = new FieldSelector[typeInfo.fieldTypes.size()];
+        for (int i = 0; i < fields.length; ++i) {
+            if (typeInfo.fieldTypes.get(i) == null || !isLeaf(typeInfo.fieldTypes.get(i)))
+                return null;
+            fields[i] = FieldSelector.create(typeInfo, new int[] { i });
+        }
+
+        return create(fields);
+    }
+
+    // ---------------------------------------------------
+    // Private Static Methods.
+    // ---------------------------------------------------
+
+    private static KeyPacker create(final FieldSelector[] fields) {
+        if (fields.length == 0)
+            return null;
+
+        final int[] kinds = new int[fields.length];
+        final boolean[] isNullable = new boolean[fields.length];
+
+        for (int i = 0; i < fields.length; ++i) {
+            final Class<?> type = fields[i].getFieldType();
+            if (type == null || (kinds[i] = kindOf(type)) < 0)
+                return null;
+            isNullable[i] = !type.isPrimitive();
+        }
+
+        return new KeyPacker(fields, kinds, isNullable);
+    }
+
+    private static boolean isLeaf(final TypeInformation typeInfo) {
+        // the type information of atomic types has no or a single null field type.
+        return typeInfo.fieldTypes == null || (typeInfo.fieldTypes.size() == 1 && typeInfo.fieldTypes.get(0) == null);
+    }
+
+    private static int kindOf(final Class<?> type) {
+        if (type == int.class || type == short.class || type == byte.class
+                || type == Integer.class || type == Short.class || type == Byte.class)
+            return INT_KIND;
+        if (type == long.class || type == Long.class)
+            return LONG_KIND;
+        if (type == double.class || type == float.class || type == Double.class || type == Float.class)
+            return DOUBLE_KIND;
+        return -1;
+    }
+
+    private static long toWord(final int kind, final Number number) {
+        switch (kind) {
+            case INT_KIND:
+                return number.intValue();
+            case LONG_KIND:
+                return number.longValue();
+            default:
+                return Double.doubleToLongBits(number.doubleValue());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package de.tuberlin.aura.core.record;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighted sample of partitioning keys. Every sampled key stands for <code>weight</code> records of
+ * its producer, so samples of producers with different record counts can be merged.
+ */
+public final class KeySample implements Serializable {
+
+    private static final long serialVersionUID = -1L;
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    /**
+     * Uniform sample of a stream of keys of unknown length (reservoir sampling).
+     */
+    public static final class Reservoir {
+
+        private final Object[][] keys;
+
+        private final Random random;
+
+        private long keyCount;
+
+        public Reservoir(final int capacity) {
+            // sanity check.
+            if (capacity <= 0)
+                throw new IllegalArgumentException("capacity <= 0");
+
+            this.keys = new Object[capacity][];
+
+            this.random = new Random();
+
+            this.keyCount = 0;
+        }
+
+        /**
+         * Counts the next key of the stream.
+         *
+         * @return the reservoir slot the key is sampled into, or -1 if it is skipped.
+         */
+        public int nextSlot() {
+            final long slot = (keyCount < keys.length) ? keyCount : (long) (random.nextDouble() * (keyCount + 1));
+            ++keyCount;
+            return (slot < keys.length) ? (int) slot : -1;
+        }
+
+        /**
+         * @param key the key fields, the array is referenced by the reservoir.
+         */
+        public void set(final int slot, final Object[] key) {
+            keys[slot] = key;
+        }
+
+        public KeySample toSample() {
+            final int size = (int) Math.min(keyCount, keys.length);
+            final List<Object[]> sampledKeys = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i)
+                sampledKeys.add(keys[i]);
+            return new KeySample(sampledKeys, size > 0 ? (double) keyCount / size : 0);
+        }
+    }
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final List<Object[]> keys;
+
+    private final double[] weights;
+
+    // ---------------------------------------------------
+    // Constructors.
+    // ---------------------------------------------------
+
+    public KeySample(final List<Object[]> keys, final double weight) {
+        // sanity check.
+        if (keys == null)
+            throw new IllegalArgumentException("keys == null");
+
+        this.keys = keys;
+
+        this.weights = new double[keys.size()];
+
+        for (int i = 0; i < weights.length; ++i)
+            weights[i] = weight;
+    }
+
+    private KeySample(final List<Object[]> keys, final double[] weights) {
+        this.keys = keys;
+        this.weights = weights;
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public int size() {
+        return keys.size();
+    }
+
+    public Object[] getKey(final int index) {
+        return keys.get(index);
+    }
+
+    public double getWeight(final int index) {
+        return weights[index];
+    }
+
+    // ---------------------------------------------------
+    // Public Static Methods.
+    // ---------------------------------------------------
+
+    public static KeySample merge(final List<KeySample> samples) {
+        // sanity check.
+        if (samples == null)
+            throw new IllegalArgumentException("samples == null");
+
+        int size = 0;
+        for (final KeySample sample : samples)
+            size += sample.size();
+
+        final List<Object[]> keys = new ArrayList<>(size);
+        final double[] weights = new double[size];
+        for (final KeySample sample : samples) {
+            System.arraycopy(sample.weights, 0, weights, keys.size(), sample.size());
+            keys.addAll(sample.keys);
+        }
+        return new KeySample(keys, weights);
+    }
+}
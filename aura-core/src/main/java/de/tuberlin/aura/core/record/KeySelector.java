@@ -0,0 +1,128 @@
+package de.tuberlin.aura.core.record;
+
+import java.util.Comparator;
+
+/**
+ * Compiled access to the key fields of records of one type, given by a list of selector chains.
+ * Key selectors of the operators are created once and cached in the DataflowNodeProperties.
+ */
+public final class KeySelector {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    /**
+     * Orders copied keys (see {@link #copyKeys(Object, Object[])}) like {@link #compare(Object, KeySelector, Object)}.
+     */
+    public static final Comparator<Object[]> KEYS_COMPARATOR = new Comparator<Object[]>() {
+
+        @Override
+        public int compare(final Object[] k1, final Object[] k2) {
+            for (int i = 0; i < k1.length; ++i) {
+                final int res = compareFields(k1[i], k2[i]);
+                if (res != 0)
+                    return res;
+            }
+            return 0;
+        }
+    };
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final FieldSelector[] fields;
+
+    // ---------------------------------------------------
+    // Constructor.
+    // ---------------------------------------------------
+
+    public KeySelector(final TypeInformation typeInfo, final int[][] keyIndices) {
+        // sanity check.
+        if (typeInfo == null)
+            throw new IllegalArgumentException("typeInfo == null");
+        if (keyIndices == null)
+            throw new IllegalArgumentException("keyIndices == null");
+
+        this.fields = new FieldSelector[keyIndices.length];
+
+        for (int i = 0; i < keyIndices.length; ++i)
+            fields[i] = FieldSelector.create(typeInfo, keyIndices[i]);
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public int keyCount() {
+        return fields.length;
+    }
+
+    public FieldSelector getField(final int key) {
+        return fields[key];
+    }
+
+    public Object get(final int key, final Object record) {
+        return fields[key].get(record);
+    }
+
+    public long getLong(final int key, final Object record) {
+        return fields[key].getLong(record);
+    }
+
+    public int getInt(final int key, final Object record) {
+        return fields[key].getInt(record);
+    }
+
+    public double getDouble(final int key, final Object record) {
+        return fields[key].getDouble(record);
+    }
+
+    public void copyKeys(final Object record, final Object[] keys) {
+        for (int i = 0; i < fields.length; ++i)
+            keys[i] = fields[i].get(record);
+    }
+
+    /**
+     * @return the combined hash code of all key fields.
+     */
+    public int hash(final Object record) {
+        int hash = 17;
+        for (final FieldSelector field : fields)
+            hash = 31 * hash + field.hash(record);
+        return hash;
+    }
+
+    public boolean equalKeys(final Object record, final KeySelector other, final Object otherRecord) {
+        for (int i = 0; i < fields.length; ++i) {
+            final Object field = fields[i].get(record);
+            final Object otherField = other.fields[i].get(otherRecord);
+            if (field == null ? otherField != null : !field.equals(otherField))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the keys of two records in ascending order, null keys first.
+     */
+    public int compare(final Object record, final KeySelector other, final Object otherRecord) {
+        for (int i = 0; i < fields.length; ++i) {
+            final int res = compareFields(fields[i].get(record), other.fields[i].get(otherRecord));
+            if (res != 0)
+                return res;
+        }
+        return 0;
+    }
+
+    /**
+     * Compares two key fields in ascending order, null first.
+     */
+    @SuppressWarnings("unchecked")
+    public static int compareFields(final Object f1, final Object f2) {
+        if (f1 == null || f2 == null)
+            return (f1 == null) ? (f2 == null ? 0 : -1) : 1;
+        return ((Comparable) f1).compareTo(f2);
+    }
+}
@@ -0,0 +1,91 @@
+package de.tuberlin.aura.core.record;
+
+import java.util.Arrays;
+
+import static de.tuberlin.aura.core.record.OperatorResult.StreamMarker;
+
+/**
+ * A reusable batch of operator results: up to {@link #capacity()} elements, optionally followed by a
+ * stream marker. A batch with the {@link StreamMarker#END_OF_STREAM_MARKER} is the last batch of the
+ * stream; its elements precede the end of the stream.
+ *
+ * A batch is owned by the operator that returns it and is only valid until the next call of
+ * <code>nextBatch()</code> on that operator.
+ */
+public final class OperatorBatch<T> {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private final Object[] elements;
+
+    private int size;
+
+    public StreamMarker marker;
+
+    // ---------------------------------------------------
+    // Constructors.
+    // ---------------------------------------------------
+
+    public OperatorBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OperatorBatch(final int capacity) {
+        // sanity check.
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity <= 0");
+
+        this.elements = new Object[capacity];
+    }
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public void add(final T element) {
+        elements[size++] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(final int index) {
+        return (T) elements[index];
+    }
+
+    /**
+     * @return the backing array, the elements are at the indices [0, size()).
+     */
+    public Object[] elements() {
+        return elements;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public boolean isFull() {
+        return size == elements.length;
+    }
+
+    public boolean isEndOfStream() {
+        return marker == StreamMarker.END_OF_STREAM_MARKER;
+    }
+
+    public void clear() {
+        // release the references, the elements may be large.
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+        marker = null;
+    }
+}
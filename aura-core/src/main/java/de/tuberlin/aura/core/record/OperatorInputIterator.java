@@ -44,11 +44,12 @@ public class OperatorInputIterator<I> implements Iterator<I> {
                 throw new NoSuchElementException();
             }
 
-            OperatorResult<I> result = next;
+            // the input may reuse its result holder.
+            final I element = next.element;
 
             next = inputOperator.next();
 
-            return result.element;
+            return element;
 
         } catch (Throwable e) {
             e.printStackTrace();
@@ -1,5 +1,9 @@
 package de.tuberlin.aura.core.record;
 
+/**
+ * An element or a stream marker returned by an operator. Operators reuse their result holder, so a
+ * result is only valid until the next call of next() on the operator that returned it.
+ */
 public class OperatorResult<T> {
 
     public enum StreamMarker {
@@ -1,5 +1,8 @@
 package de.tuberlin.aura.core.record;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 
 /**
@@ -10,13 +13,22 @@ public final class Partitioner {
     // disallow instantiation.
     private Partitioner() {}
 
+    public static boolean isBroadcast(final IPartitioner partitioner) {
+        // no partitioner means broadcast as well.
+        return partitioner == null || partitioner instanceof BroadcastPartitioner;
+    }
+
     public static enum PartitioningStrategy {
 
-        BROADCAST,              // TODO:
+        // every record goes to all receivers, it is serialized once and sent once per receiver.
+        BROADCAST,
 
         HASH_PARTITIONER,
 
-        RANGE_PARTITIONER,      // TODO:
+        // spreads hot keys over several receivers, the plan inserts a combine of the partial aggregates after the edge.
+        SALTED_HASH_PARTITIONER,
+
+        RANGE_PARTITIONER,
 
         ROUND_ROBIN_PARTITIONER
     }
@@ -30,11 +42,13 @@ public final class Partitioner {
 
             switch(strategy) {
                 case BROADCAST:
-                    return null;
+                    return new BroadcastPartitioner();
                 case HASH_PARTITIONER:
                     return new HashPartitioner(typeInfo, partitioningKeys);
+                case SALTED_HASH_PARTITIONER:
+                    return new SaltedHashPartitioner(typeInfo, partitioningKeys);
                 case RANGE_PARTITIONER:
-                    return new RangePartitioner();
+                    return new RangePartitioner(typeInfo, partitioningKeys);
                 case ROUND_ROBIN_PARTITIONER:
                     return new RoundRobinPartitioner();
                 default: {
@@ -56,36 +70,304 @@ public final class Partitioner {
         }
     }
 
+    /**
+     * Counts the most frequent key hashes of a sample of the records, so that skewed keys can be
+     * reported (see RecordWriter).
+     */
     public static class HashPartitioner extends AbstractPartitioner {
 
-        private TypeInformation typeInfo;
+        private static final int SKETCH_CAPACITY = 32;
+
+        // every SAMPLE_RATE-th record is counted, the sketch scans its counters linearly.
+        private static final int SAMPLE_RATE = 16;
+
+        private final KeySelector keySelector;
+
+        private final HeavyHitterSketch sketch;
 
-        private final int[][] partitioningKeys;
+        private int sampleIndex;
 
         public HashPartitioner(final TypeInformation typeInfo, final int[][] partitioningKeys) {
             // sanity check.
             if (typeInfo == null)
                 throw new IllegalArgumentException("typeInfo == null");
 
-            this.typeInfo = typeInfo;
+            this.keySelector = (partitioningKeys != null) ? new KeySelector(typeInfo, partitioningKeys) : null;
+
+            this.sketch = new HeavyHitterSketch(SKETCH_CAPACITY);
+        }
+
+        @Override
+        public int partition(final Object object, final int receiver) {
+            return (sampledKeyHash(object) & Integer.MAX_VALUE) % receiver;
+        }
+
+        public HeavyHitterSketch getSketch() {
+            return sketch;
+        }
+
+        /**
+         * @return the number of records each count of the sketch stands for.
+         */
+        public int getSampleRate() {
+            return SAMPLE_RATE;
+        }
+
+        /**
+         * @return the key hash of the record, which is counted by the sketch if the record is sampled.
+         */
+        protected final int sampledKeyHash(final Object object) {
+            final int result = (keySelector != null) ? keySelector.hash(object) : 31 * 17 + object.hashCode();
+            if (++sampleIndex == SAMPLE_RATE) {
+                sampleIndex = 0;
+                sketch.add(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Spreads every key that is more frequent than the share of one receiver round robin over as
+     * many consecutive receivers as its frequency covers. Records with the same key do not meet at
+     * one receiver anymore, so this strategy is only allowed on edges into a hash fold, after which
+     * the plan inserts a combine of the partial aggregates (see AuraTopologyBuilder).
+     */
+    public static class SaltedHashPartitioner extends HashPartitioner {
+
+        // the frequencies are not trusted before the sketch has counted this many samples.
+        private static final int MIN_SAMPLE_COUNT = 64;
+
+        // the hot keys are taken from the sketch again every REFRESH_INTERVAL samples.
+        private static final int REFRESH_INTERVAL = 64;
+
+        // the hot key hashes and the number of receivers each one is spread over.
 
-            this.partitioningKeys = partitioningKeys;
+        private int[] hotHashes;
+
+        private int[] hotFanOuts;
+
+        private int hotCount;
+
+        private int receiverCount;
+
+        private long nextRefresh;
+
+        private int spreadIndex;
+
+        public SaltedHashPartitioner(final TypeInformation typeInfo, final int[][] partitioningKeys) {
+            super(typeInfo, partitioningKeys);
+
+            this.hotHashes = new int[0];
+
+            this.hotFanOuts = new int[0];
+
+            this.receiverCount = -1;
         }
 
         @Override
         public int partition(final Object object, final int receiver) {
-            int result = 17;
-            if (partitioningKeys != null) {
-                for (final int[] selectorChain : partitioningKeys)
-                    result = 31 * result + typeInfo.selectField(selectorChain, object).hashCode();
-            } else {
-                result = 31 * result + object.hashCode();
+            final int result = sampledKeyHash(object);
+            final int channel = (result & Integer.MAX_VALUE) % receiver;
+
+            if (receiver != receiverCount || getSketch().getTotalCount() >= nextRefresh)
+                refreshHotKeys(receiver);
+
+            // only a few keys can be hotter than the share of one receiver.
+            for (int i = 0; i < hotCount; ++i) {
+                if (hotHashes[i] == result) {
+                    spreadIndex = (spreadIndex + 1) & Integer.MAX_VALUE;
+                    return (channel + spreadIndex % hotFanOuts[i]) % receiver;
+                }
             }
-            return (result & Integer.MAX_VALUE) % receiver;
+            return channel;
+        }
+
+        private void refreshHotKeys(final int receiver) {
+            final HeavyHitterSketch sketch = getSketch();
+            final long totalCount = sketch.getTotalCount();
+
+            hotCount = 0;
+            if (totalCount >= MIN_SAMPLE_COUNT) {
+                if (hotHashes.length < sketch.size()) {
+                    hotHashes = new int[sketch.size()];
+                    hotFanOuts = new int[sketch.size()];
+                }
+                for (int i = 0; i < sketch.size(); ++i) {
+                    final long count = sketch.getCount(i);
+                    if (count * receiver <= totalCount)
+                        continue;
+                    hotHashes[hotCount] = sketch.getHash(i);
+                    hotFanOuts[hotCount] = (int) Math.min(receiver, (count * receiver + totalCount - 1) / totalCount);
+                    ++hotCount;
+                }
+            }
+
+            receiverCount = receiver;
+            nextRefresh = totalCount + REFRESH_INTERVAL;
         }
     }
 
+    /**
+     * Assigns ascending key ranges to the receivers. The split points are computed from a sample of
+     * the keys of all producers (see KeySample), which must be set before the first record is
+     * partitioned. Keys that are frequent enough to fill more than one receiver are spread round
+     * robin over the receivers their range covers, so records with such a key do not all meet at
+     * the same receiver.
+     */
     public static class RangePartitioner extends AbstractPartitioner {
+
+        // null if the records are the keys.
+        private final KeySelector keySelector;
+
+        private final Object[] key;
+
+        private KeySample sample;
+
+        private int receiverCount;
+
+        // the distinct sampled keys in ascending order and the receivers of each key.
+
+        private Object[][] rangeKeys;
+
+        private int[] firstReceivers;
+
+        private int[] lastReceivers;
+
+        private int spreadIndex;
+
+        public RangePartitioner(final TypeInformation typeInfo, final int[][] partitioningKeys) {
+            // sanity check.
+            if (typeInfo == null)
+                throw new IllegalArgumentException("typeInfo == null");
+
+            this.keySelector = (partitioningKeys != null) ? new KeySelector(typeInfo, partitioningKeys) : null;
+
+            this.key = new Object[(keySelector != null) ? keySelector.keyCount() : 1];
+
+            this.receiverCount = -1;
+        }
+
+        /**
+         * @return a copy of the key fields of the record.
+         */
+        public Object[] extractKey(final Object object) {
+            final Object[] keyFields = new Object[key.length];
+            copyKey(object, keyFields);
+            return keyFields;
+        }
+
+        public void setSample(final KeySample sample) {
+            // sanity check.
+            if (sample == null)
+                throw new IllegalArgumentException("sample == null");
+
+            this.sample = sample;
+            this.receiverCount = -1;
+        }
+
+        public boolean hasSample() {
+            return sample != null;
+        }
+
+        @Override
+        public int partition(final Object object, final int receiver) {
+            if (receiver != receiverCount)
+                computeRanges(receiver);
+
+            if (rangeKeys.length == 0)
+                return 0;
+
+            copyKey(object, key);
+            final int index = Arrays.binarySearch(rangeKeys, key, KeySelector.KEYS_COMPARATOR);
+
+            if (index < 0) {
+                // between two sampled keys, the range of the lower key is extended.
+                final int insertionPoint = -(index + 1);
+                return (insertionPoint == 0) ? firstReceivers[0] : lastReceivers[insertionPoint - 1];
+            }
+
+            final int first = firstReceivers[index];
+            final int last = lastReceivers[index];
+            if (first == last)
+                return first;
+            spreadIndex = (spreadIndex + 1) & Integer.MAX_VALUE;
+            return first + spreadIndex % (last - first + 1);
+        }
+
+        private void copyKey(final Object object, final Object[] keyFields) {
+            if (keySelector != null)
+                keySelector.copyKeys(object, keyFields);
+            else
+                keyFields[0] = object;
+        }
+
+        /**
+         * Each receiver gets an equal share of the sample weight, a key covers the receivers its
+         * cumulative weight falls into.
+         */
+        private void computeRanges(final int receiver) {
+            // sanity check.
+            if (sample == null)
+                throw new IllegalStateException("range partitioner has no key sample");
+
+            final Integer[] order = new Integer[sample.size()];
+            for (int i = 0; i < order.length; ++i)
+                order[i] = i;
+            Arrays.sort(order, new Comparator<Integer>() {
+
+                @Override
+                public int compare(final Integer i1, final Integer i2) {
+                    return KeySelector.KEYS_COMPARATOR.compare(sample.getKey(i1), sample.getKey(i2));
+                }
+            });
+
+            double totalWeight = 0;
+            for (int i = 0; i < order.length; ++i)
+                totalWeight += sample.getWeight(i);
+
+            final Object[][] keys = new Object[order.length][];
+            final double[] weights = new double[order.length];
+            int distinctCount = 0;
+            for (final int i : order) {
+                if (distinctCount == 0 || KeySelector.KEYS_COMPARATOR.compare(keys[distinctCount - 1], sample.getKey(i)) != 0)
+                    keys[distinctCount++] = sample.getKey(i);
+                weights[distinctCount - 1] += sample.getWeight(i);
+            }
+
+            rangeKeys = Arrays.copyOf(keys, distinctCount);
+            firstReceivers = new int[distinctCount];
+            lastReceivers = new int[distinctCount];
+
+            double cumulativeWeight = 0;
+            for (int i = 0; i < distinctCount; ++i) {
+                final double start = cumulativeWeight * receiver / totalWeight;
+                cumulativeWeight += weights[i];
+                final double end = cumulativeWeight * receiver / totalWeight;
+
+                firstReceivers[i] = Math.min(receiver - 1, (int) start);
+                // only keys heavier than the share of one receiver are spread.
+                lastReceivers[i] = (weights[i] * receiver > totalWeight)
+                        ? Math.max(firstReceivers[i], Math.min(receiver - 1, (int) Math.ceil(end) - 1))
+                        : firstReceivers[i];
+            }
+
+            receiverCount = receiver;
+        }
+    }
+
+    /**
+     * Sends every record to all receivers. The records are not partitioned per channel but written
+     * into a single stream, whose buffers are shared by reference count across all outbound
+     * channels (see RecordWriter and IDataProducer#broadcast). Each record is serialized once, but
+     * each channel still encodes and sends the buffer on its own.
+     */
+    public static final class BroadcastPartitioner extends AbstractPartitioner {
+
+        @Override
+        public int partition(final Object object, final int receiver) {
+            // the index of the single stream.
+            return 0;
+        }
     }
 
     public static class RoundRobinPartitioner extends AbstractPartitioner {
@@ -2,10 +2,10 @@ package de.tuberlin.aura.core.record;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
-import com.esotericsoftware.kryo.io.UnsafeInput;
 import de.tuberlin.aura.core.iosystem.IOEvents;
 import de.tuberlin.aura.core.memory.BufferStream;
 import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.MemoryViewInput;
 import de.tuberlin.aura.core.taskmanager.spi.IRecordReader;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
 
@@ -32,6 +32,12 @@ public class RecordReader implements IRecordReader {
 
     private int channelCount;
 
+    // true if kryo's input reads the current buffer of the input stream.
+    private boolean isBound = false;
+
+    // reads heap and direct buffers in place.
+    private final MemoryViewInput bufferInput;
+
     // ---------------------------------------------------
     // Constructors.
     // ---------------------------------------------------
@@ -45,8 +51,6 @@ public class RecordReader implements IRecordReader {
 
         this.gateIndex = gateIndex;
 
-        final int bufferSize = runtime.getProducer().getAllocator().getBufferSize();
-
         this.kryo = new Kryo(null);
 
         final BufferStream.ContinuousByteInputStream inputStream = new BufferStream.ContinuousByteInputStream();
@@ -80,9 +84,7 @@ public class RecordReader implements IRecordReader {
 
         this.inputStream = inputStream;
 
-        this.kryoInput = new UnsafeInput(inputStream, bufferSize);
-
-        ((UnsafeInput)kryoInput).setVarIntsEnabled(false);
+        this.bufferInput = new MemoryViewInput();
     }
 
     public void begin() {
@@ -94,18 +96,22 @@ public class RecordReader implements IRecordReader {
     }
 
     public Object readObject() {
+        if (!isBound && !bindNextBuffer())
+            return null;
+
         Object object = kryo.readClassAndObject(kryoInput);
 
         if (object != null && object.getClass() == RowRecordModel.RECORD_CLASS_BLOCK_END.class) {
-
-            inputStream.nextBuf();
             // stream is exhausted
-            if (isFinished) {
+            if (!bindNextBuffer())
                 return null;
-            }
 
-            kryoInput.setLimit(0);
-            kryoInput.rewind();
+            return readObject();
+        }
+
+        if (object != null && object.getClass() == RowRecordModel.RECORD_CLASS_SCHEMA.class) {
+            // the following records of this channel are written with a generated serializer.
+            TupleSerializerBuilder.register(kryo, TupleSerializerBuilder.fromSchema((RowRecordModel.RECORD_CLASS_SCHEMA) object));
             return readObject();
         }
 
@@ -113,19 +119,14 @@ public class RecordReader implements IRecordReader {
             --channelCount;
 
             if (channelCount == 0) {
-                kryoInput.setLimit(0);
-                kryoInput.rewind();
+                isBound = false;
                 return null;
             }
 
-            inputStream.nextBuf();
             // stream is exhausted
-            if (isFinished) {
+            if (!bindNextBuffer())
                 return null;
-            }
 
-            kryoInput.setLimit(0);
-            kryoInput.rewind();
             return readObject();
         }
 
@@ -138,8 +139,7 @@ public class RecordReader implements IRecordReader {
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
-        kryoInput.setLimit(0);
-        kryoInput.rewind();
+        isBound = false;
     }
 
     public boolean finished() {
@@ -163,4 +163,25 @@ public class RecordReader implements IRecordReader {
     public int getChannelCount() {
         return channelCount;
     }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Releases the current buffer and lets kryo read the next one. Records never span two buffers,
+     * so kryo's input works directly on the buffer and never has to refill.
+     */
+    private boolean bindNextBuffer() {
+        if (inputStream.nextBuf() < 0 || isFinished) {
+            isBound = false;
+            return false;
+        }
+
+        final MemoryView buffer = inputStream.getBuffer();
+        kryoInput = bufferInput.bind(buffer, buffer.baseOffset, buffer.size);
+
+        isBound = true;
+        return true;
+    }
 }
@@ -6,6 +6,7 @@ import com.esotericsoftware.kryo.io.UnsafeOutput;
 import de.tuberlin.aura.core.descriptors.Descriptors;
 import de.tuberlin.aura.core.memory.BufferStream;
 import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.taskmanager.TaskManagerStatus;
 import de.tuberlin.aura.core.taskmanager.spi.IRecordWriter;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
 
@@ -32,6 +33,30 @@ public class RecordWriter implements IRecordWriter {
 
     private final int channelCount;
 
+    private final int bufferSize;
+
+    private final RowRecordModel.RECORD_CLASS_SCHEMA schema;
+
+    private final boolean[] schemaWritten;
+
+    private final int gateIndex;
+
+    // all receivers share the buffers of a single stream, so every record is serialized once.
+    private final boolean broadcast;
+
+    // written records and bytes per channel, only accessed by the task thread.
+
+    private final long[] channelRecords;
+
+    private final long[] channelBytes;
+
+    // copied by the task thread every SKEW_REPORT_INTERVAL records and at the end of a block, read by the task manager status.
+    private volatile TaskManagerStatus.OutputSkewReport skewReport;
+
+    private int recordsSinceSkewReport;
+
+    private static final int SKEW_REPORT_INTERVAL = 4096;
+
     // block end marker
     public static byte[] BLOCK_END;
 
@@ -66,24 +91,45 @@ public class RecordWriter implements IRecordWriter {
 
         this.partitioner = partitioner;
 
-        final int bufferSize = runtime.getProducer().getAllocator().getBufferSize();
+        this.bufferSize = runtime.getProducer().getAllocator().getBufferSize();
 
         this.kryo = new Kryo(null);
 
+        final boolean generatedSerializers = runtime.getTaskManager() == null
+                || runtime.getTaskManager().getConfig().getBoolean("tm.record.serializer.generated");
+
+        if (generatedSerializers && TupleSerializerBuilder.isSupported(typeInformation)) {
+            TupleSerializerBuilder.register(kryo, typeInformation);
+            this.schema = TupleSerializerBuilder.createSchema(typeInformation);
+        } else {
+            this.schema = null;
+        }
+
         this.kryoOutputs = new ArrayList<>();
 
         this.outputStreams = new ArrayList<>();
 
         this.outputBinding = runtime.getBindingDescriptor().outputGateBindings.get(gateIndex); // 1
 
-        this.channelCount = (partitioner != null) ? outputBinding.size() : 1;
+        this.broadcast = Partitioner.isBroadcast(partitioner);
+
+        this.channelCount = broadcast ? 1 : outputBinding.size();
+
+        this.schemaWritten = new boolean[channelCount];
+
+        this.gateIndex = gateIndex;
+
+        this.channelRecords = new long[channelCount];
+
+        this.channelBytes = new long[channelCount];
 
         for (int i = 0; i < channelCount; ++i) {
 
             final int index = i;
             final BufferStream.ContinuousByteOutputStream os = new BufferStream.ContinuousByteOutputStream();
             outputStreams.add(os);
-            final Output kryoOutput = new UnsafeOutput(os, bufferSize);
+            // records are batched in kryo's buffer, which must hold a full channel buffer plus the record that does not fit anymore.
+            final Output kryoOutput = new UnsafeOutput(os, 2 * bufferSize);
             ((UnsafeOutput)kryoOutput).supportVarInts(false);
 
             kryoOutputs.add(kryoOutput);
@@ -104,10 +150,10 @@ public class RecordWriter implements IRecordWriter {
 
                 @Override
                 public void put(MemoryView buffer) {
-                    if (partitioner != null) {
-                        runtime.getProducer().emit(gateIndex, index, buffer);
-                    } else {
+                    if (broadcast) {
                         runtime.getProducer().broadcast(gateIndex, buffer);
+                    } else {
+                        runtime.getProducer().emit(gateIndex, index, buffer);
                     }
                 }
             });
@@ -122,42 +168,42 @@ public class RecordWriter implements IRecordWriter {
     }
 
     public void writeObject(final Object object) {
-        // sanity check.
-        if (object == null)
-            throw new IllegalArgumentException("object == null");
-
-        if (object instanceof RowRecordModel.RECORD_CLASS_GROUP_END) {
-
-            // group markers are currently not transferred across node boundaries. instead groups are expected to be
-            // reduced to (partial) aggregates within tasks. reasoning: the group markers are not handled correctly by
-            // the (round-robin) absorber when multiple channels have to be absorbed (e.g. after shuffling or when
-            // connected tasks have different DOPs) or when regrouping is necessary after shuffling. at the same time,
-            // when nothing is shuffled but tasks with same DOP are connected point-to-point, we don't see any benefit
-            // in just doing the grouping in a different task.
-
-            throw new IllegalStateException("Groups have to be folded within tasks");
-        }
-
-        Integer channelIndex = (partitioner != null) ? partitioner.partition(object, outputBinding.size()) : 0;
+        write(object, outputBinding.size());
+    }
 
-        kryo.writeClassAndObject(kryoOutputs.get(channelIndex), object);
-        // flush Kryo's internal buffer to the actual channel buffer to ensure object is written to one buffer only
-        kryoOutputs.get(channelIndex).flush();
+    /**
+     * Writes a batch of records, e.g. the elements of an {@link OperatorBatch}.
+     */
+    public void writeObjects(final Object[] objects, final int offset, final int length) {
+        // sanity check.
+        if (objects == null)
+            throw new IllegalArgumentException("objects == null");
+        if (offset < 0 || length < 0 || offset + length > objects.length)
+            throw new IllegalArgumentException("offset or length out of bounds");
+
+        final int partitionCount = outputBinding.size();
+        for (int i = offset; i < offset + length; ++i)
+            write(objects[i], partitionCount);
     }
 
     public void end() {
         try {
-            for (int i = 0; i < channelCount; ++i)
+            for (int i = 0; i < channelCount; ++i) {
                 kryoOutputs.get(i).close();
+                schemaWritten[i] = false;
+            }
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
+        publishSkewReport();
     }
 
     public void setPartitioner(final Partitioner.IPartitioner partitioner) {
         // sanity check.
         if (partitioner == null)
             throw new IllegalArgumentException("partitioner == null");
+        if (Partitioner.isBroadcast(partitioner) != broadcast)
+            throw new IllegalArgumentException("partitioner does not match the channels of the writer");
 
         this.partitioner = partitioner;
     }
@@ -165,10 +211,106 @@ public class RecordWriter implements IRecordWriter {
     @Override
     public void flush() {
         try {
-            for (BufferStream.ContinuousByteOutputStream stream : outputStreams)
-                stream.close();
+            for (int i = 0; i < channelCount; ++i) {
+                kryoOutputs.get(i).flush();
+                outputStreams.get(i).close();
+            }
         } catch(IOException e) {
             throw new IllegalStateException(e);
         }
     }
+
+    /**
+     * Returns the last snapshot published by the task thread, so it may be called from any thread.
+     */
+    @Override
+    public TaskManagerStatus.OutputSkewReport getSkewReport() {
+        return skewReport;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private void publishSkewReport() {
+        recordsSinceSkewReport = 0;
+        if (broadcast)
+            return;
+
+        int[] hotKeyHashes = new int[0];
+        long[] hotKeyCounts = new long[0];
+
+        if (partitioner instanceof Partitioner.HashPartitioner) {
+            final Partitioner.HashPartitioner hashPartitioner = (Partitioner.HashPartitioner) partitioner;
+            final HeavyHitterSketch sketch = hashPartitioner.getSketch();
+            hotKeyHashes = new int[sketch.size()];
+            hotKeyCounts = new long[sketch.size()];
+            for (int i = 0; i < hotKeyHashes.length; ++i) {
+                hotKeyHashes[i] = sketch.getHash(i);
+                hotKeyCounts[i] = sketch.getCount(i) * hashPartitioner.getSampleRate();
+            }
+        }
+
+        skewReport = new TaskManagerStatus.OutputSkewReport(gateIndex, channelRecords.clone(), channelBytes.clone(), hotKeyHashes, hotKeyCounts);
+    }
+
+    private void write(final Object object, final int partitionCount) {
+        // sanity check.
+        if (object == null)
+            throw new IllegalArgumentException("object == null");
+
+        if (object instanceof RowRecordModel.RECORD_CLASS_GROUP_END) {
+
+            // group markers are currently not transferred across node boundaries. instead groups are expected to be
+            // reduced to (partial) aggregates within tasks. reasoning: the group markers are not handled correctly by
+            // the (round-robin) absorber when multiple channels have to be absorbed (e.g. after shuffling or when
+            // connected tasks have different DOPs) or when regrouping is necessary after shuffling. at the same time,
+            // when nothing is shuffled but tasks with same DOP are connected point-to-point, we don't see any benefit
+            // in just doing the grouping in a different task.
+
+            throw new IllegalStateException("Groups have to be folded within tasks");
+        }
+
+        final int channelIndex = broadcast ? 0 : partitioner.partition(object, partitionCount);
+
+        // announce the type before the first record of a channel, so that the reader can register the same serializer.
+        if (schema != null && !schemaWritten[channelIndex]) {
+            writeRecord(channelIndex, schema);
+            schemaWritten[channelIndex] = true;
+        }
+
+        ++channelRecords[channelIndex];
+        channelBytes[channelIndex] += writeRecord(channelIndex, object);
+
+        if (++recordsSinceSkewReport == SKEW_REPORT_INTERVAL)
+            publishSkewReport();
+    }
+
+    /**
+     * Serializes the record behind the records already batched in kryo's buffer. The batch is only
+     * handed to the channel stream when the record does not fit into the current channel buffer
+     * anymore, so that no record spans two buffers.
+     *
+     * @return the serialized size of the record.
+     */
+    private int writeRecord(final int channelIndex, final Object object) {
+        final Output kryoOutput = kryoOutputs.get(channelIndex);
+        final BufferStream.ContinuousByteOutputStream os = outputStreams.get(channelIndex);
+        final int recordStart = kryoOutput.position();
+
+        kryo.writeClassAndObject(kryoOutput, object);
+
+        final int recordSize = kryoOutput.position() - recordStart;
+
+        final int streamRemaining = os.remaining();
+        final int remaining = (streamRemaining < 0) ? bufferSize - BLOCK_END.length : streamRemaining;
+        if (kryoOutput.position() > remaining) {
+            // the batch still fits, the record is moved to the next buffer by the stream.
+            os.write(kryoOutput.getBuffer(), 0, recordStart);
+            os.write(kryoOutput.getBuffer(), recordStart, recordSize);
+            kryoOutput.setPosition(0);
+        }
+
+        return recordSize;
+    }
 }
@@ -295,6 +295,16 @@ public final class RowRecordModel {
         public final int marker = -3;
     }
 
+    /**
+     * Announces the (pre-order flattened) type of the following records of a channel.
+     */
+    public static final class RECORD_CLASS_SCHEMA {
+
+        public String[] types;
+
+        public int[] arities;
+    }
+
     public static final Class<?> RECORD_TYPE_STREAM_END = RECORD_CLASS_STREAM_END.class;
 
     public static final Class<?> RECORD_TYPE_BLOCK_END = RECORD_CLASS_BLOCK_END.class;
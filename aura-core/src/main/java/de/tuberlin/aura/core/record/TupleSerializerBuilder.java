@@ -0,0 +1,426 @@
+package de.tuberlin.aura.core.record;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import de.tuberlin.aura.core.record.tuples.*;
+
+/**
+ * Generates Kryo serializers for (nested) tuples of boxed primitives and strings. The generated code
+ * writes a null mask followed by the unboxed field values in declaration order, without class ids
+ * for the fields and without reflection.
+ *
+ * Readers do not know the type of their input, therefore writers announce it with a
+ * {@link RowRecordModel.RECORD_CLASS_SCHEMA} record before the first element of each stream.
+ */
+public final class TupleSerializerBuilder {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    public static final int TUPLE_REGISTRATION_ID = 100;
+
+    private static final Class<?>[] TUPLE_TYPES = {
+            Tuple1.class, Tuple2.class, Tuple3.class, Tuple4.class, Tuple5.class, Tuple6.class, Tuple7.class
+    };
+
+    private static final String OBJECT_DESC = Type.getDescriptor(Object.class);
+
+    private static final String OUTPUT_NAME = Type.getInternalName(Output.class);
+
+    private static final String INPUT_NAME = Type.getInternalName(Input.class);
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private static final Map<String, Class<?>> serializerRegistry = new HashMap<>();
+
+    private static int serializerCounter = 0;
+
+    // Disallow instantiation.
+    private TupleSerializerBuilder() {}
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    public static boolean isSupported(final TypeInformation typeInfo) {
+        return typeInfo != null && tupleArity(typeInfo.type) > 0 && isSupportedTuple(typeInfo);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static synchronized Serializer<Object> createSerializer(final TypeInformation typeInfo) {
+        // sanity check.
+        if (!isSupported(typeInfo))
+            throw new IllegalArgumentException("type not supported: " + signature(typeInfo));
+
+        final String signature = signature(typeInfo);
+        Class<?> serializerType = serializerRegistry.get(signature);
+        if (serializerType == null) {
+            serializerType = buildSerializerType(typeInfo);
+            serializerRegistry.put(signature, serializerType);
+        }
+
+        try {
+            return (Serializer<Object>) serializerType.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Registers the generated serializer for the given type under {@link #TUPLE_REGISTRATION_ID}.
+     */
+    public static void register(final Kryo kryo, final TypeInformation typeInfo) {
+        kryo.register(typeInfo.type, createSerializer(typeInfo), TUPLE_REGISTRATION_ID);
+    }
+
+    public static RowRecordModel.RECORD_CLASS_SCHEMA createSchema(final TypeInformation typeInfo) {
+        final List<String> types = new ArrayList<>();
+        final List<Integer> arities = new ArrayList<>();
+        flatten(typeInfo, types, arities);
+
+        final RowRecordModel.RECORD_CLASS_SCHEMA schema = new RowRecordModel.RECORD_CLASS_SCHEMA();
+        schema.types = types.toArray(new String[types.size()]);
+        schema.arities = new int[arities.size()];
+        for (int i = 0; i < schema.arities.length; ++i)
+            schema.arities[i] = arities.get(i);
+        return schema;
+    }
+
+    public static TypeInformation fromSchema(final RowRecordModel.RECORD_CLASS_SCHEMA schema) {
+        // sanity check.
+        if (schema == null)
+            throw new IllegalArgumentException("schema == null");
+
+        return unflatten(schema, new int[] {0});
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static int tupleArity(final Class<?> type) {
+        for (int i = 0; i < TUPLE_TYPES.length; ++i) {
+            if (TUPLE_TYPES[i] == type)
+                return i + 1;
+        }
+        return 0;
+    }
+
+    private static boolean isSupportedTuple(final TypeInformation typeInfo) {
+        final int arity = tupleArity(typeInfo.type);
+        if (typeInfo.fieldTypes == null || typeInfo.fieldTypes.size() != arity)
+            return false;
+        for (final TypeInformation fieldType : typeInfo.fieldTypes) {
+            if (fieldType == null)
+                return false;
+            if (tupleArity(fieldType.type) > 0) {
+                if (!isSupportedTuple(fieldType))
+                    return false;
+            } else if (FieldCodec.forType(fieldType.type) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String signature(final TypeInformation typeInfo) {
+        if (typeInfo == null)
+            return "null";
+        final StringBuilder sb = new StringBuilder(typeInfo.type.getName());
+        if (typeInfo.fieldTypes != null) {
+            sb.append('<');
+            for (int i = 0; i < typeInfo.fieldTypes.size(); ++i) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(signature(typeInfo.fieldTypes.get(i)));
+            }
+            sb.append('>');
+        }
+        return sb.toString();
+    }
+
+    // leaf type informations built with TypeInformation(Class) carry a single null field type.
+    private static void flatten(final TypeInformation typeInfo, final List<String> types, final List<Integer> arities) {
+        final int arity = tupleArity(typeInfo.type);
+        types.add(typeInfo.type.getName());
+        arities.add(arity);
+        for (int i = 0; i < arity; ++i)
+            flatten(typeInfo.fieldTypes.get(i), types, arities);
+    }
+
+    private static TypeInformation unflatten(final RowRecordModel.RECORD_CLASS_SCHEMA schema, final int[] pos) {
+        final int index = pos[0]++;
+        final Class<?> type;
+        try {
+            type = Class.forName(schema.types[index], false, TupleSerializerBuilder.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        if (schema.arities[index] == 0)
+            return new TypeInformation(type);
+
+        final List<TypeInformation> fieldTypes = new ArrayList<>();
+        for (int i = 0; i < schema.arities[index]; ++i)
+            fieldTypes.add(unflatten(schema, pos));
+        return new TypeInformation(type, fieldTypes);
+    }
+
+    // ---------------------------------------------------
+    // Code Generation.
+    // ---------------------------------------------------
+
+    private static Class<?> buildSerializerType(final TypeInformation typeInfo) {
+
+        final String className = "de/tuberlin/aura/core/record/generated/TupleSerializer" + serializerCounter++;
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, className, null, Type.getInternalName(Serializer.class), null);
+
+        // default constructor.
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(Serializer.class), "<init>", "()V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // one static write and read method per (nested) tuple.
+        final List<TypeInformation> tuples = new ArrayList<>();
+        collectTuples(typeInfo, tuples);
+        for (int i = 0; i < tuples.size(); ++i) {
+            emitWriteTuple(cw, className, tuples, i);
+            emitReadTuple(cw, className, tuples, i);
+        }
+
+        // write(Kryo, Output, Object) delegates to the root tuple.
+        mv = cw.visitMethod(ACC_PUBLIC, "write", "(" + Type.getDescriptor(Kryo.class) + "L" + OUTPUT_NAME + ";" + OBJECT_DESC + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitMethodInsn(INVOKESTATIC, className, "write0", "(L" + OUTPUT_NAME + ";" + OBJECT_DESC + ")V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // read(Kryo, Input, Class) delegates to the root tuple.
+        mv = cw.visitMethod(ACC_PUBLIC, "read", "(" + Type.getDescriptor(Kryo.class) + "L" + INPUT_NAME + ";" + Type.getDescriptor(Class.class) + ")" + OBJECT_DESC, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitMethodInsn(INVOKESTATIC, className, "read0", "(L" + INPUT_NAME + ";)" + OBJECT_DESC);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        final byte[] byteCode = cw.toByteArray();
+
+        return new ClassLoader(TupleSerializerBuilder.class.getClassLoader()) {
+            public Class<?> defineClass() {
+                return defineClass(className.replace('/', '.'), byteCode, 0, byteCode.length);
+            }
+        }.defineClass();
+    }
+
+    private static void collectTuples(final TypeInformation typeInfo, final List<TypeInformation> tuples) {
+        tuples.add(typeInfo);
+        for (final TypeInformation fieldType : typeInfo.fieldTypes) {
+            if (tupleArity(fieldType.type) > 0)
+                collectTuples(fieldType, tuples);
+        }
+    }
+
+    private static void emitWriteTuple(final ClassWriter cw, final String className, final List<TypeInformation> tuples, final int tupleIndex) {
+        final TypeInformation typeInfo = tuples.get(tupleIndex);
+        final String tupleName = Type.getInternalName(typeInfo.type);
+        final MethodVisitor mv = cw.visitMethod(ACC_PRIVATE + ACC_STATIC, "write" + tupleIndex, "(L" + OUTPUT_NAME + ";" + OBJECT_DESC + ")V", null, null);
+        mv.visitCode();
+
+        // local 2: tuple, local 3: null mask.
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, tupleName);
+        mv.visitVarInsn(ASTORE, 2);
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, 3);
+
+        for (int i = 0; i < typeInfo.fieldTypes.size(); ++i) {
+            final Label notNull = new Label();
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitFieldInsn(GETFIELD, tupleName, "_" + (i + 1), OBJECT_DESC);
+            mv.visitJumpInsn(IFNONNULL, notNull);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitLdcInsn(1 << i);
+            mv.visitInsn(IOR);
+            mv.visitVarInsn(ISTORE, 3);
+            mv.visitLabel(notNull);
+        }
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ILOAD, 3);
+        mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT_NAME, "writeByte", "(I)V");
+
+        int nestedIndex = tupleIndex;
+        for (int i = 0; i < typeInfo.fieldTypes.size(); ++i) {
+            final TypeInformation fieldType = typeInfo.fieldTypes.get(i);
+            final Label isNull = new Label();
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitLdcInsn(1 << i);
+            mv.visitInsn(IAND);
+            mv.visitJumpInsn(IFNE, isNull);
+
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitFieldInsn(GETFIELD, tupleName, "_" + (i + 1), OBJECT_DESC);
+            if (tupleArity(fieldType.type) > 0) {
+                nestedIndex = nextTupleIndex(tuples, nestedIndex, fieldType);
+                mv.visitMethodInsn(INVOKESTATIC, className, "write" + nestedIndex, "(L" + OUTPUT_NAME + ";" + OBJECT_DESC + ")V");
+            } else {
+                final FieldCodec codec = FieldCodec.forType(fieldType.type);
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(codec.boxedType));
+                if (codec.unboxMethod != null)
+                    mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(codec.boxedType), codec.unboxMethod, "()" + codec.primitiveDesc);
+                mv.visitMethodInsn(INVOKEVIRTUAL, OUTPUT_NAME, codec.writeMethod, "(" + codec.writeDesc + ")V");
+            }
+            mv.visitLabel(isNull);
+        }
+
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void emitReadTuple(final ClassWriter cw, final String className, final List<TypeInformation> tuples, final int tupleIndex) {
+        final TypeInformation typeInfo = tuples.get(tupleIndex);
+        final String tupleName = Type.getInternalName(typeInfo.type);
+        final MethodVisitor mv = cw.visitMethod(ACC_PRIVATE + ACC_STATIC, "read" + tupleIndex, "(L" + INPUT_NAME + ";)" + OBJECT_DESC, null, null);
+        mv.visitCode();
+
+        // local 1: tuple, local 2: null mask.
+        mv.visitTypeInsn(NEW, tupleName);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, tupleName, "<init>", "()V");
+        mv.visitVarInsn(ASTORE, 1);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, INPUT_NAME, "readByte", "()B");
+        mv.visitVarInsn(ISTORE, 2);
+
+        int nestedIndex = tupleIndex;
+        for (int i = 0; i < typeInfo.fieldTypes.size(); ++i) {
+            final TypeInformation fieldType = typeInfo.fieldTypes.get(i);
+            final Label isNull = new Label();
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitLdcInsn(1 << i);
+            mv.visitInsn(IAND);
+            mv.visitJumpInsn(IFNE, isNull);
+
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ALOAD, 0);
+            if (tupleArity(fieldType.type) > 0) {
+                nestedIndex = nextTupleIndex(tuples, nestedIndex, fieldType);
+                mv.visitMethodInsn(INVOKESTATIC, className, "read" + nestedIndex, "(L" + INPUT_NAME + ";)" + OBJECT_DESC);
+            } else {
+                final FieldCodec codec = FieldCodec.forType(fieldType.type);
+                mv.visitMethodInsn(INVOKEVIRTUAL, INPUT_NAME, codec.readMethod, "()" + codec.readDesc);
+                if (codec.unboxMethod != null)
+                    mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(codec.boxedType), "valueOf", "(" + codec.primitiveDesc + ")" + Type.getDescriptor(codec.boxedType));
+            }
+            mv.visitFieldInsn(PUTFIELD, tupleName, "_" + (i + 1), OBJECT_DESC);
+            mv.visitLabel(isNull);
+        }
+
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    // the nested tuples are collected in pre-order, so a field's tuple follows all tuples of its left siblings.
+    private static int nextTupleIndex(final List<TypeInformation> tuples, final int lastIndex, final TypeInformation fieldType) {
+        for (int i = lastIndex + 1; i < tuples.size(); ++i) {
+            if (tuples.get(i) == fieldType)
+                return i;
+        }
+        throw new IllegalStateException("nested tuple not collected");
+    }
+
+    /**
+     * Describes how a boxed field type maps to the primitive methods of Kryo's Output and Input.
+     */
+    private static enum FieldCodec {
+
+        INT(Integer.class, "intValue", "I", "writeInt", "I", "readInt", "I"),
+
+        LONG(Long.class, "longValue", "J", "writeLong", "J", "readLong", "J"),
+
+        DOUBLE(Double.class, "doubleValue", "D", "writeDouble", "D", "readDouble", "D"),
+
+        FLOAT(Float.class, "floatValue", "F", "writeFloat", "F", "readFloat", "F"),
+
+        SHORT(Short.class, "shortValue", "S", "writeShort", "I", "readShort", "S"),
+
+        BYTE(Byte.class, "byteValue", "B", "writeByte", "B", "readByte", "B"),
+
+        BOOLEAN(Boolean.class, "booleanValue", "Z", "writeBoolean", "Z", "readBoolean", "Z"),
+
+        CHAR(Character.class, "charValue", "C", "writeChar", "C", "readChar", "C"),
+
+        STRING(String.class, null, null, "writeString", "Ljava/lang/String;", "readString", "Ljava/lang/String;");
+
+        final Class<?> boxedType;
+
+        final String unboxMethod;
+
+        final String primitiveDesc;
+
+        final String writeMethod;
+
+        final String writeDesc;
+
+        final String readMethod;
+
+        final String readDesc;
+
+        FieldCodec(final Class<?> boxedType,
+                   final String unboxMethod,
+                   final String primitiveDesc,
+                   final String writeMethod,
+                   final String writeDesc,
+                   final String readMethod,
+                   final String readDesc) {
+
+            this.boxedType = boxedType;
+            this.unboxMethod = unboxMethod;
+            this.primitiveDesc = primitiveDesc;
+            this.writeMethod = writeMethod;
+            this.writeDesc = writeDesc;
+            this.readMethod = readMethod;
+            this.readDesc = readDesc;
+        }
+
+        static FieldCodec forType(final Class<?> type) {
+            for (final FieldCodec codec : values()) {
+                if (codec.boxedType == type)
+                    return codec;
+            }
+            return null;
+        }
+    }
+}
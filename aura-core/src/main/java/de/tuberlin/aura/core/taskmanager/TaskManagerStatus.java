@@ -27,15 +27,74 @@ public final class TaskManagerStatus implements Serializable{
 
         public final String taskName;
 
-        public ExecutionUnitStatus(final UUID taskID, final String taskName) {
+        public final List<OutputSkewReport> outputSkewReports;
+
+        public ExecutionUnitStatus(final UUID taskID, final String taskName, final List<OutputSkewReport> outputSkewReports) {
 
             this.taskID = taskID;
 
             this.taskName = taskName;
+
+            this.outputSkewReports = (outputSkewReports != null) ? Collections.unmodifiableList(outputSkewReports) : Collections.<OutputSkewReport>emptyList();
+        }
+
+        public ExecutionUnitStatus(final UUID taskID, final String taskName) {
+            this(taskID, taskName, null);
         }
 
         public ExecutionUnitStatus() {
             this(null, null);
         }
     }
+
+    /**
+     * Distribution of the records of a partitioned output gate over its channels.
+     */
+    public static final class OutputSkewReport implements Serializable {
+
+        public final int gateIndex;
+
+        public final long[] channelRecords;
+
+        public final long[] channelBytes;
+
+        // the most frequent key hashes and their estimated counts, empty if the output is not hash partitioned.
+        public final int[] hotKeyHashes;
+
+        public final long[] hotKeyCounts;
+
+        public OutputSkewReport(final int gateIndex,
+                                final long[] channelRecords,
+                                final long[] channelBytes,
+                                final int[] hotKeyHashes,
+                                final long[] hotKeyCounts) {
+
+            this.gateIndex = gateIndex;
+
+            this.channelRecords = channelRecords;
+
+            this.channelBytes = channelBytes;
+
+            this.hotKeyHashes = hotKeyHashes;
+
+            this.hotKeyCounts = hotKeyCounts;
+        }
+
+        public OutputSkewReport() {
+            this(-1, new long[0], new long[0], new int[0], new long[0]);
+        }
+
+        /**
+         * @return the record count of the fullest channel divided by the mean record count.
+         */
+        public double getSkew() {
+            long max = 0;
+            long sum = 0;
+            for (final long records : channelRecords) {
+                max = Math.max(max, records);
+                sum += records;
+            }
+            return (sum > 0) ? (double) max * channelRecords.length / sum : 1.0;
+        }
+    }
 }
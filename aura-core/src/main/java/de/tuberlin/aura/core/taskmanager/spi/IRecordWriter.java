@@ -2,6 +2,7 @@ package de.tuberlin.aura.core.taskmanager.spi;
 
 import de.tuberlin.aura.core.record.Partitioner;
 import de.tuberlin.aura.core.record.RowRecordModel;
+import de.tuberlin.aura.core.taskmanager.TaskManagerStatus;
 
 
 public interface IRecordWriter {
@@ -14,9 +15,17 @@ public interface IRecordWriter {
 
     public abstract void writeObject(final Object object);
 
+    public abstract void writeObjects(final Object[] objects, final int offset, final int length);
+
     public abstract void end();
 
     public abstract void setPartitioner(final Partitioner.IPartitioner partitioner);
 
     public abstract void flush();
+
+    /**
+     * @return the distribution of the written records over the channels, or null if the output is not partitioned
+     *         or nothing was written yet. May be called from any thread.
+     */
+    public abstract TaskManagerStatus.OutputSkewReport getSkewReport();
 }
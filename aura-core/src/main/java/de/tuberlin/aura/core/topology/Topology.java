@@ -12,6 +12,7 @@ import de.tuberlin.aura.core.descriptors.Descriptors;
 import de.tuberlin.aura.core.descriptors.Descriptors.AbstractNodeDescriptor;
 import de.tuberlin.aura.core.descriptors.Descriptors.NodeBindingDescriptor;
 import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.record.Partitioner;
 import de.tuberlin.aura.core.record.tuples.AbstractTuple;
 import de.tuberlin.aura.core.taskmanager.common.TaskStates.TaskState;
 import de.tuberlin.aura.core.taskmanager.usercode.UserCode;
@@ -234,6 +235,8 @@ public class Topology {
 
             if (!isBuilt) {
 
+                insertCombines();
+
                 final Map<Pair<String, String>, List<Object>> edgeProperties = nodeConnector.getEdgeProperties();
 
                 for (final Pair<String, String> entry : nodeConnector.getEdges()) {
@@ -308,6 +311,113 @@ public class Topology {
                                     isReExecutable);
         }
 
+        /**
+         * Splits every node fed by a salted hash partitioned edge into a hash fold, that emits the
+         * partial aggregates of its share of the hot keys, and a combine of these aggregates behind
+         * a hash partitioned edge. The node must start with a hash fold whose aggregates carry the
+         * group keys in the same fields as its input records. The combine keeps the name, the uid and
+         * the rest of the chain of the node, so the downstream edges are unchanged.
+         */
+        private void insertCombines() {
+            final Set<String> saltedNodeNames = new LinkedHashSet<>();
+            for (final Pair<String, String> edge : nodeConnector.edges) {
+                final List<DataflowNodeProperties> srcProperties = nodeMap.get(edge.getFirst()).propertiesList;
+                final DataflowNodeProperties last = srcProperties.get(srcProperties.size() - 1);
+                if (last != null && last.strategy == Partitioner.PartitioningStrategy.SALTED_HASH_PARTITIONER)
+                    saltedNodeNames.add(edge.getSecond());
+            }
+
+            for (final String name : saltedNodeNames) {
+                final LogicalNode node = nodeMap.get(name);
+                final DataflowNodeProperties fold = node.propertiesList.get(0);
+                if (fold == null || fold.type != DataflowNodeProperties.DataflowNodeType.HASH_FOLD_OPERATOR || fold.groupByKeyIndices == null)
+                    throw new IllegalStateException(name + " is fed by a salted edge but does not start with a grouped hash fold");
+
+                final String partialName = name + "-partial";
+                if (nodeMap.containsKey(partialName))
+                    throw new IllegalStateException("node " + partialName + " already exists");
+
+                final DataflowNodeProperties partialFold = new DataflowNodeProperties(
+                        UUID.randomUUID(),
+                        DataflowNodeProperties.DataflowNodeType.HASH_FOLD_OPERATOR,
+                        partialName,
+                        fold.globalDOP,
+                        fold.localDOP,
+                        fold.groupByKeyIndices,
+                        Partitioner.PartitioningStrategy.HASH_PARTITIONER,
+                        fold.input1Type,
+                        null,
+                        fold.outputType,
+                        fold.functionTypeName,
+                        null,
+                        null,
+                        null,
+                        null,
+                        fold.groupByKeyIndices,
+                        null,
+                        fold.broadcastVars,
+                        fold.config
+                );
+
+                final DataflowNodeProperties combine = new DataflowNodeProperties(
+                        fold.operatorUID,
+                        DataflowNodeProperties.DataflowNodeType.HASH_COMBINE_OPERATOR,
+                        fold.instanceName,
+                        fold.globalDOP,
+                        fold.localDOP,
+                        fold.partitionKeyIndices,
+                        fold.strategy,
+                        fold.outputType,
+                        null,
+                        fold.outputType,
+                        fold.functionTypeName,
+                        null,
+                        null,
+                        null,
+                        null,
+                        fold.groupByKeyIndices,
+                        null,
+                        fold.broadcastVars,
+                        fold.config
+                );
+
+                final List<DataflowNodeProperties> combineChain = new ArrayList<>();
+                combineChain.add(combine);
+                combineChain.addAll(node.propertiesList.subList(1, node.propertiesList.size()));
+
+                final LogicalNode partialNode = new OperatorNode(partialFold);
+                final LogicalNode combineNode = new OperatorNode(combineChain);
+
+                nodeMap.put(partialName, partialNode);
+                sourceMap.put(partialName, partialNode);
+                sinkMap.put(partialName, partialNode);
+                uidNodeMap.put(partialNode.uid, partialNode);
+
+                nodeMap.put(name, combineNode);
+                if (sourceMap.containsKey(name))
+                    sourceMap.put(name, combineNode);
+                if (sinkMap.containsKey(name))
+                    sinkMap.put(name, combineNode);
+                uidNodeMap.remove(node.uid);
+                uidNodeMap.put(combineNode.uid, combineNode);
+
+                // the inputs of the node now feed the partial fold.
+                for (int i = 0; i < nodeConnector.edges.size(); ++i) {
+                    final Pair<String, String> edge = nodeConnector.edges.get(i);
+                    if (!edge.getSecond().equals(name))
+                        continue;
+                    final Pair<String, String> partialEdge = new Pair<>(edge.getFirst(), partialName);
+                    nodeConnector.edges.set(i, partialEdge);
+                    nodeConnector.edgeProperties.put(partialEdge, nodeConnector.edgeProperties.remove(edge));
+                }
+
+                final Object[] properties = {Edge.TransferType.ALL_TO_ALL, Edge.EdgeType.FORWARD_EDGE, LogicalNode.DataPersistenceType.EPHEMERAL, LogicalNode.ExecutionType.PIPELINED};
+                final Pair<String, String> combineEdge = new Pair<>(partialName, name);
+                nodeConnector.edges.add(combineEdge);
+                nodeConnector.edgeProperties.put(combineEdge, Arrays.asList(properties));
+            }
+        }
+
         private boolean validateBackCouplingEdge(final Set<LogicalNode> visitedNodes, final LogicalNode currentNode, final LogicalNode destNode) {
             // implement detection of back coupling (cycle forming) edge!
             for (final LogicalNode n : currentNode.inputs) {
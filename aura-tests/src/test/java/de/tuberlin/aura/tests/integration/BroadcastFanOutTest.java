@@ -0,0 +1,218 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.tuberlin.aura.client.api.AuraClient;
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.taskmanager.spi.AbstractInvokeable;
+import de.tuberlin.aura.core.topology.Topology;
+import de.tuberlin.aura.tests.util.TestHelper;
+
+/**
+ * Broadcasts buffers to sinks on both task managers. The sinks on the other task manager than the
+ * source receive each buffer in one transfer, the sinks on the task manager of the source each on
+ * their own channel.
+ */
+public final class BroadcastFanOutTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int BUFFER_COUNT = 200;
+
+    private static final int SINK_COUNT = 4;
+
+    private static final long TIMEOUT = 60000;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private static AuraClient auraClient;
+
+    // the tasks run in the task managers of this process.
+
+    private static final Map<UUID, UUID> taskMachines = new ConcurrentHashMap<>();
+
+    private static final Map<UUID, List<UUID>> receivedMessages = new ConcurrentHashMap<>();
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @BeforeClass
+    public static void setup() {
+
+        if (!NetworkChannelTestSuite.isRunning)
+            NetworkChannelTestSuite.setUpTestEnvironment();
+
+        auraClient = new AuraClient(IConfigFactory.load(IConfig.Type.CLIENT));
+    }
+
+    @Test
+    public void testBroadcastOncePerTaskManager() throws InterruptedException {
+        final Topology.AuraTopology topology = two_layer_broadcast(auraClient);
+        final Thread runner = new Thread() {
+
+            @Override
+            public void run() {
+                TestHelper.runTopology(auraClient, topology);
+            }
+        };
+        runner.setDaemon(true);
+        runner.start();
+        runner.join(TIMEOUT);
+
+        // a sink that received a wrong buffer fails, so the topology does not finish.
+        assertFalse("topology '" + topology.name + "' did not finish", runner.isAlive());
+        assertEquals(SINK_COUNT, receivedMessages.size());
+
+        final UUID sourceMachine = taskMachines.get(Source.taskID);
+        final Map<UUID, List<UUID>> sinksByMachine = new HashMap<>();
+        for (final UUID sinkTaskID : receivedMessages.keySet()) {
+            final UUID machine = taskMachines.get(sinkTaskID);
+            if (!sinksByMachine.containsKey(machine))
+                sinksByMachine.put(machine, new ArrayList<UUID>());
+            sinksByMachine.get(machine).add(sinkTaskID);
+        }
+        assertEquals(NetworkChannelTestSuite.TASK_MANAGERS, sinksByMachine.size());
+
+        final Set<UUID> transfers = new HashSet<>();
+        int expectedTransfers = 0;
+        for (final Map.Entry<UUID, List<UUID>> entry : sinksByMachine.entrySet()) {
+            final List<UUID> sinks = entry.getValue();
+            if (entry.getKey().equals(sourceMachine)) {
+                expectedTransfers += sinks.size() * BUFFER_COUNT;
+            } else {
+                // the co-located sinks share the transfers of their buffers.
+                assertTrue(sinks.size() > 1);
+                for (final UUID sinkTaskID : sinks)
+                    assertEquals(receivedMessages.get(sinks.get(0)), receivedMessages.get(sinkTaskID));
+                expectedTransfers += BUFFER_COUNT;
+            }
+            for (final UUID sinkTaskID : sinks)
+                transfers.addAll(receivedMessages.get(sinkTaskID));
+        }
+        assertEquals(expectedTransfers, transfers.size());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+
+        if (!NetworkChannelTestSuite.isRunning) {
+            NetworkChannelTestSuite.tearDownTestEnvironment();
+        }
+
+        auraClient.closeSession();
+    }
+
+    // --------------------------------------------------
+    // Topologies.
+    // --------------------------------------------------
+
+    public static Topology.AuraTopology two_layer_broadcast(final AuraClient auraClient) {
+        Topology.AuraTopologyBuilder atb = auraClient.createTopologyBuilder();
+        atb.addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Source", 1, 1, Source.class.getName()))
+                .connectTo("Sink", Topology.Edge.TransferType.ALL_TO_ALL)
+                .addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Sink", SINK_COUNT, 1, Sink.class.getName()));
+
+        return atb.build("Job: 2 layered - broadcast over two task managers");
+    }
+
+    // --------------------------------------------------
+    // Invokeables.
+    // --------------------------------------------------
+
+    public static class Source extends AbstractInvokeable {
+
+        static volatile UUID taskID;
+
+        public Source() {
+        }
+
+        @Override
+        public void run() throws Throwable {
+            taskID = runtime.getNodeDescriptor().taskID;
+            taskMachines.put(taskID, runtime.getNodeDescriptor().getMachineDescriptor().uid);
+
+            int i = 0;
+            while (i < BUFFER_COUNT && isInvokeableRunning()) {
+
+                final MemoryView buffer = producer.getAllocator().allocBlocking();
+                for (int offset = 0; offset + 8 <= buffer.size(); offset += 8)
+                    buffer.putLong(buffer.baseOffset + offset, i + offset);
+
+                producer.broadcast(0, buffer);
+                ++i;
+            }
+
+            LOG.info("Source finished");
+        }
+
+        @Override
+        public void close() throws Throwable {
+            producer.done(0);
+        }
+    }
+
+    public static class Sink extends AbstractInvokeable {
+
+        public Sink() {
+        }
+
+        @Override
+        public void open() throws Throwable {
+            consumer.openGate(0);
+        }
+
+        @Override
+        public void run() throws Throwable {
+            final List<UUID> messages = new ArrayList<>();
+
+            while (!consumer.isExhausted() && isInvokeableRunning()) {
+
+                final IOEvents.TransferBufferEvent event = consumer.absorb(0);
+
+                if (event != null) {
+                    final MemoryView buffer = event.buffer;
+                    // sanity check.
+                    for (int offset = 0; offset + 8 <= buffer.size(); offset += 8) {
+                        if (buffer.getLong(buffer.baseOffset + offset) != messages.size() + offset)
+                            throw new IllegalStateException("buffer " + messages.size() + " differs at offset " + offset);
+                    }
+
+                    messages.add(event.messageID);
+                    buffer.free();
+                }
+            }
+
+            LOG.info("Sink finished {}.", messages.size());
+
+            // sanity check.
+            if (messages.size() != BUFFER_COUNT)
+                throw new IllegalStateException("sink received " + messages.size() + " of " + BUFFER_COUNT + " buffers");
+
+            taskMachines.put(runtime.getNodeDescriptor().taskID, runtime.getNodeDescriptor().getMachineDescriptor().uid);
+            receivedMessages.put(runtime.getNodeDescriptor().taskID, messages);
+        }
+    }
+}
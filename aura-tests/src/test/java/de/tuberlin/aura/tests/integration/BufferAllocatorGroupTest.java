@@ -0,0 +1,274 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+import de.tuberlin.aura.core.descriptors.Descriptors;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.memory.BufferAllocatorGroup;
+import de.tuberlin.aura.core.memory.BufferMemoryManager;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.memory.spi.IBufferCallback;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+public class BufferAllocatorGroupTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int BUFFER_COUNT = 8;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testRoundRobin() {
+        final List<IAllocator> allocators = createAllocators(3);
+        final BufferAllocatorGroup group = new BufferAllocatorGroup(BUFFER_SIZE, allocators);
+
+        final List<MemoryView> buffers = new ArrayList<>();
+        for (int i = 0; i < 3; ++i)
+            buffers.add(group.alloc());
+
+        // three consecutive allocations are spread over the three allocators.
+        for (final IAllocator allocator : allocators)
+            assertEquals(BUFFER_COUNT - 1, freeBuffers(allocator));
+
+        free(buffers);
+        group.checkForMemoryLeaks();
+    }
+
+    @Test
+    public void testFallThrough() {
+        final List<IAllocator> allocators = createAllocators(2);
+        final BufferAllocatorGroup group = new BufferAllocatorGroup(BUFFER_SIZE, allocators);
+
+        final List<MemoryView> drained = drain(allocators.get(0));
+
+        // the allocations that start at the empty allocator are served by the other one.
+        final List<MemoryView> buffers = new ArrayList<>();
+        for (int i = 0; i < BUFFER_COUNT; ++i) {
+            final MemoryView buffer = group.alloc();
+            assertNotNull("allocation " + i + " did not fall through", buffer);
+            buffers.add(buffer);
+        }
+        assertNull(group.alloc());
+        assertNull(group.alloc());
+
+        free(buffers);
+        free(drained);
+        group.checkForMemoryLeaks();
+    }
+
+    @Test
+    public void testWaitersAreServedInOrder() {
+        final List<IAllocator> allocators = createAllocators(2);
+        final BufferAllocatorGroup group = new BufferAllocatorGroup(BUFFER_SIZE, allocators);
+
+        final List<MemoryView> buffers = drain(group);
+
+        final ConcurrentLinkedQueue<Integer> served = new ConcurrentLinkedQueue<>();
+        final List<MemoryView> received = new ArrayList<>();
+        for (int i = 0; i < 3; ++i)
+            assertNull(group.alloc(recordingCallback(i, served, received)));
+
+        // each free serves the longest waiting waiter, whichever allocator the buffer belongs to.
+        buffers.remove(0).free();
+        buffers.remove(buffers.size() - 1).free();
+        buffers.remove(0).free();
+        assertEquals(Arrays.asList(0, 1, 2), new ArrayList<>(served));
+
+        // no waiter is left, the next buffer returns to its allocator.
+        buffers.remove(0).free();
+        assertEquals(3, served.size());
+        final MemoryView buffer = group.alloc();
+        assertNotNull(buffer);
+
+        buffer.free();
+        free(received);
+        free(buffers);
+        group.checkForMemoryLeaks();
+    }
+
+    @Test
+    public void testRelayIsRegisteredOncePerAllocator() {
+        final List<IAllocator> allocators = createAllocators(2);
+        final BufferAllocatorGroup group = new BufferAllocatorGroup(BUFFER_SIZE, allocators);
+
+        final List<MemoryView> buffers = drain(group);
+
+        // a waiter per round, each one served by the free of the previous round.
+        final ConcurrentLinkedQueue<Integer> served = new ConcurrentLinkedQueue<>();
+        final List<MemoryView> received = new ArrayList<>();
+        final int rounds = 100000;
+        for (int round = 0; round < rounds; ++round) {
+            assertNull(group.alloc(recordingCallback(round, served, received)));
+            final MemoryView buffer = buffers.isEmpty() ? received.remove(0) : buffers.remove(0);
+            buffer.free();
+        }
+        assertEquals(rounds, served.size());
+
+        free(received);
+        free(buffers);
+
+        // no relay is left behind to take the buffers from the allocators.
+        for (final IAllocator allocator : allocators)
+            assertEquals(BUFFER_COUNT, freeBuffers(allocator));
+        group.checkForMemoryLeaks();
+    }
+
+    @Test
+    public void testAllocBlocking() throws Throwable {
+        final List<IAllocator> allocators = createAllocators(2);
+        final BufferAllocatorGroup group = new BufferAllocatorGroup(BUFFER_SIZE, allocators);
+
+        final List<MemoryView> buffers = drain(group);
+
+        final CountDownLatch allocated = new CountDownLatch(1);
+        final MemoryView[] blockingBuffer = new MemoryView[1];
+        final Thread allocatingThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    blockingBuffer[0] = group.allocBlocking();
+                    allocated.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        allocatingThread.start();
+
+        assertEquals(false, allocated.await(100, TimeUnit.MILLISECONDS));
+        final MemoryView freed = buffers.remove(buffers.size() - 1);
+        freed.free();
+        assertEquals(true, allocated.await(10, TimeUnit.SECONDS));
+        allocatingThread.join();
+        assertSame(freed.memory, blockingBuffer[0].memory);
+
+        blockingBuffer[0].free();
+        free(buffers);
+        group.checkForMemoryLeaks();
+    }
+
+    @Test
+    public void testRebalance() {
+        final int allocatorsPerGroup = 3;
+        final int groups = 2;
+        final int buffersPerAllocator = BUFFER_COUNT;
+
+        // sized so that every allocator holds 64K of buffers, whatever the heap of the test is.
+        final double loadFactor = (groups * allocatorsPerGroup * (buffersPerAllocator + 0.5) * BUFFER_SIZE) / Runtime.getRuntime().maxMemory();
+
+        final Map<String, Object> overrides = new HashMap<>();
+        overrides.put("memory.buffer.size", BUFFER_SIZE);
+        overrides.put("memory.load.factor", loadFactor);
+        overrides.put("memory.group.allocators", allocatorsPerGroup);
+        overrides.put("memory.groups.per.execution.unit", groups);
+        overrides.put("memory.arena", "heap");
+        overrides.put("memory.allocator", "queue");
+        final IConfig config = OperatorTestHelper.overrideConfig(IConfigFactory.load(IConfig.Type.TM).getConfig("tm"), overrides);
+
+        final BufferMemoryManager memoryManager = new BufferMemoryManager(createMachine(), config);
+
+        final BufferAllocatorGroup busyGroup = memoryManager.getBufferAllocatorGroup();
+        final BufferAllocatorGroup idleGroup = memoryManager.getBufferAllocatorGroup();
+        assertNotSame(busyGroup, idleGroup);
+
+        final List<MemoryView> buffers = drain(busyGroup);
+        assertEquals(allocatorsPerGroup * buffersPerAllocator, buffers.size());
+
+        // the waiter is served by an allocator moved over from the idle group.
+        final ConcurrentLinkedQueue<Integer> served = new ConcurrentLinkedQueue<>();
+        final List<MemoryView> received = new ArrayList<>();
+        assertNull(busyGroup.alloc(recordingCallback(0, served, received)));
+        assertEquals(1, served.size());
+        assertEquals(allocatorsPerGroup + 1, busyGroup.getAllocatorCount());
+        assertEquals(allocatorsPerGroup - 1, idleGroup.getAllocatorCount());
+
+        // the idle group keeps its last allocators.
+        free(received);
+        for (int i = 0; i < 2 * allocatorsPerGroup; ++i)
+            memoryManager.rebalance(busyGroup);
+        assertEquals(2, idleGroup.getAllocatorCount());
+
+        free(buffers);
+        busyGroup.checkForMemoryLeaks();
+        idleGroup.checkForMemoryLeaks();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static List<IAllocator> createAllocators(final int count) {
+        final List<IAllocator> allocators = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            allocators.add(new BufferAllocator(BUFFER_SIZE, BUFFER_COUNT));
+        return allocators;
+    }
+
+    private static Descriptors.MachineDescriptor createMachine() {
+        try {
+            return new Descriptors.MachineDescriptor(InetAddress.getLocalHost(), "localhost", 1024, 1025,
+                    new Descriptors.HardwareDescriptor(1, Runtime.getRuntime().maxMemory(), new Descriptors.HDDDescriptor(1L << 30)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static IBufferCallback recordingCallback(final int waiter, final ConcurrentLinkedQueue<Integer> served, final List<MemoryView> received) {
+        return new IBufferCallback() {
+
+            @Override
+            public void bufferReader(final MemoryView buffer) {
+                served.add(waiter);
+                received.add(buffer);
+            }
+        };
+    }
+
+    private static List<MemoryView> drain(final IAllocator allocator) {
+        final List<MemoryView> buffers = new ArrayList<>();
+        MemoryView buffer;
+        while ((buffer = allocator.alloc()) != null)
+            buffers.add(buffer);
+        return buffers;
+    }
+
+    private static int freeBuffers(final IAllocator allocator) {
+        final List<MemoryView> buffers = drain(allocator);
+        final int count = buffers.size();
+        free(buffers);
+        return count;
+    }
+
+    private static void free(final List<MemoryView> buffers) {
+        for (final MemoryView buffer : buffers)
+            buffer.free();
+        buffers.clear();
+    }
+}
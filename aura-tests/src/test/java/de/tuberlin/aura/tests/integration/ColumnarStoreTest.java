@@ -0,0 +1,218 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.datasets.ImmutableDataset;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.core.record.tuples.Tuple5;
+import de.tuberlin.aura.core.record.tuples.Tuple7;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+/**
+ * Stores datasets column wise through the immutable dataset and reads them back.
+ */
+public final class ColumnarStoreTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    // far more rows than the initial capacity of the columns.
+    private static final int ROW_COUNT = 10000;
+
+    private static final TypeInformation PRIMITIVE_TYPE = new TypeInformation(Tuple7.class,
+            new TypeInformation(Long.class),
+            new TypeInformation(Integer.class),
+            new TypeInformation(Double.class),
+            new TypeInformation(Float.class),
+            new TypeInformation(Boolean.class),
+            new TypeInformation(Character.class),
+            new TypeInformation(String.class));
+
+    private static final TypeInformation MIXED_TYPE = new TypeInformation(Tuple5.class,
+            new TypeInformation(Short.class),
+            new TypeInformation(Byte.class),
+            new TypeInformation(String.class),
+            new TypeInformation(Tuple2.class, new TypeInformation(Integer.class), new TypeInformation(String.class)),
+            new TypeInformation(String.class));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testPrimitiveColumns() throws Exception {
+        final Random random = new Random(1);
+        final List<Object> records = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            records.add(new Tuple7<>(
+                    nullOr(random, random.nextLong()),
+                    nullOr(random, (i % 2 == 0) ? Integer.MIN_VALUE : random.nextInt()),
+                    nullOr(random, random.nextDouble()),
+                    nullOr(random, random.nextFloat()),
+                    nullOr(random, random.nextBoolean()),
+                    nullOr(random, (char) random.nextInt(Character.MAX_VALUE + 1)),
+                    nullOr(random, "s" + random.nextInt(100))));
+        }
+
+        assertRoundTrip(PRIMITIVE_TYPE, records);
+    }
+
+    /**
+     * Narrow integer types are boxed back to their type, nested tuples are kept in an object column,
+     * and strings share a dictionary per column.
+     */
+    @Test
+    public void testMixedColumns() throws Exception {
+        final Random random = new Random(2);
+        final List<Object> records = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            records.add(new Tuple5<>(
+                    nullOr(random, (short) random.nextInt()),
+                    nullOr(random, (byte) random.nextInt()),
+                    nullOr(random, (i % 3 == 0) ? "" : "key-" + (i % 7)),
+                    nullOr(random, new Tuple2<>(i, "nested-" + i)),
+                    // every string distinct, the dictionary grows with the rows.
+                    "unique-" + i));
+        }
+
+        assertRoundTrip(MIXED_TYPE, records);
+    }
+
+    @Test
+    public void testAtomicRecords() throws Exception {
+        final List<Object> longs = new ArrayList<>();
+        final List<Object> strings = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            longs.add((long) i * i);
+            strings.add("s" + (i % 10));
+        }
+
+        assertRoundTrip(new TypeInformation(Long.class), longs);
+        assertRoundTrip(new TypeInformation(String.class), strings);
+    }
+
+    /**
+     * A record that does not match the column types moves the dataset into a list, the records
+     * before it are kept in order.
+     */
+    @Test
+    public void testMismatchFallsBackToRows() {
+        final ImmutableDataset<Object> dataset = createDataset(MIXED_TYPE, Collections.<String,Object>emptyMap());
+        final List<Object> records = new ArrayList<>();
+        for (int i = 0; i < 100; ++i)
+            records.add(new Tuple5<>((short) i, (byte) i, "a", new Tuple2<>(i, "b"), "c"));
+        // an Integer in the Short column.
+        records.add(new Tuple5<>(1, (byte) 1, "a", null, "c"));
+        records.add(new Tuple5<>((short) 2, (byte) 2, "a", null, "c"));
+
+        for (final Object record : records)
+            dataset.add(record);
+
+        assertTrue(dataset.getData() instanceof List);
+        assertEquals(records, new ArrayList<>(dataset.getData()));
+    }
+
+    @Test
+    public void testColumnarStorageDisabled() {
+        final ImmutableDataset<Object> dataset =
+                createDataset(PRIMITIVE_TYPE, Collections.<String,Object>singletonMap(ImmutableDataset.COLUMNAR_STORAGE, false));
+        final Object record = new Tuple7<>(1L, 2, 3.0, 4.0f, true, 'c', "s");
+        dataset.add(record);
+
+        assertTrue(dataset.getData() instanceof List);
+        assertEquals(Collections.singletonList(record), new ArrayList<>(dataset.getData()));
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static <T> T nullOr(final Random random, final T value) {
+        return (random.nextInt(10) == 0) ? null : value;
+    }
+
+    private static ImmutableDataset<Object> createDataset(final TypeInformation type, final Map<String,Object> config) {
+        final DataflowNodeProperties properties = new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.IMMUTABLE_DATASET,
+                "Dataset",
+                1,
+                1,
+                null,
+                null,
+                null,
+                null,
+                type,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                config
+        );
+        return new ImmutableDataset<>(OperatorTestHelper.createContext(Collections.<String,Object>emptyMap(), properties));
+    }
+
+    /**
+     * Scans the stored records twice, replaces them by setData(), clears the dataset and reads the
+     * serialized view.
+     */
+    private static void assertRoundTrip(final TypeInformation type, final List<Object> records) throws Exception {
+        final ImmutableDataset<Object> dataset = createDataset(type, Collections.<String,Object>emptyMap());
+        for (final Object record : records)
+            dataset.add(record);
+
+        final Collection<Object> data = dataset.getData();
+        // the records are stored column wise and materialized on the fly.
+        assertTrue(!(data instanceof List));
+        assertEquals(records.size(), data.size());
+        assertEquals(records, new ArrayList<>(data));
+
+        // every scan materializes new tuples.
+        if (type.fieldTypes != null && type.fieldTypes.get(0) != null) {
+            final Iterator<Object> first = data.iterator();
+            final Iterator<Object> second = data.iterator();
+            assertNotSame(first.next(), second.next());
+        }
+
+        // the view serializes as a plain list.
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(data);
+        }
+        try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(records, in.readObject());
+        }
+
+        final List<Object> half = new ArrayList<>(records.subList(0, records.size() / 2));
+        dataset.setData(half);
+        assertEquals(half, new ArrayList<>(dataset.getData()));
+
+        dataset.clear();
+        assertEquals(0, dataset.getData().size());
+        assertTrue(!dataset.getData().iterator().hasNext());
+    }
+}
@@ -0,0 +1,199 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.tuberlin.aura.client.api.AuraClient;
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.taskmanager.spi.AbstractInvokeable;
+import de.tuberlin.aura.core.topology.Topology;
+import de.tuberlin.aura.tests.util.TestHelper;
+
+/**
+ * A fast source sends buffers to a slow sink on the other task manager. The producer sends no more
+ * buffers than the sink granted as credit, so the sink never holds more received buffers than
+ * credit.buffers and its channel keeps reading.
+ */
+public final class CreditFlowControlTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int BUFFER_COUNT = 200;
+
+    // the sinks are spread over both task managers.
+    private static final int SINK_COUNT = 2;
+
+    private static final long SINK_DELAY = 5;
+
+    private static final long TIMEOUT = 60000;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private static AuraClient auraClient;
+
+    // the tasks run in the task managers of this process.
+
+    private static final Map<UUID, Integer> receivedBuffers = new ConcurrentHashMap<>();
+
+    private static final Map<UUID, Integer> maxHeldBuffers = new ConcurrentHashMap<>();
+
+    private static final Map<UUID, Boolean> wasReadingSuspended = new ConcurrentHashMap<>();
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @BeforeClass
+    public static void setup() {
+
+        if (!NetworkChannelTestSuite.isRunning)
+            NetworkChannelTestSuite.setUpTestEnvironment();
+
+        auraClient = new AuraClient(IConfigFactory.load(IConfig.Type.CLIENT));
+    }
+
+    @Test
+    public void testSlowSinkOverNetwork() throws InterruptedException {
+        final int creditBuffers = IConfigFactory.load(IConfig.Type.TM).getInt("tm.io.credit.buffers");
+        assertTrue(creditBuffers > 0);
+
+        final Topology.AuraTopology topology = two_layer_slow_sink(auraClient);
+        final Thread runner = new Thread() {
+
+            @Override
+            public void run() {
+                TestHelper.runTopology(auraClient, topology);
+            }
+        };
+        runner.setDaemon(true);
+        runner.start();
+        runner.join(TIMEOUT);
+
+        assertFalse("topology '" + topology.name + "' did not finish", runner.isAlive());
+        assertEquals(SINK_COUNT, receivedBuffers.size());
+        for (final int count : receivedBuffers.values())
+            assertEquals(BUFFER_COUNT, count);
+
+        // only the sink on the other task manager than the source reads from the network.
+        assertEquals(1, maxHeldBuffers.size());
+        final UUID remoteSink = maxHeldBuffers.keySet().iterator().next();
+        // the source is faster than the sink, so the credits are used up but never exceeded.
+        assertEquals(creditBuffers, (int) maxHeldBuffers.get(remoteSink));
+        assertFalse(wasReadingSuspended.get(remoteSink));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+
+        if (!NetworkChannelTestSuite.isRunning) {
+            NetworkChannelTestSuite.tearDownTestEnvironment();
+        }
+
+        auraClient.closeSession();
+    }
+
+    // --------------------------------------------------
+    // Topologies.
+    // --------------------------------------------------
+
+    public static Topology.AuraTopology two_layer_slow_sink(final AuraClient auraClient) {
+        Topology.AuraTopologyBuilder atb = auraClient.createTopologyBuilder();
+        atb.addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Source", 1, 1, Source.class.getName()))
+                .connectTo("Sink", Topology.Edge.TransferType.ALL_TO_ALL)
+                .addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Sink", SINK_COUNT, 1, Sink.class.getName()));
+
+        return atb.build("Job: 2 layered - slow sink over the network");
+    }
+
+    // --------------------------------------------------
+    // Invokeables.
+    // --------------------------------------------------
+
+    public static class Source extends AbstractInvokeable {
+
+        public Source() {
+        }
+
+        @Override
+        public void run() throws Throwable {
+
+            int i = 0;
+            while (i++ < BUFFER_COUNT && isInvokeableRunning()) {
+
+                final MemoryView buffer = producer.getAllocator().allocBlocking();
+
+                producer.broadcast(0, buffer);
+            }
+
+            LOG.info("Source finished");
+        }
+
+        @Override
+        public void close() throws Throwable {
+            producer.done(0);
+        }
+    }
+
+    public static class Sink extends AbstractInvokeable {
+
+        public Sink() {
+        }
+
+        @Override
+        public void open() throws Throwable {
+            consumer.openGate(0);
+        }
+
+        @Override
+        public void run() throws Throwable {
+            final UUID machine = runtime.getNodeDescriptor().getMachineDescriptor().uid;
+            final boolean isRemote = !machine.equals(runtime.getBindingDescriptor().inputGateBindings.get(0).get(0).getMachineDescriptor().uid);
+
+            int count = 0;
+            int maxHeld = 0;
+            boolean isReadingSuspended = false;
+
+            while (!consumer.isExhausted() && isInvokeableRunning()) {
+
+                final IOEvents.TransferBufferEvent event = consumer.absorb(0);
+
+                if (event != null) {
+                    if (isRemote) {
+                        // the received buffers of the channel not freed yet, this one and the queued ones.
+                        maxHeld = Math.max(maxHeld, event.buffer.allocator.getBufferCount());
+                        isReadingSuspended |= !event.getChannel().config().isAutoRead();
+                    }
+
+                    Thread.sleep(SINK_DELAY);
+                    event.buffer.free();
+                    ++count;
+                }
+            }
+
+            LOG.info("Sink finished {}.", count);
+
+            final UUID taskID = runtime.getNodeDescriptor().taskID;
+            receivedBuffers.put(taskID, count);
+            if (isRemote) {
+                maxHeldBuffers.put(taskID, maxHeld);
+                wasReadingSuspended.put(taskID, isReadingSuspended);
+            }
+        }
+    }
+}
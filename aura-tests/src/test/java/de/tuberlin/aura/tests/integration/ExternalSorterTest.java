@@ -0,0 +1,251 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.impl.SortPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.ExternalSorter;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+public final class ExternalSorterTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int PAGE_SIZE = 8192;
+
+    // eight pages, a run holds a few thousand records.
+    private static final long SMALL_BUDGET = 64 * 1024;
+
+    private static final File SPILL_DIR = new File(System.getProperty("java.io.tmpdir"));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testInMemorySort() throws Throwable {
+        final List<Tuple2<Integer,String>> records = records(new Random(1), 5000, 10);
+
+        assertSorted(records, "_1", false, 1024);
+        assertSorted(records, "_1", true, 1024);
+    }
+
+    @Test
+    public void testSpilledRuns() throws Throwable {
+        final List<Tuple2<Integer,String>> records = records(new Random(2), 30000, 100);
+
+        assertSorted(records, "_1", false, 8);
+        assertSorted(records, "_1", true, 8);
+    }
+
+    /**
+     * More runs than the fan-in of the merge need an additional merge pass.
+     */
+    @Test
+    public void testMoreRunsThanFanIn() throws Throwable {
+        final List<Tuple2<Integer,String>> records = records(new Random(3), 300000, 1000);
+
+        assertSorted(records, "_1", false, 8);
+    }
+
+    /**
+     * The strings share their first four chars, so the order is decided on the records.
+     */
+    @Test
+    public void testStringPrefixTies() throws Throwable {
+        final List<Tuple2<Integer,String>> records = records(new Random(4), 30000, 100);
+
+        assertSorted(records, "_2", false, 1024);
+        assertSorted(records, "_2", false, 8);
+        assertSorted(records, "_2", true, 8);
+    }
+
+    /**
+     * Runs of equal keys must not make the partitioning quadratic.
+     */
+    @Test(timeout = 60000)
+    public void testLowCardinalityKeys() throws Throwable {
+        final Random random = new Random(6);
+        final List<Tuple2<Integer,String>> twoKeys = new ArrayList<>();
+        final List<Tuple2<Integer,String>> equalKeys = new ArrayList<>();
+        for (int i = 0; i < 200000; ++i) {
+            twoKeys.add(new Tuple2<>(random.nextInt(2), "aura" + (i & 1)));
+            equalKeys.add(new Tuple2<>(7, "aura"));
+        }
+
+        for (final List<Tuple2<Integer,String>> records : Arrays.asList(twoKeys, equalKeys)) {
+            assertSorted(records, "_1", false, 1024);
+            assertSorted(records, "_1", true, 8);
+            // equal string prefixes are compared on the records.
+            assertSorted(records, "_2", false, 1024);
+        }
+    }
+
+    @Test
+    public void testSortOperator() throws Throwable {
+        final List<Tuple2<Integer,String>> records = records(new Random(5), 30000, 100);
+
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.operators.memory.budget", SMALL_BUDGET);
+        config.put("tm.memory.buffer.size", PAGE_SIZE);
+
+        for (final boolean isDescending : new boolean[] {false, true}) {
+            final List<Tuple2<Integer,String>> expected = sorted(records, "_1", isDescending);
+
+            final IExecutionContext context = OperatorTestHelper.createContext(config, sortProperties("_1", isDescending));
+            final SortPhysicalOperator<Tuple2<Integer,String>> sort =
+                    new SortPhysicalOperator<>(context, new OperatorTestHelper.CollectionSource<>(context, records));
+
+            // the operator sorts its input again after it was closed, like in an iteration.
+            for (int iteration = 0; iteration < 2; ++iteration)
+                assertKeyOrder(expected, OperatorTestHelper.collect(sort), "_1");
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static TypeInformation tupleType() {
+        return new TypeInformation(Tuple2.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(String.class));
+    }
+
+    /**
+     * @return records with keys in [-keyRange, keyRange) and strings with a common prefix, both
+     *         with a few nulls.
+     */
+    private static List<Tuple2<Integer,String>> records(final Random random, final int count, final int keyRange) {
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            final Integer key = (i % 101 == 0) ? null : random.nextInt(2 * keyRange) - keyRange;
+            final String str = (i % 97 == 0) ? null : "aura" + (char) ('a' + random.nextInt(26)) + random.nextInt(keyRange);
+            records.add(new Tuple2<>(key, str));
+        }
+        // the empty string and a string that is shorter than the prefix.
+        records.add(new Tuple2<>(0, ""));
+        records.add(new Tuple2<>(0, "au"));
+        return records;
+    }
+
+    private static List<Tuple2<Integer,String>> sorted(final List<Tuple2<Integer,String>> records,
+                                                       final String keyField,
+                                                       final boolean isDescending) {
+        final KeySelector key = keySelector(keyField);
+        final List<Tuple2<Integer,String>> sorted = new ArrayList<>(records);
+        Collections.sort(sorted, new Comparator<Tuple2<Integer,String>>() {
+
+            @Override
+            public int compare(final Tuple2<Integer,String> r1, final Tuple2<Integer,String> r2) {
+                final int res = KeySelector.compareFields(key.get(0, r1), key.get(0, r2));
+                return isDescending ? -res : res;
+            }
+        });
+        return sorted;
+    }
+
+    private static void assertSorted(final List<Tuple2<Integer,String>> records,
+                                     final String keyField,
+                                     final boolean isDescending,
+                                     final int pageCount) {
+
+        final BufferAllocator allocator = new BufferAllocator(PAGE_SIZE, pageCount);
+        final TypeInformation type = tupleType();
+        final ExternalSorter sorter = new ExternalSorter(allocator, SPILL_DIR, type,
+                new int[][] {type.buildFieldSelectorChain(keyField)}, isDescending);
+
+        for (final Tuple2<Integer,String> record : records)
+            sorter.add(record);
+        sorter.sort();
+
+        final List<Tuple2<Integer,String>> result = new ArrayList<>();
+        for (Object record = sorter.next(); record != null; record = sorter.next()) {
+            @SuppressWarnings("unchecked")
+            final Tuple2<Integer,String> tuple = (Tuple2<Integer,String>) record;
+            result.add(tuple);
+        }
+        assertNull(sorter.next());
+        sorter.close();
+
+        assertKeyOrder(sorted(records, keyField, isDescending), result, keyField);
+        assertTrue(allocator.isNotUsed());
+    }
+
+    /**
+     * The sort is not stable, so the records are compared on their keys and as a multiset.
+     */
+    private static void assertKeyOrder(final List<Tuple2<Integer,String>> expected,
+                                       final List<Tuple2<Integer,String>> result,
+                                       final String keyField) {
+        assertEquals(expected.size(), result.size());
+
+        final KeySelector key = keySelector(keyField);
+        for (int i = 0; i < expected.size(); ++i)
+            assertEquals("record " + i, key.get(0, expected.get(i)), key.get(0, result.get(i)));
+
+        final Comparator<Tuple2<Integer,String>> byString = new Comparator<Tuple2<Integer,String>>() {
+
+            @Override
+            public int compare(final Tuple2<Integer,String> r1, final Tuple2<Integer,String> r2) {
+                final int res = KeySelector.compareFields(r1._1, r2._1);
+                return (res != 0) ? res : KeySelector.compareFields(r1._2, r2._2);
+            }
+        };
+        final List<Tuple2<Integer,String>> expectedRecords = new ArrayList<>(expected);
+        final List<Tuple2<Integer,String>> resultRecords = new ArrayList<>(result);
+        Collections.sort(expectedRecords, byString);
+        Collections.sort(resultRecords, byString);
+        assertEquals(expectedRecords, resultRecords);
+    }
+
+    private static KeySelector keySelector(final String keyField) {
+        final TypeInformation type = tupleType();
+        return new KeySelector(type, new int[][] {type.buildFieldSelectorChain(keyField)});
+    }
+
+    private static DataflowNodeProperties sortProperties(final String keyField, final boolean isDescending) {
+        final TypeInformation type = tupleType();
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.SORT_OPERATOR,
+                "Sort",
+                1,
+                1,
+                null,
+                null,
+                type,
+                null,
+                type,
+                null,
+                null,
+                null,
+                new int[][] {type.buildFieldSelectorChain(keyField)},
+                isDescending ? DataflowNodeProperties.SortOrder.DESCENDING : DataflowNodeProperties.SortOrder.ASCENDING,
+                null,
+                null, null, null
+        );
+    }
+}
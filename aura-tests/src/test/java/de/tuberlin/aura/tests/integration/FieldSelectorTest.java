@@ -0,0 +1,52 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.record.FieldSelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.core.record.tuples.Tuple3;
+
+public final class FieldSelectorTest {
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    /**
+     * The same selector chain reads fields of different classes if the nested types differ.
+     */
+    @Test
+    public void testSameChainOverDifferentNestedTypes() {
+        final TypeInformation pairType = new TypeInformation(Tuple2.class,
+                new TypeInformation(Tuple2.class,
+                        new TypeInformation(Integer.class),
+                        new TypeInformation(String.class)),
+                new TypeInformation(Integer.class));
+        final TypeInformation tripleType = new TypeInformation(Tuple2.class,
+                new TypeInformation(Tuple3.class,
+                        new TypeInformation(Integer.class),
+                        new TypeInformation(Long.class),
+                        new TypeInformation(String.class)),
+                new TypeInformation(Integer.class));
+        final int[] chain = new int[] {0, 1};
+
+        final FieldSelector pairSelector = FieldSelector.create(pairType, chain);
+        final FieldSelector tripleSelector = FieldSelector.create(tripleType, chain);
+
+        final Tuple2<Tuple2<Integer,String>,Integer> pair = new Tuple2<>(new Tuple2<>(1, "a"), 2);
+        final Tuple2<Tuple3<Integer,Long,String>,Integer> triple = new Tuple2<>(new Tuple3<>(1, 3L, "b"), 2);
+
+        assertEquals("a", pairSelector.get(pair));
+        assertEquals(String.class, pairSelector.getFieldType());
+        assertEquals(3L, tripleSelector.get(triple));
+        assertEquals(3L, tripleSelector.getLong(triple));
+        assertEquals(Long.class, tripleSelector.getFieldType());
+
+        // the selectors of the first types are still used.
+        assertEquals("a", FieldSelector.create(pairType, chain).get(pair));
+        assertEquals(Long.valueOf(3L).hashCode(), FieldSelector.create(tripleType, chain).hash(triple));
+    }
+}
@@ -0,0 +1,292 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.PhysicalOperatorFactory;
+import de.tuberlin.aura.core.dataflow.operators.base.AbstractPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.FusedChainPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FilterFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FlatMapFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FoldFunction;
+import de.tuberlin.aura.core.dataflow.udfs.functions.MapFunction;
+import de.tuberlin.aura.core.record.OperatorBatch;
+import de.tuberlin.aura.core.record.OperatorResult;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+/**
+ * Runs operator plans with and without chain fusion, the fused chain must give the same output.
+ */
+public final class FusedChainTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final TypeInformation TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(Integer.class));
+
+    private static final String FUSION_KEY = "tm.operators.chain.fusion";
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    /**
+     * The filters drop records and the flat-map emits zero to two records per input, so the output
+     * batches of the chain do not line up with its input batches.
+     */
+    @Test
+    public void testMapFilterFlatMapChain() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = records(new Random(1), 5000, 1000);
+        final DataflowNodeProperties.DataflowNodeType[] chain = {
+                DataflowNodeProperties.DataflowNodeType.MAP_TUPLE_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FILTER_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FLAT_MAP_TUPLE_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FILTER_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.MAP_TUPLE_OPERATOR
+        };
+
+        final List<Tuple2<Integer,Integer>> expected = collect(createPlan(chain, records, false));
+        assertFalse(expected.isEmpty());
+        assertTrue(expected.size() != records.size());
+
+        final IPhysicalOperator<Tuple2<Integer,Integer>> fused = createPlan(chain, records, true);
+        assertTrue(fused instanceof FusedChainPhysicalOperator);
+        assertEquals(expected, collect(fused));
+        assertEquals(expected, collectBatches(createPlan(chain, records, true)));
+        assertEquals(expected, collectBatches(createPlan(chain, records, false)));
+    }
+
+    /**
+     * A fold ends the chain and consumes the group markers of the group-by in front of it.
+     */
+    @Test
+    public void testChainEndedByFold() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = records(new Random(2), 5000, 100);
+        Collections.sort(records, new Comparator<Tuple2<Integer,Integer>>() {
+
+            @Override
+            public int compare(final Tuple2<Integer,Integer> o1, final Tuple2<Integer,Integer> o2) {
+                return o1._1.compareTo(o2._1);
+            }
+        });
+
+        final DataflowNodeProperties.DataflowNodeType[] chain = {
+                DataflowNodeProperties.DataflowNodeType.GROUP_BY_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.MAP_TUPLE_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FILTER_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FLAT_MAP_TUPLE_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FOLD_OPERATOR
+        };
+
+        final List<Tuple2<Integer,Integer>> expected = collect(createPlan(chain, records, false));
+        assertEquals(100, expected.size());
+
+        final IPhysicalOperator<Tuple2<Integer,Integer>> fused = createPlan(chain, records, true);
+        assertTrue(fused instanceof FusedChainPhysicalOperator);
+        assertEquals(expected, collect(fused));
+        assertEquals(expected, collectBatches(createPlan(chain, records, true)));
+        assertEquals(expected, collectBatches(createPlan(chain, records, false)));
+    }
+
+    /**
+     * Without a group-by the fold emits a single value for the whole stream.
+     */
+    @Test
+    public void testChainEndedByGlobalFold() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = records(new Random(3), 5000, 100);
+        final DataflowNodeProperties.DataflowNodeType[] chain = {
+                DataflowNodeProperties.DataflowNodeType.FILTER_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FLAT_MAP_TUPLE_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FOLD_OPERATOR
+        };
+
+        final List<Tuple2<Integer,Integer>> expected = collect(createPlan(chain, records, false));
+        assertEquals(1, expected.size());
+
+        assertEquals(expected, collect(createPlan(chain, records, true)));
+        assertEquals(expected, collectBatches(createPlan(chain, records, true)));
+    }
+
+    @Test
+    public void testEmptyInput() throws Throwable {
+        final DataflowNodeProperties.DataflowNodeType[] chain = {
+                DataflowNodeProperties.DataflowNodeType.MAP_TUPLE_OPERATOR,
+                DataflowNodeProperties.DataflowNodeType.FLAT_MAP_TUPLE_OPERATOR
+        };
+        final List<Tuple2<Integer,Integer>> records = Collections.emptyList();
+
+        assertTrue(collect(createPlan(chain, records, false)).isEmpty());
+        assertTrue(collect(createPlan(chain, records, true)).isEmpty());
+        assertTrue(collectBatches(createPlan(chain, records, true)).isEmpty());
+    }
+
+    // ---------------------------------------------------
+    // User-defined Functions.
+    // ---------------------------------------------------
+
+    public static final class AddOne extends MapFunction<Tuple2<Integer,Integer>,Tuple2<Integer,Integer>> {
+
+        @Override
+        public Tuple2<Integer,Integer> map(final Tuple2<Integer,Integer> in) {
+            return new Tuple2<>(in._1, in._2 + 1);
+        }
+    }
+
+    public static final class DropMultiplesOfThree extends FilterFunction<Tuple2<Integer,Integer>> {
+
+        @Override
+        public boolean filter(final Tuple2<Integer,Integer> in) {
+            return in._2 % 3 != 0;
+        }
+    }
+
+    /**
+     * Emits the record zero, one or two times, depending on its value.
+     */
+    public static final class Replicate extends FlatMapFunction<Tuple2<Integer,Integer>,Tuple2<Integer,Integer>> {
+
+        @Override
+        public void flatMap(final Tuple2<Integer,Integer> in, final Collection<Tuple2<Integer,Integer>> c) {
+            for (int i = 0; i < in._2 % 3; ++i)
+                c.add(new Tuple2<>(in._1, in._2 * 10 + i));
+        }
+    }
+
+    public static final class Sum extends FoldFunction<Tuple2<Integer,Integer>,Tuple2<Integer,Integer>> {
+
+        @Override
+        public Tuple2<Integer,Integer> empty() {
+            return new Tuple2<>(null, 0);
+        }
+
+        @Override
+        public Tuple2<Integer,Integer> singleton(final Tuple2<Integer,Integer> element) {
+            return new Tuple2<>(element._1, element._2);
+        }
+
+        @Override
+        public Tuple2<Integer,Integer> union(final Tuple2<Integer,Integer> result, final Tuple2<Integer,Integer> element) {
+            return new Tuple2<>(element._1, result._2 + element._2);
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static List<Tuple2<Integer,Integer>> records(final Random random, final int count, final int keyRange) {
+        final List<Tuple2<Integer,Integer>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            records.add(new Tuple2<>(random.nextInt(keyRange), random.nextInt(100)));
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IPhysicalOperator<Tuple2<Integer,Integer>> createPlan(final DataflowNodeProperties.DataflowNodeType[] chain,
+                                                                         final List<Tuple2<Integer,Integer>> records,
+                                                                         final boolean isFusion) {
+
+        final DataflowNodeProperties[] properties = new DataflowNodeProperties[chain.length];
+        for (int i = 0; i < chain.length; ++i)
+            properties[i] = nodeProperties(chain[i], i);
+
+        final IExecutionContext context = OperatorTestHelper.createContext(Collections.<String,Object>singletonMap(FUSION_KEY, isFusion), properties);
+        for (final Class<?> udfType : new Class<?>[] {AddOne.class, DropMultiplesOfThree.class, Replicate.class, Sum.class})
+            context.putUDFType(udfType.getName(), udfType);
+
+        final AbstractPhysicalOperator<Object> source =
+                (AbstractPhysicalOperator<Object>) (AbstractPhysicalOperator<?>) new OperatorTestHelper.CollectionSource<>(context, records);
+
+        return (IPhysicalOperator<Tuple2<Integer,Integer>>) PhysicalOperatorFactory.createPhysicalOperatorPlan(context, Collections.singletonList(source));
+    }
+
+    private static DataflowNodeProperties nodeProperties(final DataflowNodeProperties.DataflowNodeType type, final int operatorNum) {
+        final String functionTypeName;
+        switch (type) {
+            case MAP_TUPLE_OPERATOR:
+                functionTypeName = AddOne.class.getName();
+                break;
+            case FILTER_OPERATOR:
+                functionTypeName = DropMultiplesOfThree.class.getName();
+                break;
+            case FLAT_MAP_TUPLE_OPERATOR:
+                functionTypeName = Replicate.class.getName();
+                break;
+            case FOLD_OPERATOR:
+                functionTypeName = Sum.class.getName();
+                break;
+            default:
+                functionTypeName = null;
+        }
+
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                type,
+                type + "-" + operatorNum,
+                1,
+                1,
+                null,
+                null,
+                TYPE,
+                null,
+                TYPE,
+                functionTypeName,
+                null,
+                null,
+                null,
+                null,
+                new int[][] {TYPE.buildFieldSelectorChain("_1")},
+                null, null, null
+        );
+    }
+
+    /**
+     * Also checks that the end of the stream is signaled again after it was reached.
+     */
+    private static <E> List<E> collect(final IPhysicalOperator<E> operator) throws Throwable {
+        final List<E> records = new ArrayList<>();
+        operator.open();
+        OperatorResult<E> result = operator.next();
+        while (result.marker != OperatorResult.StreamMarker.END_OF_STREAM_MARKER) {
+            assertEquals(null, result.marker);
+            records.add(result.element);
+            result = operator.next();
+        }
+        assertEquals(OperatorResult.StreamMarker.END_OF_STREAM_MARKER, operator.next().marker);
+        operator.close();
+        return records;
+    }
+
+    private static <E> List<E> collectBatches(final IPhysicalOperator<E> operator) throws Throwable {
+        final List<E> records = new ArrayList<>();
+        operator.open();
+        OperatorBatch<E> batch;
+        do {
+            batch = operator.nextBatch();
+            assertTrue(batch.marker == null || batch.isEndOfStream());
+            for (int i = 0; i < batch.size(); ++i)
+                records.add(batch.get(i));
+        } while (!batch.isEndOfStream());
+        operator.close();
+        return records;
+    }
+}
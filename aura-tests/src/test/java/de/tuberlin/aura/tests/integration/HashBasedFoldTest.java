@@ -0,0 +1,354 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.impl.HashBasedFoldPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.udfs.functions.FoldFunction;
+import de.tuberlin.aura.core.common.utils.Pair;
+import de.tuberlin.aura.core.record.Partitioner;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.core.taskmanager.usercode.UserCodeExtractor;
+import de.tuberlin.aura.core.topology.Topology;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+public final class HashBasedFoldTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    // a few hundred groups, far less than the key cardinality of the input.
+    private static final long SMALL_BUDGET = 64 * 1024;
+
+    private static final int RECEIVER_COUNT = 4;
+
+    private static final TypeInformation INPUT_TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(Integer.class));
+
+    private static final TypeInformation OUTPUT_TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(Long.class));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testInMemoryFold() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = records(new Random(1), 50000, 1000);
+
+        assertEquals(reference(records), toMap(fold(records, Collections.<String,Object>emptyMap())));
+    }
+
+    /**
+     * The partitions of the first spill do not fit into the budget either and are split again.
+     */
+    @Test
+    public void testSpillAndMerge() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = records(new Random(2), 200000, 100000);
+
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.operators.memory.budget", SMALL_BUDGET);
+
+        final List<Tuple2<Integer,Long>> result = fold(records, config);
+        final Map<Integer,Long> inMemory = toMap(fold(records, Collections.<String,Object>emptyMap()));
+
+        // every group is emitted once.
+        assertEquals(inMemory.size(), result.size());
+        assertEquals(inMemory, toMap(result));
+        assertEquals(reference(records), inMemory);
+    }
+
+    /**
+     * The combiner emits partial aggregates, folding them again gives the in-memory result.
+     */
+    @Test
+    public void testCombiner() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = records(new Random(3), 200000, 100000);
+
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.operators.memory.budget", SMALL_BUDGET);
+        config.put("tm.operators.fold.combiner", true);
+
+        final List<Tuple2<Integer,Long>> partials = fold(records, config);
+        final Map<Integer,Long> inMemory = toMap(fold(records, Collections.<String,Object>emptyMap()));
+
+        assertTrue(partials.size() > inMemory.size());
+        assertEquals(inMemory, toMap(partials));
+    }
+
+    /**
+     * A salted edge spreads the hot key over several folds, the combine behind a hash partitioned
+     * edge emits every group once.
+     */
+    @Test
+    public void testSaltedEdgeAndCombine() throws Throwable {
+        final Random random = new Random(4);
+        final List<Tuple2<Integer,Integer>> records = new ArrayList<>();
+        for (final Tuple2<Integer,Integer> record : records(random, 100000, 1000))
+            records.add((random.nextInt(10) < 4) ? new Tuple2<>(7, record._2) : record);
+
+        final int[][] inputKeys = new int[][] {INPUT_TYPE.buildFieldSelectorChain("_1")};
+        final List<List<Tuple2<Integer,Integer>>> hashed = partition(records, new Partitioner.HashPartitioner(INPUT_TYPE, inputKeys));
+        final List<List<Tuple2<Integer,Integer>>> salted = partition(records, new Partitioner.SaltedHashPartitioner(INPUT_TYPE, inputKeys));
+
+        assertEquals(1, receiversOf(7, hashed));
+        assertTrue(receiversOf(7, salted) > 1);
+        // the cold keys stay on their hash receiver.
+        for (int key = 0; key < 1000; ++key) {
+            if (key != 7)
+                assertTrue(receiversOf(key, salted) <= 1);
+        }
+
+        final List<Tuple2<Integer,Long>> partials = new ArrayList<>();
+        for (final List<Tuple2<Integer,Integer>> part : salted)
+            partials.addAll(fold(part, Collections.<String,Object>emptyMap()));
+
+        final int[][] outputKeys = new int[][] {OUTPUT_TYPE.buildFieldSelectorChain("_1")};
+        final List<Tuple2<Integer,Long>> result = new ArrayList<>();
+        for (final List<Tuple2<Integer,Long>> part : partition(partials, new Partitioner.HashPartitioner(OUTPUT_TYPE, outputKeys)))
+            result.addAll(combine(part));
+
+        // every group is emitted once.
+        final Map<Integer,Long> reference = reference(records);
+        assertEquals(reference.size(), result.size());
+        assertEquals(reference, toMap(result));
+    }
+
+    @Test
+    public void testSaltedEdgeInsertsCombine() {
+        final Topology.AuraTopologyBuilder builder = new Topology.AuraTopologyBuilder(UUID.randomUUID(), new UserCodeExtractor(false));
+        final int[][] inputKeys = new int[][] {INPUT_TYPE.buildFieldSelectorChain("_1")};
+
+        builder.addNode(new Topology.OperatorNode(nodeProperties(DataflowNodeProperties.DataflowNodeType.UDF_SOURCE, "Source", inputKeys,
+                        Partitioner.PartitioningStrategy.SALTED_HASH_PARTITIONER, null)))
+                .connectTo("Fold", Topology.Edge.TransferType.ALL_TO_ALL)
+                .addNode(new Topology.OperatorNode(nodeProperties(DataflowNodeProperties.DataflowNodeType.HASH_FOLD_OPERATOR, "Fold", null, null, inputKeys)))
+                .connectTo("Sink", Topology.Edge.TransferType.POINT_TO_POINT)
+                .addNode(new Topology.OperatorNode(nodeProperties(DataflowNodeProperties.DataflowNodeType.UDF_SINK, "Sink", null, null, null)));
+
+        final Topology.AuraTopology topology = builder.build("Salted");
+
+        final Topology.LogicalNode partial = topology.nodeMap.get("Fold-partial");
+        final Topology.LogicalNode combine = topology.nodeMap.get("Fold");
+        assertEquals(DataflowNodeProperties.DataflowNodeType.HASH_FOLD_OPERATOR, partial.propertiesList.get(0).type);
+        assertEquals(Partitioner.PartitioningStrategy.HASH_PARTITIONER, partial.propertiesList.get(0).strategy);
+        assertEquals(DataflowNodeProperties.DataflowNodeType.HASH_COMBINE_OPERATOR, combine.propertiesList.get(0).type);
+        assertSame(OUTPUT_TYPE, combine.propertiesList.get(0).input1Type);
+        assertEquals(combine, topology.uidNodeMap.get(combine.uid));
+
+        final Set<Pair<String,String>> edges = new HashSet<>(topology.edges.keySet());
+        assertEquals(new HashSet<>(Arrays.asList(new Pair<>("Source", "Fold-partial"), new Pair<>("Fold-partial", "Fold"), new Pair<>("Fold", "Sink"))), edges);
+        assertEquals(Topology.Edge.TransferType.ALL_TO_ALL, topology.edges.get(new Pair<>("Fold-partial", "Fold")).transferType);
+        assertEquals(Collections.singleton("Source"), topology.sourceMap.keySet());
+        assertEquals(Collections.singleton("Sink"), topology.sinkMap.keySet());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSaltedEdgeRequiresHashFold() {
+        final Topology.AuraTopologyBuilder builder = new Topology.AuraTopologyBuilder(UUID.randomUUID(), new UserCodeExtractor(false));
+        final int[][] inputKeys = new int[][] {INPUT_TYPE.buildFieldSelectorChain("_1")};
+
+        builder.addNode(new Topology.OperatorNode(nodeProperties(DataflowNodeProperties.DataflowNodeType.UDF_SOURCE, "Source", inputKeys,
+                        Partitioner.PartitioningStrategy.SALTED_HASH_PARTITIONER, null)))
+                .connectTo("Sink", Topology.Edge.TransferType.ALL_TO_ALL)
+                .addNode(new Topology.OperatorNode(nodeProperties(DataflowNodeProperties.DataflowNodeType.UDF_SINK, "Sink", null, null, null)));
+
+        assertNull(builder.build("Salted"));
+    }
+
+    // ---------------------------------------------------
+    // User-defined Functions.
+    // ---------------------------------------------------
+
+    public static final class SumFold extends FoldFunction<Tuple2<Integer,Integer>,Tuple2<Integer,Long>> {
+
+        @Override
+        public Tuple2<Integer,Long> empty() {
+            return new Tuple2<>(null, 0L);
+        }
+
+        @Override
+        public Tuple2<Integer,Long> singleton(final Tuple2<Integer,Integer> element) {
+            return new Tuple2<>(element._1, (long) element._2);
+        }
+
+        @Override
+        public Tuple2<Integer,Long> union(final Tuple2<Integer,Long> result, final Tuple2<Integer,Long> element) {
+            result._1 = element._1; // group key
+            result._2 = result._2 + element._2;
+            return result;
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return records with keys in [0, keyRange) and a few null keys.
+     */
+    private static List<Tuple2<Integer,Integer>> records(final Random random, final int count, final int keyRange) {
+        final List<Tuple2<Integer,Integer>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            records.add(new Tuple2<>((i % 1000 == 0) ? null : random.nextInt(keyRange), random.nextInt(100)));
+        return records;
+    }
+
+    private static Map<Integer,Long> reference(final List<Tuple2<Integer,Integer>> records) {
+        final Map<Integer,Long> sums = new HashMap<>();
+        for (final Tuple2<Integer,Integer> record : records) {
+            final Long sum = sums.get(record._1);
+            sums.put(record._1, (sum == null ? 0L : sum) + record._2);
+        }
+        return sums;
+    }
+
+    /**
+     * Sums up the partial aggregates of every key.
+     */
+    private static Map<Integer,Long> toMap(final List<Tuple2<Integer,Long>> values) {
+        final Map<Integer,Long> sums = new HashMap<>();
+        for (final Tuple2<Integer,Long> value : values) {
+            final Long sum = sums.get(value._1);
+            sums.put(value._1, (sum == null ? 0L : sum) + value._2);
+        }
+        return sums;
+    }
+
+    private static <T> List<List<T>> partition(final List<T> records, final Partitioner.IPartitioner partitioner) {
+        final List<List<T>> parts = new ArrayList<>();
+        for (int i = 0; i < RECEIVER_COUNT; ++i)
+            parts.add(new ArrayList<T>());
+        for (final T record : records)
+            parts.get(partitioner.partition(record, RECEIVER_COUNT)).add(record);
+        return parts;
+    }
+
+    private static int receiversOf(final Integer key, final List<List<Tuple2<Integer,Integer>>> parts) {
+        int receivers = 0;
+        for (final List<Tuple2<Integer,Integer>> part : parts) {
+            for (final Tuple2<Integer,Integer> record : part) {
+                if (key.equals(record._1)) {
+                    ++receivers;
+                    break;
+                }
+            }
+        }
+        return receivers;
+    }
+
+    private static DataflowNodeProperties nodeProperties(final DataflowNodeProperties.DataflowNodeType type,
+                                                         final String name,
+                                                         final int[][] partitionKeys,
+                                                         final Partitioner.PartitioningStrategy strategy,
+                                                         final int[][] groupByKeys) {
+        final boolean isFold = type == DataflowNodeProperties.DataflowNodeType.HASH_FOLD_OPERATOR;
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                type,
+                name,
+                RECEIVER_COUNT,
+                1,
+                partitionKeys,
+                strategy,
+                INPUT_TYPE,
+                null,
+                isFold ? OUTPUT_TYPE : INPUT_TYPE,
+                isFold ? SumFold.class.getName() : null,
+                null,
+                null,
+                null,
+                null,
+                groupByKeys,
+                null, null, null
+        );
+    }
+
+    private static List<Tuple2<Integer,Long>> fold(final List<Tuple2<Integer,Integer>> records,
+                                                   final Map<String,Object> config) throws Throwable {
+
+        final DataflowNodeProperties properties = new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.HASH_FOLD_OPERATOR,
+                "HashFold",
+                1,
+                1,
+                null,
+                null,
+                INPUT_TYPE,
+                null,
+                OUTPUT_TYPE,
+                SumFold.class.getName(),
+                null,
+                null,
+                null,
+                null,
+                new int[][] {INPUT_TYPE.buildFieldSelectorChain("_1")},
+                null, null, null
+        );
+
+        final IExecutionContext context = OperatorTestHelper.createContext(config, properties);
+        final HashBasedFoldPhysicalOperator<Tuple2<Integer,Integer>,Tuple2<Integer,Long>> fold =
+                new HashBasedFoldPhysicalOperator<>(context,
+                        new OperatorTestHelper.CollectionSource<>(context, records),
+                        new SumFold());
+
+        return OperatorTestHelper.collect(fold);
+    }
+
+    /**
+     * Folds partial aggregates again, like the combine the plan inserts after a salted edge.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Tuple2<Integer,Long>> combine(final List<Tuple2<Integer,Long>> partials) throws Throwable {
+
+        final DataflowNodeProperties properties = new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.HASH_COMBINE_OPERATOR,
+                "HashCombine",
+                1,
+                1,
+                null,
+                null,
+                OUTPUT_TYPE,
+                null,
+                OUTPUT_TYPE,
+                SumFold.class.getName(),
+                null,
+                null,
+                null,
+                null,
+                new int[][] {OUTPUT_TYPE.buildFieldSelectorChain("_1")},
+                null, null, null
+        );
+
+        final IExecutionContext context = OperatorTestHelper.createContext(Collections.<String,Object>emptyMap(), properties);
+        final HashBasedFoldPhysicalOperator<Tuple2<Integer,Long>,Tuple2<Integer,Long>> combine =
+                new HashBasedFoldPhysicalOperator<>(context,
+                        new OperatorTestHelper.CollectionSource<>(context, partials),
+                        (FoldFunction<Tuple2<Integer,Long>,Tuple2<Integer,Long>>) (FoldFunction<?,?>) new SumFold());
+
+        return OperatorTestHelper.collect(combine);
+    }
+}
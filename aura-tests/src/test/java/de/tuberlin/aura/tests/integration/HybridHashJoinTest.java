@@ -0,0 +1,328 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.impl.HashJoinPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.HybridHashJoin;
+import de.tuberlin.aura.core.dataflow.operators.spill.RecordPageStore;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.memory.DirectBufferAllocator;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+import io.netty.util.internal.PlatformDependent;
+
+public final class HybridHashJoinTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int PAGE_SIZE = 8192;
+
+    // eight pages, far less than the inputs of the spilling tests.
+    private static final long SMALL_BUDGET = 64 * 1024;
+
+    private static final File SPILL_DIR = new File(System.getProperty("java.io.tmpdir"));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testInMemoryJoinWithDuplicateKeys() throws Throwable {
+        final Random random = new Random(1);
+        final List<Tuple2<Integer,String>> build = records(random, 3000, 1000, 0, 0);
+        final List<Tuple2<Integer,String>> probe = records(random, 3000, 1500, 0, 0);
+
+        assertJoin(Collections.<String,Object>emptyMap(), build, probe);
+    }
+
+    @Test
+    public void testSpilledJoin() throws Throwable {
+        final Random random = new Random(2);
+        final List<Tuple2<Integer,String>> build = records(random, 20000, 5000, 0, 0);
+        final List<Tuple2<Integer,String>> probe = records(random, 20000, 6000, 0, 0);
+
+        assertJoin(smallBudget(), build, probe);
+    }
+
+    /**
+     * The records of a heavy key land in the same partition on every level and are joined chunk-wise
+     * on the last level.
+     */
+    @Test
+    public void testSpilledJoinWithHeavyKeyAndNullKeys() throws Throwable {
+        final Random random = new Random(3);
+        final List<Tuple2<Integer,String>> build = records(random, 10000, 2000, 5000, 50);
+        final List<Tuple2<Integer,String>> probe = records(random, 10000, 3000, 3, 7);
+
+        assertJoin(smallBudget(), build, probe);
+    }
+
+    @Test
+    public void testNullKeysMatchNullKeys() throws Throwable {
+        final List<Tuple2<Integer,String>> build = new ArrayList<>();
+        build.add(new Tuple2<Integer,String>(null, "b-null"));
+        build.add(new Tuple2<>(0, "b-0"));
+        build.add(new Tuple2<>(1, "b-1"));
+        final List<Tuple2<Integer,String>> probe = new ArrayList<>();
+        probe.add(new Tuple2<Integer,String>(null, "p-null"));
+        probe.add(new Tuple2<>(0, "p-0"));
+
+        final List<String> result = join(createJoin(Collections.<String,Object>emptyMap(), build, probe));
+        assertEquals(2, result.size());
+        assertEquals("(0,b-0)|(0,p-0)", result.get(0));
+        assertEquals("(null,b-null)|(null,p-null)", result.get(1));
+    }
+
+    @Test
+    public void testChunkedJoinReleasesAllPages() throws Throwable {
+        final TypeInformation type = tupleType();
+        final KeySelector key = new KeySelector(type, new int[][] {type.buildFieldSelectorChain("_1")});
+        final BufferAllocator allocator = new BufferAllocator(PAGE_SIZE, (int) (SMALL_BUDGET / PAGE_SIZE));
+
+        final List<Tuple2<Integer,String>> build = records(new Random(4), 2000, 500, 8000, 0);
+        final List<Tuple2<Integer,String>> probe = new ArrayList<>();
+        for (int i = 0; i < 4; ++i)
+            probe.add(new Tuple2<>(Integer.MAX_VALUE, "p" + i));
+
+        final HybridHashJoin join = new HybridHashJoin(allocator, SPILL_DIR, type, type,
+                new HybridHashJoin.KeyAccessor(key), new HybridHashJoin.KeyAccessor(key));
+        join.build(source(build));
+
+        int matches = 0;
+        final HybridHashJoin.IRecordSource probeSource = source(probe);
+        Tuple2<Object,Object> match;
+        while ((match = join.next(probeSource)) != null) {
+            assertEquals(((Tuple2) match._1)._1, ((Tuple2) match._2)._1);
+            ++matches;
+        }
+        assertNull(join.next(probeSource));
+        join.close();
+
+        assertEquals(8000 * 4, matches);
+        assertTrue(allocator.isNotUsed());
+    }
+
+    @Test
+    public void testRecordPageStore() throws Throwable {
+        checkRecordPageStore(new BufferAllocator(PAGE_SIZE, (int) (SMALL_BUDGET / PAGE_SIZE)));
+    }
+
+    /**
+     * The records of direct pages are read in place. Needs netty's unsafe direct buffers, which the
+     * netty version of the project only provides up to Java 8.
+     */
+    @Test
+    public void testDirectRecordPageStore() throws Throwable {
+        Assume.assumeTrue(PlatformDependent.hasUnsafe());
+        final DirectBufferAllocator allocator = new DirectBufferAllocator(PAGE_SIZE, (int) (SMALL_BUDGET / PAGE_SIZE));
+        try {
+            checkRecordPageStore(allocator);
+        } finally {
+            allocator.release();
+        }
+    }
+
+    @Test
+    public void testSpillFile() throws Throwable {
+        final TypeInformation type = tupleType();
+        final SpillFile file = new SpillFile(SPILL_DIR, type);
+
+        final List<Tuple2<Integer,String>> records = records(new Random(5), 50000, 1000, 0, 100);
+        for (final Tuple2<Integer,String> record : records)
+            file.write(record);
+        assertEquals(records.size(), file.getRecordCount());
+
+        // the file can be read any number of times.
+        for (int pass = 0; pass < 2; ++pass) {
+            final SpillFile.Reader reader = file.openReader();
+            for (final Tuple2<Integer,String> record : records)
+                assertEquals(record, reader.next());
+            assertNull(reader.next());
+            reader.close();
+        }
+
+        file.delete();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static void checkRecordPageStore(final IAllocator allocator) {
+        final TypeInformation type = tupleType();
+        final RecordPageStore store = new RecordPageStore(allocator, SpillFile.createKryo(type), 8);
+
+        // fill the store until the allocator is exhausted.
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        for (int i = 0; ; ++i) {
+            final Tuple2<Integer,String> record = new Tuple2<>((i % 10 == 0) ? null : i, (i % 7 == 0) ? null : "value-" + i);
+            final int ref = store.add(record);
+            if (ref == -1)
+                break;
+            store.putHeaderInt(ref, 0, i);
+            store.putHeaderInt(ref, 4, -i);
+            records.add(record);
+        }
+        assertFalse(allocator.hasFree());
+        assertEquals(records.size(), store.getRecordCount());
+        assertEquals(SMALL_BUDGET / PAGE_SIZE, store.getPageCount());
+
+        int i = 0;
+        for (int ref = store.first(); ref != -1; ref = store.next(ref), ++i) {
+            assertEquals(records.get(i), store.read(ref));
+            assertEquals(i, store.getHeaderInt(ref, 0));
+            assertEquals(-i, store.getHeaderInt(ref, 4));
+        }
+        assertEquals(records.size(), i);
+
+        // a smaller record replaces the stored one, a larger one does not fit.
+        final int second = store.next(store.first());
+        assertTrue(store.replace(second, new Tuple2<>(1, "v")));
+        assertEquals(new Tuple2<>(1, "v"), store.read(second));
+        assertFalse(store.replace(second, new Tuple2<>(1, "a value that is longer than the stored one")));
+        assertEquals(records.get(2), store.read(store.next(second)));
+
+        store.clear();
+        assertEquals(-1, store.first());
+        assertTrue(allocator.isNotUsed());
+    }
+
+    private static Map<String,Object> smallBudget() {
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.operators.memory.budget", SMALL_BUDGET);
+        config.put("tm.memory.buffer.size", PAGE_SIZE);
+        return config;
+    }
+
+    private static TypeInformation tupleType() {
+        return new TypeInformation(Tuple2.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(String.class));
+    }
+
+    /**
+     * @return records with keys in [0, keyRange), plus heavy records with key
+     *         <code>Integer.MAX_VALUE</code> and records with a null key.
+     */
+    private static List<Tuple2<Integer,String>> records(final Random random,
+                                                        final int count,
+                                                        final int keyRange,
+                                                        final int heavyCount,
+                                                        final int nullCount) {
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            records.add(new Tuple2<>(random.nextInt(keyRange), "r" + i));
+        for (int i = 0; i < heavyCount; ++i)
+            records.add(new Tuple2<>(Integer.MAX_VALUE, "h" + i));
+        for (int i = 0; i < nullCount; ++i)
+            records.add(new Tuple2<Integer,String>(null, "n" + i));
+        Collections.shuffle(records, random);
+        return records;
+    }
+
+    private static HybridHashJoin.IRecordSource source(final List<?> records) {
+        return new HybridHashJoin.IRecordSource() {
+
+            private int index = 0;
+
+            @Override
+            public Object next() {
+                return (index < records.size()) ? records.get(index++) : null;
+            }
+        };
+    }
+
+    /**
+     * Runs the hash join operator twice, like in an iteration, and compares both results with a
+     * join over a hash map.
+     */
+    private static void assertJoin(final Map<String,Object> config,
+                                   final List<Tuple2<Integer,String>> build,
+                                   final List<Tuple2<Integer,String>> probe) throws Throwable {
+
+        final Map<Integer,List<Tuple2<Integer,String>>> table = new HashMap<>();
+        for (final Tuple2<Integer,String> record : build) {
+            if (!table.containsKey(record._1))
+                table.put(record._1, new ArrayList<Tuple2<Integer,String>>());
+            table.get(record._1).add(record);
+        }
+        final List<String> expected = new ArrayList<>();
+        for (final Tuple2<Integer,String> record : probe) {
+            final List<Tuple2<Integer,String>> matches = table.get(record._1);
+            if (matches != null) {
+                for (final Tuple2<Integer,String> match : matches)
+                    expected.add(match + "|" + record);
+            }
+        }
+        Collections.sort(expected);
+
+        final HashJoinPhysicalOperator<Tuple2<Integer,String>,Tuple2<Integer,String>> join = createJoin(config, build, probe);
+        for (int iteration = 0; iteration < 2; ++iteration)
+            assertEquals(expected, join(join));
+    }
+
+    private static HashJoinPhysicalOperator<Tuple2<Integer,String>,Tuple2<Integer,String>> createJoin(final Map<String,Object> config,
+                                                                                                    final List<Tuple2<Integer,String>> build,
+                                                                                                    final List<Tuple2<Integer,String>> probe) {
+        final IExecutionContext context = OperatorTestHelper.createContext(config, joinProperties());
+        return new HashJoinPhysicalOperator<>(context,
+                new OperatorTestHelper.CollectionSource<>(context, build),
+                new OperatorTestHelper.CollectionSource<>(context, probe));
+    }
+
+    /**
+     * @return the sorted pairs of build and probe record.
+     */
+    private static List<String> join(final HashJoinPhysicalOperator<Tuple2<Integer,String>,Tuple2<Integer,String>> join) throws Throwable {
+        final List<String> result = new ArrayList<>();
+        for (final Tuple2<Tuple2<Integer,String>,Tuple2<Integer,String>> pair : OperatorTestHelper.collect(join))
+            result.add(pair._1 + "|" + pair._2);
+        Collections.sort(result);
+        return result;
+    }
+
+    private static DataflowNodeProperties joinProperties() {
+        final TypeInformation type = tupleType();
+        final int[][] keyIndices = new int[][] {type.buildFieldSelectorChain("_1")};
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.HASH_JOIN_OPERATOR,
+                "HashJoin",
+                1,
+                1,
+                null,
+                null,
+                type,
+                type,
+                new TypeInformation(Tuple2.class, type, type),
+                null,
+                keyIndices,
+                keyIndices,
+                null, null, null,
+                null, null, null
+        );
+    }
+}
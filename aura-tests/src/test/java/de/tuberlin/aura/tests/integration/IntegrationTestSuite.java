@@ -14,6 +14,23 @@ import org.slf4j.LoggerFactory;
 @RunWith(Suite.class)
 
 @Suite.SuiteClasses({
+        MagazineBufferAllocatorTest.class,
+        BufferAllocatorGroupTest.class,
+        ZeroCopyTransferTest.class,
+        TupleSerializerBuilderTest.class,
+        OperatorResultTest.class,
+        FusedChainTest.class,
+        HybridHashJoinTest.class,
+        MergeJoinTest.class,
+        ExternalSorterTest.class,
+        HashBasedFoldTest.class,
+        SetOperatorsTest.class,
+        FieldSelectorTest.class,
+        PrimitiveHashSetTest.class,
+        ColumnarStoreTest.class,
+        SerializedDatasetTest.class,
+        RangePartitionerTest.class,
+        KeyedRecordStoreTest.class,
         PlainTopologiesTest.class,
         DataflowTest.class,
         ParallelDataflowTest.class,
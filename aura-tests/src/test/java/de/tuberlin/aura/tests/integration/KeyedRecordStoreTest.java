@@ -0,0 +1,201 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.datasets.MutableDataset;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.KeyedRecordStore;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.record.KeySelector;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+public final class KeyedRecordStoreTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int PAGE_SIZE = 8192;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    /**
+     * The index and the pages grow far beyond their initial sizes.
+     */
+    @Test
+    public void testGrowth() {
+        final BufferAllocator allocator = new BufferAllocator(PAGE_SIZE, 1024);
+        final KeyedRecordStore store = createStore(allocator);
+
+        final Map<Integer,Tuple2<Integer,String>> expected = new HashMap<>();
+        for (int i = 0; i < 100000; ++i) {
+            final Tuple2<Integer,String> record = new Tuple2<>(i * 7, "v" + i);
+            store.put(record);
+            expected.put(record._1, record);
+        }
+        // a null key can not be packed and is kept apart.
+        final Tuple2<Integer,String> nullKey = new Tuple2<>(null, "null");
+        store.put(nullKey);
+        expected.put(null, nullKey);
+
+        assertStore(expected, store);
+        assertNull(store.get(new Object[] {1}));
+        assertFalse(store.containsKey(new Object[] {1}));
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertFalse(store.iterator().hasNext());
+        assertTrue(allocator.isNotUsed());
+    }
+
+    /**
+     * Updates that grow the records are appended, the replaced records are compacted away, so the
+     * updates fit into a budget that holds the records only a few times.
+     */
+    @Test
+    public void testUpdates() {
+        final BufferAllocator allocator = new BufferAllocator(PAGE_SIZE, 64);
+        final KeyedRecordStore store = createStore(allocator);
+
+        final Map<Integer,Tuple2<Integer,String>> expected = new HashMap<>();
+        for (int round = 0; round < 20; ++round) {
+            for (int i = 0; i < 2000; ++i) {
+                // the value grows every other round, otherwise it is overwritten in place.
+                final StringBuilder value = new StringBuilder();
+                for (int j = 0; j <= round / 2; ++j)
+                    value.append("value-").append(round);
+                final Tuple2<Integer,String> record = new Tuple2<>((i % 100 == 0) ? null : i, value.toString());
+                if (i % 2 == 0)
+                    store.put(record);
+                else
+                    store.put(new Object[] {record._1}, record);
+                expected.put(record._1, record);
+            }
+        }
+
+        assertStore(expected, store);
+
+        store.clear();
+        assertTrue(allocator.isNotUsed());
+    }
+
+    @Test
+    public void testExhaustedBudget() {
+        final BufferAllocator allocator = new BufferAllocator(PAGE_SIZE, 8);
+        final KeyedRecordStore store = createStore(allocator);
+
+        try {
+            for (int i = 0; i < 100000; ++i)
+                store.put(new Tuple2<>(i, "value-" + i));
+            fail();
+        } catch (IllegalStateException e) {
+            // expected.
+        }
+
+        store.clear();
+        assertTrue(allocator.isNotUsed());
+    }
+
+    /**
+     * A mutable dataset of a few million elements outgrows the operator memory budget but fits into
+     * the dataset memory budget.
+     */
+    @Test
+    public void testMutableDatasetBeyondOperatorBudget() {
+        final int elementCount = 2000000;
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.datasets.memory.budget", 256L * 1024 * 1024);
+        final IExecutionContext context = OperatorTestHelper.createContext(config, datasetProperties());
+        assertTrue(OperatorMemory.getMemoryBudget(context) < 64L * 1024 * 1024);
+
+        final MutableDataset<Tuple2<Integer,String>> dataset = new MutableDataset<>(context);
+        for (int i = 0; i < elementCount; ++i)
+            dataset.add(new Tuple2<>(i, "element-value-" + i));
+        for (int i = 0; i < elementCount; i += 2)
+            dataset.update(new Tuple2<>(i, "updated-value-" + i));
+
+        assertEquals(elementCount, dataset.getData().size());
+        for (int i = 0; i < elementCount; ++i)
+            assertEquals(((i % 2 == 0) ? "updated-value-" : "element-value-") + i, dataset.get(new Object[] {i})._2);
+
+        dataset.clear();
+        assertEquals(0, dataset.getData().size());
+
+        // without a configured budget a dataset takes a quarter of the heap.
+        final IExecutionContext defaultContext = OperatorTestHelper.createContext(Collections.<String,Object>emptyMap(), datasetProperties());
+        assertEquals(Runtime.getRuntime().maxMemory() / 4, OperatorMemory.getDatasetMemoryBudget(defaultContext));
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static TypeInformation tupleType() {
+        return new TypeInformation(Tuple2.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(String.class));
+    }
+
+    private static DataflowNodeProperties datasetProperties() {
+        final TypeInformation type = tupleType();
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.MUTABLE_DATASET,
+                "Dataset",
+                1,
+                1,
+                null,
+                null,
+                type,
+                null,
+                type,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                new int[][] {type.buildFieldSelectorChain("_1")},
+                null, null
+        );
+    }
+
+    private static KeyedRecordStore createStore(final BufferAllocator allocator) {
+        final TypeInformation type = tupleType();
+        return new KeyedRecordStore(type, new KeySelector(type, new int[][] {type.buildFieldSelectorChain("_1")}), allocator);
+    }
+
+    private static void assertStore(final Map<Integer,Tuple2<Integer,String>> expected, final KeyedRecordStore store) {
+        assertEquals(expected.size(), store.size());
+        for (final Map.Entry<Integer,Tuple2<Integer,String>> entry : expected.entrySet()) {
+            assertTrue(store.containsKey(new Object[] {entry.getKey()}));
+            assertTrue(store.containsKeyOf(entry.getValue()));
+            assertEquals(entry.getValue(), store.get(new Object[] {entry.getKey()}));
+        }
+
+        int count = 0;
+        for (final Iterator<Object> it = store.iterator(); it.hasNext(); ++count) {
+            final Object record = it.next();
+            assertEquals(expected.get(((Tuple2) record)._1), record);
+        }
+        assertEquals(expected.size(), count);
+    }
+}
@@ -0,0 +1,184 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertFalse;
+
+import java.util.UUID;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.tuberlin.aura.client.api.AuraClient;
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.taskmanager.spi.AbstractInvokeable;
+import de.tuberlin.aura.core.topology.Topology;
+import de.tuberlin.aura.tests.util.TestHelper;
+
+public final class LocalDirectChannelTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int BUFFER_COUNT = 50;
+
+    private static final long TIMEOUT = 60000;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    private static AuraClient auraClient;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @BeforeClass
+    public static void setup() {
+
+        if (!LocalDirectChannelTestSuite.isRunning)
+            LocalDirectChannelTestSuite.setUpTestEnvironment();
+
+        auraClient = new AuraClient(IConfigFactory.load(IConfig.Type.CLIENT));
+    }
+
+    /**
+     * The sources are exhausted while the slow sinks still hold their buffers. A source releases
+     * its allocator, and checks it for leaks, only after the sink freed all buffers of the channel.
+     */
+    @Test
+    public void testSlowConsumer() throws InterruptedException {
+        runTopology(two_layer_point2point_slow_sink(auraClient));
+    }
+
+    @Test
+    public void testSlowConsumerAllToAll() throws InterruptedException {
+        runTopology(two_layer_all2all_slow_sink(auraClient));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+
+        if (!LocalDirectChannelTestSuite.isRunning) {
+            LocalDirectChannelTestSuite.tearDownTestEnvironment();
+        }
+
+        auraClient.closeSession();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * A task whose leak check fails never finishes, so the topology does not either.
+     */
+    private static void runTopology(final Topology.AuraTopology topology) throws InterruptedException {
+        final Thread runner = new Thread() {
+
+            @Override
+            public void run() {
+                TestHelper.runTopology(auraClient, topology);
+            }
+        };
+        runner.setDaemon(true);
+        runner.start();
+        runner.join(TIMEOUT);
+
+        assertFalse("topology '" + topology.name + "' did not finish", runner.isAlive());
+    }
+
+    // --------------------------------------------------
+    // Topologies.
+    // --------------------------------------------------
+
+    public static Topology.AuraTopology two_layer_point2point_slow_sink(final AuraClient auraClient) {
+        Topology.AuraTopologyBuilder atb = auraClient.createTopologyBuilder();
+        atb.addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Source", 2, 1, Source.class.getName()))
+                .connectTo("Sink", Topology.Edge.TransferType.POINT_TO_POINT)
+                .addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Sink", 2, 1, SlowSink.class.getName()));
+
+        return atb.build("Job: 2 layered - point2point connection (direct, slow sink)");
+    }
+
+    public static Topology.AuraTopology two_layer_all2all_slow_sink(final AuraClient auraClient) {
+        Topology.AuraTopologyBuilder atb = auraClient.createTopologyBuilder();
+        atb.addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Source", 2, 1, Source.class.getName()))
+                .connectTo("Sink", Topology.Edge.TransferType.ALL_TO_ALL)
+                .addNode(new Topology.InvokeableNode(UUID.randomUUID(), "Sink", 2, 1, SlowSink.class.getName()));
+
+        return atb.build("Job: 2 layered - all2all connection (direct, slow sink)");
+    }
+
+    // --------------------------------------------------
+    // Invokeables.
+    // --------------------------------------------------
+
+    public static class Source extends AbstractInvokeable {
+
+        public Source() {
+        }
+
+        @Override
+        public void run() throws Throwable {
+
+            int i = 0;
+            while (i++ < BUFFER_COUNT && isInvokeableRunning()) {
+
+                final MemoryView buffer = producer.getAllocator().allocBlocking();
+
+                producer.broadcast(0, buffer);
+            }
+
+            LOG.info("Source finished");
+        }
+
+        @Override
+        public void close() throws Throwable {
+            producer.done(0);
+        }
+    }
+
+    public static class SlowSink extends AbstractInvokeable {
+
+        long count = 0;
+
+        public SlowSink() {
+        }
+
+        @Override
+        public void open() throws Throwable {
+            consumer.openGate(0);
+        }
+
+        @Override
+        public void run() throws Throwable {
+
+            while (!consumer.isExhausted() && isInvokeableRunning()) {
+
+                final IOEvents.TransferBufferEvent event = consumer.absorb(0);
+
+                if (event != null) {
+
+                    count++;
+
+                    // keeps the buffer until its source is exhausted.
+                    Thread.sleep(5);
+
+                    event.buffer.free();
+                }
+            }
+
+            LOG.info("Sink finished {}.", count);
+
+            // sanity check.
+            final long expected = BUFFER_COUNT * runtime.getBindingDescriptor().inputGateBindings.get(0).size();
+            if (count != expected)
+                throw new IllegalStateException("sink received " + count + " of " + expected + " buffers");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package de.tuberlin.aura.tests.integration;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import com.typesafe.config.ConfigFactory;
+
+import de.tuberlin.aura.client.executors.LocalClusterSimulator;
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+
+/**
+ * Runs the tests on a single task manager with direct local channels, so all tasks are co-located
+ * and hand their buffers to each other by reference. The suite runs in a fork of its own.
+ */
+@RunWith(Suite.class)
+
+@Suite.SuiteClasses({
+        LocalDirectChannelTest.class})
+
+public class LocalDirectChannelTestSuite {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    public static final int EXECUTION_UNITS = 4;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    public static LocalClusterSimulator clusterSimulator = null;
+
+    public static boolean isRunning = false;
+
+    // --------------------------------------------------
+    // Test Suite Methods.
+    // --------------------------------------------------
+
+    @BeforeClass
+    public static void setIsRunningTrue() {
+        isRunning = true;
+    }
+
+    @BeforeClass
+    public static void setUpTestEnvironment() {
+
+        // the memory manager sets up allocator groups per core. with fewer cores than execution units
+        // the units share groups and the leak check of a task counts the buffers of the others.
+        System.setProperty("simulator.tm.number", "1");
+        System.setProperty("tm.machine.cpu.cores", String.valueOf(EXECUTION_UNITS));
+        System.setProperty("tm.execution.units.number", String.valueOf(EXECUTION_UNITS));
+        System.setProperty("tm.io.local.direct", "true");
+        ConfigFactory.invalidateCaches();
+
+        clusterSimulator = new LocalClusterSimulator(IConfigFactory.load(IConfig.Type.SIMULATOR));
+    }
+
+    @AfterClass
+    public static void setIsRunningFalse() {
+        isRunning = false;
+    }
+
+    @AfterClass
+    public static void tearDownTestEnvironment() {
+
+        if (clusterSimulator != null) {
+            clusterSimulator.shutdown();
+            clusterSimulator = null;
+        }
+
+        System.clearProperty("simulator.tm.number");
+        System.clearProperty("tm.machine.cpu.cores");
+        System.clearProperty("tm.execution.units.number");
+        System.clearProperty("tm.io.local.direct");
+        ConfigFactory.invalidateCaches();
+    }
+}
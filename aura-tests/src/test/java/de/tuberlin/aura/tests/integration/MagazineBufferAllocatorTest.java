@@ -0,0 +1,198 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.memory.MagazineBufferAllocator;
+import de.tuberlin.aura.core.memory.MemoryView;
+
+public class MagazineBufferAllocatorTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int BUFFER_COUNT = 512;
+
+    private static final int MAGAZINE_SIZE = 16;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testConcurrentAllocAndFree() throws Throwable {
+        for (final int allocatingThreads : new int[] {1, 4, 16}) {
+            runStress(new MagazineBufferAllocator(BUFFER_SIZE, BUFFER_COUNT, MAGAZINE_SIZE, null), allocatingThreads, 20000);
+        }
+    }
+
+    @Test
+    public void testBuffersFreedByFreeOnlyThreadAreVisible() throws Throwable {
+        final MagazineBufferAllocator allocator = new MagazineBufferAllocator(BUFFER_SIZE, BUFFER_COUNT, MAGAZINE_SIZE, null);
+
+        for (int round = 0; round < 3; ++round) {
+            final List<MemoryView> buffers = new ArrayList<>();
+            for (int i = 0; i < BUFFER_COUNT; ++i) {
+                final MemoryView buffer = allocator.alloc();
+                assertNotNull("buffer " + i + " of round " + round + " is not visible", buffer);
+                buffers.add(buffer);
+            }
+            assertNull(allocator.alloc());
+
+            final Thread freeingThread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (final MemoryView buffer : buffers)
+                        buffer.free();
+                }
+            });
+            freeingThread.start();
+            freeingThread.join();
+        }
+
+        allocator.checkForMemoryLeaks();
+    }
+
+    /**
+     * The buffers cached in the magazine of an exited thread are not lost.
+     */
+    @Test
+    public void testMagazineOfExitedThreadIsReclaimed() throws Throwable {
+        final MagazineBufferAllocator allocator = new MagazineBufferAllocator(BUFFER_SIZE, BUFFER_COUNT, MAGAZINE_SIZE, null);
+
+        final Thread exitingThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                final List<MemoryView> buffers = new ArrayList<>();
+                for (int i = 0; i < MAGAZINE_SIZE; ++i)
+                    buffers.add(allocator.alloc());
+                for (final MemoryView buffer : buffers)
+                    buffer.free();
+            }
+        });
+        exitingThread.start();
+        exitingThread.join();
+
+        final List<MemoryView> buffers = new ArrayList<>();
+        for (int i = 0; i < BUFFER_COUNT; ++i) {
+            final MemoryView buffer = allocator.alloc();
+            assertNotNull("buffer " + i + " is lost", buffer);
+            buffers.add(buffer);
+        }
+        assertNull(allocator.alloc());
+
+        for (final MemoryView buffer : buffers)
+            buffer.free();
+        allocator.checkForMemoryLeaks();
+    }
+
+    // --------------------------------------------------
+    // Private Methods.
+    // --------------------------------------------------
+
+    /**
+     * The allocating threads pass their buffers to two threads that only free, like the execution
+     * units and the netty threads do. Every buffer must be handed out to at most one owner at a time.
+     */
+    private static void runStress(final MagazineBufferAllocator allocator, final int allocatingThreads, final int allocsPerThread) throws Throwable {
+        final Set<MemoryView> inUse = Collections.newSetFromMap(new ConcurrentHashMap<MemoryView, Boolean>());
+        final BlockingQueue<MemoryView> handOff = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch allocatorsDone = new CountDownLatch(allocatingThreads);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < allocatingThreads; ++t) {
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < allocsPerThread; ++i) {
+                            MemoryView buffer = allocator.alloc();
+                            if (buffer == null)
+                                buffer = allocator.allocBlocking();
+                            if (!inUse.add(buffer))
+                                throw new IllegalStateException("buffer handed out twice");
+                            // free half of the buffers in the allocating thread itself.
+                            if ((i & 1) == 0) {
+                                inUse.remove(buffer);
+                                buffer.free();
+                            } else {
+                                handOff.put(buffer);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        allocatorsDone.countDown();
+                    }
+                }
+            }));
+        }
+        for (int t = 0; t < 2; ++t) {
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        while (allocatorsDone.getCount() > 0 || !handOff.isEmpty()) {
+                            final MemoryView buffer = handOff.poll(10, TimeUnit.MILLISECONDS);
+                            if (buffer == null)
+                                continue;
+                            if (!inUse.remove(buffer))
+                                throw new IllegalStateException("freed buffer was not in use");
+                            buffer.free();
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads)
+            thread.start();
+        for (final Thread thread : threads)
+            thread.join();
+
+        if (failure.get() != null)
+            throw failure.get();
+
+        assertTrue(inUse.isEmpty());
+        assertTrue(allocator.isNotUsed());
+        allocator.checkForMemoryLeaks();
+
+        // the buffers left for this thread are distinct.
+        final List<MemoryView> buffers = new ArrayList<>();
+        final Set<MemoryView> distinct = Collections.newSetFromMap(new ConcurrentHashMap<MemoryView, Boolean>());
+        MemoryView buffer;
+        while ((buffer = allocator.alloc()) != null) {
+            buffers.add(buffer);
+            distinct.add(buffer);
+        }
+        assertEquals(buffers.size(), distinct.size());
+        for (final MemoryView b : buffers)
+            b.free();
+        allocator.checkForMemoryLeaks();
+    }
+}
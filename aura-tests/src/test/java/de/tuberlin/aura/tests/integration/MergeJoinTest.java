@@ -0,0 +1,267 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.impl.MergeJoinPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.ExternalSorter;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.record.OperatorResult;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+public final class MergeJoinTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int PAGE_SIZE = 8192;
+
+    // eight pages, far less than the heavy key group of the spilling test.
+    private static final long SMALL_BUDGET = 64 * 1024;
+
+    private static final File SPILL_DIR = new File(System.getProperty("java.io.tmpdir"));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testManyToManyGroups() throws Throwable {
+        final Random random = new Random(1);
+        final List<Tuple2<Integer,String>> input1 = records(random, 3000, 300, 0, 0);
+        final List<Tuple2<Integer,String>> input2 = records(random, 3000, 400, 0, 0);
+
+        for (final boolean isDescending : new boolean[] {false, true})
+            assertJoin(Collections.<String,Object>emptyMap(), input1, input2, isDescending);
+    }
+
+    /**
+     * The group of the heavy key does not fit into the budget, its tail is spilled and read again
+     * for every record of input 2 with that key.
+     */
+    @Test
+    public void testSpilledGroup() throws Throwable {
+        final Random random = new Random(2);
+        final List<Tuple2<Integer,String>> input1 = records(random, 2000, 500, 20000, 0);
+        final List<Tuple2<Integer,String>> input2 = records(random, 2000, 500, 3, 0);
+
+        final File spillDir = Files.createTempDirectory("aura-merge-join-").toFile();
+        try {
+            final Map<String,Object> config = smallBudget();
+            config.put("tm.operators.spill.dir", spillDir.getPath());
+
+            for (final boolean isDescending : new boolean[] {false, true}) {
+                final MergeJoinPhysicalOperator<Tuple2<Integer,String>,Tuple2<Integer,String>> join =
+                        createJoin(config, sort(input1, isDescending), sort(input2, isDescending), isDescending);
+
+                join.open();
+                final List<String> result = new ArrayList<>();
+                int heavyMatches = 0;
+                for (OperatorResult<Tuple2<Tuple2<Integer,String>,Tuple2<Integer,String>>> r = join.next();
+                     r.marker != OperatorResult.StreamMarker.END_OF_STREAM_MARKER;
+                     r = join.next()) {
+                    // the heavy group is read when its first match is returned.
+                    if (Integer.valueOf(Integer.MAX_VALUE).equals(r.element._1._1) && heavyMatches++ == 0)
+                        assertEquals(1, spillDir.list().length);
+                    result.add(r.element._1 + "|" + r.element._2);
+                }
+                join.close();
+                Collections.sort(result);
+
+                assertEquals(expectedJoin(input1, input2), result);
+                assertEquals(0, spillDir.list().length);
+            }
+        } finally {
+            spillDir.delete();
+        }
+    }
+
+    /**
+     * The inputs are sorted by the external sorter, which puts null keys first in ascending and
+     * last in descending order. Null keys only match null keys.
+     */
+    @Test
+    public void testNullKeysInSorterOrder() throws Throwable {
+        final Random random = new Random(3);
+        final List<Tuple2<Integer,String>> input1 = records(random, 2000, 200, 0, 30);
+        final List<Tuple2<Integer,String>> input2 = records(random, 2000, 200, 0, 5);
+
+        for (final boolean isDescending : new boolean[] {false, true}) {
+            assertJoin(Collections.<String,Object>emptyMap(), input1, input2, isDescending);
+            assertJoin(smallBudget(), input1, input2, isDescending);
+        }
+
+        // a null key on one side only.
+        final List<Tuple2<Integer,String>> withoutNulls = records(random, 500, 200, 0, 0);
+        for (final boolean isDescending : new boolean[] {false, true}) {
+            assertJoin(Collections.<String,Object>emptyMap(), input1, withoutNulls, isDescending);
+            assertJoin(Collections.<String,Object>emptyMap(), withoutNulls, input2, isDescending);
+        }
+    }
+
+    @Test
+    public void testEmptySide() throws Throwable {
+        final List<Tuple2<Integer,String>> records = records(new Random(4), 1000, 100, 0, 10);
+        final List<Tuple2<Integer,String>> empty = Collections.emptyList();
+
+        for (final boolean isDescending : new boolean[] {false, true}) {
+            assertJoin(Collections.<String,Object>emptyMap(), records, empty, isDescending);
+            assertJoin(Collections.<String,Object>emptyMap(), empty, records, isDescending);
+            assertJoin(Collections.<String,Object>emptyMap(), empty, empty, isDescending);
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static Map<String,Object> smallBudget() {
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.operators.memory.budget", SMALL_BUDGET);
+        config.put("tm.memory.buffer.size", PAGE_SIZE);
+        return config;
+    }
+
+    private static TypeInformation tupleType() {
+        return new TypeInformation(Tuple2.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(String.class));
+    }
+
+    /**
+     * @return records with keys in [0, keyRange), plus heavy records with key
+     *         <code>Integer.MAX_VALUE</code> and records with a null key.
+     */
+    private static List<Tuple2<Integer,String>> records(final Random random,
+                                                        final int count,
+                                                        final int keyRange,
+                                                        final int heavyCount,
+                                                        final int nullCount) {
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            records.add(new Tuple2<>(random.nextInt(keyRange), "r" + i));
+        for (int i = 0; i < heavyCount; ++i)
+            records.add(new Tuple2<>(Integer.MAX_VALUE, "h" + i));
+        for (int i = 0; i < nullCount; ++i)
+            records.add(new Tuple2<Integer,String>(null, "n" + i));
+        Collections.shuffle(records, random);
+        return records;
+    }
+
+    /**
+     * @return the records in the order of the external sorter, as a sort operator would deliver them.
+     */
+    private static List<Tuple2<Integer,String>> sort(final List<Tuple2<Integer,String>> records, final boolean isDescending) {
+        final TypeInformation type = tupleType();
+        final ExternalSorter sorter = new ExternalSorter(new BufferAllocator(PAGE_SIZE, 1024), SPILL_DIR, type,
+                new int[][] {type.buildFieldSelectorChain("_1")}, isDescending);
+
+        for (final Tuple2<Integer,String> record : records)
+            sorter.add(record);
+        sorter.sort();
+
+        final List<Tuple2<Integer,String>> sorted = new ArrayList<>();
+        for (Object record = sorter.next(); record != null; record = sorter.next()) {
+            @SuppressWarnings("unchecked")
+            final Tuple2<Integer,String> tuple = (Tuple2<Integer,String>) record;
+            sorted.add(tuple);
+        }
+        sorter.close();
+        return sorted;
+    }
+
+    /**
+     * @return the sorted pairs of a join over a hash map, where a null key matches null keys.
+     */
+    private static List<String> expectedJoin(final List<Tuple2<Integer,String>> input1,
+                                             final List<Tuple2<Integer,String>> input2) {
+        final Map<Integer,List<Tuple2<Integer,String>>> table = new HashMap<>();
+        for (final Tuple2<Integer,String> record : input1) {
+            if (!table.containsKey(record._1))
+                table.put(record._1, new ArrayList<Tuple2<Integer,String>>());
+            table.get(record._1).add(record);
+        }
+        final List<String> expected = new ArrayList<>();
+        for (final Tuple2<Integer,String> record : input2) {
+            final List<Tuple2<Integer,String>> matches = table.get(record._1);
+            if (matches != null) {
+                for (final Tuple2<Integer,String> match : matches)
+                    expected.add(match + "|" + record);
+            }
+        }
+        Collections.sort(expected);
+        return expected;
+    }
+
+    /**
+     * Runs the merge join operator twice on the sorted inputs, like in an iteration, and compares
+     * both results with a join over a hash map.
+     */
+    private static void assertJoin(final Map<String,Object> config,
+                                   final List<Tuple2<Integer,String>> input1,
+                                   final List<Tuple2<Integer,String>> input2,
+                                   final boolean isDescending) throws Throwable {
+
+        final List<String> expected = expectedJoin(input1, input2);
+
+        final MergeJoinPhysicalOperator<Tuple2<Integer,String>,Tuple2<Integer,String>> join =
+                createJoin(config, sort(input1, isDescending), sort(input2, isDescending), isDescending);
+        for (int iteration = 0; iteration < 2; ++iteration) {
+            final List<String> result = new ArrayList<>();
+            for (final Tuple2<Tuple2<Integer,String>,Tuple2<Integer,String>> pair : OperatorTestHelper.collect(join))
+                result.add(pair._1 + "|" + pair._2);
+            Collections.sort(result);
+            assertEquals(expected, result);
+        }
+    }
+
+    private static MergeJoinPhysicalOperator<Tuple2<Integer,String>,Tuple2<Integer,String>> createJoin(final Map<String,Object> config,
+                                                                                                     final List<Tuple2<Integer,String>> input1,
+                                                                                                     final List<Tuple2<Integer,String>> input2,
+                                                                                                     final boolean isDescending) {
+        final IExecutionContext context = OperatorTestHelper.createContext(config, joinProperties(isDescending));
+        return new MergeJoinPhysicalOperator<>(context,
+                new OperatorTestHelper.CollectionSource<>(context, input1),
+                new OperatorTestHelper.CollectionSource<>(context, input2));
+    }
+
+    private static DataflowNodeProperties joinProperties(final boolean isDescending) {
+        final TypeInformation type = tupleType();
+        final int[][] keyIndices = new int[][] {type.buildFieldSelectorChain("_1")};
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.MERGE_JOIN_OPERATOR,
+                "MergeJoin",
+                1,
+                1,
+                null,
+                null,
+                type,
+                type,
+                new TypeInformation(Tuple2.class, type, type),
+                null,
+                keyIndices,
+                keyIndices,
+                null,
+                isDescending ? DataflowNodeProperties.SortOrder.DESCENDING : DataflowNodeProperties.SortOrder.ASCENDING,
+                null,
+                null, null, null
+        );
+    }
+}
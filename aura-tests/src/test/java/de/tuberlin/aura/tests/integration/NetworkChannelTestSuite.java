@@ -0,0 +1,81 @@
+package de.tuberlin.aura.tests.integration;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import com.typesafe.config.ConfigFactory;
+
+import de.tuberlin.aura.client.executors.LocalClusterSimulator;
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+
+/**
+ * Runs the tests on two task managers, so the tasks of a node are spread over both and exchange
+ * their buffers over network channels. The suite runs in a fork of its own.
+ */
+@RunWith(Suite.class)
+
+@Suite.SuiteClasses({
+        BroadcastFanOutTest.class,
+        CreditFlowControlTest.class})
+
+public class NetworkChannelTestSuite {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    public static final int TASK_MANAGERS = 2;
+
+    public static final int EXECUTION_UNITS = 4;
+
+    // ---------------------------------------------------
+    // Fields.
+    // ---------------------------------------------------
+
+    public static LocalClusterSimulator clusterSimulator = null;
+
+    public static boolean isRunning = false;
+
+    // --------------------------------------------------
+    // Test Suite Methods.
+    // --------------------------------------------------
+
+    @BeforeClass
+    public static void setIsRunningTrue() {
+        isRunning = true;
+    }
+
+    @BeforeClass
+    public static void setUpTestEnvironment() {
+
+        // the memory manager sets up allocator groups per core, see LocalDirectChannelTestSuite.
+        System.setProperty("simulator.tm.number", String.valueOf(TASK_MANAGERS));
+        System.setProperty("tm.machine.cpu.cores", String.valueOf(EXECUTION_UNITS));
+        System.setProperty("tm.execution.units.number", String.valueOf(EXECUTION_UNITS));
+        ConfigFactory.invalidateCaches();
+
+        clusterSimulator = new LocalClusterSimulator(IConfigFactory.load(IConfig.Type.SIMULATOR));
+    }
+
+    @AfterClass
+    public static void setIsRunningFalse() {
+        isRunning = false;
+    }
+
+    @AfterClass
+    public static void tearDownTestEnvironment() {
+
+        if (clusterSimulator != null) {
+            clusterSimulator.shutdown();
+            clusterSimulator = null;
+        }
+
+        System.clearProperty("simulator.tm.number");
+        System.clearProperty("tm.machine.cpu.cores");
+        System.clearProperty("tm.execution.units.number");
+        ConfigFactory.invalidateCaches();
+    }
+}
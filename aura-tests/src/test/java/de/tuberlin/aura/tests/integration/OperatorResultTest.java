@@ -0,0 +1,210 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.impl.FoldPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.GroupByPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.HashJoinPhysicalOperator;
+import de.tuberlin.aura.core.record.OperatorBatch;
+import de.tuberlin.aura.core.record.OperatorResult;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+/**
+ * Operators reuse their result holder. Consumers that need an input across calls of next() keep
+ * the element, these tests check that nothing they keep aliases a later result.
+ */
+public final class OperatorResultTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final TypeInformation INPUT_TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(Integer.class));
+
+    private static final TypeInformation OUTPUT_TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(Long.class));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testResultHolderIsReused() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = groupedRecords(new Random(1), 10);
+        final IExecutionContext context = OperatorTestHelper.createContext(Collections.<String,Object>emptyMap(), foldProperties());
+        final OperatorTestHelper.CollectionSource<Tuple2<Integer,Integer>> source = new OperatorTestHelper.CollectionSource<>(context, records);
+
+        source.open();
+        final OperatorResult<Tuple2<Integer,Integer>> first = source.next();
+        assertSame(records.get(0), first.element);
+        assertSame(first, source.next());
+        // the first result was overwritten by the second call.
+        assertSame(records.get(1), first.element);
+        source.close();
+    }
+
+    /**
+     * The group-by reads the first element of the next group ahead, while the fold still folds the
+     * current group. Groups of a single element are only made of that element.
+     */
+    @Test
+    public void testFoldOverGroupBy() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = groupedRecords(new Random(2), 1000);
+
+        assertEquals(reference(records), toMap(OperatorTestHelper.collect(createFold(records))));
+    }
+
+    @Test
+    public void testFoldOverGroupByInBatches() throws Throwable {
+        final List<Tuple2<Integer,Integer>> records = groupedRecords(new Random(3), 3000);
+        final FoldPhysicalOperator<Tuple2<Integer,Integer>,Tuple2<Integer,Long>> fold = createFold(records);
+
+        final List<Tuple2<Integer,Long>> result = new ArrayList<>();
+        fold.open();
+        OperatorBatch<Tuple2<Integer,Long>> batch;
+        do {
+            batch = fold.nextBatch();
+            for (int i = 0; i < batch.size(); ++i)
+                result.add(batch.get(i));
+        } while (!batch.isEndOfStream());
+        fold.close();
+
+        assertEquals(reference(records), toMap(result));
+    }
+
+    /**
+     * The join keeps the build side across all calls of next() on its build input.
+     */
+    @Test
+    public void testJoinBuildSide() throws Throwable {
+        final List<Tuple2<Integer,Integer>> build = new ArrayList<>();
+        final List<Tuple2<Integer,Integer>> probe = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            build.add(new Tuple2<>(i, i));
+            probe.add(new Tuple2<>(999 - i, -i));
+        }
+
+        final IExecutionContext context = OperatorTestHelper.createContext(Collections.<String,Object>emptyMap(), joinProperties());
+        final HashJoinPhysicalOperator<Tuple2<Integer,Integer>,Tuple2<Integer,Integer>> join =
+                new HashJoinPhysicalOperator<>(context,
+                        new OperatorTestHelper.CollectionSource<>(context, build),
+                        new OperatorTestHelper.CollectionSource<>(context, probe));
+
+        final List<Tuple2<Tuple2<Integer,Integer>,Tuple2<Integer,Integer>>> pairs = OperatorTestHelper.collect(join);
+        assertEquals(build.size(), pairs.size());
+        final boolean[] seen = new boolean[build.size()];
+        for (final Tuple2<Tuple2<Integer,Integer>,Tuple2<Integer,Integer>> pair : pairs) {
+            assertEquals(pair._1._1, pair._2._1);
+            assertEquals(pair._1._1, pair._1._2);
+            assertEquals(Integer.valueOf(pair._1._1 - 999), pair._2._2);
+            seen[pair._1._1] = true;
+        }
+        for (final boolean s : seen)
+            assertTrue(s);
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return records sorted by their key, in groups of one to four records.
+     */
+    private static List<Tuple2<Integer,Integer>> groupedRecords(final Random random, final int groupCount) {
+        final List<Tuple2<Integer,Integer>> records = new ArrayList<>();
+        for (int key = 0; key < groupCount; ++key) {
+            final int groupSize = 1 + random.nextInt(4);
+            for (int i = 0; i < groupSize; ++i)
+                records.add(new Tuple2<>(key, random.nextInt(100)));
+        }
+        return records;
+    }
+
+    private static Map<Integer,Long> reference(final List<Tuple2<Integer,Integer>> records) {
+        final Map<Integer,Long> sums = new LinkedHashMap<>();
+        for (final Tuple2<Integer,Integer> record : records) {
+            final Long sum = sums.get(record._1);
+            sums.put(record._1, (sum == null ? 0L : sum) + record._2);
+        }
+        return sums;
+    }
+
+    /**
+     * Every group is emitted once, in the order of the input.
+     */
+    private static Map<Integer,Long> toMap(final List<Tuple2<Integer,Long>> values) {
+        final Map<Integer,Long> sums = new LinkedHashMap<>();
+        for (final Tuple2<Integer,Long> value : values)
+            assertEquals(null, sums.put(value._1, value._2));
+        return sums;
+    }
+
+    private static FoldPhysicalOperator<Tuple2<Integer,Integer>,Tuple2<Integer,Long>> createFold(final List<Tuple2<Integer,Integer>> records) {
+        final IExecutionContext context = OperatorTestHelper.createContext(Collections.<String,Object>emptyMap(), foldProperties());
+        return new FoldPhysicalOperator<>(context,
+                new GroupByPhysicalOperator<>(context, new OperatorTestHelper.CollectionSource<>(context, records)),
+                new HashBasedFoldTest.SumFold());
+    }
+
+    private static DataflowNodeProperties foldProperties() {
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.FOLD_OPERATOR,
+                "Fold",
+                1,
+                1,
+                null,
+                null,
+                INPUT_TYPE,
+                null,
+                OUTPUT_TYPE,
+                HashBasedFoldTest.SumFold.class.getName(),
+                null,
+                null,
+                null,
+                null,
+                new int[][] {INPUT_TYPE.buildFieldSelectorChain("_1")},
+                null, null, null
+        );
+    }
+
+    private static DataflowNodeProperties joinProperties() {
+        final int[][] keyIndices = new int[][] {INPUT_TYPE.buildFieldSelectorChain("_1")};
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.HASH_JOIN_OPERATOR,
+                "HashJoin",
+                1,
+                1,
+                null,
+                null,
+                INPUT_TYPE,
+                INPUT_TYPE,
+                new TypeInformation(Tuple2.class, INPUT_TYPE, INPUT_TYPE),
+                null,
+                keyIndices,
+                keyIndices,
+                null, null, null,
+                null, null, null
+        );
+    }
+}
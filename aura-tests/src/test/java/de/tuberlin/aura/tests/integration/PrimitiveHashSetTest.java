@@ -0,0 +1,196 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.operators.hashtables.IntHashSet;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.LongHashSet;
+import de.tuberlin.aura.core.dataflow.operators.hashtables.PackedKeyHashSet;
+
+public final class PrimitiveHashSetTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    // the multiplier of the key mixing, odd and thus invertible modulo 2^64.
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    /**
+     * The key 0 marks empty slots and is kept apart from the table, also across a resize.
+     */
+    @Test
+    public void testLongZeroKey() {
+        final LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+
+        for (long key = 1; key <= 1000; ++key)
+            assertTrue(set.add(key));
+        assertTrue(set.contains(0));
+        assertEquals(1001, set.size());
+
+        set.clear();
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(1));
+        assertEquals(0, set.size());
+        assertTrue(set.add(0));
+    }
+
+    @Test
+    public void testLongResize() {
+        final Random random = new Random(1);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> reference = new HashSet<>();
+        final long initialMemory = set.getMemorySize();
+
+        final long[] extremes = {Long.MIN_VALUE, Long.MAX_VALUE, -1L, 1L};
+        for (final long key : extremes)
+            assertEquals(reference.add(key), set.add(key));
+
+        // small key ranges give duplicates, multiples of the table size the same slots.
+        for (int i = 0; i < 100000; ++i) {
+            final long key = (i % 2 == 0) ? random.nextLong() : (random.nextInt(20000) * 1024L);
+            assertEquals(reference.add(key), set.add(key));
+        }
+
+        assertEquals(reference.size(), set.size());
+        assertTrue(set.getMemorySize() > initialMemory);
+        for (final long key : reference)
+            assertTrue(set.contains(key));
+        for (int i = 0; i < 10000; ++i) {
+            final long key = random.nextLong();
+            assertEquals(reference.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    public void testIntZeroKey() {
+        final IntHashSet set = new IntHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+
+        for (int key = -500; key <= 500; ++key)
+            assertEquals(key != 0, set.add(key));
+        assertTrue(set.contains(0));
+        assertEquals(1001, set.size());
+
+        set.clear();
+        assertFalse(set.contains(0));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void testIntResize() {
+        final Random random = new Random(2);
+        final IntHashSet set = new IntHashSet();
+        final Set<Integer> reference = new HashSet<>();
+        final long initialMemory = set.getMemorySize();
+
+        for (final int key : new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 1})
+            assertEquals(reference.add(key), set.add(key));
+
+        for (int i = 0; i < 100000; ++i) {
+            final int key = (i % 2 == 0) ? random.nextInt() : random.nextInt(20000) << 10;
+            assertEquals(reference.add(key), set.add(key));
+        }
+
+        assertEquals(reference.size(), set.size());
+        assertTrue(set.getMemorySize() > initialMemory);
+        for (final int key : reference)
+            assertTrue(set.contains(key));
+        for (int i = 0; i < 10000; ++i) {
+            final int key = random.nextInt();
+            assertEquals(reference.contains(key), set.contains(key));
+        }
+    }
+
+    /**
+     * Keys whose mixed hash is 0 must not be taken for empty slots.
+     */
+    @Test
+    public void testPackedZeroHash() {
+        for (int width = 1; width <= 3; ++width) {
+            final PackedKeyHashSet set = new PackedKeyHashSet(width);
+            final long[] zero = new long[width];
+
+            assertFalse(set.contains(zero));
+            assertTrue(set.add(zero));
+            assertFalse(set.add(zero));
+            assertTrue(set.contains(zero));
+            assertEquals(1, set.size());
+
+            set.clear();
+            assertFalse(set.contains(zero));
+            assertEquals(0, set.size());
+        }
+    }
+
+    /**
+     * Keys with equal hash codes are told apart by their words, also after the table grew.
+     */
+    @Test
+    public void testPackedHashCollisions() {
+        final PackedKeyHashSet set = new PackedKeyHashSet(2);
+
+        // (k0 + a) * phi + (k1 - a * phi) = k0 * phi + k1, so all keys of a row share one hash.
+        final long[][] keys = new long[1000][];
+        for (int i = 0; i < keys.length; ++i) {
+            final long row = i / 10;
+            final long a = i % 10;
+            keys[i] = new long[] {row + a, row * 31 - a * LONG_PHI};
+        }
+
+        for (final long[] key : keys)
+            assertTrue(set.add(key));
+        assertEquals(keys.length, set.size());
+
+        for (final long[] key : keys) {
+            assertFalse(set.add(key.clone()));
+            assertTrue(set.contains(key.clone()));
+            assertFalse(set.contains(new long[] {key[0], key[1] + 1}));
+        }
+        assertEquals(keys.length, set.size());
+    }
+
+    @Test
+    public void testPackedResize() {
+        final Random random = new Random(3);
+        final PackedKeyHashSet set = new PackedKeyHashSet(3);
+        final Set<String> reference = new HashSet<>();
+        final long initialMemory = set.getMemorySize();
+
+        for (int i = 0; i < 50000; ++i) {
+            final long[] key = {random.nextInt(40), random.nextInt(40), (i % 2 == 0) ? random.nextLong() : random.nextInt(20)};
+            assertEquals(reference.add(key[0] + "," + key[1] + "," + key[2]), set.add(key));
+        }
+
+        assertEquals(reference.size(), set.size());
+        assertEquals(3, set.width());
+        assertTrue(set.getMemorySize() > initialMemory);
+        for (final String s : reference) {
+            final String[] words = s.split(",");
+            assertTrue(set.contains(new long[] {Long.parseLong(words[0]), Long.parseLong(words[1]), Long.parseLong(words[2])}));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackedInvalidWidth() {
+        new PackedKeyHashSet(0);
+    }
+}
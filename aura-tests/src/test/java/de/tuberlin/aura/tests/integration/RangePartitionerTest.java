@@ -0,0 +1,281 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.common.utils.Pair;
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.descriptors.Descriptors;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.iosystem.spi.IIOManager;
+import de.tuberlin.aura.core.record.KeySample;
+import de.tuberlin.aura.core.record.Partitioner;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.core.taskmanager.usercode.UserCode;
+import de.tuberlin.aura.core.topology.Topology;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+import de.tuberlin.aura.workloadmanager.TopologyController;
+import de.tuberlin.aura.workloadmanager.spi.IWorkloadManager;
+
+/**
+ * Computes the split points of the range partitioner from key samples, and merges the samples of
+ * the producers in the workload manager.
+ */
+public final class RangePartitionerTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final TypeInformation TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(String.class));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    /**
+     * Equally weighted keys give every receiver the same number of keys. Keys between two sampled
+     * keys belong to the range of the lower one, keys outside the sample to the first or last range.
+     */
+    @Test
+    public void testUniformSplitPoints() {
+        final List<Object[]> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i)
+            keys.add(new Object[] {2 * i});
+        final Partitioner.RangePartitioner partitioner = createPartitioner(new KeySample(keys, 1));
+
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i / 250, partitioner.partition(record(2 * i), 4));
+            assertEquals(i / 250, partitioner.partition(record(2 * i + 1), 4));
+        }
+        assertEquals(0, partitioner.partition(record(-100), 4));
+        assertEquals(3, partitioner.partition(record(100000), 4));
+
+        // the ranges are computed again for another receiver count.
+        for (int i = 0; i < 1000; ++i)
+            assertEquals(i / 100, partitioner.partition(record(2 * i), 10));
+    }
+
+    /**
+     * The records of a producer with more records weigh more, the split point moves into its keys.
+     */
+    @Test
+    public void testWeightedSplitPoints() {
+        final List<Object[]> lowKeys = new ArrayList<>();
+        final List<Object[]> highKeys = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            lowKeys.add(new Object[] {i});
+            highKeys.add(new Object[] {100 + i});
+        }
+
+        final Partitioner.RangePartitioner partitioner =
+                createPartitioner(KeySample.merge(Arrays.asList(new KeySample(lowKeys, 1), new KeySample(highKeys, 9))));
+
+        // a total weight of 1000, the keys below 145 weigh 100 + 45 * 9 = 505.
+        for (int key = 0; key < 145; ++key)
+            assertEquals(0, partitioner.partition(record(key), 2));
+        for (int key = 145; key < 200; ++key)
+            assertEquals(1, partitioner.partition(record(key), 2));
+    }
+
+    /**
+     * A key heavier than the share of one receiver is spread over the receivers its weight covers,
+     * all other keys keep a single receiver and the ranges stay in key order.
+     */
+    @Test
+    public void testHeavyKeyIsSpread() {
+        final List<Object[]> keys = new ArrayList<>();
+        for (int i = 0; i < 400; ++i)
+            keys.add(new Object[] {i});
+        for (int i = 0; i < 600; ++i)
+            keys.add(new Object[] {200});
+        Collections.shuffle(keys, new Random(1));
+        final Partitioner.RangePartitioner partitioner = createPartitioner(new KeySample(keys, 1));
+
+        final SortedSet<Integer> heavyReceivers = new TreeSet<>();
+        for (int i = 0; i < 100; ++i)
+            heavyReceivers.add(partitioner.partition(record(200), 5));
+        // the key covers 60% of the weight, starting in the second receiver.
+        assertEquals(new TreeSet<>(Arrays.asList(1, 2, 3, 4)), heavyReceivers);
+
+        int previous = 0;
+        for (int key = 0; key < 400; ++key) {
+            if (key == 200)
+                continue;
+            final int receiver = partitioner.partition(record(key), 5);
+            assertEquals(receiver, partitioner.partition(record(key), 5));
+            assertTrue(receiver >= previous);
+            previous = receiver;
+        }
+        assertEquals(4, previous);
+    }
+
+    @Test
+    public void testEmptySample() {
+        final Partitioner.RangePartitioner partitioner = createPartitioner(new KeySample(new ArrayList<Object[]>(), 0));
+        assertEquals(0, partitioner.partition(record(1), 4));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingSample() {
+        createPartitioner(null).partition(record(1), 4);
+    }
+
+    @Test
+    public void testReservoirWeight() {
+        final KeySample.Reservoir small = new KeySample.Reservoir(100);
+        for (int i = 0; i < 40; ++i)
+            small.set(small.nextSlot(), new Object[] {i});
+        final KeySample smallSample = small.toSample();
+        assertEquals(40, smallSample.size());
+        assertEquals(1.0, smallSample.getWeight(0), 0.0);
+        for (int i = 0; i < 40; ++i)
+            assertEquals(i, smallSample.getKey(i)[0]);
+
+        final KeySample.Reservoir large = new KeySample.Reservoir(100);
+        for (int i = 0; i < 10000; ++i) {
+            final int slot = large.nextSlot();
+            if (slot >= 0)
+                large.set(slot, new Object[] {i});
+        }
+        final KeySample largeSample = large.toSample();
+        assertEquals(100, largeSample.size());
+        assertEquals(100.0, largeSample.getWeight(99), 0.0);
+
+        assertEquals(0, new KeySample.Reservoir(100).toSample().size());
+    }
+
+    /**
+     * The workload manager merges the samples of a node once all of its tasks submitted theirs, and
+     * sends the merged sample to each of them. The samples of the next iteration are merged anew.
+     */
+    @Test
+    public void testWorkloadManagerMergesSamples() {
+        final List<IOEvents.ControlIOEvent> sentEvents = new ArrayList<>();
+        final IIOManager ioManager = (IIOManager) Proxy.newProxyInstance(IIOManager.class.getClassLoader(), new Class<?>[] {IIOManager.class}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (!method.getName().equals("sendEvent"))
+                    throw new UnsupportedOperationException(method.getName());
+                sentEvents.add((IOEvents.ControlIOEvent) args[1]);
+                return null;
+            }
+        });
+        final IWorkloadManager workloadManager =
+                OperatorTestHelper.stub(IWorkloadManager.class, Collections.<String,Object>singletonMap("getIOManager", ioManager));
+
+        final UUID topologyID = UUID.randomUUID();
+        final Map<UUID, Topology.ExecutionNode> executionNodes = new HashMap<>();
+        final List<UUID> producerTasks = addNode(topologyID, "Producer", 3, executionNodes);
+        final List<UUID> otherTasks = addNode(topologyID, "Other", 2, executionNodes);
+
+        final Topology.AuraTopology topology = new Topology.AuraTopology(UUID.randomUUID(), "RangePartitioning", topologyID,
+                new HashMap<String, Topology.LogicalNode>(), new HashMap<String, Topology.LogicalNode>(), new HashMap<String, Topology.LogicalNode>(),
+                new HashMap<Pair<String, String>, Topology.Edge>(), new HashMap<String, List<UserCode>>(), new HashMap<UUID, Topology.LogicalNode>(), false);
+        topology.setExecutionNodes(executionNodes);
+
+        final TopologyController controller = new TopologyController(workloadManager, topologyID, topology, null);
+        try {
+            for (int iteration = 0; iteration < 2; ++iteration) {
+                sentEvents.clear();
+
+                controller.addKeySample(producerTasks.get(0), sample(0, 10, 1));
+                controller.addKeySample(otherTasks.get(0), sample(0, 5, 1));
+                controller.addKeySample(producerTasks.get(1), sample(10, 20, 2));
+                assertTrue(sentEvents.isEmpty());
+
+                controller.addKeySample(producerTasks.get(2), sample(30, 30, 3));
+                assertEquals(3, sentEvents.size());
+
+                final List<UUID> receivers = new ArrayList<>();
+                for (final IOEvents.ControlIOEvent event : sentEvents) {
+                    assertEquals(IOEvents.ControlEventType.CONTROL_EVENT_MERGED_KEY_SAMPLE, event.type);
+                    receivers.add(((IOEvents.TaskControlIOEvent) event).getTaskID());
+
+                    final KeySample merged = (KeySample) event.getPayload();
+                    assertEquals(60, merged.size());
+                    double totalWeight = 0;
+                    for (int i = 0; i < merged.size(); ++i) {
+                        final int key = (Integer) merged.getKey(i)[0];
+                        assertEquals((key < 10) ? 1.0 : (key < 30) ? 2.0 : 3.0, merged.getWeight(i), 0.0);
+                        totalWeight += merged.getWeight(i);
+                    }
+                    assertEquals(10 + 40 + 90, totalWeight, 0.0);
+                }
+                assertEquals(new TreeSet<>(producerTasks), new TreeSet<>(receivers));
+
+                // the other node still waits for its second task.
+                sentEvents.clear();
+                controller.addKeySample(otherTasks.get(1), sample(5, 5, 1));
+                assertEquals(2, sentEvents.size());
+                assertEquals(10, ((KeySample) sentEvents.get(0).getPayload()).size());
+            }
+        } finally {
+            controller.shutdownEventDispatcher();
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static Tuple2<Integer,String> record(final int key) {
+        return new Tuple2<>(key, "value");
+    }
+
+    private static Partitioner.RangePartitioner createPartitioner(final KeySample sample) {
+        final Partitioner.RangePartitioner partitioner = new Partitioner.RangePartitioner(TYPE, new int[][] {TYPE.buildFieldSelectorChain("_1")});
+        if (sample != null)
+            partitioner.setSample(sample);
+        return partitioner;
+    }
+
+    /**
+     * @return a sample of the keys <code>first</code> to <code>first + count - 1</code>.
+     */
+    private static KeySample sample(final int first, final int count, final double weight) {
+        final List<Object[]> keys = new ArrayList<>();
+        for (int i = first; i < first + count; ++i)
+            keys.add(new Object[] {i});
+        return new KeySample(keys, weight);
+    }
+
+    /**
+     * Adds a logical node with the given number of tasks to the execution nodes.
+     *
+     * @return the task ids of the node.
+     */
+    private static List<UUID> addNode(final UUID topologyID, final String name, final int taskCount, final Map<UUID, Topology.ExecutionNode> executionNodes) {
+        final Topology.LogicalNode node = new Topology.LogicalNode(UUID.randomUUID(), name, taskCount, 1);
+        final List<UUID> taskIDs = new ArrayList<>();
+        for (int i = 0; i < taskCount; ++i) {
+            final UUID taskID = UUID.randomUUID();
+            final Topology.ExecutionNode en = new Topology.ExecutionNode(taskID, i, node);
+            en.setNodeDescriptor(new Descriptors.OperatorNodeDescriptor(topologyID, taskID, i, name, null, new ArrayList<DataflowNodeProperties>(), false));
+            node.addExecutionNode(en);
+            executionNodes.put(taskID, en);
+            taskIDs.add(taskID);
+        }
+        return taskIDs;
+    }
+}
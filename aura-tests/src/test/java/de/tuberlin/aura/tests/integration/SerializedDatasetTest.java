@@ -0,0 +1,272 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.datasets.SerializedImmutableDataset;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.descriptors.Descriptors;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.record.Partitioner;
+import de.tuberlin.aura.core.record.RecordWriter;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.core.taskmanager.spi.IDataConsumer;
+import de.tuberlin.aura.core.taskmanager.spi.IDataProducer;
+import de.tuberlin.aura.core.taskmanager.spi.IRecordWriter;
+import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+/**
+ * Fills a serialized dataset from the buffers of a record writer, the dataset keeps the buffers
+ * within its memory budget and spills the others to a file.
+ */
+public final class SerializedDatasetTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final TypeInformation TYPE = new TypeInformation(Tuple2.class,
+            new TypeInformation(Integer.class),
+            new TypeInformation(String.class));
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // enough for all buffers of the writer, the dataset returns them while it is filled.
+    private static final int BUFFER_COUNT = 64;
+
+    // --------------------------------------------------
+    // Fields.
+    // --------------------------------------------------
+
+    private File spillDirectory;
+
+    private BufferAllocator allocator;
+
+    private Queue<MemoryView> transferred;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Before
+    public void setUp() throws IOException {
+        spillDirectory = Files.createTempDirectory("aura-dataset-test").toFile();
+        allocator = new BufferAllocator(BUFFER_SIZE, BUFFER_COUNT);
+        transferred = new ArrayDeque<>();
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : spillDirectory.listFiles())
+            file.delete();
+        spillDirectory.delete();
+    }
+
+    /**
+     * Four pages of memory for more than twice as many buffers of records.
+     */
+    @Test
+    public void testSpillPastMemoryBudget() {
+        final ITaskRuntime runtime = createRuntime(4L * BUFFER_SIZE);
+        final List<Tuple2<Integer,String>> records = records(40000);
+        write(runtime, records);
+        final int bufferCount = transferred.size();
+        assertTrue(bufferCount > 8);
+
+        final SerializedImmutableDataset<Tuple2<Integer,String>> dataset = createDataset(runtime);
+        dataset.produceDataset(0);
+
+        // the received buffers are returned to the network.
+        allocator.checkForMemoryLeaks();
+
+        final File[] spillFiles = spillDirectory.listFiles();
+        assertEquals(1, spillFiles.length);
+        assertTrue(spillFiles[0].getName().startsWith("aura-dataset-"));
+        // the buffers beyond the budget are in the file.
+        assertTrue(spillFiles[0].length() >= (long) (bufferCount - 4) * BUFFER_SIZE);
+
+        // the dataset is consumed once per iteration.
+        assertEquals(records, consume(dataset));
+        assertEquals(records, consume(dataset));
+
+        dataset.releaseDataset();
+        assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testWithinMemoryBudget() {
+        final ITaskRuntime runtime = createRuntime(32L * BUFFER_SIZE);
+        final List<Tuple2<Integer,String>> records = records(20000);
+        write(runtime, records);
+
+        final SerializedImmutableDataset<Tuple2<Integer,String>> dataset = createDataset(runtime);
+        dataset.produceDataset(0);
+        allocator.checkForMemoryLeaks();
+
+        assertEquals(0, spillDirectory.listFiles().length);
+        assertEquals(records, consume(dataset));
+
+        dataset.releaseDataset();
+        assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    /**
+     * A released dataset can be filled again, also beyond its budget.
+     */
+    @Test
+    public void testRefillAfterRelease() {
+        final ITaskRuntime runtime = createRuntime(2L * BUFFER_SIZE);
+        final SerializedImmutableDataset<Tuple2<Integer,String>> dataset = createDataset(runtime);
+
+        for (int round = 1; round <= 2; ++round) {
+            final List<Tuple2<Integer,String>> records = records(10000 * round);
+            write(runtime, records);
+            dataset.produceDataset(0);
+            assertEquals(1, spillDirectory.listFiles().length);
+            assertEquals(records, consume(dataset));
+
+            dataset.clear();
+            assertEquals(0, spillDirectory.listFiles().length);
+        }
+        allocator.checkForMemoryLeaks();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static List<Tuple2<Integer,String>> records(final int count) {
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            records.add(new Tuple2<>(i, "record-" + i + "-" + Integer.toHexString(i * 31)));
+        return records;
+    }
+
+    /**
+     * A runtime whose producer queues the emitted buffers and whose consumer hands them out again.
+     */
+    private ITaskRuntime createRuntime(final long memoryBudget) {
+        final Map<String,Object> config = new HashMap<>();
+        config.put("tm.memory.buffer.size", BUFFER_SIZE);
+        config.put("tm.operators.memory.budget", memoryBudget);
+        config.put("tm.operators.spill.dir", spillDirectory.getAbsolutePath());
+
+        final IDataProducer producer = proxy(IDataProducer.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                switch (method.getName()) {
+                    case "getAllocator":
+                        return allocator;
+                    case "emit":
+                    case "broadcast":
+                        transferred.add((MemoryView) args[args.length - 1]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+
+        final IDataConsumer consumer = proxy(IDataConsumer.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (!method.getName().equals("absorb"))
+                    throw new UnsupportedOperationException(method.getName());
+                final MemoryView buffer = transferred.poll();
+                return (buffer != null) ? new IOEvents.TransferBufferEvent(UUID.randomUUID(), UUID.randomUUID(), buffer) : null;
+            }
+        });
+
+        final Descriptors.AbstractNodeDescriptor node =
+                new Descriptors.OperatorNodeDescriptor(UUID.randomUUID(), UUID.randomUUID(), 0, "Dataset", null, (DataflowNodeProperties) null, false);
+
+        final Map<String,Object> answers = new HashMap<>();
+        answers.put("getTaskManager", OperatorTestHelper.createTaskManager(config));
+        answers.put("getProducer", producer);
+        answers.put("getConsumer", consumer);
+        answers.put("getBindingDescriptor", new Descriptors.NodeBindingDescriptor(node,
+                Collections.singletonList(Collections.singletonList(node)),
+                Collections.singletonList(Collections.singletonList(node))));
+        return OperatorTestHelper.stub(ITaskRuntime.class, answers);
+    }
+
+    private static void write(final ITaskRuntime runtime, final List<Tuple2<Integer,String>> records) {
+        final RecordWriter writer = new RecordWriter(runtime, TYPE, 0, new Partitioner.RoundRobinPartitioner());
+        writer.begin();
+        for (final Tuple2<Integer,String> record : records)
+            writer.writeObject(record);
+        writer.end();
+    }
+
+    private static SerializedImmutableDataset<Tuple2<Integer,String>> createDataset(final ITaskRuntime runtime) {
+        final DataflowNodeProperties properties = new DataflowNodeProperties(
+                UUID.randomUUID(),
+                DataflowNodeProperties.DataflowNodeType.SERIALIZED_IMMUTABLE_DATASET,
+                "Dataset",
+                1,
+                1,
+                null,
+                null,
+                TYPE,
+                null,
+                TYPE,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+        final IExecutionContext context = OperatorTestHelper.createContext(runtime, properties);
+        return new SerializedImmutableDataset<>(context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Tuple2<Integer,String>> consume(final SerializedImmutableDataset<Tuple2<Integer,String>> dataset) {
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        dataset.consumeDataset(proxy(IRecordWriter.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("writeObject"))
+                    records.add((Tuple2<Integer,String>) args[0]);
+                return null;
+            }
+        }));
+        return records;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
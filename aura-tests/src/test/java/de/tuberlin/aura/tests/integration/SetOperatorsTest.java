@@ -0,0 +1,237 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.impl.DifferencePhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.DistinctPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillPartitions;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+
+public final class SetOperatorsTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    // about a thousand elements, far less than the distinct elements of the inputs.
+    private static final long SMALL_BUDGET = 64 * 1024;
+
+    private static final File SPILL_DIR = new File(System.getProperty("java.io.tmpdir"));
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testDistinct() throws Throwable {
+        // numeric tuples are kept in packed sets, tuples with null fields and strings in generic sets.
+        final List<Tuple2<Integer,Integer>> numbers = numberRecords(new Random(1), 300000, 100000);
+        final List<Tuple2<Integer,String>> strings = stringRecords(new Random(2), 300000, 100000);
+
+        for (final Map<String,Object> config : configs()) {
+            assertDistinct(numbers, numberType(), config);
+            assertDistinct(strings, stringType(), config);
+        }
+    }
+
+    /**
+     * Elements of the first input are partly decided by the frozen set of the second input and
+     * partly spilled into the partitions of the second input.
+     */
+    @Test
+    public void testDifference() throws Throwable {
+        final Random random = new Random(3);
+        final List<Tuple2<Integer,Integer>> numbers1 = numberRecords(random, 200000, 100000);
+        final List<Tuple2<Integer,Integer>> numbers2 = numberRecords(random, 100000, 100000);
+        final List<Tuple2<Integer,String>> strings1 = stringRecords(random, 200000, 100000);
+        final List<Tuple2<Integer,String>> strings2 = stringRecords(random, 100000, 100000);
+
+        for (final Map<String,Object> config : configs()) {
+            assertDifference(numbers1, numbers2, numberType(), config);
+            assertDifference(strings1, strings2, stringType(), config);
+            // nothing to subtract.
+            assertDifference(strings1, Collections.<Tuple2<Integer,String>>emptyList(), stringType(), config);
+        }
+    }
+
+    @Test
+    public void testSpillPartitions() throws Throwable {
+        final TypeInformation type = new TypeInformation(Integer.class);
+
+        final SpillPartitions partitions = new SpillPartitions(SPILL_DIR, type, 0);
+        for (int i = 0; i < 100000; ++i)
+            partitions.write(i, Integer.valueOf(i).hashCode());
+
+        final SpillFile[] files = partitions.closeWrite();
+        assertEquals(SpillPartitions.PARTITION_COUNT, files.length);
+
+        int count = 0;
+        for (int p = 0; p < files.length; ++p) {
+            final SpillFile.Reader reader = files[p].openReader();
+            final SpillPartitions subPartitions = new SpillPartitions(SPILL_DIR, type, 1);
+            final Set<Integer> usedSubPartitions = new HashSet<>();
+            for (Object element = reader.next(); element != null; element = reader.next()) {
+                final int hash = element.hashCode();
+                assertEquals(p, SpillPartitions.partitionOf(hash, 0));
+                usedSubPartitions.add(SpillPartitions.partitionOf(hash, 1));
+                subPartitions.write(element, hash);
+                ++count;
+            }
+            reader.close();
+
+            // the next level splits the partition again.
+            assertTrue(usedSubPartitions.size() > SpillPartitions.PARTITION_COUNT / 2);
+            subPartitions.closeWrite();
+            subPartitions.delete();
+        }
+        assertEquals(100000, count);
+
+        partitions.delete();
+        for (final SpillFile file : partitions.closeWrite())
+            assertNull(file);
+
+        // every level up to the last one has its own hash bits.
+        new SpillPartitions(SPILL_DIR, type, SpillPartitions.MAX_LEVEL).delete();
+        try {
+            new SpillPartitions(SPILL_DIR, type, SpillPartitions.MAX_LEVEL + 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected.
+        }
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @return the default configuration and one with a budget that forces spilling.
+     */
+    private static List<Map<String,Object>> configs() {
+        final Map<String,Object> smallBudget = new HashMap<>();
+        smallBudget.put("tm.operators.memory.budget", SMALL_BUDGET);
+
+        final List<Map<String,Object>> configs = new ArrayList<>();
+        configs.add(Collections.<String,Object>emptyMap());
+        configs.add(smallBudget);
+        return configs;
+    }
+
+    private static TypeInformation numberType() {
+        return new TypeInformation(Tuple2.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(Integer.class));
+    }
+
+    private static TypeInformation stringType() {
+        return new TypeInformation(Tuple2.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(String.class));
+    }
+
+    private static List<Tuple2<Integer,Integer>> numberRecords(final Random random, final int count, final int range) {
+        final List<Tuple2<Integer,Integer>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            final int value = random.nextInt(range);
+            records.add(new Tuple2<>(value % 1000, (i % 500 == 0) ? null : value));
+        }
+        return records;
+    }
+
+    private static List<Tuple2<Integer,String>> stringRecords(final Random random, final int count, final int range) {
+        final List<Tuple2<Integer,String>> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            final int value = random.nextInt(range);
+            records.add(new Tuple2<>(value % 1000, (i % 500 == 0) ? null : "s" + value));
+        }
+        return records;
+    }
+
+    private static DataflowNodeProperties properties(final DataflowNodeProperties.DataflowNodeType nodeType, final TypeInformation type) {
+        return new DataflowNodeProperties(
+                UUID.randomUUID(),
+                nodeType,
+                nodeType.name(),
+                1,
+                1,
+                null,
+                null,
+                type,
+                nodeType.operatorInputArity == DataflowNodeProperties.InputArity.BINARY ? type : null,
+                type,
+                null,
+                null, null, null, null, null,
+                null, null, null
+        );
+    }
+
+    private static <E> void assertDistinct(final List<E> records,
+                                           final TypeInformation type,
+                                           final Map<String,Object> config) throws Throwable {
+
+        final IExecutionContext context = OperatorTestHelper.createContext(config,
+                properties(DataflowNodeProperties.DataflowNodeType.DISTINCT_OPERATOR, type));
+        final DistinctPhysicalOperator<E> distinct =
+                new DistinctPhysicalOperator<>(context, new OperatorTestHelper.CollectionSource<>(context, records));
+
+        final List<E> result = OperatorTestHelper.collect(distinct);
+        final Set<E> expected = new HashSet<>(records);
+
+        // every element once.
+        assertEquals(expected.size(), result.size());
+        assertEquals(expected, new HashSet<>(result));
+    }
+
+    private static <E> void assertDifference(final List<E> records1,
+                                             final List<E> records2,
+                                             final TypeInformation type,
+                                             final Map<String,Object> config) throws Throwable {
+
+        final IExecutionContext context = OperatorTestHelper.createContext(config,
+                properties(DataflowNodeProperties.DataflowNodeType.DIFFERENCE_OPERATOR, type));
+        final DifferencePhysicalOperator<E> difference =
+                new DifferencePhysicalOperator<>(context,
+                        new OperatorTestHelper.CollectionSource<>(context, records1),
+                        new OperatorTestHelper.CollectionSource<>(context, records2));
+
+        final Set<E> minusSide = new HashSet<>(records2);
+        final List<E> expected = new ArrayList<>();
+        for (final E record : records1) {
+            if (!minusSide.contains(record))
+                expected.add(record);
+        }
+
+        // the duplicates of the first input are kept.
+        assertEquals(counts(expected), counts(OperatorTestHelper.collect(difference)));
+    }
+
+    private static <E> Map<E,Integer> counts(final List<E> records) {
+        final Map<E,Integer> counts = new HashMap<>();
+        for (final E record : records) {
+            final Integer count = counts.get(record);
+            counts.put(record, (count == null) ? 1 : count + 1);
+        }
+        return counts;
+    }
+}
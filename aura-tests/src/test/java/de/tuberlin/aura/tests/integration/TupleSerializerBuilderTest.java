@@ -0,0 +1,178 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.io.UnsafeInput;
+import com.esotericsoftware.kryo.io.UnsafeOutput;
+
+import de.tuberlin.aura.core.record.TupleSerializerBuilder;
+import de.tuberlin.aura.core.record.TypeInformation;
+import de.tuberlin.aura.core.record.tuples.Tuple1;
+import de.tuberlin.aura.core.record.tuples.Tuple2;
+import de.tuberlin.aura.core.record.tuples.Tuple3;
+import de.tuberlin.aura.core.record.tuples.Tuple7;
+
+public final class TupleSerializerBuilderTest {
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testPrimitiveFields() {
+        final TypeInformation type = new TypeInformation(Tuple7.class,
+                new TypeInformation(Integer.class),
+                new TypeInformation(Long.class),
+                new TypeInformation(Double.class),
+                new TypeInformation(Float.class),
+                new TypeInformation(Short.class),
+                new TypeInformation(Byte.class),
+                new TypeInformation(Boolean.class));
+
+        assertRoundTrip(type, Arrays.<Object>asList(
+                new Tuple7<>(0, 0L, 0.0, 0.0f, (short) 0, (byte) 0, false),
+                new Tuple7<>(Integer.MIN_VALUE, Long.MIN_VALUE, -Double.MAX_VALUE, Float.MIN_VALUE, Short.MIN_VALUE, Byte.MIN_VALUE, true),
+                new Tuple7<>(Integer.MAX_VALUE, Long.MAX_VALUE, Double.NaN, Float.NEGATIVE_INFINITY, Short.MAX_VALUE, Byte.MAX_VALUE, true),
+                new Tuple7<>(-1, 1L << 40, Math.PI, -1.5f, (short) -300, (byte) -1, false)));
+    }
+
+    @Test
+    public void testCharAndStringFields() {
+        final TypeInformation type = new TypeInformation(Tuple3.class,
+                new TypeInformation(Character.class),
+                new TypeInformation(String.class),
+                new TypeInformation(String.class));
+
+        assertRoundTrip(type, Arrays.<Object>asList(
+                new Tuple3<>('a', "", "ascii"),
+                new Tuple3<>(Character.MAX_VALUE, "üß€", "😀 surrogate pair"),
+                new Tuple3<>('\0', "a\0b", longString())));
+    }
+
+    @Test
+    public void testNullFields() {
+        final TypeInformation type = new TypeInformation(Tuple7.class,
+                new TypeInformation(String.class),
+                new TypeInformation(Integer.class),
+                new TypeInformation(String.class),
+                new TypeInformation(Double.class),
+                new TypeInformation(Character.class),
+                new TypeInformation(Boolean.class),
+                new TypeInformation(Tuple1.class, new TypeInformation(String.class)));
+
+        assertRoundTrip(type, Arrays.<Object>asList(
+                new Tuple7<String,Integer,String,Double,Character,Boolean,Tuple1<String>>(null, null, null, null, null, null, null),
+                new Tuple7<String,Integer,String,Double,Character,Boolean,Tuple1<String>>(null, 1, "b", null, 'c', null, new Tuple1<>((String) null)),
+                new Tuple7<>("a", null, null, 2.0, null, true, new Tuple1<>("d"))));
+    }
+
+    /**
+     * Nested tuples on several levels, a nested tuple after a nested tuple that has nested tuples
+     * itself, and the same type information in two fields.
+     */
+    @Test
+    public void testNestedTuples() {
+        final TypeInformation pair = new TypeInformation(Tuple2.class, new TypeInformation(Long.class), new TypeInformation(Double.class));
+        final TypeInformation type = new TypeInformation(Tuple3.class,
+                new TypeInformation(Tuple2.class,
+                        new TypeInformation(Integer.class),
+                        new TypeInformation(Tuple2.class, new TypeInformation(String.class), pair)),
+                pair,
+                new TypeInformation(Tuple1.class, new TypeInformation(Tuple1.class, new TypeInformation(String.class))));
+
+        assertRoundTrip(type, Arrays.<Object>asList(
+                new Tuple3<>(new Tuple2<>(1, new Tuple2<>("x", new Tuple2<>(2L, 3.0))),
+                             new Tuple2<>(4L, 5.0),
+                             nest(new Tuple1<>("y"))),
+                new Tuple3<Tuple2<Integer,Tuple2<String,Tuple2<Long,Double>>>,Tuple2<Long,Double>,Tuple1<Tuple1<String>>>(
+                             new Tuple2<Integer,Tuple2<String,Tuple2<Long,Double>>>(null, new Tuple2<String,Tuple2<Long,Double>>(null, null)),
+                             null,
+                             nest(new Tuple1<>((String) null)))));
+    }
+
+    @Test
+    public void testSchemaRoundTrip() {
+        final TypeInformation type = new TypeInformation(Tuple2.class,
+                new TypeInformation(String.class),
+                new TypeInformation(Tuple2.class, new TypeInformation(Integer.class), new TypeInformation(Long.class)));
+
+        // a reader registers the serializer for the type announced by the schema record.
+        final TypeInformation announced = TupleSerializerBuilder.fromSchema(TupleSerializerBuilder.createSchema(type));
+        assertTrue(TupleSerializerBuilder.isSupported(announced));
+
+        final Object record = new Tuple2<>("a", new Tuple2<>(1, 2L));
+        final Output output = new Output(256, -1);
+        createKryo(type).writeClassAndObject(output, record);
+        assertEquals(record, createKryo(announced).readClassAndObject(new Input(output.toBytes())));
+    }
+
+    @Test
+    public void testUnsupportedTypes() {
+        assertFalse(TupleSerializerBuilder.isSupported(new TypeInformation(Integer.class)));
+        assertFalse(TupleSerializerBuilder.isSupported(new TypeInformation(Tuple1.class, new TypeInformation(Object.class))));
+        // the arity of the type information does not match the tuple.
+        assertFalse(TupleSerializerBuilder.isSupported(new TypeInformation(Tuple2.class, new TypeInformation(Integer.class))));
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static Kryo createKryo(final TypeInformation type) {
+        final Kryo kryo = new Kryo();
+        TupleSerializerBuilder.register(kryo, type);
+        return kryo;
+    }
+
+    /**
+     * Writes the records with the generated serializer, through the plain and the unsafe streams
+     * the records and spill files use, and reads them back.
+     */
+    private static void assertRoundTrip(final TypeInformation type, final List<Object> records) {
+        final Kryo kryo = createKryo(type);
+        assertSame(type.type, kryo.getRegistration(TupleSerializerBuilder.TUPLE_REGISTRATION_ID).getType());
+
+        final Output output = new Output(4096, -1);
+        final UnsafeOutput unsafeOutput = new UnsafeOutput(4096, -1);
+        unsafeOutput.supportVarInts(false);
+        for (final Object record : records) {
+            kryo.writeClassAndObject(output, record);
+            kryo.writeClassAndObject(unsafeOutput, record);
+        }
+
+        final Input input = new Input(output.toBytes());
+        final UnsafeInput unsafeInput = new UnsafeInput(unsafeOutput.toBytes());
+        unsafeInput.setVarIntsEnabled(false);
+        for (final Object record : records) {
+            assertEquals(record, kryo.readClassAndObject(input));
+            assertEquals(record, kryo.readClassAndObject(unsafeInput));
+        }
+        assertTrue(input.eof());
+        assertTrue(unsafeInput.eof());
+    }
+
+    // the single argument constructor of Tuple1 would copy a tuple instead of nesting it.
+    private static <T> Tuple1<T> nest(final T field) {
+        final Tuple1<T> tuple = new Tuple1<>();
+        tuple._1 = field;
+        return tuple;
+    }
+
+    private static String longString() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; ++i)
+            sb.append((char) ('a' + i % 26));
+        return sb.toString();
+    }
+}
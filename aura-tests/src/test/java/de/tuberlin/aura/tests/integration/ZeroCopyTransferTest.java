@@ -0,0 +1,148 @@
+package de.tuberlin.aura.tests.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+import de.tuberlin.aura.core.descriptors.Descriptors;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.iosystem.SerializationHandler;
+import de.tuberlin.aura.core.memory.BufferAllocator;
+import de.tuberlin.aura.core.memory.DirectBufferAllocator;
+import de.tuberlin.aura.core.memory.MemoryView;
+import de.tuberlin.aura.core.memory.spi.IAllocator;
+import de.tuberlin.aura.core.taskmanager.spi.IDataConsumer;
+import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionManager;
+import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionUnit;
+import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
+import de.tuberlin.aura.tests.util.OperatorTestHelper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Sends a direct buffer through the serialization handlers of a network channel in zero copy mode.
+ */
+public final class ZeroCopyTransferTest {
+
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int BUFFER_COUNT = 8;
+
+    // --------------------------------------------------
+    // Tests.
+    // --------------------------------------------------
+
+    @Test
+    public void testRoundTrip() {
+        final IConfig config = zeroCopyConfig();
+        final UUID srcTaskID = UUID.randomUUID();
+        final UUID dstTaskID = UUID.randomUUID();
+
+        final IAllocator producerAllocator = new DirectBufferAllocator(BUFFER_SIZE, BUFFER_COUNT);
+        final IAllocator consumerAllocator = new BufferAllocator(BUFFER_SIZE, BUFFER_COUNT);
+
+        final MemoryView buffer = producerAllocator.alloc();
+        for (int i = 0; i < BUFFER_SIZE / 8; ++i)
+            buffer.putLong(buffer.baseOffset + i * 8, i);
+
+        // producer side, the payload is appended to the header without a copy.
+        final EmbeddedChannel outbound = new EmbeddedChannel(SerializationHandler.KRYO_OUTBOUND_HANDLER(config));
+        outbound.writeOutbound(new IOEvents.DataIOEvent(IOEvents.DataEventType.DATA_EVENT_INPUT_CHANNEL_CONNECTED, srcTaskID, dstTaskID),
+                               new IOEvents.TransferBufferEvent(srcTaskID, dstTaskID, buffer));
+
+        // the buffer is freed once the write completed, the frame still references its memory.
+        producerAllocator.checkForMemoryLeaks();
+
+        final ByteBuf wire = PooledByteBufAllocator.DEFAULT.directBuffer();
+        for (Object frame = outbound.readOutbound(); frame != null; frame = outbound.readOutbound()) {
+            wire.writeBytes((ByteBuf) frame);
+            ((ByteBuf) frame).release();
+        }
+        outbound.finish();
+
+        // consumer side, the payload is handed over in the received frame.
+        final EmbeddedChannel inbound = new EmbeddedChannel(SerializationHandler.LENGTH_FIELD_DECODER(),
+                                                            SerializationHandler.KRYO_INBOUND_HANDLER(executionManager(dstTaskID, consumerAllocator), config));
+        inbound.writeInbound(wire);
+
+        final IOEvents.DataIOEvent connected = (IOEvents.DataIOEvent) inbound.readInbound();
+        assertEquals(IOEvents.DataEventType.DATA_EVENT_INPUT_CHANNEL_CONNECTED, connected.type);
+
+        final IOEvents.TransferBufferEvent event = (IOEvents.TransferBufferEvent) inbound.readInbound();
+        assertNull(inbound.readInbound());
+        assertEquals(srcTaskID, event.srcTaskID);
+        assertEquals(dstTaskID, event.dstTaskID);
+        assertTrue(event.buffer.isDirect());
+        assertEquals(BUFFER_SIZE, event.buffer.size());
+        for (int i = 0; i < BUFFER_SIZE / 8; ++i)
+            assertEquals(i, event.buffer.getLong(event.buffer.baseOffset + i * 8));
+
+        // allocations through the received view are served by the consumer allocator.
+        final MemoryView allocated = event.buffer.allocator.alloc();
+        assertNotNull(allocated);
+        allocated.free();
+        consumerAllocator.checkForMemoryLeaks();
+
+        // freeing the view releases the frame.
+        final ByteBuf frame = event.buffer.directBuffer;
+        assertEquals(1, frame.refCnt());
+        event.buffer.free();
+        assertEquals(0, frame.refCnt());
+        event.buffer.allocator.checkForMemoryLeaks();
+
+        inbound.finish();
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static IConfig zeroCopyConfig() {
+        final Map<String,Object> overrides = new HashMap<>();
+        overrides.put("event.zero.copy", true);
+        return OperatorTestHelper.overrideConfig(IConfigFactory.load(IConfig.Type.TM).getConfig("tm.io"), overrides);
+    }
+
+    /**
+     * @return an execution manager with a single task that reads one input gate into the allocator.
+     */
+    private static ITaskExecutionManager executionManager(final UUID taskID, final IAllocator inputAllocator) {
+        final Descriptors.AbstractNodeDescriptor task =
+                new Descriptors.InvokeableNodeDescriptor(UUID.randomUUID(), taskID, 0, "Sink", null, false);
+        final Descriptors.NodeBindingDescriptor binding =
+                new Descriptors.NodeBindingDescriptor(task,
+                                                      Collections.singletonList(Collections.singletonList(task)),
+                                                      Collections.<List<Descriptors.AbstractNodeDescriptor>>emptyList());
+
+        final IDataConsumer consumer =
+                OperatorTestHelper.stub(IDataConsumer.class, Collections.<String,Object>singletonMap("getInputGateIndexFromTaskID", 0));
+
+        final Map<String,Object> runtimeAnswers = new HashMap<>();
+        runtimeAnswers.put("getConsumer", consumer);
+        runtimeAnswers.put("getBindingDescriptor", binding);
+        final ITaskRuntime runtime = OperatorTestHelper.stub(ITaskRuntime.class, runtimeAnswers);
+
+        final Map<String,Object> unitAnswers = new HashMap<>();
+        unitAnswers.put("getRuntime", runtime);
+        unitAnswers.put("getInputAllocator", inputAllocator);
+        final ITaskExecutionUnit executionUnit = OperatorTestHelper.stub(ITaskExecutionUnit.class, unitAnswers);
+
+        return OperatorTestHelper.stub(ITaskExecutionManager.class, Collections.<String,Object>singletonMap("getExecutionUnitByTaskID", executionUnit));
+    }
+}
@@ -0,0 +1,190 @@
+package de.tuberlin.aura.tests.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import de.tuberlin.aura.core.common.utils.IVisitor;
+import de.tuberlin.aura.core.config.IConfig;
+import de.tuberlin.aura.core.config.IConfigFactory;
+import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
+import de.tuberlin.aura.core.dataflow.operators.base.AbstractPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
+import de.tuberlin.aura.core.dataflow.operators.impl.ExecutionContext;
+import de.tuberlin.aura.core.descriptors.Descriptors;
+import de.tuberlin.aura.core.record.OperatorResult;
+import de.tuberlin.aura.core.taskmanager.spi.ITaskManager;
+import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
+
+/**
+ * Runs physical operators outside of a cluster. The execution context only provides the node
+ * properties and the task manager configuration, with single values overridden by the test.
+ */
+public final class OperatorTestHelper {
+
+    // ---------------------------------------------------
+    // Inner Classes.
+    // ---------------------------------------------------
+
+    /**
+     * Emits the records of a collection, once per open().
+     */
+    public static final class CollectionSource<E> extends AbstractPhysicalOperator<E> {
+
+        private final Collection<E> records;
+
+        private Iterator<E> iterator;
+
+        public CollectionSource(final IExecutionContext context, final Collection<E> records) {
+            super(context);
+
+            // sanity check.
+            if (records == null)
+                throw new IllegalArgumentException("records == null");
+
+            this.records = records;
+        }
+
+        @Override
+        public void open() throws Throwable {
+            super.open();
+            iterator = records.iterator();
+        }
+
+        @Override
+        public OperatorResult<E> next() throws Throwable {
+            return iterator.hasNext() ? result(iterator.next()) : marker(OperatorResult.StreamMarker.END_OF_STREAM_MARKER);
+        }
+
+        @Override
+        public void accept(final IVisitor<IPhysicalOperator> visitor) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // Disallow instantiation.
+    private OperatorTestHelper() {}
+
+    // ---------------------------------------------------
+    // Public Methods.
+    // ---------------------------------------------------
+
+    /**
+     * @param config values that override the task manager configuration, typed as read by the
+     *               operators (e.g. a Long for <code>tm.operators.memory.budget</code>).
+     * @param properties the properties of the operators, by operator number.
+     */
+    public static IExecutionContext createContext(final Map<String,Object> config, final DataflowNodeProperties... properties) {
+        return createContext(unsupportedExcept(ITaskRuntime.class, "getTaskManager", createTaskManager(config)), properties);
+    }
+
+    /**
+     * @param runtime the runtime of the task, e.g. a stub that also provides the producer and consumer.
+     * @param properties the properties of the operators, by operator number.
+     */
+    public static IExecutionContext createContext(final ITaskRuntime runtime, final DataflowNodeProperties... properties) {
+        // sanity check.
+        if (runtime == null)
+            throw new IllegalArgumentException("runtime == null");
+        if (properties.length == 0)
+            throw new IllegalArgumentException("no properties");
+
+        final Descriptors.AbstractNodeDescriptor nodeDescriptor =
+                new Descriptors.OperatorNodeDescriptor(
+                        UUID.randomUUID(),
+                        UUID.randomUUID(),
+                        0,
+                        properties[0].instanceName,
+                        null,
+                        Arrays.asList(properties),
+                        false
+                );
+
+        final Descriptors.NodeBindingDescriptor bindingDescriptor =
+                new Descriptors.NodeBindingDescriptor(
+                        nodeDescriptor,
+                        Collections.<List<Descriptors.AbstractNodeDescriptor>>emptyList(),
+                        Collections.<List<Descriptors.AbstractNodeDescriptor>>emptyList()
+                );
+
+        return new ExecutionContext(runtime, nodeDescriptor, bindingDescriptor);
+    }
+
+    /**
+     * @param config values that override the task manager configuration.
+     * @return a task manager that only provides its configuration.
+     */
+    public static ITaskManager createTaskManager(final Map<String,Object> config) {
+        // sanity check.
+        if (config == null)
+            throw new IllegalArgumentException("config == null");
+
+        return unsupportedExcept(ITaskManager.class, "getConfig", overrideConfig(IConfigFactory.load(IConfig.Type.TM), config));
+    }
+
+    /**
+     * Opens the operator, reads all records and closes it.
+     */
+    public static <E> List<E> collect(final IPhysicalOperator<E> operator) throws Throwable {
+        final List<E> records = new ArrayList<>();
+        operator.open();
+        OperatorResult<E> result = operator.next();
+        while (result.marker != OperatorResult.StreamMarker.END_OF_STREAM_MARKER) {
+            records.add(result.element);
+            result = operator.next();
+        }
+        operator.close();
+        return records;
+    }
+
+    /**
+     * @return a config that returns the given values for their paths and delegates all other reads.
+     */
+    public static IConfig overrideConfig(final IConfig delegate, final Map<String,Object> overrides) {
+        return (IConfig) Proxy.newProxyInstance(IConfig.class.getClassLoader(), new Class<?>[] {IConfig.class}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if (method.getDeclaringClass() == IConfig.class && args != null && args.length == 1 && overrides.containsKey(args[0]))
+                    return overrides.get(args[0]);
+                return method.invoke(delegate, args);
+            }
+        });
+    }
+
+    /**
+     * @param answers the values returned by the methods of the given names, whatever the arguments.
+     * @return an implementation of the interface that throws for all other methods.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(final Class<T> type, final Map<String,Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+                if (answers.containsKey(method.getName()))
+                    return answers.get(method.getName());
+                if (method.getDeclaringClass() == Object.class)
+                    return method.invoke(this, args);
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    private static <T> T unsupportedExcept(final Class<T> type, final String methodName, final Object value) {
+        return stub(type, Collections.singletonMap(methodName, value));
+    }
+}
@@ -371,20 +371,16 @@ public class DatasetDriver2 extends AbstractInvokeable {
 
             writer.begin();
 
-            if (dataset instanceof ImmutableDataset &&
+            final boolean isLastRead = dataset instanceof ImmutableDataset &&
                     ((ImmutableDataset) dataset).hasFixedNumberOfReads() &&
-                    ((ImmutableDataset) dataset).isLastRead()) {
+                    ((ImmutableDataset) dataset).isLastRead();
 
-                Queue dataQueue = (Queue) dataset.getData();
+            for (final Object object : dataset.getData())
+                writer.writeObject(object);
 
-                while (dataQueue.size() > 0) {
-                    writer.writeObject(dataQueue.remove());
-                }
-
-            } else {
-                for (final Object object : dataset.getData())
-                    writer.writeObject(object);
-            }
+            // the last read releases the elements.
+            if (isLastRead)
+                dataset.clear();
 
             writer.end();
         }
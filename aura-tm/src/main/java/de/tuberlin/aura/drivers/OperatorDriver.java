@@ -4,7 +4,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import de.tuberlin.aura.core.common.eventsystem.Event;
+import de.tuberlin.aura.core.common.eventsystem.IEventHandler;
 import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.dataflow.api.DataflowNodeProperties;
 import de.tuberlin.aura.core.descriptors.Descriptors;
@@ -13,6 +19,11 @@ import de.tuberlin.aura.core.dataflow.operators.base.AbstractPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.base.IExecutionContext;
 import de.tuberlin.aura.core.dataflow.operators.base.IPhysicalOperator;
 import de.tuberlin.aura.core.dataflow.operators.impl.ExecutionContext;
+import de.tuberlin.aura.core.dataflow.operators.spill.OperatorMemory;
+import de.tuberlin.aura.core.dataflow.operators.spill.SpillFile;
+import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.protocols.ITM2WMProtocol;
+import de.tuberlin.aura.core.taskmanager.TaskManagerStatus;
 import de.tuberlin.aura.core.record.*;
 import de.tuberlin.aura.core.taskmanager.spi.*;
 import org.apache.hadoop.conf.Configuration;
@@ -78,9 +89,30 @@ public final class OperatorDriver extends AbstractInvokeable {
         @Override
         public OperatorResult<Object> next() throws Throwable {
 
-            Object input = reader.readObject();
+            final Object input = reader.readObject();
 
-            return new OperatorResult<>(input, this.markerForGateInput(input));
+            final StreamMarker marker = this.markerForGateInput(input);
+
+            return (marker != null) ? marker(marker) : result(input);
+        }
+
+        @Override
+        public OperatorBatch<Object> nextBatch() throws Throwable {
+
+            final OperatorBatch<Object> batch = getBatch();
+            batch.clear();
+
+            while (!batch.isFull()) {
+                final Object input = reader.readObject();
+                final StreamMarker marker = this.markerForGateInput(input);
+                if (marker != null) {
+                    batch.marker = marker;
+                    break;
+                }
+                batch.add(input);
+            }
+
+            return batch;
         }
 
         @Override
@@ -106,12 +138,21 @@ public final class OperatorDriver extends AbstractInvokeable {
         }
     }
 
+    // ---------------------------------------------------
+    // Constants.
+    // ---------------------------------------------------
+
+    private static final int KEY_SAMPLE_SIZE = 1000;
+
     // ---------------------------------------------------
     // Fields.
     // ---------------------------------------------------
 
     private final Descriptors.OperatorNodeDescriptor nodeDescriptor;
 
+    // set if the output is range partitioned, the output is sampled before it is sent then.
+    private Partitioner.RangePartitioner rangePartitioner;
+
     private AbstractPhysicalOperator<?> operator;
 
     private final List<IRecordWriter> writers;
@@ -132,7 +173,8 @@ public final class OperatorDriver extends AbstractInvokeable {
 
         this.nodeDescriptor = nodeDescriptor;
 
-        this.writers = new ArrayList<>();
+        // read by the task manager status from the RPC thread.
+        this.writers = new CopyOnWriteArrayList<>();
 
         this.readers = new ArrayList<>();
 
@@ -171,6 +213,9 @@ public final class OperatorDriver extends AbstractInvokeable {
                             nodeDescriptor.propertiesList.get(lastOperatorNum).partitionKeyIndices
                     ) : null;
 
+            if (partitioner instanceof Partitioner.RangePartitioner)
+                rangePartitioner = (Partitioner.RangePartitioner) partitioner;
+
             for (int i = 0; i <  runtime.getBindingDescriptor().outputGateBindings.size(); ++i) {
                 final RecordWriter writer = new RecordWriter(runtime, nodeDescriptor.propertiesList.get(lastOperatorNum).outputType, i, partitioner);
                 writers.add(writer);
@@ -211,18 +256,30 @@ public final class OperatorDriver extends AbstractInvokeable {
     @Override
     public void run() throws Throwable {
 
-        OperatorResult<?> input = operator.next();
+        if (rangePartitioner != null) {
+            runSampled();
+            return;
+        }
 
-        while (input.marker != StreamMarker.END_OF_STREAM_MARKER) {
+        OperatorBatch<?> batch = operator.nextBatch();
 
-            Object element = (input.marker == StreamMarker.END_OF_GROUP_MARKER) ?
-                    new RowRecordModel.RECORD_CLASS_GROUP_END() : input.element;
+        while (true) {
 
             for (int gateIndex : operator.getOutputGates()) {
-                writers.get(gateIndex).writeObject(element);
+                writers.get(gateIndex).writeObjects(batch.elements(), 0, batch.size());
             }
 
-            input = operator.next();
+            if (batch.marker == StreamMarker.END_OF_STREAM_MARKER) {
+                break;
+            }
+
+            if (batch.marker == StreamMarker.END_OF_GROUP_MARKER) {
+                for (int gateIndex : operator.getOutputGates()) {
+                    writers.get(gateIndex).writeObject(new RowRecordModel.RECORD_CLASS_GROUP_END());
+                }
+            }
+
+            batch = operator.nextBatch();
         }
     }
 
@@ -248,4 +305,157 @@ public final class OperatorDriver extends AbstractInvokeable {
     public IExecutionContext getExecutionContext() {
         return context;
     }
+
+    /**
+     * @return the channel distribution of the partitioned outputs.
+     */
+    public List<TaskManagerStatus.OutputSkewReport> getSkewReports() {
+        final List<TaskManagerStatus.OutputSkewReport> skewReports = new ArrayList<>();
+        for (final IRecordWriter writer : writers) {
+            final TaskManagerStatus.OutputSkewReport skewReport = writer.getSkewReport();
+            if (skewReport != null)
+                skewReports.add(skewReport);
+        }
+        return skewReports;
+    }
+
+    // ---------------------------------------------------
+    // Private Methods.
+    // ---------------------------------------------------
+
+    /**
+     * Writes the output to a spill file while sampling its keys. The spilled output is sent after the
+     * samples of all producers are merged and the range partitioner knows its split points. Only the
+     * configured prefix of the output (<code>tm.operators.sample.prefix</code>) is sampled and
+     * spilled, the rest is sent directly. Without a prefix the whole output is written to disk and
+     * read again.
+     */
+    private void runSampled() throws Throwable {
+
+        final int lastOperatorNum = nodeDescriptor.propertiesList.size() - 1;
+
+        final long samplePrefix = runtime.getTaskManager().getConfig().getLong("tm.operators.sample.prefix");
+
+        final SpillFile output = new SpillFile(OperatorMemory.getSpillDirectory(context), nodeDescriptor.propertiesList.get(lastOperatorNum).outputType);
+
+        final KeySample.Reservoir reservoir = new KeySample.Reservoir(KEY_SAMPLE_SIZE);
+
+        long sampledCount = 0;
+
+        try {
+
+            OperatorBatch<?> batch = operator.nextBatch();
+
+            // index of the first element of the batch that is not sampled.
+            int offset = 0;
+
+            while (true) {
+
+                final Object[] elements = batch.elements();
+
+                for (; offset < batch.size() && (samplePrefix <= 0 || sampledCount < samplePrefix); ++offset, ++sampledCount) {
+                    output.write(elements[offset]);
+                    final int slot = reservoir.nextSlot();
+                    if (slot >= 0)
+                        reservoir.set(slot, rangePartitioner.extractKey(elements[offset]));
+                }
+
+                if (offset < batch.size() || batch.marker == StreamMarker.END_OF_STREAM_MARKER) {
+                    break;
+                }
+
+                if (batch.marker == StreamMarker.END_OF_GROUP_MARKER) {
+                    output.write(new RowRecordModel.RECORD_CLASS_GROUP_END());
+                }
+
+                batch = operator.nextBatch();
+                offset = 0;
+            }
+
+            rangePartitioner.setSample(exchangeKeySample(reservoir.toSample()));
+
+            final SpillFile.Reader reader = output.openReader();
+
+            try {
+
+                Object element = reader.next();
+
+                while (element != null) {
+                    for (int gateIndex : operator.getOutputGates())
+                        writers.get(gateIndex).writeObject(element);
+                    element = reader.next();
+                }
+
+            } finally {
+                reader.close();
+            }
+
+            if (offset == batch.size() && batch.marker == StreamMarker.END_OF_STREAM_MARKER)
+                return;
+
+            // the rest of the output, starting with the rest of the batch that ended the prefix.
+            while (true) {
+
+                for (int gateIndex : operator.getOutputGates()) {
+                    writers.get(gateIndex).writeObjects(batch.elements(), offset, batch.size() - offset);
+                }
+
+                if (batch.marker == StreamMarker.END_OF_STREAM_MARKER) {
+                    break;
+                }
+
+                if (batch.marker == StreamMarker.END_OF_GROUP_MARKER) {
+                    for (int gateIndex : operator.getOutputGates()) {
+                        writers.get(gateIndex).writeObject(new RowRecordModel.RECORD_CLASS_GROUP_END());
+                    }
+                }
+
+                batch = operator.nextBatch();
+                offset = 0;
+            }
+
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Submits the sample to the workload manager and blocks until it sends the merged sample of all
+     * producers of the node. The listener is added first, so the event can not be missed. The task
+     * fails if the merged sample does not arrive within <code>tm.operators.sample.timeout</code>.
+     */
+    private KeySample exchangeKeySample(final KeySample sample) throws InterruptedException {
+
+        final CountDownLatch mergedSampleLatch = new CountDownLatch(1);
+
+        final AtomicReference<KeySample> mergedSample = new AtomicReference<>();
+
+        final IEventHandler mergedSampleHandler = new IEventHandler() {
+
+            @Override
+            public void handleEvent(Event event) {
+                mergedSample.set((KeySample) event.getPayload());
+                mergedSampleLatch.countDown();
+            }
+        };
+
+        runtime.addEventListener(IOEvents.ControlEventType.CONTROL_EVENT_MERGED_KEY_SAMPLE, mergedSampleHandler);
+
+        try {
+            final ITM2WMProtocol protocol = runtime.getTaskManager().getWorkloadManagerProtocol();
+
+            protocol.submitKeySample(nodeDescriptor.topologyID, nodeDescriptor.taskID, sample);
+
+            final long timeout = runtime.getTaskManager().getConfig().getDuration("tm.operators.sample.timeout", TimeUnit.MILLISECONDS);
+
+            // a producer that failed or never submitted its sample would block the task forever.
+            if (!mergedSampleLatch.await(timeout, TimeUnit.MILLISECONDS))
+                throw new IllegalStateException("no merged key sample received within " + timeout + " ms");
+
+        } finally {
+            runtime.removeEventListener(IOEvents.ControlEventType.CONTROL_EVENT_MERGED_KEY_SAMPLE, mergedSampleHandler);
+        }
+
+        return mergedSample.get();
+    }
 }
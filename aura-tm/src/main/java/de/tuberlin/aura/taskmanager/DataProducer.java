@@ -42,6 +42,11 @@ public final class DataProducer implements IDataProducer {
 
     private List<List<Descriptors.AbstractNodeDescriptor>> outputBinding;
 
+    // the fan out of each channel by gate, null for a channel that receives its buffers itself.
+    private final Map<Integer, FanOut[]> fanOuts;
+
+    private final Set<Integer> gatesWithEmits;
+
     // ---------------------------------------------------
     // Constructors.
     // ---------------------------------------------------
@@ -64,6 +69,10 @@ public final class DataProducer implements IDataProducer {
         this.taskIDToChannelIndex = new HashMap<>();
 
         this.channelIndexToTaskID = new HashMap<>();
+
+        this.fanOuts = new HashMap<>();
+
+        this.gatesWithEmits = new HashSet<>();
     }
 
     // ---------------------------------------------------
@@ -83,6 +92,8 @@ public final class DataProducer implements IDataProducer {
         this.taskIDToGateIndex.clear();
         this.taskIDToChannelIndex.clear();
         this.channelIndexToTaskID.clear();
+        this.fanOuts.clear();
+        this.gatesWithEmits.clear();
 
         createOutputMappings(outputBinding);
         createOutputGates(outputBinding);
@@ -109,6 +120,7 @@ public final class DataProducer implements IDataProducer {
         final UUID srcTaskID = runtime.getNodeDescriptor().taskID;
         final UUID dstTaskID = runtime.getBindingDescriptor().outputGateBindings.get(gateIndex).get(channelIndex).taskID;
         final IOEvents.TransferBufferEvent event = new IOEvents.TransferBufferEvent(srcTaskID, dstTaskID, buffer);
+        gatesWithEmits.add(gateIndex);
         outputGates.get(gateIndex).writeDataToChannel(channelIndex, event);
     }
 
@@ -117,13 +129,45 @@ public final class DataProducer implements IDataProducer {
         if (buffer == null)
             throw new IllegalArgumentException("buffer == null");
 
+        final int channelCount = outputBinding.get(gateIndex).size();
+        if (channelCount == 0) {
+            buffer.free();
+            return;
+        }
+
+        // the records are serialized once into the buffer, which all transfers share. every transfer
+        // frees its reference after it encoded the buffer into its own frame or copied it into the
+        // input buffer of a local receiver. only with event.zero.copy and a direct arena a remote
+        // channel sends the buffer without a copy. the receivers on another task manager get the
+        // buffer in one transfer, which is copied to each of them there.
+        final OutputGate og = outputGates.get(gateIndex);
+        final FanOut[] gateFanOuts = getFanOuts(gateIndex);
         final UUID srcTaskID = runtime.getNodeDescriptor().taskID;
-        buffer.setRefCount(outputBinding.get(gateIndex).size());
 
-        for (int i = 0; i < outputBinding.get(gateIndex).size(); ++i) {
+        int transferCount = channelCount;
+        for (int i = 0; i < channelCount; ++i) {
+            if (gateFanOuts[i] != null && gateFanOuts[i].carrierIndex != i)
+                --transferCount;
+        }
+        buffer.setRefCount(transferCount);
+
+        for (int i = 0; i < channelCount; ++i) {
+            final FanOut fanOut = gateFanOuts[i];
             final UUID dstTaskID = runtime.getBindingDescriptor().outputGateBindings.get(gateIndex).get(i).taskID;
-            final IOEvents.TransferBufferEvent event = new IOEvents.TransferBufferEvent(srcTaskID, dstTaskID, buffer);
-            outputGates.get(gateIndex).writeDataToChannel(i, event);
+            if (fanOut == null) {
+                og.writeDataToChannel(i, new IOEvents.TransferBufferEvent(srcTaskID, dstTaskID, buffer));
+            } else if (fanOut.carrierIndex == i) {
+                // like on their own channels, the buffer waits for the gates of all its receivers.
+                try {
+                    for (final int channelIndex : fanOut.channelIndices)
+                        og.getChannelWriter(channelIndex).awaitGateOpen();
+                } catch (InterruptedException e) {
+                    LOG.error("Broadcast to " + fanOut.taskIDs + " was interrupted.", e);
+                    buffer.free();
+                    continue;
+                }
+                og.writeDataToChannel(i, new IOEvents.TransferBufferEvent(UUID.randomUUID(), srcTaskID, dstTaskID, buffer, fanOut.taskIDs));
+            }
         }
     }
 
@@ -139,10 +183,17 @@ public final class DataProducer implements IDataProducer {
     }
 
     public void shutdown(boolean awaitExhaustion) {
-        for (final OutputGate og : outputGates) {
-            // TODO: maybe replace with event?!
-            for (final DataWriter.ChannelWriter channelWriter : og.getAllChannelWriter()) {
-                channelWriter.shutdown(awaitExhaustion);
+        for (int gateIndex = 0; gateIndex < outputGates.size(); ++gateIndex) {
+            // the carriers are closed last, they still carry the exhaustion of the other channels.
+            final FanOut[] gateFanOuts = fanOuts.get(gateIndex);
+            final List<DataWriter.ChannelWriter> channelWriters = outputGates.get(gateIndex).getAllChannelWriter();
+            for (int pass = 0; pass < 2; ++pass) {
+                for (int i = 0; i < channelWriters.size(); ++i) {
+                    final boolean isCarried = gateFanOuts != null && gateFanOuts[i] != null && gateFanOuts[i].carrierIndex != i;
+                    // TODO: maybe replace with event?!
+                    if (isCarried == (pass == 0))
+                        channelWriters.get(i).shutdown(awaitExhaustion);
+                }
             }
         }
 
@@ -200,6 +251,58 @@ public final class DataProducer implements IDataProducer {
         }
     }
 
+    /**
+     * Groups the channels of the gate whose receivers run on the same remote task manager, once the
+     * gate broadcasts its first buffer. The first channel of a group carries the events of the
+     * others. A gate that emitted buffers to single channels before keeps sending on each channel,
+     * the buffers on a channel must not be overtaken by the ones on its carrier.
+     */
+    private FanOut[] getFanOuts(final int gateIndex) {
+        FanOut[] gateFanOuts = fanOuts.get(gateIndex);
+        if (gateFanOuts != null)
+            return gateFanOuts;
+
+        final List<Descriptors.AbstractNodeDescriptor> receivers = runtime.getBindingDescriptor().outputGateBindings.get(gateIndex);
+        gateFanOuts = new FanOut[receivers.size()];
+        fanOuts.put(gateIndex, gateFanOuts);
+        if (gatesWithEmits.contains(gateIndex))
+            return gateFanOuts;
+
+        final Descriptors.MachineDescriptor machine = runtime.getNodeDescriptor().getMachineDescriptor();
+        final Map<UUID, List<Integer>> channelsByMachine = new LinkedHashMap<>();
+        for (int i = 0; i < receivers.size(); ++i) {
+            final Descriptors.MachineDescriptor receiverMachine = receivers.get(i).getMachineDescriptor();
+            // local receivers are reached without the network.
+            if (receiverMachine.equals(machine))
+                continue;
+            List<Integer> channels = channelsByMachine.get(receiverMachine.uid);
+            if (channels == null) {
+                channels = new ArrayList<>();
+                channelsByMachine.put(receiverMachine.uid, channels);
+            }
+            channels.add(i);
+        }
+
+        final OutputGate og = outputGates.get(gateIndex);
+        for (final List<Integer> channels : channelsByMachine.values()) {
+            if (channels.size() < 2)
+                continue;
+
+            final int carrierIndex = channels.get(0);
+            final List<Integer> channelIndices = channels.subList(1, channels.size());
+            final List<UUID> taskIDs = new ArrayList<>();
+            for (final int channelIndex : channelIndices) {
+                taskIDs.add(receivers.get(channelIndex).taskID);
+                og.getChannelWriter(channelIndex).setCarrier(og.getChannelWriter(carrierIndex));
+            }
+
+            final FanOut fanOut = new FanOut(carrierIndex, channelIndices, taskIDs);
+            for (final int channelIndex : channels)
+                gateFanOuts[channelIndex] = fanOut;
+        }
+        return gateFanOuts;
+    }
+
     private void createOutputMappings(final List<List<Descriptors.AbstractNodeDescriptor>> outputBinding) {
         remainingChannelsToConnect = new int[outputBinding.size()];
         int gateIndex = 0;
@@ -222,6 +325,26 @@ public final class DataProducer implements IDataProducer {
 
     private int[] remainingChannelsToConnect;
 
+    /**
+     * The channels of a gate to the receivers on one remote task manager. A broadcast buffer is sent
+     * on the carrier channel only and copied to the other receivers on their task manager.
+     */
+    private static final class FanOut {
+
+        final int carrierIndex;
+
+        // the carried channels.
+        final List<Integer> channelIndices;
+
+        final List<UUID> taskIDs;
+
+        FanOut(final int carrierIndex, final List<Integer> channelIndices, final List<UUID> taskIDs) {
+            this.carrierIndex = carrierIndex;
+            this.channelIndices = channelIndices;
+            this.taskIDs = taskIDs;
+        }
+    }
+
     private final class ProducerEventHandler extends EventHandler {
 
         @Handle(event = IOEvents.DataIOEvent.class, type = IOEvents.DataEventType.DATA_EVENT_OUTPUT_CHANNEL_CONNECTED)
@@ -14,6 +14,7 @@ import de.tuberlin.aura.core.taskmanager.TaskManagerStatus;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskExecutionUnit;
 import de.tuberlin.aura.core.taskmanager.spi.ITaskRuntime;
 import de.tuberlin.aura.drivers.DatasetDriver2;
+import de.tuberlin.aura.drivers.OperatorDriver;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.impl.type.FileArgumentType;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
@@ -101,6 +102,7 @@ public final class TaskManager implements ITaskManager {
         this.ioManager.addEventListener(DataEventType.DATA_EVENT_OUTPUT_GATE_CLOSE, ioHandler);
         this.ioManager.addEventListener(IOEvents.ControlEventType.CONTROL_EVENT_REMOTE_TASK_TRANSITION, ioHandler);
         this.ioManager.addEventListener(IOEvents.ControlEventType.CONTROL_EVENT_EXECUTE_NEXT_ITERATION, ioHandler);
+        this.ioManager.addEventListener(IOEvents.ControlEventType.CONTROL_EVENT_MERGED_KEY_SAMPLE, ioHandler);
 
         // Initialize Zookeeper.
         final String zkServer = ZookeeperClient.buildServersString(config.getObjectList("zookeeper.servers"));
@@ -278,7 +280,9 @@ public final class TaskManager implements ITaskManager {
         for(final ITaskExecutionUnit eu : getTaskExecutionManager().getExecutionUnits()) {
             final UUID taskID = eu.getRuntime() != null ? eu.getRuntime().getNodeDescriptor().taskID : null;
             final String taskName = eu.getRuntime() != null ? eu.getRuntime().getNodeDescriptor().name : null;
-            euStatuses.add(new TaskManagerStatus.ExecutionUnitStatus(taskID, taskName));
+            final List<TaskManagerStatus.OutputSkewReport> skewReports = (eu.getRuntime() != null && eu.getRuntime().getInvokeable() instanceof OperatorDriver)
+                    ? ((OperatorDriver) eu.getRuntime().getInvokeable()).getSkewReports() : null;
+            euStatuses.add(new TaskManagerStatus.ExecutionUnitStatus(taskID, taskName, skewReports));
         }
         return new TaskManagerStatus(euStatuses);
     }
@@ -333,6 +337,13 @@ public final class TaskManager implements ITaskManager {
         }
     }
 
+    /**
+     * Releases the buffer memory of this task manager. No task may run afterwards.
+     */
+    public void shutdown() {
+        bufferMemoryManager.release();
+    }
+
     // ---------------------------------------------------
     // Public Getters.
     // ---------------------------------------------------
@@ -451,5 +462,10 @@ public final class TaskManager implements ITaskManager {
         private void handleNextIterationEvent(final IOEvents.TaskControlIOEvent event) {
             deployedTasks.get(event.getTaskID()).dispatchEvent(event);
         }
+
+        @Handle(event = IOEvents.TaskControlIOEvent.class, type = IOEvents.ControlEventType.CONTROL_EVENT_MERGED_KEY_SAMPLE)
+        private void handleMergedKeySampleEvent(final IOEvents.TaskControlIOEvent event) {
+            deployedTasks.get(event.getTaskID()).dispatchEvent(event);
+        }
     }
 }
\ No newline at end of file
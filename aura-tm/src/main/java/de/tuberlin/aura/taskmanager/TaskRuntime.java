@@ -257,7 +257,8 @@ public final class TaskRuntime extends EventDispatcher implements ITaskRuntime {
         taskManager.getIOManager().connectDataChannel(
                 nodeDescriptor.taskID,
                 dstNodeDescriptor.taskID,
-                dstNodeDescriptor.getMachineDescriptor()
+                dstNodeDescriptor.getMachineDescriptor(),
+                allocator
         );
     }
 
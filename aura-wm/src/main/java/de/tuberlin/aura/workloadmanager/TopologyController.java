@@ -19,6 +19,7 @@ import de.tuberlin.aura.core.common.utils.IVisitor;
 import de.tuberlin.aura.core.common.utils.Pair;
 import de.tuberlin.aura.core.common.utils.PipelineAssembler.AssemblyPipeline;
 import de.tuberlin.aura.core.iosystem.IOEvents;
+import de.tuberlin.aura.core.record.KeySample;
 import de.tuberlin.aura.core.taskmanager.common.TaskStates;
 import de.tuberlin.aura.core.topology.Topology;
 import de.tuberlin.aura.core.topology.Topology.AuraTopology;
@@ -207,6 +208,55 @@ public final class TopologyController extends EventDispatcher implements ITopolo
 
     // ---------------------------------------------------
 
+    private final Object keySampleLock = new Object();
+
+    // the submitted samples per logical node, until all tasks of the node submitted theirs.
+    private final Map<UUID, List<KeySample>> keySamples = new HashMap<>();
+
+    public void addKeySample(final UUID taskID, final KeySample sample) {
+        final Topology.LogicalNode node = getLogicalNode(taskID);
+
+        final KeySample mergedSample;
+
+        synchronized (keySampleLock) {
+            List<KeySample> samples = keySamples.get(node.uid);
+            if (samples == null) {
+                samples = new ArrayList<>();
+                keySamples.put(node.uid, samples);
+            }
+            samples.add(sample);
+
+            if (samples.size() < node.getExecutionNodes().size())
+                return;
+
+            keySamples.remove(node.uid);
+            mergedSample = KeySample.merge(samples);
+        }
+
+        // the tasks wait for the merged sample before they send their output.
+        for (final Topology.ExecutionNode en : node.getExecutionNodes()) {
+
+            final IOEvents.TaskControlIOEvent mergedSampleEvent =
+                    new IOEvents.TaskControlIOEvent(IOEvents.ControlEventType.CONTROL_EVENT_MERGED_KEY_SAMPLE);
+
+            mergedSampleEvent.setPayload(mergedSample);
+            mergedSampleEvent.setTaskID(en.getNodeDescriptor().taskID);
+            mergedSampleEvent.setTopologyID(en.getNodeDescriptor().topologyID);
+
+            workloadManager.getIOManager().sendEvent(en.getNodeDescriptor().getMachineDescriptor(), mergedSampleEvent);
+        }
+    }
+
+    private Topology.LogicalNode getLogicalNode(final UUID taskID) {
+        final Topology.ExecutionNode en = topology.executionNodeMap.get(taskID);
+        // sanity check.
+        if (en == null)
+            throw new IllegalStateException("task " + taskID + " not found");
+        return en.logicalNode;
+    }
+
+    // ---------------------------------------------------
+
     // ---------------------------------------------------
     // Private Methods.
     // ---------------------------------------------------
@@ -10,6 +10,7 @@ import de.tuberlin.aura.core.iosystem.spi.IIOManager;
 import de.tuberlin.aura.core.iosystem.spi.IRPCManager;
 import de.tuberlin.aura.core.protocols.ITM2WMProtocol;
 import de.tuberlin.aura.core.protocols.IWM2TMProtocol;
+import de.tuberlin.aura.core.record.KeySample;
 import de.tuberlin.aura.core.taskmanager.TaskManagerStatus;
 import de.tuberlin.aura.core.topology.Topology;
 import de.tuberlin.aura.workloadmanager.spi.IDistributedEnvironment;
@@ -353,6 +354,13 @@ public class WorkloadManager implements IWorkloadManager, IClientWMProtocol, ITM
 
     // ---------------------------------------------------
 
+    @Override
+    public void submitKeySample(final UUID topologyID, final UUID taskID, final KeySample sample) {
+        this.registeredTopologies.get(topologyID).addKeySample(taskID, sample);
+    }
+
+    // ---------------------------------------------------
+
     @Override
     public List<TaskManagerStatus> getClusterUtilization() {
         final List<TaskManagerStatus> taskManagerStatuses = new ArrayList<>();